@@ -21,6 +21,9 @@
 package nl.lxtreme.ols.api.acquisition;
 
 
+import nl.lxtreme.ols.api.data.*;
+
+
 /**
  * Denotes a concrete result of a single acquisition.
  */
@@ -44,6 +47,14 @@ public interface AcquisitionResult
    */
   public abstract int getChannels();
 
+  /**
+   * Returns the index on the edges of the individual channels of this result,
+   * which is created once and shared by all its users.
+   * 
+   * @return the edge index, never <code>null</code>.
+   */
+  public abstract EdgeIndex getEdgeIndex();
+
   /**
    * Returns a bitmask of enabled channels in the sample data.
    * 
@@ -52,6 +63,14 @@ public interface AcquisitionResult
    */
   public abstract int getEnabledChannels();
 
+  /**
+   * Returns the number of samples in this result, which equals the length of
+   * the arrays returned by {@link #getValues()} and {@link #getTimestamps()}.
+   * 
+   * @return the sample count, >= 0.
+   */
+  public abstract int getSampleCount();
+
   /**
    * Returns the sample index from the given absolute time value.
    * 
@@ -68,6 +87,44 @@ public interface AcquisitionResult
    */
   public abstract int getSampleRate();
 
+  /**
+   * Copies the sample values and time stamps of a range of samples into the
+   * given arrays.
+   * <p>
+   * Use this method in favor of {@link #getValue(int)} and
+   * {@link #getTimestamp(int)} to read many consecutive samples, as
+   * implementations can copy them in bulk.
+   * </p>
+   * 
+   * @param aStartIdx
+   *          the index of the first sample to copy, >= 0;
+   * @param aEndIdx
+   *          the index of the last sample to copy, exclusive, >= aStartIdx
+   *          && <= {@link #getSampleCount()};
+   * @param aValues
+   *          the array to copy the sample values into, starting at index 0,
+   *          cannot be <code>null</code>;
+   * @param aTimestamps
+   *          the array to copy the time stamps into, starting at index 0,
+   *          cannot be <code>null</code>.
+   */
+  public abstract void getSamples( final int aStartIdx, final int aEndIdx, final int[] aValues,
+      final long[] aTimestamps );
+
+  /**
+   * Returns the time stamp of the sample with the given index.
+   * <p>
+   * Use this method in favor of {@link #getTimestamps()} to access individual
+   * time stamps, as implementations are not required to keep all time stamps
+   * in memory.
+   * </p>
+   * 
+   * @param aSampleIdx
+   *          the index of the sample, >= 0 && < {@link #getSampleCount()}.
+   * @return the time stamp of the sample.
+   */
+  public abstract long getTimestamp( final int aSampleIdx );
+
   /**
    * Returns the time stamps of the individual samples.
    * <p>
@@ -79,6 +136,11 @@ public interface AcquisitionResult
    * NOTE: the length of this array <b>must</b> be equal to the length of the
    * array returned by {@link #getValues()}!
    * </p>
+   * <p>
+   * NOTE: implementations that do not keep their time stamps in memory need to
+   * create a new array upon each call to this method, which can be very
+   * expensive for large captures. Use {@link #getTimestamp(int)} instead.
+   * </p>
    * 
    * @return the time stamps, as array of long values.
    * @see #getValues()
@@ -92,12 +154,31 @@ public interface AcquisitionResult
    */
   public abstract long getTriggerPosition();
 
+  /**
+   * Returns the sample value of the sample with the given index.
+   * <p>
+   * Use this method in favor of {@link #getValues()} to access individual
+   * sample values, as implementations are not required to keep all sample
+   * values in memory.
+   * </p>
+   * 
+   * @param aSampleIdx
+   *          the index of the sample, >= 0 && < {@link #getSampleCount()}.
+   * @return the sample value.
+   */
+  public abstract int getValue( final int aSampleIdx );
+
   /**
    * Returns the actual sample values.
    * <p>
    * NOTE: the length of this array <b>must</b> be equal to the length of the
    * array returned by {@link #getTimestamps()}!
    * </p>
+   * <p>
+   * NOTE: implementations that do not keep their sample values in memory need
+   * to create a new array upon each call to this method, which can be very
+   * expensive for large captures. Use {@link #getValue(int)} instead.
+   * </p>
    * 
    * @return the sample values, as array of integers.
    * @see #getTimestamps()
@@ -62,6 +62,9 @@ public class CapturedData implements AcquisitionResult
   /** absolute sample length */
   private final long absoluteLength;
 
+  /** lazily created index on the edges of each channel */
+  private volatile EdgeIndex edgeIndex;
+
   // CONSTRUCTORS
 
   /**
@@ -333,6 +336,49 @@ public class CapturedData implements AcquisitionResult
     this.absoluteLength = aAbsoluteLength;
   }
 
+  /**
+   * Constructs CapturedData based on the given compressed sampling data, which
+   * is known to contain only unique transitions.
+   * <p>
+   * The given arrays are used <b>as-is</b>, without copying or filtering them.
+   * </p>
+   *
+   * @param aValues
+   *          32bit values, containing only unique transitions;
+   * @param aTimestamps
+   *          timestamps in number of samples since sample start, including the
+   *          absolute length as last timestamp;
+   * @param aTriggerPosition
+   *          position of trigger as time value
+   * @param aRate
+   *          sampling rate (may be set to <code>NOT_AVAILABLE</code>)
+   * @param aChannels
+   *          number of used channels
+   * @param aEnabledChannels
+   *          bit mask identifying used channels
+   * @param aAbsLen
+   *          absolute number of samples
+   * @param aTrusted
+   *          only used to distinguish this constructor from the others.
+   * @see TransitionBuffer
+   */
+  CapturedData( final int[] aValues, final long[] aTimestamps, final long aTriggerPosition, final int aRate,
+      final int aChannels, final int aEnabledChannels, final long aAbsLen, final boolean aTrusted )
+  {
+    if ( aValues.length != aTimestamps.length )
+    {
+      throw new IllegalArgumentException( "Values and timestamps size mismatch!" );
+    }
+
+    this.values = aValues;
+    this.timestamps = aTimestamps;
+    this.triggerPosition = aTriggerPosition;
+    this.rate = aRate;
+    this.channels = aChannels;
+    this.enabledChannels = aEnabledChannels;
+    this.absoluteLength = aAbsLen;
+  }
+
   /**
    * Provides a binary search for arrays of long-values.
    * <p>
@@ -416,6 +462,27 @@ public class CapturedData implements AcquisitionResult
     return this.channels;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final EdgeIndex getEdgeIndex()
+  {
+    EdgeIndex result = this.edgeIndex;
+    if ( result == null )
+    {
+      synchronized ( this )
+      {
+        result = this.edgeIndex;
+        if ( result == null )
+        {
+          this.edgeIndex = result = new EdgeIndex( this );
+        }
+      }
+    }
+    return result;
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.CapturedData#getEnabledChannels()
    */
@@ -425,6 +492,15 @@ public class CapturedData implements AcquisitionResult
     return this.enabledChannels;
   }
 
+  /**
+   * @see nl.lxtreme.ols.api.acquisition.AcquisitionResult#getSampleCount()
+   */
+  @Override
+  public final int getSampleCount()
+  {
+    return this.values.length;
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.CapturedData#getSampleIndex(long)
    */
@@ -443,6 +519,27 @@ public class CapturedData implements AcquisitionResult
     return this.rate;
   }
 
+  /**
+   * @see nl.lxtreme.ols.api.acquisition.AcquisitionResult#getSamples(int, int,
+   *      int[], long[])
+   */
+  @Override
+  public final void getSamples( final int aStartIdx, final int aEndIdx, final int[] aValues,
+      final long[] aTimestamps )
+  {
+    System.arraycopy( this.values, aStartIdx, aValues, 0, aEndIdx - aStartIdx );
+    System.arraycopy( this.timestamps, aStartIdx, aTimestamps, 0, aEndIdx - aStartIdx );
+  }
+
+  /**
+   * @see nl.lxtreme.ols.api.acquisition.AcquisitionResult#getTimestamp(int)
+   */
+  @Override
+  public final long getTimestamp( final int aSampleIdx )
+  {
+    return this.timestamps[aSampleIdx];
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.CapturedData#getTimestamps()
    */
@@ -461,6 +558,15 @@ public class CapturedData implements AcquisitionResult
     return this.triggerPosition;
   }
 
+  /**
+   * @see nl.lxtreme.ols.api.acquisition.AcquisitionResult#getValue(int)
+   */
+  @Override
+  public final int getValue( final int aSampleIdx )
+  {
+    return this.values[aSampleIdx];
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.CapturedData#getValues()
    */
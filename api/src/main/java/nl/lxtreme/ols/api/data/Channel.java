@@ -41,6 +41,14 @@ public interface Channel extends Comparable<Channel>
    */
   void addAnnotation( Annotation<?> aAnnotation );
 
+  /**
+   * Adds the given annotations to this channel, in order.
+   * 
+   * @param aAnnotations
+   *          the annotations to add, cannot be <code>null</code>.
+   */
+  void addAnnotations( Collection<? extends Annotation<?>> aAnnotations );
+
   /**
    * Clears all annotations from this channel.
    */
@@ -54,6 +62,14 @@ public interface Channel extends Comparable<Channel>
    */
   Collection<Annotation<?>> getAnnotations();
 
+  /**
+   * Returns a time-sorted index on the data annotations of this channel.
+   * 
+   * @return an index of this channel's current data annotations, never
+   *         <code>null</code>.
+   */
+  AnnotationIndex getAnnotationIndex();
+
   /**
    * Returns the index of this channel.
    * 
@@ -0,0 +1,492 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+
+
+/**
+ * Provides an {@link AcquisitionResult} that stores its timestamps in a
+ * compact, delta-encoded form.
+ * <p>
+ * The timestamps are divided in blocks of {@value #BLOCK_SIZE} transitions.
+ * Each block starts with an absolute anchor timestamp, followed by the deltas
+ * of all subsequent timestamps, encoded as variable-length integers (7 bits per
+ * byte). As most deltas are small, a timestamp typically takes one or two
+ * bytes instead of eight. The anchors form a sparse index that allows
+ * {@link #getSampleIndex(long)} to remain a binary search.
+ * </p>
+ * <p>
+ * Each thread decodes into its own, reused block buffer, which also serves as
+ * a cache for the last decoded block. This makes sequential access almost as
+ * fast as accessing a plain array, and keeps random access free of garbage,
+ * even when multiple threads read the same instance concurrently.
+ * </p>
+ */
+public final class CompactCapturedData implements AcquisitionResult
+{
+  // INNER TYPES
+
+  /**
+   * Provides a reusable, per-thread holder for a decoded block of timestamps.
+   */
+  static final class DecodedBlock
+  {
+    int index = -1;
+    final long[] timestamps = new long[BLOCK_SIZE];
+  }
+
+  // CONSTANTS
+
+  /** The number of timestamps per block. */
+  static final int BLOCK_SIZE = 64;
+
+  private static final int BLOCK_SHIFT = 6;
+  private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+  // VARIABLES
+
+  private final int[] values;
+  private final int count;
+  private final long[] anchors;
+  private final int[] blockOffsets;
+  private final byte[] deltas;
+  private final long triggerPosition;
+  private final int rate;
+  private final int channels;
+  private final int enabledChannels;
+  private final long absoluteLength;
+
+  private final ThreadLocal<DecodedBlock> lastBlock = new ThreadLocal<DecodedBlock>()
+  {
+    @Override
+    protected DecodedBlock initialValue()
+    {
+      return new DecodedBlock();
+    }
+  };
+  private volatile EdgeIndex edgeIndex;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new CompactCapturedData instance.
+   * <p>
+   * The given values are used as-is, the given timestamps are only used to
+   * create the compact representation and can be discarded afterwards.
+   * </p>
+   *
+   * @param aValues
+   *          32bit values, containing only unique transitions;
+   * @param aTimestamps
+   *          timestamps in number of samples since sample start, in ascending
+   *          order;
+   * @param aTriggerPosition
+   *          position of trigger as time value
+   * @param aRate
+   *          sampling rate (may be set to <code>NOT_AVAILABLE</code>)
+   * @param aChannels
+   *          number of used channels
+   * @param aEnabledChannels
+   *          bit mask identifying used channels
+   * @param aAbsLen
+   *          absolute number of samples
+   * @throws IllegalArgumentException
+   *           in case the values and timestamps differ in length, or the
+   *           timestamps are not in ascending order.
+   */
+  public CompactCapturedData( final int[] aValues, final long[] aTimestamps, final long aTriggerPosition,
+      final int aRate, final int aChannels, final int aEnabledChannels, final long aAbsLen )
+  {
+    if ( aValues.length != aTimestamps.length )
+    {
+      throw new IllegalArgumentException( "Values and timestamps size mismatch!" );
+    }
+
+    this.values = aValues;
+    this.count = aValues.length;
+    this.triggerPosition = aTriggerPosition;
+    this.rate = aRate;
+    this.channels = aChannels;
+    this.enabledChannels = aEnabledChannels;
+    this.absoluteLength = aAbsLen;
+
+    final int blockCount = ( this.count + BLOCK_MASK ) >>> BLOCK_SHIFT;
+    this.anchors = new long[blockCount];
+    this.blockOffsets = new int[blockCount];
+
+    // Most deltas fit in one or two bytes...
+    byte[] buffer = new byte[Math.max( 16, this.count + ( this.count >> 1 ) )];
+    int pos = 0;
+
+    long previous = 0L;
+    for ( int i = 0; i < this.count; i++ )
+    {
+      final long timestamp = aTimestamps[i];
+
+      if ( ( i & BLOCK_MASK ) == 0 )
+      {
+        final int block = i >>> BLOCK_SHIFT;
+        this.anchors[block] = timestamp;
+        this.blockOffsets[block] = pos;
+      }
+      else
+      {
+        long delta = timestamp - previous;
+        if ( delta < 0L )
+        {
+          throw new IllegalArgumentException( "Timestamps must be in ascending order!" );
+        }
+
+        if ( ( buffer.length - pos ) < 10 )
+        {
+          final byte[] newBuffer = new byte[buffer.length + ( buffer.length >> 1 ) + 10];
+          System.arraycopy( buffer, 0, newBuffer, 0, pos );
+          buffer = newBuffer;
+        }
+
+        while ( delta > 0x7FL )
+        {
+          buffer[pos++] = ( byte )( ( delta & 0x7F ) | 0x80 );
+          delta >>>= 7;
+        }
+        buffer[pos++] = ( byte )delta;
+      }
+
+      previous = timestamp;
+    }
+
+    this.deltas = new byte[pos];
+    System.arraycopy( buffer, 0, this.deltas, 0, pos );
+  }
+
+  // METHODS
+
+  /**
+   * Creates a compact copy of the given acquisition result.
+   *
+   * @param aData
+   *          the acquisition result to compact, cannot be <code>null</code>.
+   * @return a new {@link CompactCapturedData} instance, never <code>null</code>
+   *         .
+   */
+  public static CompactCapturedData compact( final AcquisitionResult aData )
+  {
+    return new CompactCapturedData( aData.getValues(), aData.getTimestamps(), aData.getTriggerPosition(),
+        aData.getSampleRate(), aData.getChannels(), aData.getEnabledChannels(), aData.getAbsoluteLength() );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getAbsoluteLength()
+  {
+    return this.absoluteLength;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getChannels()
+  {
+    return this.channels;
+  }
+
+  /**
+   * Returns the number of bytes used to store the timestamps.
+   *
+   * @return a size, in bytes, >= 0.
+   */
+  public long getCompactTimestampSize()
+  {
+    return this.deltas.length + ( 12L * this.anchors.length );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public EdgeIndex getEdgeIndex()
+  {
+    EdgeIndex result = this.edgeIndex;
+    if ( result == null )
+    {
+      synchronized ( this )
+      {
+        result = this.edgeIndex;
+        if ( result == null )
+        {
+          this.edgeIndex = result = new EdgeIndex( this );
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getEnabledChannels()
+  {
+    return this.enabledChannels;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getSampleCount()
+  {
+    return this.count;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getSampleIndex( final long aTimeValue )
+  {
+    if ( this.count == 0 )
+    {
+      return 0;
+    }
+
+    // Find the first block whose anchor is *not* less than the given value...
+    int low = 0;
+    int high = this.anchors.length - 1;
+    while ( low <= high )
+    {
+      final int mid = ( low + high ) >>> 1;
+      if ( this.anchors[mid] < aTimeValue )
+      {
+        low = mid + 1;
+      }
+      else
+      {
+        high = mid - 1;
+      }
+    }
+
+    // The first timestamp >= the given value is either in the preceding block,
+    // or is the anchor of the found block...
+    int result = low << BLOCK_SHIFT;
+    if ( low > 0 )
+    {
+      final long[] block = getBlock( low - 1 ).timestamps;
+      final int base = ( low - 1 ) << BLOCK_SHIFT;
+      final int size = Math.min( BLOCK_SIZE, this.count - base );
+
+      for ( int i = 1; i < size; i++ )
+      {
+        if ( block[i] >= aTimeValue )
+        {
+          result = base + i;
+          break;
+        }
+      }
+    }
+
+    // Same semantics as CapturedData#binarySearch; never beyond the last
+    // sample...
+    return Math.min( result, this.count - 1 );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getSampleRate()
+  {
+    return this.rate;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void getSamples( final int aStartIdx, final int aEndIdx, final int[] aValues, final long[] aTimestamps )
+  {
+    if ( ( aStartIdx < 0 ) || ( aEndIdx > this.count ) || ( aStartIdx > aEndIdx ) )
+    {
+      throw new IndexOutOfBoundsException( "Invalid sample range: " + aStartIdx + ".." + aEndIdx );
+    }
+
+    System.arraycopy( this.values, aStartIdx, aValues, 0, aEndIdx - aStartIdx );
+
+    int idx = aStartIdx;
+    while ( idx < aEndIdx )
+    {
+      final int block = idx >>> BLOCK_SHIFT;
+      final int blockStart = block << BLOCK_SHIFT;
+      final int blockEnd = Math.min( blockStart + BLOCK_SIZE, this.count );
+
+      if ( ( idx == blockStart ) && ( blockEnd <= aEndIdx ) )
+      {
+        // Decode complete blocks directly into the given array...
+        decodeBlock( block, aTimestamps, idx - aStartIdx );
+      }
+      else
+      {
+        final int length = Math.min( blockEnd, aEndIdx ) - idx;
+        System.arraycopy( getBlock( block ).timestamps, idx - blockStart, aTimestamps, idx - aStartIdx, length );
+      }
+
+      idx = blockEnd;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getTimestamp( final int aSampleIdx )
+  {
+    if ( ( aSampleIdx < 0 ) || ( aSampleIdx >= this.count ) )
+    {
+      throw new IndexOutOfBoundsException( "Invalid sample index: " + aSampleIdx );
+    }
+    return getBlock( aSampleIdx >>> BLOCK_SHIFT ).timestamps[aSampleIdx & BLOCK_MASK];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long[] getTimestamps()
+  {
+    final long[] result = new long[this.count];
+    for ( int block = 0; block < this.anchors.length; block++ )
+    {
+      decodeBlock( block, result, block << BLOCK_SHIFT );
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getTriggerPosition()
+  {
+    return this.triggerPosition;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getValue( final int aSampleIdx )
+  {
+    return this.values[aSampleIdx];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int[] getValues()
+  {
+    return this.values;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean hasTimingData()
+  {
+    return ( this.rate != Ols.NOT_AVAILABLE );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean hasTriggerData()
+  {
+    return ( this.triggerPosition != Ols.NOT_AVAILABLE );
+  }
+
+  /**
+   * Decodes a single block of timestamps into the given array.
+   *
+   * @param aBlock
+   *          the index of the block to decode;
+   * @param aTarget
+   *          the array to decode the timestamps into;
+   * @param aOffset
+   *          the offset in the given array to start writing.
+   */
+  private void decodeBlock( final int aBlock, final long[] aTarget, final int aOffset )
+  {
+    final byte[] data = this.deltas;
+    final int size = Math.min( BLOCK_SIZE, this.count - ( aBlock << BLOCK_SHIFT ) );
+
+    int pos = this.blockOffsets[aBlock];
+    long timestamp = this.anchors[aBlock];
+    aTarget[aOffset] = timestamp;
+
+    for ( int i = 1; i < size; i++ )
+    {
+      long delta = 0L;
+      int shift = 0;
+      byte b;
+      do
+      {
+        b = data[pos++];
+        delta |= ( long )( b & 0x7F ) << shift;
+        shift += 7;
+      }
+      while ( b < 0 );
+
+      timestamp += delta;
+      aTarget[aOffset + i] = timestamp;
+    }
+  }
+
+  /**
+   * Returns the decoded block with the given index, using the block last
+   * decoded by the calling thread when possible.
+   * <p>
+   * The returned block is owned by the calling thread and is overwritten by its
+   * next call to this method.
+   * </p>
+   *
+   * @param aBlock
+   *          the index of the block to return.
+   * @return a decoded block, never <code>null</code>.
+   */
+  private DecodedBlock getBlock( final int aBlock )
+  {
+    final DecodedBlock block = this.lastBlock.get();
+    if ( block.index != aBlock )
+    {
+      decodeBlock( aBlock, block.timestamps, 0 );
+      block.index = aBlock;
+    }
+    return block;
+  }
+}
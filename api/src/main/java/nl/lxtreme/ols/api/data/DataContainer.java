@@ -112,7 +112,7 @@ public final class DataContainer implements AcquisitionResult
    */
   public double calculateTime( final int aSampleIndex )
   {
-    double timestamp = calculateTimeOffset( getTimestamps()[aSampleIndex] );
+    double timestamp = calculateTimeOffset( getTimestamp( aSampleIndex ) );
     return ( timestamp / getSampleRate() );
   }
 
@@ -332,6 +332,15 @@ public final class DataContainer implements AcquisitionResult
         / ( double )getAcquisitionData().getSampleRate() );
   }
 
+  /**
+   * @see nl.lxtreme.ols.api.acquisition.AcquisitionResult#getEdgeIndex()
+   */
+  @Override
+  public EdgeIndex getEdgeIndex()
+  {
+    return hasCapturedData() ? getAcquisitionData().getEdgeIndex() : new EdgeIndex( this );
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.CapturedData#getEnabledChannels()
    */
@@ -341,6 +350,15 @@ public final class DataContainer implements AcquisitionResult
     return hasCapturedData() ? getAcquisitionData().getEnabledChannels() : Ols.NOT_AVAILABLE;
   }
 
+  /**
+   * @see nl.lxtreme.ols.api.acquisition.AcquisitionResult#getSampleCount()
+   */
+  @Override
+  public int getSampleCount()
+  {
+    return hasCapturedData() ? getAcquisitionData().getSampleCount() : 0;
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.CapturedData#getSampleIndex(long)
    */
@@ -359,6 +377,33 @@ public final class DataContainer implements AcquisitionResult
     return hasCapturedData() ? getAcquisitionData().getSampleRate() : Ols.NOT_AVAILABLE;
   }
 
+  /**
+   * @see nl.lxtreme.ols.api.acquisition.AcquisitionResult#getSamples(int, int,
+   *      int[], long[])
+   */
+  @Override
+  public void getSamples( final int aStartIdx, final int aEndIdx, final int[] aValues, final long[] aTimestamps )
+  {
+    if ( !hasCapturedData() )
+    {
+      throw new IndexOutOfBoundsException( "No captured data!" );
+    }
+    getAcquisitionData().getSamples( aStartIdx, aEndIdx, aValues, aTimestamps );
+  }
+
+  /**
+   * @see nl.lxtreme.ols.api.acquisition.AcquisitionResult#getTimestamp(int)
+   */
+  @Override
+  public long getTimestamp( final int aSampleIdx )
+  {
+    if ( !hasCapturedData() )
+    {
+      throw new IndexOutOfBoundsException( "No captured data!" );
+    }
+    return getAcquisitionData().getTimestamp( aSampleIdx );
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.CapturedData#getTimestamps()
    */
@@ -377,6 +422,19 @@ public final class DataContainer implements AcquisitionResult
     return hasCapturedData() && hasTriggerData() ? getAcquisitionData().getTriggerPosition() : Ols.NOT_AVAILABLE;
   }
 
+  /**
+   * @see nl.lxtreme.ols.api.acquisition.AcquisitionResult#getValue(int)
+   */
+  @Override
+  public int getValue( final int aSampleIdx )
+  {
+    if ( !hasCapturedData() )
+    {
+      throw new IndexOutOfBoundsException( "No captured data!" );
+    }
+    return getAcquisitionData().getValue( aSampleIdx );
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.CapturedData#getValues()
    */
@@ -0,0 +1,501 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+
+
+/**
+ * Provides an index on the edges of each individual channel of captured data,
+ * allowing edges to be found and counted, and high/low times to be determined,
+ * in logarithmic time.
+ * <p>
+ * The edges of a channel are stored as an array of timestamps, together with
+ * the prefix sums of the time the channel is high, sampled every
+ * {@value #HIGH_TIME_INTERVAL} edges. This costs about 8.5 bytes per edge, and
+ * as a channel cannot have more edges than the captured data has samples, the
+ * index of a single channel never exceeds 8.5 bytes per sample.
+ * </p>
+ * <p>
+ * The edges of a channel are determined on demand, for that channel only.
+ * Alternatively, the edges of multiple channels can be determined up front, in
+ * parallel, by {@link #prepare(int)} or {@link #prepareInBackground(int)}.
+ * </p>
+ */
+public final class EdgeIndex
+{
+  // INNER TYPES
+
+  /**
+   * Provides the edges of a single channel.
+   * <p>
+   * Edges are numbered from zero onwards. As each edge toggles the channel,
+   * the edges alternate between rising and falling edges.
+   * </p>
+   */
+  public static final class ChannelEdges
+  {
+    // VARIABLES
+
+    private final int initialLevel;
+    private final long[] timestamps;
+    /**
+     * the time the channel is high between the first edge and every
+     * {@value EdgeIndex#HIGH_TIME_INTERVAL}th edge.
+     */
+    private final long[] highTimes;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new ChannelEdges instance.
+     */
+    ChannelEdges( final int aInitialLevel, final long[] aTimestamps, final long[] aHighTimes )
+    {
+      this.initialLevel = aInitialLevel;
+      this.timestamps = aTimestamps;
+      this.highTimes = aHighTimes;
+    }
+
+    // METHODS
+
+    /**
+     * Returns the number of edges in the given range of edges that are
+     * rising edges.
+     *
+     * @param aFromEdge
+     *          the first edge (inclusive);
+     * @param aToEdge
+     *          the last edge (exclusive).
+     * @return a number of rising edges, &gt;= 0.
+     */
+    public int countRisingEdges( final int aFromEdge, final int aToEdge )
+    {
+      if ( aToEdge <= aFromEdge )
+      {
+        return 0;
+      }
+      // Rising edges are those with the same parity as the initial level...
+      return countParity( aToEdge, this.initialLevel ) - countParity( aFromEdge, this.initialLevel );
+    }
+
+    /**
+     * Returns the first edge that occurs strictly after the given timestamp.
+     *
+     * @param aTimestamp
+     *          the timestamp to search for.
+     * @return the number of the found edge, or {@link #getEdgeCount()} if no
+     *         such edge exists.
+     */
+    public int findEdgeAfter( final long aTimestamp )
+    {
+      int low = 0;
+      int high = this.timestamps.length;
+      while ( low < high )
+      {
+        final int mid = ( low + high ) >>> 1;
+        if ( this.timestamps[mid] <= aTimestamp )
+        {
+          low = mid + 1;
+        }
+        else
+        {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Returns the last edge that occurs strictly before the given timestamp.
+     *
+     * @param aTimestamp
+     *          the timestamp to search for.
+     * @return the number of the found edge, or -1 if no such edge exists.
+     */
+    public int findEdgeBefore( final long aTimestamp )
+    {
+      int low = 0;
+      int high = this.timestamps.length;
+      while ( low < high )
+      {
+        final int mid = ( low + high ) >>> 1;
+        if ( this.timestamps[mid] < aTimestamp )
+        {
+          low = mid + 1;
+        }
+        else
+        {
+          high = mid;
+        }
+      }
+      return low - 1;
+    }
+
+    /**
+     * Returns the number of edges of this channel.
+     *
+     * @return an edge count, &gt;= 0.
+     */
+    public int getEdgeCount()
+    {
+      return this.timestamps.length;
+    }
+
+    /**
+     * Returns the time the channel is high between the two given edges.
+     * <p>
+     * As there is no edge after the last edge, edges beyond the last edge are
+     * taken as the last edge.
+     * </p>
+     *
+     * @param aFromEdge
+     *          the first edge, &gt;= 0;
+     * @param aToEdge
+     *          the last edge, &gt;= aFromEdge.
+     * @return the high time, in timestamp units.
+     * @throws IllegalArgumentException
+     *           in case the given edges do not denote a valid range.
+     */
+    public long getHighTime( final int aFromEdge, final int aToEdge )
+    {
+      if ( ( aFromEdge < 0 ) || ( aToEdge < aFromEdge ) )
+      {
+        throw new IllegalArgumentException( "Invalid edge range: " + aFromEdge + ".." + aToEdge + "!" );
+      }
+
+      final int lastEdge = this.timestamps.length - 1;
+      if ( aFromEdge >= lastEdge )
+      {
+        return 0L;
+      }
+      return getHighTime( Math.min( aToEdge, lastEdge ) ) - getHighTime( aFromEdge );
+    }
+
+    /**
+     * Returns the level of the channel at the start of the captured data.
+     *
+     * @return 0 if the channel is initially low, 1 if it is initially high.
+     */
+    public int getInitialLevel()
+    {
+      return this.initialLevel;
+    }
+
+    /**
+     * Returns the level of the channel directly after the given edge.
+     *
+     * @param aEdge
+     *          the number of the edge, or -1 to denote the initial level.
+     * @return 0 if the channel is low after the edge, 1 if it is high.
+     */
+    public int getLevelAfter( final int aEdge )
+    {
+      return this.initialLevel ^ ( ( aEdge + 1 ) & 1 );
+    }
+
+    /**
+     * Returns the timestamp of the given edge.
+     *
+     * @param aEdge
+     *          the number of the edge, &gt;= 0 &amp;&amp; &lt;
+     *          {@link #getEdgeCount()}.
+     * @return the timestamp of the edge.
+     */
+    public long getTimestamp( final int aEdge )
+    {
+      return this.timestamps[aEdge];
+    }
+
+    /**
+     * Returns whether the given edge is a rising edge.
+     *
+     * @param aEdge
+     *          the number of the edge.
+     * @return <code>true</code> if the edge is rising, <code>false</code> if it
+     *         is falling.
+     */
+    public boolean isRising( final int aEdge )
+    {
+      return getLevelAfter( aEdge ) != 0;
+    }
+
+    /**
+     * Returns the number of values in [0, aCount) with the given parity.
+     */
+    private static int countParity( final int aCount, final int aParity )
+    {
+      return ( aCount + 1 - aParity ) >> 1;
+    }
+
+    /**
+     * Returns the time the channel is high between the first and the given
+     * edge, starting at the nearest preceding sampled prefix sum.
+     */
+    private long getHighTime( final int aEdge )
+    {
+      int edge = aEdge & ~HIGH_TIME_MASK;
+      long result = this.highTimes[aEdge >>> HIGH_TIME_SHIFT];
+      // The channel is high after the edges with the same parity as the
+      // initial level...
+      for ( edge += ( ( edge & 1 ) == this.initialLevel ) ? 0 : 1; edge < aEdge; edge += 2 )
+      {
+        result += this.timestamps[edge + 1] - this.timestamps[edge];
+      }
+      return result;
+    }
+  }
+
+  // CONSTANTS
+
+  /** The number of edges between two sampled high time prefix sums. */
+  static final int HIGH_TIME_INTERVAL = 16;
+
+  private static final int HIGH_TIME_SHIFT = 4;
+  private static final int HIGH_TIME_MASK = HIGH_TIME_INTERVAL - 1;
+
+  /** The minimal number of samples upon which channels are built in parallel. */
+  private static final int PARALLEL_THRESHOLD = 65536;
+
+  private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool( Runtime.getRuntime()
+      .availableProcessors(), new ThreadFactory()
+  {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread( final Runnable aRunnable )
+    {
+      final Thread result = new Thread( aRunnable, "EdgeIndexBuilder-" + this.count.incrementAndGet() );
+      result.setDaemon( true );
+      return result;
+    }
+  } );
+
+  // VARIABLES
+
+  private final AcquisitionResult data;
+  private final AtomicReferenceArray<ChannelEdges> channels;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new EdgeIndex instance.
+   *
+   * @param aData
+   *          the captured data to index, cannot be <code>null</code>.
+   */
+  public EdgeIndex( final AcquisitionResult aData )
+  {
+    this.data = aData;
+    this.channels = new AtomicReferenceArray<ChannelEdges>( Ols.MAX_CHANNELS );
+  }
+
+  // METHODS
+
+  /**
+   * Determines the edges of the given channel.
+   */
+  private static ChannelEdges buildChannelEdges( final AcquisitionResult aData, final int aChannelIdx )
+  {
+    final int mask = 1 << aChannelIdx;
+    final int count = aData.getSampleCount();
+
+    final int initialLevel = ( count > 0 ) && ( ( aData.getValue( 0 ) & mask ) != 0 ) ? 1 : 0;
+
+    // First pass: count the edges, allowing exactly sized arrays...
+    int edgeCount = 0;
+    int prevLevel = initialLevel;
+    for ( int i = 1; i < count; i++ )
+    {
+      final int level = ( aData.getValue( i ) & mask ) != 0 ? 1 : 0;
+      if ( level != prevLevel )
+      {
+        edgeCount++;
+        prevLevel = level;
+      }
+    }
+
+    final long[] timestamps = new long[edgeCount];
+    final long[] highTimes = new long[( edgeCount + HIGH_TIME_MASK ) >>> HIGH_TIME_SHIFT];
+
+    // Second pass: fill in the timestamps and the (sampled) high time...
+    int edge = 0;
+    long highTime = 0L;
+    prevLevel = initialLevel;
+    for ( int i = 1; ( i < count ) && ( edge < edgeCount ); i++ )
+    {
+      final int level = ( aData.getValue( i ) & mask ) != 0 ? 1 : 0;
+      if ( level != prevLevel )
+      {
+        final long timestamp = aData.getTimestamp( i );
+        if ( ( edge > 0 ) && ( prevLevel != 0 ) )
+        {
+          // Falling edge: the channel was high since the previous edge...
+          highTime += timestamp - timestamps[edge - 1];
+        }
+
+        timestamps[edge] = timestamp;
+        if ( ( edge & HIGH_TIME_MASK ) == 0 )
+        {
+          highTimes[edge >>> HIGH_TIME_SHIFT] = highTime;
+        }
+        edge++;
+
+        prevLevel = level;
+      }
+    }
+
+    return new ChannelEdges( initialLevel, timestamps, highTimes );
+  }
+
+  /**
+   * Returns the edges of the channel with the given index, determining them
+   * first if needed.
+   * <p>
+   * Only the edges of the requested channel are determined, use
+   * {@link #prepareInBackground(int)} to determine the edges of multiple
+   * channels up front.
+   * </p>
+   *
+   * @param aChannelIdx
+   *          the index of the channel, &gt;= 0 &amp;&amp; &lt;
+   *          {@link Ols#MAX_CHANNELS}.
+   * @return the edges of the channel, never <code>null</code>.
+   */
+  public ChannelEdges getChannelEdges( final int aChannelIdx )
+  {
+    if ( ( aChannelIdx < 0 ) || ( aChannelIdx >= Ols.MAX_CHANNELS ) )
+    {
+      throw new IllegalArgumentException( "Invalid channel index: " + aChannelIdx + "!" );
+    }
+
+    ChannelEdges result = this.channels.get( aChannelIdx );
+    if ( result == null )
+    {
+      result = buildChannelEdges( this.data, aChannelIdx );
+      if ( !this.channels.compareAndSet( aChannelIdx, null, result ) )
+      {
+        result = this.channels.get( aChannelIdx );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Determines the edges of all given channels, in parallel if worthwhile.
+   * <p>
+   * The calling thread takes part in determining the edges, and this method
+   * returns once the edges of all given channels are determined. As this can
+   * take a while for large captures, this method should not be called on the
+   * EDT.
+   * </p>
+   *
+   * @param aChannelMask
+   *          the bitmask of channels to determine the edges for.
+   */
+  public void prepare( final int aChannelMask )
+  {
+    final List<Integer> channelIndices = new ArrayList<Integer>();
+    for ( int i = 0; i < Ols.MAX_CHANNELS; i++ )
+    {
+      if ( ( ( aChannelMask & ( 1 << i ) ) != 0 ) && ( this.channels.get( i ) == null ) )
+      {
+        channelIndices.add( Integer.valueOf( i ) );
+      }
+    }
+
+    if ( ( channelIndices.size() < 2 ) || ( this.data.getSampleCount() < PARALLEL_THRESHOLD ) )
+    {
+      for ( Integer channelIdx : channelIndices )
+      {
+        getChannelEdges( channelIdx.intValue() );
+      }
+      return;
+    }
+
+    final List<FutureTask<ChannelEdges>> tasks = new ArrayList<FutureTask<ChannelEdges>>();
+    for ( final Integer channelIdx : channelIndices )
+    {
+      final FutureTask<ChannelEdges> task = new FutureTask<ChannelEdges>( new Callable<ChannelEdges>()
+      {
+        @Override
+        public ChannelEdges call() throws Exception
+        {
+          return getChannelEdges( channelIdx.intValue() );
+        }
+      } );
+      tasks.add( task );
+      EXECUTOR.execute( task );
+    }
+
+    try
+    {
+      // Help out with the tasks that are not yet picked up by the executor,
+      // this also avoids deadlocks in case we're running on the executor...
+      for ( FutureTask<ChannelEdges> task : tasks )
+      {
+        task.run();
+      }
+      for ( FutureTask<ChannelEdges> task : tasks )
+      {
+        task.get();
+      }
+    }
+    catch ( InterruptedException exception )
+    {
+      // Make sure our thread administration is correct; the remaining channels
+      // will be built on demand...
+      Thread.currentThread().interrupt();
+    }
+    catch ( ExecutionException exception )
+    {
+      throw new RuntimeException( "Failed to determine channel edges!", exception.getCause() );
+    }
+  }
+
+  /**
+   * Determines the edges of all given channels in the background, allowing
+   * later requests for these edges to be answered directly.
+   *
+   * @param aChannelMask
+   *          the bitmask of channels to determine the edges for.
+   * @return a future denoting the completion of the preparation, never
+   *         <code>null</code>.
+   * @see #prepare(int)
+   */
+  public Future<?> prepareInBackground( final int aChannelMask )
+  {
+    return EXECUTOR.submit( new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        prepare( aChannelMask );
+      }
+    } );
+  }
+}
@@ -0,0 +1,352 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.channels.FileChannel.MapMode;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+
+
+/**
+ * Provides an {@link AcquisitionResult} whose transitions are kept in a
+ * memory-mapped file instead of on the heap, allowing captures that are larger
+ * than the available heap space.
+ * <p>
+ * Each transition is stored as a record of a 32-bit value followed by a 64-bit
+ * timestamp. As a single mapping is limited in size, the file is mapped in
+ * several segments.
+ * </p>
+ * <p>
+ * Instances of this class are created by {@link TransitionBuffer} once the
+ * number of transitions exceeds its threshold; small captures are always kept
+ * in a (faster) {@link CapturedData}.
+ * </p>
+ */
+public final class MappedCapturedData implements AcquisitionResult
+{
+  // CONSTANTS
+
+  /** The size of a single transition record, in bytes. */
+  static final int RECORD_SIZE = 12;
+
+  /** 2^24 records per segment, or 192MB per mapping. */
+  private static final int SEGMENT_SHIFT = 24;
+  private static final int SEGMENT_MASK = ( 1 << SEGMENT_SHIFT ) - 1;
+
+  // VARIABLES
+
+  private final ByteBuffer[] segments;
+  private final int count;
+  private final long triggerPosition;
+  private final int rate;
+  private final int channels;
+  private final int enabledChannels;
+  private final long absoluteLength;
+
+  private volatile EdgeIndex edgeIndex;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new MappedCapturedData instance.
+   *
+   * @param aFile
+   *          the file containing the transition records, cannot be
+   *          <code>null</code>. This file will be deleted as soon as possible;
+   * @param aCount
+   *          the number of transition records in the given file;
+   * @param aTriggerPosition
+   *          position of trigger as time value
+   * @param aRate
+   *          sampling rate (may be set to <code>NOT_AVAILABLE</code>)
+   * @param aChannels
+   *          number of used channels
+   * @param aEnabledChannels
+   *          bit mask identifying used channels
+   * @param aAbsLen
+   *          absolute number of samples
+   * @throws IOException
+   *           in case the given file could not be mapped into memory.
+   */
+  MappedCapturedData( final File aFile, final int aCount, final long aTriggerPosition, final int aRate,
+      final int aChannels, final int aEnabledChannels, final long aAbsLen ) throws IOException
+  {
+    this.count = aCount;
+    this.triggerPosition = aTriggerPosition;
+    this.rate = aRate;
+    this.channels = aChannels;
+    this.enabledChannels = aEnabledChannels;
+    this.absoluteLength = aAbsLen;
+
+    final int segmentCount = ( aCount + SEGMENT_MASK ) >>> SEGMENT_SHIFT;
+    this.segments = new ByteBuffer[segmentCount];
+
+    final RandomAccessFile raf = new RandomAccessFile( aFile, "r" );
+    try
+    {
+      final FileChannel channel = raf.getChannel();
+      for ( int i = 0; i < segmentCount; i++ )
+      {
+        final long start = ( ( long )i << SEGMENT_SHIFT ) * RECORD_SIZE;
+        final long size = Math.min( ( long )aCount * RECORD_SIZE - start, ( long )RECORD_SIZE << SEGMENT_SHIFT );
+
+        this.segments[i] = channel.map( MapMode.READ_ONLY, start, size );
+      }
+    }
+    finally
+    {
+      // The mappings remain valid after the file is closed...
+      raf.close();
+    }
+
+    // On most platforms, a mapped file can be deleted while still in use...
+    if ( !aFile.delete() )
+    {
+      aFile.deleteOnExit();
+    }
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getAbsoluteLength()
+  {
+    return this.absoluteLength;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getChannels()
+  {
+    return this.channels;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public EdgeIndex getEdgeIndex()
+  {
+    EdgeIndex result = this.edgeIndex;
+    if ( result == null )
+    {
+      synchronized ( this )
+      {
+        result = this.edgeIndex;
+        if ( result == null )
+        {
+          this.edgeIndex = result = new EdgeIndex( this );
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getEnabledChannels()
+  {
+    return this.enabledChannels;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getSampleCount()
+  {
+    return this.count;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getSampleIndex( final long aTimeValue )
+  {
+    // Same semantics as CapturedData#binarySearch...
+    int mid = -1;
+    int low = 0;
+    int high = this.count - 1;
+
+    while ( low <= high )
+    {
+      mid = ( low + high ) >>> 1;
+      final long midVal = getTimestamp( mid );
+
+      if ( aTimeValue > midVal )
+      {
+        low = mid + 1;
+      }
+      else if ( aTimeValue < midVal )
+      {
+        high = mid - 1;
+      }
+      else
+      {
+        return mid; // key found
+      }
+    }
+
+    if ( mid < 0 )
+    {
+      return low;
+    }
+
+    // Determine the insertion point, avoid crossing the array boundaries...
+    if ( ( mid < ( this.count - 1 ) ) && ( aTimeValue > getTimestamp( mid ) ) )
+    {
+      return mid + 1;
+    }
+
+    return mid;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getSampleRate()
+  {
+    return this.rate;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void getSamples( final int aStartIdx, final int aEndIdx, final int[] aValues, final long[] aTimestamps )
+  {
+    for ( int i = aStartIdx; i < aEndIdx; i++ )
+    {
+      final ByteBuffer segment = segment( i );
+      final int offset = offset( i );
+
+      aValues[i - aStartIdx] = segment.getInt( offset );
+      aTimestamps[i - aStartIdx] = segment.getLong( offset + 4 );
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getTimestamp( final int aSampleIdx )
+  {
+    return segment( aSampleIdx ).getLong( offset( aSampleIdx ) + 4 );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long[] getTimestamps()
+  {
+    final long[] result = new long[this.count];
+    for ( int i = 0; i < result.length; i++ )
+    {
+      result[i] = getTimestamp( i );
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getTriggerPosition()
+  {
+    return this.triggerPosition;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getValue( final int aSampleIdx )
+  {
+    return segment( aSampleIdx ).getInt( offset( aSampleIdx ) );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int[] getValues()
+  {
+    final int[] result = new int[this.count];
+    for ( int i = 0; i < result.length; i++ )
+    {
+      result[i] = getValue( i );
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean hasTimingData()
+  {
+    return ( this.rate != Ols.NOT_AVAILABLE );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean hasTriggerData()
+  {
+    return ( this.triggerPosition != Ols.NOT_AVAILABLE );
+  }
+
+  /**
+   * Returns the byte offset of the given sample index in its segment.
+   */
+  private int offset( final int aSampleIdx )
+  {
+    if ( ( aSampleIdx < 0 ) || ( aSampleIdx >= this.count ) )
+    {
+      throw new IndexOutOfBoundsException( "Invalid sample index: " + aSampleIdx );
+    }
+    return ( aSampleIdx & SEGMENT_MASK ) * RECORD_SIZE;
+  }
+
+  /**
+   * Returns the segment containing the given sample index.
+   */
+  private ByteBuffer segment( final int aSampleIdx )
+  {
+    return this.segments[aSampleIdx >>> SEGMENT_SHIFT];
+  }
+}
@@ -0,0 +1,450 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import java.io.*;
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+
+
+/**
+ * Provides a single-pass reader for the textual OLS data file format.
+ * <p>
+ * The data is scanned character by character: instructions (lines of the form
+ * <tt>;Key: value</tt>) are handled as they are encountered, while samples
+ * (lines of the form <tt>&lt;value<sub>16</sub>&gt;@&lt;timestamp<sub>10</sub>
+ * &gt;</tt>) are parsed directly into a {@link TransitionBuffer}, without
+ * creating any intermediary strings. Lines that are neither an instruction nor
+ * a sample are ignored.
+ * </p>
+ * <p>
+ * This class is <b>not</b> thread-safe, and a single instance should only be
+ * used to read a single data file.
+ * </p>
+ */
+public final class OlsDataReader
+{
+  // CONSTANTS
+
+  /** The average number of characters used by a single sample line. */
+  private static final int AVG_SAMPLE_LINE_LENGTH = 16;
+  /**
+   * The largest initial capacity taken from the size in the header, which is
+   * not trusted beyond this.
+   */
+  private static final int MAX_HEADER_CAPACITY = 64 * 1024;
+  /** The maximum number of hexadecimal digits in a sample value. */
+  private static final int MAX_HEX_DIGITS = 16;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final int STATE_LINE_START = 0;
+  private static final int STATE_VALUE = 1;
+  private static final int STATE_TIMESTAMP_START = 2;
+  private static final int STATE_TIMESTAMP = 3;
+  private static final int STATE_INSTRUCTION = 4;
+  private static final int STATE_SKIP_LINE = 5;
+
+  // VARIABLES
+
+  private final long sizeHint;
+
+  private int size;
+  private Integer rate;
+  private Integer channels;
+  private Integer enabledChannels;
+  private long triggerPosition;
+  private long absoluteLength;
+  private boolean compressed;
+  private boolean cursorsEnabled;
+  private final long[] cursors;
+
+  private TransitionBuffer buffer;
+  private int sampleCount;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new OlsDataReader instance.
+   *
+   * @param aSizeHint
+   *          the (approximate) size of the data to read, in characters, used to
+   *          pre-size the internal buffers. Use a value &lt;= 0 if unknown.
+   */
+  public OlsDataReader( final long aSizeHint )
+  {
+    this.sizeHint = aSizeHint;
+
+    this.size = -1;
+    this.triggerPosition = -1L;
+    this.absoluteLength = -1L;
+    // assume 'new' file format is in use, don't support uncompressed ones...
+    this.compressed = true;
+
+    this.cursors = new long[Ols.MAX_CURSORS];
+    Arrays.fill( this.cursors, Long.MIN_VALUE );
+  }
+
+  // METHODS
+
+  /**
+   * Returns the timestamp of the cursor with the given index, as read from the
+   * data file.
+   *
+   * @param aCursorIdx
+   *          the index of the cursor, &gt;= 0 &amp;&amp; &lt;
+   *          {@link Ols#MAX_CURSORS}.
+   * @return the cursor timestamp, or {@link Long#MIN_VALUE} if the cursor is
+   *         not defined.
+   */
+  public long getCursorTimestamp( final int aCursorIdx )
+  {
+    return this.cursors[aCursorIdx];
+  }
+
+  /**
+   * Returns whether the cursors are enabled, as read from the data file.
+   *
+   * @return <code>true</code> if the cursors are enabled, <code>false</code>
+   *         otherwise.
+   */
+  public boolean isCursorsEnabled()
+  {
+    return this.cursorsEnabled;
+  }
+
+  /**
+   * Reads all data from the given reader in a single pass.
+   *
+   * @param aReader
+   *          the reader to read the data from, cannot be <code>null</code>.
+   * @return the read acquisition result, never <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems, or in case the data is invalid.
+   */
+  public AcquisitionResult read( final Reader aReader ) throws IOException
+  {
+    final char[] chars = new char[BUFFER_SIZE];
+    final StringBuilder line = new StringBuilder();
+
+    int state = STATE_LINE_START;
+    int digits = 0;
+    long value = 0L;
+    long timestamp = 0L;
+
+    int read;
+    while ( ( read = aReader.read( chars ) ) >= 0 )
+    {
+      for ( int i = 0; i < read; i++ )
+      {
+        final char c = chars[i];
+        final boolean eol = ( c == '\n' ) || ( c == '\r' );
+
+        switch ( state )
+        {
+          case STATE_LINE_START:
+            if ( c == ';' )
+            {
+              line.setLength( 0 );
+              state = STATE_INSTRUCTION;
+            }
+            else if ( !eol )
+            {
+              final int digit = Character.digit( c, 16 );
+              if ( digit >= 0 )
+              {
+                value = digit;
+                digits = 1;
+                state = STATE_VALUE;
+              }
+              else
+              {
+                state = STATE_SKIP_LINE;
+              }
+            }
+            break;
+
+          case STATE_VALUE:
+            if ( c == '@' )
+            {
+              state = STATE_TIMESTAMP_START;
+            }
+            else
+            {
+              final int digit = Character.digit( c, 16 );
+              if ( digit >= 0 )
+              {
+                if ( ++digits > MAX_HEX_DIGITS )
+                {
+                  throw new IOException( "Invalid data encountered." );
+                }
+                value = ( value << 4 ) | digit;
+              }
+              else
+              {
+                state = eol ? STATE_LINE_START : STATE_SKIP_LINE;
+              }
+            }
+            break;
+
+          case STATE_TIMESTAMP_START:
+          case STATE_TIMESTAMP:
+            if ( ( c >= '0' ) && ( c <= '9' ) )
+            {
+              final int digit = c - '0';
+              if ( state == STATE_TIMESTAMP_START )
+              {
+                timestamp = digit;
+                state = STATE_TIMESTAMP;
+              }
+              else if ( timestamp > ( ( Long.MAX_VALUE - digit ) / 10L ) )
+              {
+                throw new IOException( "Invalid data encountered." );
+              }
+              else
+              {
+                timestamp = ( timestamp * 10L ) + digit;
+              }
+            }
+            else if ( eol && ( state == STATE_TIMESTAMP ) )
+            {
+              addSample( ( int )value, timestamp );
+              state = STATE_LINE_START;
+            }
+            else
+            {
+              state = eol ? STATE_LINE_START : STATE_SKIP_LINE;
+            }
+            break;
+
+          case STATE_INSTRUCTION:
+            if ( eol )
+            {
+              handleInstruction( line );
+              state = STATE_LINE_START;
+            }
+            else
+            {
+              line.append( c );
+            }
+            break;
+
+          default:
+            if ( eol )
+            {
+              state = STATE_LINE_START;
+            }
+            break;
+        }
+      }
+    }
+
+    // Handle the last line in case it is not terminated...
+    if ( state == STATE_TIMESTAMP )
+    {
+      addSample( ( int )value, timestamp );
+    }
+    else if ( state == STATE_INSTRUCTION )
+    {
+      handleInstruction( line );
+    }
+
+    return createCapturedData();
+  }
+
+  /**
+   * Parses the given text as integer.
+   *
+   * @return the parsed integer, or -1 if the text could not be parsed.
+   */
+  private static int parseInt( final String aText )
+  {
+    try
+    {
+      return Integer.parseInt( aText );
+    }
+    catch ( NumberFormatException exception )
+    {
+      return -1;
+    }
+  }
+
+  /**
+   * Parses the given text as long.
+   *
+   * @return the parsed long, or {@link Long#MIN_VALUE} if the text could not be
+   *         parsed.
+   */
+  private static long parseLong( final String aText )
+  {
+    try
+    {
+      return Long.parseLong( aText );
+    }
+    catch ( NumberFormatException exception )
+    {
+      return Long.MIN_VALUE;
+    }
+  }
+
+  /**
+   * Adds a single sample, creating the transition buffer when needed.
+   */
+  private void addSample( final int aValue, final long aTimestamp )
+  {
+    if ( this.buffer == null )
+    {
+      // Prefer the size given in the header, as it is exact, but do not trust
+      // it with a large buffer; the buffer grows as the samples are read...
+      long capacity = Math.min( this.size, MAX_HEADER_CAPACITY );
+      if ( capacity <= 0L )
+      {
+        capacity = this.sizeHint / AVG_SAMPLE_LINE_LENGTH;
+      }
+      this.buffer = new TransitionBuffer( ( int )Math.max( 16L, Math.min( capacity, Integer.MAX_VALUE - 8 ) ) );
+    }
+
+    this.buffer.add( aValue, aTimestamp & Long.MAX_VALUE );
+    this.sampleCount++;
+  }
+
+  /**
+   * Performs some sanity checks and creates the acquisition result from all
+   * read samples.
+   */
+  private AcquisitionResult createCapturedData() throws IOException
+  {
+    // Make it not possible to import invalid data...
+    if ( this.sampleCount == 0 )
+    {
+      throw new IOException( "Data file does not contain any sample data!" );
+    }
+    if ( !this.compressed )
+    {
+      throw new IOException( "Uncompressed data file found! Please send this file to the OLS developers!" );
+    }
+    // In case the size is not provided (as of 0.9.4 no longer mandatory),
+    // take the number of samples as size indicator...
+    if ( ( this.size >= 0 ) && ( this.size != this.sampleCount ) )
+    {
+      throw new IOException( "Data file is corrupt?! Data size does not match sample count!" );
+    }
+    if ( this.rate == null )
+    {
+      throw new IOException( "Data file is corrupt?! Sample rate is not provided!" );
+    }
+    final int channelCount = ( this.channels == null ) ? 0 : this.channels.intValue();
+    if ( ( channelCount <= 0 ) || ( channelCount > 32 ) )
+    {
+      throw new IOException( "Data file is corrupt?! Channel count is not provided!" );
+    }
+    // Make sure the enabled channels are defined; if not defined, all channels
+    // are enabled...
+    final int enabled = ( this.enabledChannels == null ) ? -1 /* = 0xffffffff */: this.enabledChannels.intValue();
+
+    return this.buffer.createCapturedData( this.triggerPosition, this.rate.intValue(), channelCount, enabled,
+        this.absoluteLength );
+  }
+
+  /**
+   * Handles a single instruction line, without its leading semicolon.
+   *
+   * @throws IOException
+   *           in case the instruction has an invalid value.
+   */
+  private void handleInstruction( final StringBuilder aLine ) throws IOException
+  {
+    // Instructions are of the form "Key: value", without the semicolon...
+    final int separator = aLine.indexOf( ":" );
+    if ( ( separator < 1 ) || ( separator > ( aLine.length() - 3 ) )
+        || !Character.isWhitespace( aLine.charAt( separator + 1 ) ) )
+    {
+      return;
+    }
+
+    int start = separator + 1;
+    while ( ( start < ( aLine.length() - 1 ) ) && Character.isWhitespace( aLine.charAt( start ) ) )
+    {
+      start++;
+    }
+
+    final String key = aLine.substring( 0, separator );
+    final String value = aLine.substring( start );
+
+    try
+    {
+      if ( "Size".equals( key ) )
+      {
+        this.size = parseInt( value );
+      }
+      else if ( "Rate".equals( key ) )
+      {
+        this.rate = Integer.valueOf( parseInt( value ) );
+      }
+      else if ( "Channels".equals( key ) )
+      {
+        this.channels = Integer.valueOf( parseInt( value ) );
+      }
+      else if ( "TriggerPosition".equals( key ) )
+      {
+        this.triggerPosition = Long.parseLong( value );
+      }
+      else if ( "EnabledChannels".equals( key ) )
+      {
+        this.enabledChannels = Integer.valueOf( parseInt( value ) );
+      }
+      else if ( "CursorEnabled".equals( key ) )
+      {
+        this.cursorsEnabled = Boolean.parseBoolean( value );
+      }
+      else if ( "Compressed".equals( key ) )
+      {
+        this.compressed = Boolean.parseBoolean( value );
+      }
+      else if ( "AbsoluteLength".equals( key ) )
+      {
+        this.absoluteLength = Long.parseLong( value );
+      }
+      else if ( "CursorA".equals( key ) )
+      {
+        this.cursors[0] = parseLong( value );
+      }
+      else if ( "CursorB".equals( key ) )
+      {
+        this.cursors[1] = parseLong( value );
+      }
+      else if ( key.startsWith( "Cursor" ) )
+      {
+        final int idx = parseInt( key.substring( 6 ) );
+        if ( ( idx >= 0 ) && ( idx < this.cursors.length ) )
+        {
+          this.cursors[idx] = parseLong( value );
+        }
+      }
+    }
+    catch ( NumberFormatException exception )
+    {
+      throw new IOException( "Invalid data encountered.", exception );
+    }
+  }
+}
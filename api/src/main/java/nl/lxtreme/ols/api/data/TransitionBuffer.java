@@ -0,0 +1,557 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+
+
+/**
+ * Provides a growable buffer of transitions, backed by primitive arrays, that
+ * can be turned into {@link CapturedData} without boxing any of its values.
+ * <p>
+ * Only <em>unique</em> transitions are retained, that is, a value that equals
+ * its predecessor is not stored. This makes the contents of this buffer
+ * directly usable for {@link CapturedData}, without the need to filter them
+ * again.
+ * </p>
+ * <p>
+ * In case the number of transitions exceeds a threshold (which can be set by
+ * the system property {@value #MAPPED_THRESHOLD_PROPERTY}), all transitions are
+ * spilled to a temporary file, and the resulting data will be a
+ * {@link MappedCapturedData} instead. This allows captures that are larger than
+ * the available heap space.
+ * </p>
+ * <p>
+ * Optionally, in-memory data can be created as {@link CompactCapturedData},
+ * which stores its timestamps delta-encoded. This is enabled by the system
+ * property {@value #COMPACT_TIMESTAMPS_PROPERTY}, or by
+ * {@link #setCompactTimestamps(boolean)}.
+ * </p>
+ * <p>
+ * This class is <b>not</b> thread-safe.
+ * </p>
+ */
+public final class TransitionBuffer
+{
+  // CONSTANTS
+
+  /** The system property to override the default spill threshold with. */
+  public static final String MAPPED_THRESHOLD_PROPERTY = "nl.lxtreme.ols.api.data.mappedThreshold";
+  /** The system property to enable compact timestamps by default. */
+  public static final String COMPACT_TIMESTAMPS_PROPERTY = "nl.lxtreme.ols.api.data.compactTimestamps";
+
+  private static final int DEFAULT_CAPACITY = 1024;
+  /** 16M transitions, or 192MB of heap space. */
+  private static final int DEFAULT_MAPPED_THRESHOLD = 16 * 1024 * 1024;
+  /** The number of transitions that are written in one go once spilled. */
+  private static final int SPILL_CHUNK_SIZE = 64 * 1024;
+
+  // VARIABLES
+
+  private final int mappedThreshold;
+  private boolean compactTimestamps;
+
+  private int[] values;
+  private long[] timestamps;
+  private int size;
+
+  private int lastValue;
+  private long lastTimestamp;
+  private long lastTransitionTimestamp;
+
+  private File spillFile;
+  private FileChannel spillChannel;
+  private ByteBuffer spillBuffer;
+  private int spilledCount;
+  private IOException spillFailure;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new TransitionBuffer instance with a default initial capacity.
+   */
+  public TransitionBuffer()
+  {
+    this( DEFAULT_CAPACITY );
+  }
+
+  /**
+   * Creates a new TransitionBuffer instance.
+   *
+   * @param aInitialCapacity
+   *          the initial capacity of this buffer, > 0.
+   */
+  public TransitionBuffer( final int aInitialCapacity )
+  {
+    this( aInitialCapacity, Integer.getInteger( MAPPED_THRESHOLD_PROPERTY, DEFAULT_MAPPED_THRESHOLD ).intValue() );
+  }
+
+  /**
+   * Creates a new TransitionBuffer instance.
+   *
+   * @param aInitialCapacity
+   *          the initial capacity of this buffer, > 0. Is limited to the given
+   *          mapped threshold, as no more transitions are kept in memory;
+   * @param aMappedThreshold
+   *          the number of transitions after which all transitions are spilled
+   *          to a memory-mapped file, > 0.
+   */
+  public TransitionBuffer( final int aInitialCapacity, final int aMappedThreshold )
+  {
+    if ( aInitialCapacity <= 0 )
+    {
+      throw new IllegalArgumentException( "Initial capacity must be positive!" );
+    }
+    if ( aMappedThreshold <= 0 )
+    {
+      throw new IllegalArgumentException( "Mapped threshold must be positive!" );
+    }
+
+    this.mappedThreshold = aMappedThreshold;
+    this.compactTimestamps = Boolean.getBoolean( COMPACT_TIMESTAMPS_PROPERTY );
+    final int capacity = Math.min( aInitialCapacity, aMappedThreshold );
+    this.values = new int[capacity];
+    this.timestamps = new long[capacity];
+    this.size = 0;
+    this.lastTimestamp = -1L;
+  }
+
+  // METHODS
+
+  /**
+   * Adds a given sample value with its timestamp to this buffer.
+   * <p>
+   * In case the given sample value equals the previously added sample value,
+   * it is <b>not</b> stored, as it does not represent a transition.
+   * </p>
+   *
+   * @param aValue
+   *          the sample value to add;
+   * @param aTimestamp
+   *          the timestamp of the sample value, should be equal to or greater
+   *          than the previously added timestamp.
+   */
+  public void add( final int aValue, final long aTimestamp )
+  {
+    this.lastTimestamp = aTimestamp;
+
+    if ( !isEmpty() && ( this.lastValue == aValue ) )
+    {
+      // Not a transition...
+      return;
+    }
+
+    if ( this.size == this.values.length )
+    {
+      makeRoom();
+    }
+
+    this.values[this.size] = aValue;
+    this.timestamps[this.size] = aTimestamp;
+    this.size++;
+
+    this.lastValue = aValue;
+    this.lastTransitionTimestamp = aTimestamp;
+  }
+
+  /**
+   * Creates an {@link AcquisitionResult} instance from the transitions in this
+   * buffer.
+   * <p>
+   * After this method is called, this buffer is cleared and can be reused.
+   * </p>
+   *
+   * @param aTriggerPosition
+   *          position of trigger as time value;
+   * @param aRate
+   *          sampling rate (may be set to <code>NOT_AVAILABLE</code>);
+   * @param aChannels
+   *          number of used channels;
+   * @param aEnabledChannels
+   *          bit mask identifying used channels;
+   * @param aAbsoluteLength
+   *          absolute number of samples, or a negative value to use the last
+   *          added timestamp as absolute length.
+   * @return a new {@link CapturedData} or {@link CompactCapturedData}
+   *         instance, or a {@link MappedCapturedData} instance in case the
+   *         transitions are spilled to disk, never <code>null</code>.
+   * @throws IOException
+   *           in case spilling the transitions to disk failed.
+   */
+  public AcquisitionResult createCapturedData( final long aTriggerPosition, final int aRate, final int aChannels,
+      final int aEnabledChannels, final long aAbsoluteLength ) throws IOException
+  {
+    if ( this.spillFailure != null )
+    {
+      final IOException failure = this.spillFailure;
+      clear();
+      throw failure;
+    }
+
+    // Ensure we've got an absolute length available...
+    long absLength = Math.max( 0L, this.lastTimestamp );
+    if ( aAbsoluteLength >= 0L )
+    {
+      absLength = Math.max( aAbsoluteLength, absLength );
+    }
+
+    // Issue #167: make sure the absolute length is *always* present...
+    if ( !isEmpty() && ( ( this.lastTransitionTimestamp != absLength ) || ( size() < 2 ) ) )
+    {
+      if ( this.size == this.values.length )
+      {
+        if ( this.spillChannel != null )
+        {
+          flush();
+        }
+        else
+        {
+          // Avoid growing beyond the final size, we'll trim it anyway...
+          resize( this.size + 1 );
+        }
+      }
+      this.values[this.size] = this.lastValue;
+      this.timestamps[this.size] = absLength;
+      this.size++;
+    }
+
+    if ( this.spillChannel != null )
+    {
+      flush();
+
+      this.spillChannel.force( false );
+
+      final File file = this.spillFile;
+      final int count = this.spilledCount;
+
+      // Hand over the spill file to the mapped data...
+      this.spillFile = null;
+      clear();
+
+      return new MappedCapturedData( file, count, aTriggerPosition, aRate, aChannels, aEnabledChannels, absLength );
+    }
+
+    // Only copy the arrays in case they are not exactly filled...
+    if ( this.size < this.values.length )
+    {
+      resize( this.size );
+    }
+
+    final AcquisitionResult result;
+    if ( this.compactTimestamps )
+    {
+      result = new CompactCapturedData( this.values, this.timestamps, aTriggerPosition, aRate, aChannels,
+          aEnabledChannels, absLength );
+    }
+    else
+    {
+      result = new CapturedData( this.values, this.timestamps, aTriggerPosition, aRate, aChannels, aEnabledChannels,
+          absLength, true /* aTrusted */);
+    }
+
+    clear();
+
+    return result;
+  }
+
+  /**
+   * Clears this buffer, releasing all buffered transitions.
+   */
+  public void clear()
+  {
+    clearSpillFile();
+    this.spilledCount = 0;
+    this.spillFailure = null;
+
+    this.values = new int[DEFAULT_CAPACITY];
+    this.timestamps = new long[DEFAULT_CAPACITY];
+    this.size = 0;
+    this.lastTimestamp = -1L;
+  }
+
+  /**
+   * Creates an {@link AcquisitionResult} instance from a <em>copy</em> of the
+   * transitions added so far, leaving this buffer untouched. This allows
+   * partial results to be shown while transitions are still being added.
+   *
+   * @param aTriggerPosition
+   *          position of trigger as time value;
+   * @param aRate
+   *          sampling rate (may be set to <code>NOT_AVAILABLE</code>);
+   * @param aChannels
+   *          number of used channels;
+   * @param aEnabledChannels
+   *          bit mask identifying used channels.
+   * @return a new {@link CapturedData} instance, whose absolute length is the
+   *         last added timestamp, or <code>null</code> in case this buffer is
+   *         empty or its transitions are spilled to disk.
+   */
+  public AcquisitionResult createSnapshot( final long aTriggerPosition, final int aRate, final int aChannels,
+      final int aEnabledChannels )
+  {
+    if ( isEmpty() || isSpilled() )
+    {
+      return null;
+    }
+
+    // Issue #167: make sure the absolute length is *always* present...
+    final boolean addExtraSample = ( this.lastTransitionTimestamp != this.lastTimestamp ) || ( this.size < 2 );
+    final int count = addExtraSample ? this.size + 1 : this.size;
+
+    final int[] valuesCopy = Arrays.copyOf( this.values, count );
+    final long[] timestampsCopy = Arrays.copyOf( this.timestamps, count );
+    if ( addExtraSample )
+    {
+      valuesCopy[this.size] = this.lastValue;
+      timestampsCopy[this.size] = this.lastTimestamp;
+    }
+
+    return new CapturedData( valuesCopy, timestampsCopy, aTriggerPosition, aRate, aChannels, aEnabledChannels,
+        this.lastTimestamp, true /* aTrusted */);
+  }
+
+  /**
+   * Returns whether or not this buffer is empty.
+   *
+   * @return <code>true</code> if this buffer does not contain any transitions,
+   *         <code>false</code> otherwise.
+   */
+  public boolean isEmpty()
+  {
+    return size() == 0;
+  }
+
+  /**
+   * Returns whether or not the transitions of this buffer are spilled to disk.
+   *
+   * @return <code>true</code> if the transitions are spilled to disk,
+   *         <code>false</code> if they are kept in memory.
+   */
+  public boolean isSpilled()
+  {
+    return this.spillChannel != null;
+  }
+
+  /**
+   * Sets whether in-memory data should be created with compact, delta-encoded
+   * timestamps.
+   *
+   * @param aCompactTimestamps
+   *          <code>true</code> to create {@link CompactCapturedData},
+   *          <code>false</code> to create {@link CapturedData}.
+   */
+  public void setCompactTimestamps( final boolean aCompactTimestamps )
+  {
+    this.compactTimestamps = aCompactTimestamps;
+  }
+
+  /**
+   * Returns the number of transitions currently in this buffer.
+   *
+   * @return a transition count, >= 0.
+   */
+  public int size()
+  {
+    return this.spilledCount + this.size;
+  }
+
+  /**
+   * Closes and removes the spill file, if any.
+   */
+  private void clearSpillFile()
+  {
+    if ( this.spillChannel != null )
+    {
+      try
+      {
+        this.spillChannel.close();
+      }
+      catch ( IOException exception )
+      {
+        // Ignore; we're not going to use it anymore...
+      }
+      this.spillChannel = null;
+    }
+    if ( ( this.spillFile != null ) && !this.spillFile.delete() )
+    {
+      this.spillFile.deleteOnExit();
+    }
+    this.spillFile = null;
+    this.spillBuffer = null;
+  }
+
+  /**
+   * Writes all buffered transitions to the spill file.
+   *
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  private void flush() throws IOException
+  {
+    final ByteBuffer buffer = this.spillBuffer;
+
+    for ( int i = 0; i < this.size; i++ )
+    {
+      if ( buffer.remaining() < MappedCapturedData.RECORD_SIZE )
+      {
+        writeFully( buffer );
+      }
+      buffer.putInt( this.values[i] );
+      buffer.putLong( this.timestamps[i] );
+    }
+    writeFully( buffer );
+
+    this.spilledCount += this.size;
+    this.size = 0;
+  }
+
+  /**
+   * Makes room for at least one more transition in the internal arrays, either
+   * by growing them, or by spilling their contents to disk.
+   */
+  private void makeRoom()
+  {
+    if ( this.spillChannel != null )
+    {
+      try
+      {
+        flush();
+      }
+      catch ( IOException exception )
+      {
+        // Remember the failure, it is reported when creating the data...
+        if ( this.spillFailure == null )
+        {
+          this.spillFailure = exception;
+        }
+        this.size = 0;
+      }
+    }
+    else if ( this.size >= this.mappedThreshold )
+    {
+      try
+      {
+        spill();
+      }
+      catch ( IOException exception )
+      {
+        // Unable to spill; try to keep everything in memory instead...
+        grow( this.size + 1 );
+      }
+    }
+    else
+    {
+      grow( this.size + 1 );
+    }
+  }
+
+  /**
+   * Starts spilling all transitions to a temporary file, and releases the
+   * internal arrays.
+   *
+   * @throws IOException
+   *           in case the temporary file could not be created.
+   */
+  private void spill() throws IOException
+  {
+    this.spillFile = File.createTempFile( "ols", ".capture" );
+    this.spillFile.deleteOnExit();
+
+    this.spillChannel = new RandomAccessFile( this.spillFile, "rw" ).getChannel();
+    this.spillBuffer = ByteBuffer.allocateDirect( SPILL_CHUNK_SIZE * MappedCapturedData.RECORD_SIZE );
+
+    try
+    {
+      flush();
+    }
+    catch ( IOException exception )
+    {
+      // Our arrays are still intact; only drop the spill file...
+      clearSpillFile();
+      throw exception;
+    }
+
+    // From now on, our arrays only serve as write buffer...
+    this.values = new int[SPILL_CHUNK_SIZE];
+    this.timestamps = new long[SPILL_CHUNK_SIZE];
+  }
+
+  /**
+   * Writes the contents of the given buffer to the spill file.
+   *
+   * @param aBuffer
+   *          the buffer to write, cannot be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  private void writeFully( final ByteBuffer aBuffer ) throws IOException
+  {
+    aBuffer.flip();
+    while ( aBuffer.hasRemaining() )
+    {
+      this.spillChannel.write( aBuffer );
+    }
+    aBuffer.clear();
+  }
+
+  /**
+   * Grows the internal arrays to accommodate for at least the given minimal
+   * capacity.
+   *
+   * @param aMinCapacity
+   *          the minimal capacity to grow to.
+   */
+  private void grow( final int aMinCapacity )
+  {
+    int newCapacity = this.values.length + ( this.values.length >> 1 );
+    if ( ( newCapacity < aMinCapacity ) || ( newCapacity < 0 ) )
+    {
+      newCapacity = aMinCapacity;
+    }
+    // Do not grow beyond the spill threshold, as we'll spill when it is reached...
+    newCapacity = Math.min( newCapacity, Math.max( aMinCapacity, this.mappedThreshold ) );
+    resize( newCapacity );
+  }
+
+  /**
+   * Reallocates the internal arrays to the given capacity, retaining all
+   * current transitions.
+   *
+   * @param aCapacity
+   *          the new capacity, >= {@link #size()}.
+   */
+  private void resize( final int aCapacity )
+  {
+    final int[] newValues = new int[aCapacity];
+    System.arraycopy( this.values, 0, newValues, 0, this.size );
+    this.values = newValues;
+
+    final long[] newTimestamps = new long[aCapacity];
+    System.arraycopy( this.timestamps, 0, newTimestamps, 0, this.size );
+    this.timestamps = newTimestamps;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data.annotation;
+
+
+import java.util.*;
+
+
+/**
+ * Collects annotations locally, for example, while a tool is decoding data,
+ * and delivers them to an {@link AnnotationListener} all at once.
+ * <p>
+ * Instances of this class are not thread-safe.
+ * </p>
+ */
+public final class AnnotationBatch
+{
+  // VARIABLES
+
+  private final AnnotationListener listener;
+  private final List<Annotation<?>> annotations;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new AnnotationBatch instance.
+   *
+   * @param aListener
+   *          the listener to deliver the annotations to, cannot be
+   *          <code>null</code>.
+   */
+  public AnnotationBatch( final AnnotationListener aListener )
+  {
+    if ( aListener == null )
+    {
+      throw new IllegalArgumentException( "Listener cannot be null!" );
+    }
+    this.listener = aListener;
+    this.annotations = new ArrayList<Annotation<?>>();
+  }
+
+  // METHODS
+
+  /**
+   * Adds an annotation to this batch.
+   *
+   * @param aAnnotation
+   *          the annotation to add, cannot be <code>null</code>.
+   */
+  public void add( final Annotation<?> aAnnotation )
+  {
+    this.annotations.add( aAnnotation );
+  }
+
+  /**
+   * Adds all given annotations to this batch.
+   *
+   * @param aAnnotations
+   *          the annotations to add, cannot be <code>null</code>.
+   */
+  public void addAll( final Collection<? extends Annotation<?>> aAnnotations )
+  {
+    this.annotations.addAll( aAnnotations );
+  }
+
+  /**
+   * Delivers all annotations in this batch to the listener, and empties this
+   * batch.
+   */
+  public void commit()
+  {
+    if ( !this.annotations.isEmpty() )
+    {
+      this.listener.onAnnotations( Collections.unmodifiableList( this.annotations ) );
+      this.annotations.clear();
+    }
+  }
+
+  /**
+   * Returns whether this batch is empty.
+   *
+   * @return <code>true</code> if this batch contains no annotations,
+   *         <code>false</code> otherwise.
+   */
+  public boolean isEmpty()
+  {
+    return this.annotations.isEmpty();
+  }
+
+  /**
+   * Returns the number of annotations in this batch.
+   *
+   * @return an annotation count, &gt;= 0.
+   */
+  public int size()
+  {
+    return this.annotations.size();
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data.annotation;
+
+
+import java.util.*;
+
+
+/**
+ * Provides an immutable, time-sorted index on the data annotations of a
+ * channel, allowing the annotations in a time range, or around a timestamp, to
+ * be found in logarithmic time.
+ * <p>
+ * The annotations are sorted on their start timestamp. Next to that, the
+ * maximum end timestamp of all annotations up to each annotation is kept,
+ * which allows the first annotation that can overlap a given timestamp to be
+ * found by a binary search as well. For annotations that do not overlap each
+ * other, as produced by decoders, each query takes O(log n + k) time, with k
+ * the number of resulting annotations.
+ * </p>
+ */
+public final class AnnotationIndex
+{
+  // CONSTANTS
+
+  /** Orders data annotations on their start, and then their end timestamp. */
+  private static final Comparator<DataAnnotation<?>> TIME_ORDER = new Comparator<DataAnnotation<?>>()
+  {
+    @Override
+    public int compare( final DataAnnotation<?> aFirst, final DataAnnotation<?> aSecond )
+    {
+      int result = compareTimestamps( aFirst.getStartTimestamp(), aSecond.getStartTimestamp() );
+      if ( result == 0 )
+      {
+        result = compareTimestamps( aFirst.getEndTimestamp(), aSecond.getEndTimestamp() );
+      }
+      return result;
+    }
+
+    private int compareTimestamps( final long aFirst, final long aSecond )
+    {
+      return ( aFirst < aSecond ) ? -1 : ( ( aFirst == aSecond ) ? 0 : 1 );
+    }
+  };
+
+  /** An index without any annotations. */
+  public static final AnnotationIndex EMPTY = new AnnotationIndex( Collections.<Annotation<?>> emptyList() );
+
+  // VARIABLES
+
+  private final DataAnnotation<?>[] annotations;
+  private final long[] startTimes;
+  private final long[] endTimes;
+  /** the maximum end timestamp of all annotations up to each annotation. */
+  private final long[] maxEndTimes;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new AnnotationIndex instance.
+   *
+   * @param aAnnotations
+   *          the annotations to index, cannot be <code>null</code>. Only data
+   *          annotations are indexed, all others are ignored.
+   */
+  public AnnotationIndex( final Collection<? extends Annotation<?>> aAnnotations )
+  {
+    final List<DataAnnotation<?>> dataAnnotations = new ArrayList<DataAnnotation<?>>( aAnnotations.size() );
+    boolean sorted = true;
+    for ( Annotation<?> annotation : aAnnotations )
+    {
+      if ( annotation instanceof DataAnnotation<?> )
+      {
+        final DataAnnotation<?> dataAnnotation = ( DataAnnotation<?> )annotation;
+        if ( sorted && !dataAnnotations.isEmpty() )
+        {
+          sorted = TIME_ORDER.compare( dataAnnotations.get( dataAnnotations.size() - 1 ), dataAnnotation ) <= 0;
+        }
+        dataAnnotations.add( dataAnnotation );
+      }
+    }
+
+    this.annotations = dataAnnotations.toArray( new DataAnnotation<?>[dataAnnotations.size()] );
+    if ( !sorted )
+    {
+      // Decoders normally yield their annotations in time order...
+      Arrays.sort( this.annotations, TIME_ORDER );
+    }
+
+    final int count = this.annotations.length;
+    this.startTimes = new long[count];
+    this.endTimes = new long[count];
+    this.maxEndTimes = new long[count];
+
+    long maxEndTime = Long.MIN_VALUE;
+    for ( int i = 0; i < count; i++ )
+    {
+      this.startTimes[i] = this.annotations[i].getStartTimestamp();
+      this.endTimes[i] = this.annotations[i].getEndTimestamp();
+
+      maxEndTime = Math.max( maxEndTime, this.endTimes[i] );
+      this.maxEndTimes[i] = maxEndTime;
+    }
+  }
+
+  // METHODS
+
+  /**
+   * Finds the annotation that starts at or before the given timestamp, and
+   * ends at or after the given timestamp.
+   *
+   * @param aTimestamp
+   *          the timestamp to search for annotations.
+   * @return the first annotation covering the given timestamp, or
+   *         <code>null</code> if not found.
+   */
+  public DataAnnotation<?> getAnnotation( final long aTimestamp )
+  {
+    final int end = findFirstStartAfter( aTimestamp );
+    for ( int i = findFirstEndAtOrAfter( aTimestamp ); i < end; i++ )
+    {
+      if ( this.endTimes[i] >= aTimestamp )
+      {
+        return this.annotations[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Finds the first annotation that starts and ends at or after the given
+   * timestamp.
+   *
+   * @param aTimestamp
+   *          the timestamp to search for annotations.
+   * @return an annotation matching the given timestamp criteria,
+   *         <code>null</code> if not found.
+   */
+  public DataAnnotation<?> getAnnotationAfter( final long aTimestamp )
+  {
+    for ( int i = findFirstStartAfter( aTimestamp - 1 ); i < this.annotations.length; i++ )
+    {
+      if ( this.endTimes[i] >= aTimestamp )
+      {
+        return this.annotations[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Finds the last annotation that starts and ends before the given
+   * timestamp.
+   *
+   * @param aTimestamp
+   *          the timestamp to search for annotations.
+   * @return an annotation matching the given timestamp criteria,
+   *         <code>null</code> if not found.
+   */
+  public DataAnnotation<?> getAnnotationBefore( final long aTimestamp )
+  {
+    for ( int i = findFirstStartAfter( aTimestamp - 1 ) - 1; i >= 0; i-- )
+    {
+      if ( this.endTimes[i] < aTimestamp )
+      {
+        return this.annotations[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns all annotations that overlap the given time range, in time order.
+   *
+   * @param aStartTime
+   *          the start timestamp, inclusive;
+   * @param aEndTime
+   *          the end timestamp, inclusive.
+   * @return a list with annotations, never <code>null</code>.
+   */
+  public List<DataAnnotation<?>> getAnnotations( final long aStartTime, final long aEndTime )
+  {
+    final List<DataAnnotation<?>> result = new ArrayList<DataAnnotation<?>>();
+
+    final int end = findFirstStartAfter( aEndTime );
+    for ( int i = findFirstEndAtOrAfter( aStartTime ); i < end; i++ )
+    {
+      if ( this.endTimes[i] >= aStartTime )
+      {
+        result.add( this.annotations[i] );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns whether this index is empty.
+   *
+   * @return <code>true</code> if this index has no annotations,
+   *         <code>false</code> otherwise.
+   */
+  public boolean isEmpty()
+  {
+    return this.annotations.length == 0;
+  }
+
+  /**
+   * Returns the number of indexed annotations.
+   *
+   * @return an annotation count, &gt;= 0.
+   */
+  public int size()
+  {
+    return this.annotations.length;
+  }
+
+  /**
+   * Returns the first annotation whose end timestamp, or that of any
+   * annotation before it, is at or after the given timestamp. No annotation
+   * before it can end at or after the given timestamp.
+   */
+  private int findFirstEndAtOrAfter( final long aTimestamp )
+  {
+    int low = 0;
+    int high = this.maxEndTimes.length;
+    while ( low < high )
+    {
+      final int mid = ( low + high ) >>> 1;
+      if ( this.maxEndTimes[mid] < aTimestamp )
+      {
+        low = mid + 1;
+      }
+      else
+      {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the first annotation that starts after the given timestamp, or the
+   * number of annotations if no such annotation exists.
+   */
+  private int findFirstStartAfter( final long aTimestamp )
+  {
+    int low = 0;
+    int high = this.startTimes.length;
+    while ( low < high )
+    {
+      final int mid = ( low + high ) >>> 1;
+      if ( this.startTimes[mid] <= aTimestamp )
+      {
+        low = mid + 1;
+      }
+      else
+      {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
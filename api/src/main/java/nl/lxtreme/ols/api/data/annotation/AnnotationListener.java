@@ -21,6 +21,9 @@
 package nl.lxtreme.ols.api.data.annotation;
 
 
+import java.util.*;
+
+
 /**
  * Can be used to create a service that listens for the addition/removal of
  * annotation on channel data.
@@ -56,4 +59,18 @@ public interface AnnotationListener
    */
   void onAnnotation( Annotation<?> aAnnotation );
 
+  /**
+   * Called for a batch of annotations, possibly for several channels.
+   * <p>
+   * Has the same effect as calling {@link #onAnnotation(Annotation)} for each
+   * of the given annotations, in order, but allows them to be processed at
+   * once. The given collection is only valid during this call.
+   * </p>
+   * 
+   * @param aAnnotations
+   *          the (new) annotations, cannot be <code>null</code>.
+   * @see AnnotationBatch
+   */
+  void onAnnotations( Collection<? extends Annotation<?>> aAnnotations );
+
 }
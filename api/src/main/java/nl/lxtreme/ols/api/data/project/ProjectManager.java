@@ -72,6 +72,25 @@ public interface ProjectManager
    */
   public void loadProject( final InputStream aInput ) throws IOException;
 
+  /**
+   * Loads a project from the given file.
+   * <p>
+   * Unlike {@link #loadProject(InputStream)}, this method only loads the
+   * metadata, channel labels and settings of the project before returning. The
+   * captured data is loaded afterwards, possibly in the background, and is
+   * made available progressively through the current project. If loading the
+   * captured data fails in the background, the partially loaded data is
+   * discarded, and a <tt>captureLoadFailed</tt> property change event is fired,
+   * with the cause of the failure as new value.
+   * </p>
+   * 
+   * @param aFile
+   *          the file to read the project from, cannot be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems during the read of the project.
+   */
+  public void loadProject( final File aFile ) throws IOException;
+
   /**
    * Removes the given listener from the list of property change listeners.
    * 
@@ -0,0 +1,189 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link CompactCapturedData}.
+ */
+public class CompactCapturedDataTest
+{
+  // VARIABLES
+
+  private int[] values;
+  private long[] timestamps;
+
+  // METHODS
+
+  /**
+   * Sets up the test data, containing both small and very large deltas.
+   */
+  @Before
+  public void setUp()
+  {
+    final Random rnd = new Random( 4711L );
+
+    final int size = 10 * CompactCapturedData.BLOCK_SIZE + 13;
+    this.values = new int[size];
+    this.timestamps = new long[size];
+
+    long time = 0L;
+    for ( int i = 0; i < size; i++ )
+    {
+      this.values[i] = rnd.nextInt();
+      this.timestamps[i] = time;
+
+      time += ( ( i % 97 ) == 0 ) ? ( 1L << 40 ) + rnd.nextInt( 1000 ) : 1 + rnd.nextInt( 300 );
+    }
+  }
+
+  /**
+   * Tests that the compact data yields the same sample indices as the
+   * array-based data.
+   */
+  @Test
+  public void testSampleIndexEqualsCapturedDataOk()
+  {
+    final CapturedData expected = new CapturedData( this.values, this.timestamps, 0L, 100, 32, ~0, 0L );
+    final CompactCapturedData actual = CompactCapturedData.compact( expected );
+
+    final long last = this.timestamps[this.timestamps.length - 1];
+    for ( long time : this.timestamps )
+    {
+      assertEquals( expected.getSampleIndex( time ), actual.getSampleIndex( time ) );
+      assertEquals( expected.getSampleIndex( time - 1 ), actual.getSampleIndex( time - 1 ) );
+      assertEquals( expected.getSampleIndex( time + 1 ), actual.getSampleIndex( time + 1 ) );
+    }
+    assertEquals( expected.getSampleIndex( -1L ), actual.getSampleIndex( -1L ) );
+    assertEquals( expected.getSampleIndex( last + 1000L ), actual.getSampleIndex( last + 1000L ) );
+  }
+
+  /**
+   * Tests that ranges of samples, aligned or not to the blocks of timestamps,
+   * are read in bulk correctly.
+   */
+  @Test
+  public void testSamplesRangeOk()
+  {
+    final CompactCapturedData data = new CompactCapturedData( this.values, this.timestamps, 0L, 100, 32, ~0, 0L );
+
+    final int size = this.values.length;
+    final int block = CompactCapturedData.BLOCK_SIZE;
+    final int[][] ranges = { { 0, size }, { 0, 0 }, { 5, 6 }, { 3, block - 1 }, { block, 3 * block },
+        { block - 1, 3 * block + 1 }, { 7 * block + 5, size }, { size - 1, size } };
+    for ( int[] range : ranges )
+    {
+      final int length = range[1] - range[0];
+      final int[] actualValues = new int[length];
+      final long[] actualTimestamps = new long[length];
+      data.getSamples( range[0], range[1], actualValues, actualTimestamps );
+
+      final String msg = "Range " + range[0] + ".." + range[1];
+      assertArrayEquals( msg, Arrays.copyOfRange( this.values, range[0], range[1] ), actualValues );
+      assertArrayEquals( msg, Arrays.copyOfRange( this.timestamps, range[0], range[1] ), actualTimestamps );
+    }
+  }
+
+  /**
+   * Tests that all timestamps can be read both sequentially and randomly.
+   */
+  @Test
+  public void testTimestampsRoundTripOk()
+  {
+    final CompactCapturedData data = new CompactCapturedData( this.values, this.timestamps, 0L, 100, 32, ~0, 0L );
+
+    assertEquals( this.timestamps.length, data.getSampleCount() );
+    assertArrayEquals( this.timestamps, data.getTimestamps() );
+    assertArrayEquals( this.values, data.getValues() );
+
+    for ( int i = this.timestamps.length - 1; i >= 0; i -= 7 )
+    {
+      assertEquals( this.timestamps[i], data.getTimestamp( i ) );
+    }
+
+    assertTrue( data.getCompactTimestampSize() < ( 4L * this.timestamps.length ) );
+  }
+
+  /**
+   * Tests that multiple threads can randomly read the same instance without
+   * seeing each others decoded blocks.
+   */
+  @Test
+  public void testConcurrentRandomAccessOk() throws Exception
+  {
+    final CompactCapturedData data = new CompactCapturedData( this.values, this.timestamps, 0L, 100, 32, ~0, 0L );
+    final AtomicInteger mismatches = new AtomicInteger();
+
+    final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+    try
+    {
+      final List<Future<?>> futures = new ArrayList<Future<?>>();
+      for ( int t = 0; t < 4; t++ )
+      {
+        final long seed = t;
+        futures.add( executor.submit( new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            final Random rnd = new Random( seed );
+            for ( int i = 0; i < 100000; i++ )
+            {
+              final int idx = rnd.nextInt( CompactCapturedDataTest.this.timestamps.length );
+              if ( data.getTimestamp( idx ) != CompactCapturedDataTest.this.timestamps[idx] )
+              {
+                mismatches.incrementAndGet();
+              }
+            }
+          }
+        } ) );
+      }
+      for ( Future<?> future : futures )
+      {
+        future.get();
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+
+    assertEquals( 0, mismatches.get() );
+  }
+
+  /**
+   * Tests that timestamps that are not in ascending order are rejected.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testUnorderedTimestampsFail()
+  {
+    new CompactCapturedData( new int[] { 1, 2 }, new long[] { 2L, 1L }, 0L, 100, 8, 0xFF, 2L );
+  }
+}
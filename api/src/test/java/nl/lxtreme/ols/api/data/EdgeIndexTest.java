@@ -0,0 +1,236 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.data.EdgeIndex.ChannelEdges;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link EdgeIndex}.
+ */
+public class EdgeIndexTest
+{
+  // VARIABLES
+
+  private CapturedData data;
+
+  // METHODS
+
+  /**
+   * Sets up the test data, large enough to have the channels indexed in
+   * parallel.
+   */
+  @Before
+  public void setUp()
+  {
+    final Random rnd = new Random( 4711L );
+
+    final int size = 100000;
+    final int[] values = new int[size];
+    final long[] timestamps = new long[size];
+
+    long time = 0L;
+    for ( int i = 0; i < size; i++ )
+    {
+      values[i] = rnd.nextInt();
+      timestamps[i] = time;
+      time += 1 + rnd.nextInt( 10 );
+    }
+
+    this.data = new CapturedData( values, timestamps, 0L, 100, 8, 0xFF, time );
+  }
+
+  /**
+   * Tests that the edges of each channel, including a disabled one, are the
+   * same as those found by scanning all samples.
+   */
+  @Test
+  public void testEdgesOk() throws Exception
+  {
+    final EdgeIndex index = this.data.getEdgeIndex();
+    assertSame( index, this.data.getEdgeIndex() );
+
+    for ( int channel = 0; channel < 9; channel++ )
+    {
+      final int mask = 1 << channel;
+      final ChannelEdges edges = index.getChannelEdges( channel );
+
+      assertEquals( ( this.data.getValue( 0 ) & mask ) != 0 ? 1 : 0, edges.getInitialLevel() );
+
+      int edge = 0;
+      for ( int i = 1; i < this.data.getSampleCount(); i++ )
+      {
+        final int level = this.data.getValue( i ) & mask;
+        if ( level != ( this.data.getValue( i - 1 ) & mask ) )
+        {
+          assertEquals( this.data.getTimestamp( i ), edges.getTimestamp( edge ) );
+          assertEquals( level != 0, edges.isRising( edge ) );
+          edge++;
+        }
+      }
+      assertEquals( edge, edges.getEdgeCount() );
+    }
+  }
+
+  /**
+   * Tests that the edges determined in parallel, in the background, are the
+   * same as those determined on demand.
+   */
+  @Test
+  public void testPrepareInBackgroundOk() throws Exception
+  {
+    final EdgeIndex preparedIndex = new EdgeIndex( this.data );
+    preparedIndex.prepareInBackground( this.data.getEnabledChannels() ).get();
+
+    final EdgeIndex lazyIndex = new EdgeIndex( this.data );
+    for ( int channel = 0; channel < 8; channel++ )
+    {
+      final ChannelEdges expected = lazyIndex.getChannelEdges( channel );
+      final ChannelEdges actual = preparedIndex.getChannelEdges( channel );
+
+      assertEquals( expected.getEdgeCount(), actual.getEdgeCount() );
+      for ( int edge = 0; edge < expected.getEdgeCount(); edge++ )
+      {
+        assertEquals( expected.getTimestamp( edge ), actual.getTimestamp( edge ) );
+        assertEquals( expected.getHighTime( 0, edge ), actual.getHighTime( 0, edge ) );
+      }
+    }
+  }
+
+  /**
+   * Tests that searching for edges yields the same edges as a linear search.
+   */
+  @Test
+  public void testFindEdgesOk() throws Exception
+  {
+    final ChannelEdges edges = this.data.getEdgeIndex().getChannelEdges( 3 );
+    final Random rnd = new Random( 1234L );
+
+    for ( int i = 0; i < 1000; i++ )
+    {
+      final long timestamp = ( long )( rnd.nextDouble() * this.data.getAbsoluteLength() );
+
+      int after = 0;
+      while ( ( after < edges.getEdgeCount() ) && ( edges.getTimestamp( after ) <= timestamp ) )
+      {
+        after++;
+      }
+      int before = edges.getEdgeCount() - 1;
+      while ( ( before >= 0 ) && ( edges.getTimestamp( before ) >= timestamp ) )
+      {
+        before--;
+      }
+
+      assertEquals( after, edges.findEdgeAfter( timestamp ) );
+      assertEquals( before, edges.findEdgeBefore( timestamp ) );
+    }
+  }
+
+  /**
+   * Tests that the high time and rising edge count between two edges are the
+   * same as those found by scanning all samples.
+   */
+  @Test
+  public void testHighTimeAndRisingEdgesOk() throws Exception
+  {
+    final int mask = 1 << 5;
+    final ChannelEdges edges = this.data.getEdgeIndex().getChannelEdges( 5 );
+    final Random rnd = new Random( 1234L );
+
+    for ( int i = 0; i < 100; i++ )
+    {
+      final int from = rnd.nextInt( edges.getEdgeCount() );
+      final int to = from + rnd.nextInt( edges.getEdgeCount() - from );
+
+      long highTime = 0L;
+      int risingEdges = 0;
+      for ( int j = 0; j < this.data.getSampleCount(); j++ )
+      {
+        final long timestamp = this.data.getTimestamp( j );
+        if ( ( timestamp < edges.getTimestamp( from ) ) || ( timestamp > edges.getTimestamp( to ) ) )
+        {
+          continue;
+        }
+        if ( ( timestamp < edges.getTimestamp( to ) ) && ( ( this.data.getValue( j ) & mask ) != 0 ) )
+        {
+          highTime += this.data.getTimestamp( j + 1 ) - timestamp;
+        }
+        if ( ( ( this.data.getValue( j ) & mask ) != 0 ) && ( ( this.data.getValue( j - 1 ) & mask ) == 0 )
+            && ( timestamp < edges.getTimestamp( to ) ) )
+        {
+          risingEdges++;
+        }
+      }
+
+      assertEquals( highTime, edges.getHighTime( from, to ) );
+      assertEquals( risingEdges, edges.countRisingEdges( from, to ) );
+    }
+  }
+
+  /**
+   * Tests that the high time up to the edge count is that of the last edge,
+   * for channels whose edge count is a multiple of the prefix sum interval,
+   * including channels without any edges.
+   */
+  @Test
+  public void testHighTimeAtEdgeCountOk() throws Exception
+  {
+    final int size = EdgeIndex.HIGH_TIME_INTERVAL + 1;
+    final int[] values = new int[size];
+    final long[] timestamps = new long[size];
+    for ( int i = 0; i < size; i++ )
+    {
+      // channel 0 toggles each sample, channel 1 never does...
+      values[i] = i & 1;
+      timestamps[i] = 3L * i;
+    }
+
+    final EdgeIndex index = new CapturedData( values, timestamps, 0L, 100, 2, 0x03, 3L * size ).getEdgeIndex();
+
+    final ChannelEdges toggling = index.getChannelEdges( 0 );
+    assertEquals( EdgeIndex.HIGH_TIME_INTERVAL, toggling.getEdgeCount() );
+    final long highTime = toggling.getHighTime( 0, toggling.getEdgeCount() - 1 );
+    assertEquals( 3L * ( EdgeIndex.HIGH_TIME_INTERVAL / 2 ), highTime );
+    assertEquals( highTime, toggling.getHighTime( 0, toggling.getEdgeCount() ) );
+    assertEquals( 0L, toggling.getHighTime( toggling.getEdgeCount(), toggling.getEdgeCount() ) );
+
+    final ChannelEdges constant = index.getChannelEdges( 1 );
+    assertEquals( 0, constant.getEdgeCount() );
+    assertEquals( 0L, constant.getHighTime( 0, 0 ) );
+  }
+
+  /**
+   * Tests that an invalid range of edges is rejected.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testHighTimeInvalidRangeFail() throws Exception
+  {
+    final ChannelEdges edges = this.data.getEdgeIndex().getChannelEdges( 5 );
+    edges.getHighTime( 2, 1 );
+  }
+}
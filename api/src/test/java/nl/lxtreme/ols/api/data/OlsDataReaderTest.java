@@ -0,0 +1,123 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link OlsDataReader}.
+ */
+public class OlsDataReaderTest
+{
+  // METHODS
+
+  /**
+   * Tests that a data file with a bogus size in its header is rejected, rather
+   * than read into a buffer of that size.
+   */
+  @Test( expected = IOException.class )
+  public void testReadBogusSizeFail() throws IOException
+  {
+    read( ";Size: 2147483647\n;Rate: 100\n;Channels: 8\n00@0\n01@1\n" );
+  }
+
+  /**
+   * Tests that a data file with a different size than its sample count is
+   * rejected.
+   */
+  @Test( expected = IOException.class )
+  public void testReadDataSizeMismatchFail() throws IOException
+  {
+    read( ";Size: 3\n;Rate: 100\n;Channels: 8\n00@0\n01@1\n" );
+  }
+
+  /**
+   * Tests that a data file without samples is rejected.
+   */
+  @Test( expected = IOException.class )
+  public void testReadEmptyDataFail() throws IOException
+  {
+    read( ";Rate: 100\n;Channels: 8\n" );
+  }
+
+  /**
+   * Tests that a sample with an overflowing timestamp is rejected.
+   */
+  @Test( expected = IOException.class )
+  public void testReadInvalidTimestampFail() throws IOException
+  {
+    read( ";Rate: 100\n;Channels: 8\n00@99999999999999999999\n" );
+  }
+
+  /**
+   * Tests that a data file with instructions, samples and garbage lines (with
+   * all kind of line endings) is read correctly.
+   */
+  @Test
+  public void testReadMixedDataOk() throws IOException
+  {
+    final OlsDataReader reader = new OlsDataReader( -1L );
+    final AcquisitionResult result = reader.read( new StringReader( ";Size: 4\r\n;Rate: 1000000\r\n"
+        + ";Channels: 32\n;EnabledChannels: 255\n;TriggerPosition: 5\n;Compressed: true\n"
+        + ";AbsoluteLength: 20\n;CursorEnabled: true\n;CursorA: 3\n;Cursor4: 7\n"
+        + "# some comment\n\nFFFFFFFF@0\r\nabcd@2\n12x4@3\nABCD@10\n00000001@15" ) );
+
+    assertEquals( 1000000, result.getSampleRate() );
+    assertEquals( 32, result.getChannels() );
+    assertEquals( 255, result.getEnabledChannels() );
+    assertEquals( 5L, result.getTriggerPosition() );
+    assertEquals( 20L, result.getAbsoluteLength() );
+
+    assertTrue( reader.isCursorsEnabled() );
+    assertEquals( 3L, reader.getCursorTimestamp( 0 ) );
+    assertEquals( Long.MIN_VALUE, reader.getCursorTimestamp( 1 ) );
+    assertEquals( 7L, reader.getCursorTimestamp( 4 ) );
+
+    // The duplicate value is dropped, while the absolute length is added...
+    assertArrayEquals( new int[] { 0xFFFFFFFF, 0xABCD, 0x1, 0x1 }, result.getValues() );
+    assertArrayEquals( new long[] { 0L, 2L, 15L, 20L }, result.getTimestamps() );
+  }
+
+  /**
+   * Tests that an uncompressed data file is rejected.
+   */
+  @Test( expected = IOException.class )
+  public void testReadUncompressedDataFail() throws IOException
+  {
+    read( ";Rate: 100\n;Channels: 8\n;Compressed: false\n00@0\n" );
+  }
+
+  /**
+   * Reads the given data using a new reader.
+   */
+  private AcquisitionResult read( final String aData ) throws IOException
+  {
+    return new OlsDataReader( aData.length() ).read( new StringReader( aData ) );
+  }
+}
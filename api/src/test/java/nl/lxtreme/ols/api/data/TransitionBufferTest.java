@@ -0,0 +1,172 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import static org.junit.Assert.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link TransitionBuffer}.
+ */
+public class TransitionBufferTest
+{
+  // METHODS
+
+  /**
+   * Tests that the absolute length is always added as last transition.
+   */
+  @Test
+  public void testAbsoluteLengthIsAddedOk() throws Exception
+  {
+    final TransitionBuffer buffer = new TransitionBuffer( 1 );
+    buffer.add( 1, 0L );
+    buffer.add( 2, 5L );
+
+    final AcquisitionResult data = buffer.createCapturedData( Ols.NOT_AVAILABLE, 100, 8, 0xFF, 10L );
+
+    assertArrayEquals( new int[] { 1, 2, 2 }, data.getValues() );
+    assertArrayEquals( new long[] { 0L, 5L, 10L }, data.getTimestamps() );
+    assertEquals( 10L, data.getAbsoluteLength() );
+  }
+
+  /**
+   * Tests that the buffer yields the same results as the array-based
+   * constructor of {@link CapturedData}.
+   */
+  @Test
+  public void testEquivalentToArrayConstructorOk() throws Exception
+  {
+    final int[] values = { 0, 0, 1, 1, 1, 3, 3, 2, 2, 2, 2 };
+    final long[] timestamps = { 0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L };
+
+    final TransitionBuffer buffer = new TransitionBuffer( 2 );
+    for ( int i = 0; i < values.length; i++ )
+    {
+      buffer.add( values[i], timestamps[i] );
+    }
+
+    final CapturedData expected = new CapturedData( values, timestamps, 3L, 100, 8, 0xFF, 12L );
+    final AcquisitionResult actual = buffer.createCapturedData( 3L, 100, 8, 0xFF, 12L );
+
+    assertArrayEquals( expected.getValues(), actual.getValues() );
+    assertArrayEquals( expected.getTimestamps(), actual.getTimestamps() );
+    assertEquals( expected.getAbsoluteLength(), actual.getAbsoluteLength() );
+    assertEquals( expected.getTriggerPosition(), actual.getTriggerPosition() );
+  }
+
+  /**
+   * Tests that duplicate values are not stored as transitions.
+   */
+  @Test
+  public void testOnlyTransitionsAreStoredOk() throws Exception
+  {
+    final TransitionBuffer buffer = new TransitionBuffer( 4 );
+    buffer.add( 1, 0L );
+    buffer.add( 1, 1L );
+    buffer.add( 1, 2L );
+    buffer.add( 0, 3L );
+    buffer.add( 0, 4L );
+
+    assertEquals( 2, buffer.size() );
+
+    final AcquisitionResult data = buffer.createCapturedData( Ols.NOT_AVAILABLE, 100, 8, 0xFF, -1L );
+
+    assertArrayEquals( new int[] { 1, 0, 0 }, data.getValues() );
+    assertArrayEquals( new long[] { 0L, 3L, 4L }, data.getTimestamps() );
+    assertTrue( buffer.isEmpty() );
+  }
+
+  /**
+   * Tests that a snapshot contains all transitions so far, without clearing the
+   * buffer.
+   */
+  @Test
+  public void testSnapshotLeavesBufferIntactOk() throws Exception
+  {
+    final TransitionBuffer buffer = new TransitionBuffer( 4 );
+    buffer.add( 1, 0L );
+    buffer.add( 0, 3L );
+    buffer.add( 0, 4L );
+
+    final AcquisitionResult snapshot = buffer.createSnapshot( Ols.NOT_AVAILABLE, 100, 8, 0xFF );
+
+    assertArrayEquals( new int[] { 1, 0, 0 }, snapshot.getValues() );
+    assertArrayEquals( new long[] { 0L, 3L, 4L }, snapshot.getTimestamps() );
+    assertEquals( 4L, snapshot.getAbsoluteLength() );
+
+    buffer.add( 1, 6L );
+
+    final AcquisitionResult data = buffer.createCapturedData( Ols.NOT_AVAILABLE, 100, 8, 0xFF, 8L );
+
+    assertArrayEquals( new int[] { 1, 0, 1, 1 }, data.getValues() );
+    assertArrayEquals( new long[] { 0L, 3L, 6L, 8L }, data.getTimestamps() );
+  }
+
+  /**
+   * Tests that exceeding the mapped threshold yields memory-mapped data with
+   * the same contents as heap-based data.
+   */
+  @Test
+  public void testSpillToMappedDataOk() throws Exception
+  {
+    final TransitionBuffer heapBuffer = new TransitionBuffer( 16 );
+    final TransitionBuffer mappedBuffer = new TransitionBuffer( 16, 100 );
+    for ( int i = 0; i < 200000; i++ )
+    {
+      heapBuffer.add( i & 0x3, 2L * i );
+      mappedBuffer.add( i & 0x3, 2L * i );
+    }
+
+    assertFalse( heapBuffer.isSpilled() );
+    assertTrue( mappedBuffer.isSpilled() );
+
+    final AcquisitionResult expected = heapBuffer.createCapturedData( 5L, 100, 8, 0xFF, 500000L );
+    final AcquisitionResult actual = mappedBuffer.createCapturedData( 5L, 100, 8, 0xFF, 500000L );
+
+    assertTrue( actual instanceof MappedCapturedData );
+    assertFalse( mappedBuffer.isSpilled() );
+
+    assertEquals( expected.getSampleCount(), actual.getSampleCount() );
+    assertArrayEquals( expected.getValues(), actual.getValues() );
+    assertArrayEquals( expected.getTimestamps(), actual.getTimestamps() );
+    assertEquals( expected.getAbsoluteLength(), actual.getAbsoluteLength() );
+
+    for ( long time : new long[] { -1L, 0L, 3L, 4L, 399998L, 499999L, 500000L, 600000L } )
+    {
+      assertEquals( expected.getSampleIndex( time ), actual.getSampleIndex( time ) );
+    }
+
+    final int[] values = new int[1000];
+    final long[] timestamps = new long[1000];
+    actual.getSamples( 1234, 2234, values, timestamps );
+    for ( int i = 0; i < values.length; i++ )
+    {
+      assertEquals( expected.getValue( 1234 + i ), values[i] );
+      assertEquals( expected.getTimestamp( 1234 + i ), timestamps[i] );
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data.annotation;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link AnnotationIndex}.
+ */
+public class AnnotationIndexTest
+{
+  // INNER TYPES
+
+  /**
+   * Provides a simple data annotation.
+   */
+  static final class TestAnnotation implements DataAnnotation<String>
+  {
+    private final long start;
+    private final long end;
+
+    TestAnnotation( final long aStart, final long aEnd )
+    {
+      this.start = aStart;
+      this.end = aEnd;
+    }
+
+    @Override
+    public int compareTo( final Annotation<String> aOther )
+    {
+      return ( int )( this.start - ( ( DataAnnotation<?> )aOther ).getStartTimestamp() );
+    }
+
+    @Override
+    public String getAnnotation()
+    {
+      return this.start + "-" + this.end;
+    }
+
+    @Override
+    public int getChannel()
+    {
+      return 0;
+    }
+
+    @Override
+    public long getEndTimestamp()
+    {
+      return this.end;
+    }
+
+    @Override
+    public long getStartTimestamp()
+    {
+      return this.start;
+    }
+  }
+
+  // VARIABLES
+
+  private List<DataAnnotation<?>> annotations;
+  private AnnotationIndex index;
+
+  // METHODS
+
+  /**
+   * Sets up the test data: consecutive, non-overlapping annotations, as a
+   * decoder would produce, added in random order.
+   */
+  @Before
+  public void setUp()
+  {
+    final Random rnd = new Random( 4711L );
+
+    this.annotations = new ArrayList<DataAnnotation<?>>();
+
+    long time = 0L;
+    for ( int i = 0; i < 2000; i++ )
+    {
+      time += rnd.nextInt( 50 );
+      final long end = time + rnd.nextInt( 20 );
+      this.annotations.add( new TestAnnotation( time, end ) );
+      time = end + 1;
+    }
+
+    final List<DataAnnotation<?>> shuffled = new ArrayList<DataAnnotation<?>>( this.annotations );
+    Collections.shuffle( shuffled, rnd );
+
+    this.index = new AnnotationIndex( shuffled );
+  }
+
+  /**
+   * Tests that the annotations around a timestamp are the same as those found
+   * by a linear search.
+   */
+  @Test
+  public void testFindAnnotationsAroundTimestampOk() throws Exception
+  {
+    final long last = this.annotations.get( this.annotations.size() - 1 ).getEndTimestamp();
+    for ( long time = -5L; time < ( last + 5L ); time++ )
+    {
+      DataAnnotation<?> hit = null;
+      DataAnnotation<?> after = null;
+      DataAnnotation<?> before = null;
+      for ( DataAnnotation<?> annotation : this.annotations )
+      {
+        final long start = annotation.getStartTimestamp();
+        final long end = annotation.getEndTimestamp();
+        if ( ( hit == null ) && ( start <= time ) && ( end >= time ) )
+        {
+          hit = annotation;
+        }
+        if ( ( after == null ) && ( start >= time ) )
+        {
+          after = annotation;
+        }
+        if ( end < time )
+        {
+          before = annotation;
+        }
+      }
+
+      assertSame( hit, this.index.getAnnotation( time ) );
+      assertSame( after, this.index.getAnnotationAfter( time ) );
+      assertSame( before, this.index.getAnnotationBefore( time ) );
+    }
+  }
+
+  /**
+   * Tests that the annotations in a time range are the same as those found by
+   * a linear search, also when annotations overlap each other.
+   */
+  @Test
+  public void testGetAnnotationsInRangeOk() throws Exception
+  {
+    final Random rnd = new Random( 1234L );
+
+    // Add some annotations spanning many others...
+    final List<DataAnnotation<?>> all = new ArrayList<DataAnnotation<?>>( this.annotations );
+    for ( int i = 0; i < 10; i++ )
+    {
+      final long start = rnd.nextInt( 40000 );
+      all.add( new TestAnnotation( start, start + rnd.nextInt( 5000 ) ) );
+    }
+    final AnnotationIndex overlapping = new AnnotationIndex( all );
+    assertEquals( all.size(), overlapping.size() );
+
+    for ( int i = 0; i < 1000; i++ )
+    {
+      final long start = rnd.nextInt( 50000 );
+      final long end = start + rnd.nextInt( 2000 );
+
+      final Set<DataAnnotation<?>> expected = new HashSet<DataAnnotation<?>>();
+      for ( DataAnnotation<?> annotation : all )
+      {
+        if ( ( annotation.getStartTimestamp() <= end ) && ( annotation.getEndTimestamp() >= start ) )
+        {
+          expected.add( annotation );
+        }
+      }
+
+      final List<DataAnnotation<?>> result = overlapping.getAnnotations( start, end );
+      assertEquals( expected.size(), result.size() );
+      assertEquals( expected, new HashSet<DataAnnotation<?>>( result ) );
+    }
+  }
+}
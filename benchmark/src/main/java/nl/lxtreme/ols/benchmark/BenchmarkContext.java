@@ -0,0 +1,90 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.tools.*;
+
+
+/**
+ * Provides a tool context covering all captured data.
+ */
+final class BenchmarkContext implements ToolContext
+{
+  // VARIABLES
+
+  private final AcquisitionResult data;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new BenchmarkContext instance.
+   */
+  BenchmarkContext( final AcquisitionResult aData )
+  {
+    this.data = aData;
+  }
+
+  // METHODS
+
+  @Override
+  public int getChannels()
+  {
+    return this.data.getChannels();
+  }
+
+  @Override
+  public Cursor getCursor( final int aSelectedIndex )
+  {
+    return null;
+  }
+
+  @Override
+  public AcquisitionResult getData()
+  {
+    return this.data;
+  }
+
+  @Override
+  public int getEnabledChannels()
+  {
+    return this.data.getEnabledChannels();
+  }
+
+  @Override
+  public int getEndSampleIndex()
+  {
+    return this.data.getSampleCount() - 1;
+  }
+
+  @Override
+  public int getLength()
+  {
+    return this.data.getSampleCount();
+  }
+
+  @Override
+  public int getStartSampleIndex()
+  {
+    return 0;
+  }
+}
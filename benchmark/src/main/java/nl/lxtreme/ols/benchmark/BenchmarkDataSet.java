@@ -0,0 +1,107 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.client.project.impl.*;
+
+
+/**
+ * Provides a data set with default channels and cursors for some captured
+ * data.
+ */
+final class BenchmarkDataSet implements DataSet
+{
+  // VARIABLES
+
+  private final AcquisitionResult data;
+  private final Channel[] channels;
+  private final Cursor[] cursors;
+  private boolean cursorsEnabled;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new BenchmarkDataSet instance.
+   */
+  BenchmarkDataSet( final AcquisitionResult aData )
+  {
+    this.data = aData;
+
+    this.channels = new Channel[aData.getChannels()];
+    for ( int i = 0; i < this.channels.length; i++ )
+    {
+      this.channels[i] = new ChannelImpl( i );
+    }
+
+    this.cursors = new Cursor[Ols.MAX_CURSORS];
+    for ( int i = 0; i < this.cursors.length; i++ )
+    {
+      this.cursors[i] = new CursorImpl( i );
+    }
+  }
+
+  // METHODS
+
+  @Override
+  public AcquisitionResult getCapturedData()
+  {
+    return this.data;
+  }
+
+  @Override
+  public Channel getChannel( final int aIndex )
+  {
+    return this.channels[aIndex];
+  }
+
+  @Override
+  public Channel[] getChannels()
+  {
+    return this.channels;
+  }
+
+  @Override
+  public Cursor getCursor( final int aIndex )
+  {
+    return this.cursors[aIndex];
+  }
+
+  @Override
+  public Cursor[] getCursors()
+  {
+    return this.cursors;
+  }
+
+  @Override
+  public boolean isCursorsEnabled()
+  {
+    return this.cursorsEnabled;
+  }
+
+  @Override
+  public void setCursorsEnabled( final boolean aEnabled )
+  {
+    this.cursorsEnabled = aEnabled;
+  }
+}
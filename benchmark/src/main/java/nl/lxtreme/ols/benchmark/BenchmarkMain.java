@@ -0,0 +1,75 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import java.util.*;
+
+import org.openjdk.jmh.*;
+
+
+/**
+ * Runs the benchmarks like the regular JMH runner does, but by default writes
+ * the results as JSON to <tt>jmh-result.json</tt> and measures the allocation
+ * rate as well, so the results of different releases can be compared.
+ * <p>
+ * All JMH command line options can be used, and override these defaults. For
+ * example, use <tt>-rf csv</tt> for CSV results, or <tt>-rff</tt> to write the
+ * results to another file.
+ * </p>
+ */
+public final class BenchmarkMain
+{
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new BenchmarkMain instance, never used.
+   */
+  private BenchmarkMain()
+  {
+    // Nop
+  }
+
+  // METHODS
+
+  /**
+   * Runs the benchmarks.
+   * 
+   * @param aArgs
+   *          the JMH command line options.
+   */
+  public static void main( final String[] aArgs ) throws Exception
+  {
+    final List<String> args = new ArrayList<String>( Arrays.asList( aArgs ) );
+    if ( !args.contains( "-rf" ) )
+    {
+      args.add( "-rf" );
+      args.add( "json" );
+    }
+    if ( !args.contains( "-prof" ) )
+    {
+      // Reports the allocation rate, both per second and per operation...
+      args.add( "-prof" );
+      args.add( "gc" );
+    }
+
+    Main.main( args.toArray( new String[args.size()] ) );
+  }
+}
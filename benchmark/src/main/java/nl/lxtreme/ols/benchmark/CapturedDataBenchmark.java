@@ -0,0 +1,91 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.device.test.*;
+import nl.lxtreme.ols.device.test.GeneratedTraffic.Kind;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Benchmarks the construction of captured data, that is, the compression of
+ * the samples into transitions, on generated traffic.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@State( Scope.Thread )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class CapturedDataBenchmark
+{
+  // VARIABLES
+
+  @Param( { "I2C", "ONE_WIRE", "MANCHESTER" } )
+  public Kind traffic;
+  @Param( { "10", "100" } )
+  public int messages;
+
+  private GeneratedTraffic generated;
+  private int[] values;
+  private long[] timestamps;
+
+  // METHODS
+
+  /**
+   * Generates the traffic, as samples and as samples with timestamps.
+   */
+  @Setup
+  public void setUp()
+  {
+    this.generated = GeneratedTraffic.generate( this.traffic, this.messages );
+    this.values = this.generated.getSamples();
+    this.timestamps = new long[this.values.length];
+    for ( int i = 0; i < this.timestamps.length; i++ )
+    {
+      this.timestamps[i] = i;
+    }
+  }
+
+  /**
+   * Creates the captured data from samples with timestamps, as done by the
+   * device drivers.
+   */
+  @Benchmark
+  public int createFromSamplesAndTimestamps()
+  {
+    return new CapturedData( this.values, this.timestamps, this.generated.getTrigger(), this.generated.getRate(),
+        GeneratedTraffic.CHANNELS, GeneratedTraffic.ENABLED_CHANNELS, this.values.length ).getSampleCount();
+  }
+
+  /**
+   * Creates the captured data from samples only.
+   */
+  @Benchmark
+  public int createFromSamples()
+  {
+    return this.generated.toCapturedData().getSampleCount();
+  }
+}
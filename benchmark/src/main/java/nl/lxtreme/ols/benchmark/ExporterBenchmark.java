@@ -0,0 +1,104 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.export.*;
+import nl.lxtreme.ols.device.test.*;
+import nl.lxtreme.ols.device.test.GeneratedTraffic.Kind;
+import nl.lxtreme.ols.export.csv.*;
+import nl.lxtreme.ols.export.vcd.*;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Benchmarks the exporters that write the captured data itself, on generated
+ * traffic.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@State( Scope.Thread )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class ExporterBenchmark
+{
+  // INNER TYPES
+
+  /**
+   * Denotes the exporter to benchmark.
+   */
+  public static enum Format
+  {
+    CSV, CSV_HEX, VCD, VCD_GZ;
+  }
+
+  // VARIABLES
+
+  @Param( { "CSV", "CSV_HEX", "VCD", "VCD_GZ" } )
+  public Format format;
+  @Param( { "I2C", "MANCHESTER" } )
+  public Kind traffic;
+  @Param( { "100", "1000" } )
+  public int messages;
+
+  private DataSet dataSet;
+  private Exporter exporter;
+
+  // METHODS
+
+  /**
+   * Generates the traffic, and creates the exporter.
+   */
+  @Setup
+  public void setUp()
+  {
+    this.dataSet = new BenchmarkDataSet( GeneratedTraffic.generate( this.traffic, this.messages ).toCapturedData() );
+    if ( this.format == Format.CSV )
+    {
+      this.exporter = new CsvExporter();
+    }
+    else if ( this.format == Format.CSV_HEX )
+    {
+      this.exporter = new CsvExporter( CsvExporter.ColumnFormat.PACKED_HEX, false /* aCursorWindowOnly */);
+    }
+    else
+    {
+      this.exporter = new ValueChangeDumpExporter( this.format == Format.VCD_GZ );
+    }
+  }
+
+  /**
+   * Exports all captured data.
+   */
+  @Benchmark
+  public long export() throws IOException
+  {
+    final CountingOutputStream output = new CountingOutputStream();
+    // Neither exporter uses the exported component...
+    this.exporter.export( this.dataSet, null, output );
+    return output.getCount();
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.device.test.*;
+import nl.lxtreme.ols.device.test.GeneratedTraffic.Kind;
+import nl.lxtreme.ols.tool.i2c.*;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Benchmarks the I2C decoder on generated I2C transactions, each consisting of
+ * a write of a 40-byte message followed by a single byte read.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@State( Scope.Thread )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class I2CDecoderBenchmark
+{
+  // CONSTANTS
+
+  private static final int SDA = 0;
+  private static final int SCL = 1;
+
+  // VARIABLES
+
+  @Param( { "100", "1000" } )
+  public int messages;
+  @Param( { "false", "true" } )
+  public boolean detectLines;
+
+  private AcquisitionResult data;
+  private NullListener listener;
+
+  // METHODS
+
+  /**
+   * Generates the I2C transactions.
+   */
+  @Setup
+  public void setUp()
+  {
+    this.data = GeneratedTraffic.generate( Kind.I2C, this.messages ).toCapturedData();
+    this.listener = new NullListener();
+  }
+
+  /**
+   * Decodes all transactions.
+   */
+  @Benchmark
+  public int decode() throws Exception
+  {
+    final I2CAnalyserTask task = new I2CAnalyserTask( new BenchmarkContext( this.data ), this.listener, this.listener );
+    task.setDetectSDA_SCL( this.detectLines );
+    // Line A is taken as SCL, and line B as SDA, unless detected...
+    task.setLineAIndex( SCL );
+    task.setLineBIndex( SDA );
+    task.setReportACK( true );
+    task.setReportNACK( true );
+    task.setReportStart( true );
+    task.setReportStop( true );
+
+    return task.call().getData().size();
+  }
+}
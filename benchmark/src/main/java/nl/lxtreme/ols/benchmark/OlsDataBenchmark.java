@@ -0,0 +1,125 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.client.project.impl.*;
+import nl.lxtreme.ols.device.test.*;
+import nl.lxtreme.ols.device.test.GeneratedTraffic.Kind;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Benchmarks reading and writing captured data in both the textual and the
+ * binary OLS data format, on generated traffic.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@State( Scope.Thread )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class OlsDataBenchmark
+{
+  // CONSTANTS
+
+  private static final String CHARSET = "UTF-8";
+
+  // VARIABLES
+
+  @Param( { "I2C", "MANCHESTER" } )
+  public Kind traffic;
+  @Param( { "100", "1000" } )
+  public int messages;
+
+  private DataSet dataSet;
+  private byte[] textData;
+  private byte[] binaryData;
+
+  // METHODS
+
+  /**
+   * Generates the traffic, and writes it in both formats for reading it back.
+   */
+  @Setup
+  public void setUp() throws IOException
+  {
+    this.dataSet = new BenchmarkDataSet( GeneratedTraffic.generate( this.traffic, this.messages ).toCapturedData() );
+
+    final ByteArrayOutputStream text = new ByteArrayOutputStream();
+    final Writer writer = new OutputStreamWriter( text, CHARSET );
+    OlsDataHelper.write( this.dataSet, writer );
+    writer.close();
+    this.textData = text.toByteArray();
+
+    final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+    OlsBinaryDataHelper.write( this.dataSet, binary );
+    this.binaryData = binary.toByteArray();
+  }
+
+  /**
+   * Reads the captured data from the binary format.
+   */
+  @Benchmark
+  public int readBinary() throws IOException
+  {
+    return OlsBinaryDataHelper.read( new ByteArrayInputStream( this.binaryData ) ).getCapturedData()
+        .getSampleCount();
+  }
+
+  /**
+   * Reads the captured data from the textual format.
+   */
+  @Benchmark
+  public int readText() throws IOException
+  {
+    final Reader reader = new InputStreamReader( new ByteArrayInputStream( this.textData ), CHARSET );
+    return OlsDataHelper.read( reader, this.textData.length ).getCapturedData().getSampleCount();
+  }
+
+  /**
+   * Writes the captured data in the binary format.
+   */
+  @Benchmark
+  public long writeBinary() throws IOException
+  {
+    final CountingOutputStream output = new CountingOutputStream();
+    OlsBinaryDataHelper.write( this.dataSet, output );
+    return output.getCount();
+  }
+
+  /**
+   * Writes the captured data in the textual format.
+   */
+  @Benchmark
+  public long writeText() throws IOException
+  {
+    final CountingOutputStream output = new CountingOutputStream();
+    final Writer writer = new OutputStreamWriter( output, CHARSET );
+    OlsDataHelper.write( this.dataSet, writer );
+    writer.flush();
+    return output.getCount();
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.tool.spi.*;
+import nl.lxtreme.ols.util.NumberUtils.BitOrder;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Benchmarks the SPI decoder for each of the standard, dual and quad
+ * protocols, on captured data in which every sample is a clock edge.
+ * <p>
+ * Run with <tt>-prof gc</tt> to verify the decoder does not allocate on clock
+ * edges: the normalized allocation rate (<tt>gc.alloc.rate.norm</tt>) should
+ * only account for the decoded datagrams, that is, it should not change when
+ * the number of clock edges per datagram is increased through the
+ * <tt>bitCount</tt> parameter while keeping the number of datagrams the same.
+ * </p>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@State( Scope.Thread )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class SPIDecoderBenchmark
+{
+  // CONSTANTS
+
+  private static final int IO0 = 0;
+  private static final int IO1 = 1;
+  private static final int IO2 = 2;
+  private static final int IO3 = 3;
+  private static final int SCK = 4;
+  private static final int CS = 5;
+
+  // VARIABLES
+
+  @Param( { "STANDARD", "DUAL", "QUAD" } )
+  public SPIFIMode protocol;
+  @Param( { "8", "32" } )
+  public int bitCount;
+  @Param( { "10000" } )
+  public int datagrams;
+
+  private AcquisitionResult data;
+  private NullListener listener;
+
+  // METHODS
+
+  /**
+   * Creates the captured data, consisting of a single chip-select followed by
+   * the requested number of datagrams.
+   */
+  @Setup
+  public void setUp()
+  {
+    final Random rnd = new Random( 1234L );
+
+    final int bitsPerEdge = ( this.protocol == SPIFIMode.QUAD ) ? 4 : ( this.protocol == SPIFIMode.DUAL ) ? 2 : 1;
+    // Two clock edges per sampled symbol, plus CS going low...
+    final int size = 1 + ( this.datagrams * this.bitCount * 2 ) / bitsPerEdge;
+
+    final int[] values = new int[size];
+    final long[] timestamps = new long[size];
+
+    values[0] = 1 << CS;
+    for ( int i = 1; i < size; i++ )
+    {
+      // Data changes on the falling edge, and is sampled on the rising edge...
+      final int sck = ( i & 1 ) << SCK;
+      values[i] = ( sck != 0 ) ? ( values[i - 1] | sck ) : ( rnd.nextInt() & 0x0F );
+      timestamps[i] = i;
+    }
+
+    this.data = new CapturedData( values, timestamps, -1L, 100000000, 8, 0xFF, size );
+    this.listener = new NullListener();
+  }
+
+  /**
+   * Decodes all datagrams.
+   */
+  @Benchmark
+  public int decode() throws Exception
+  {
+    final SPIAnalyserTask task = new SPIAnalyserTask( new BenchmarkContext( this.data ), this.listener, this.listener );
+    task.setProtocol( this.protocol );
+    task.setSPIMode( SPIMode.MODE_0 );
+    task.setBitCount( this.bitCount - 1 );
+    task.setOrder( BitOrder.MSB_FIRST );
+    task.setHonourCS( true );
+    task.setReportCS( false );
+    task.setIO0Index( IO0 );
+    task.setIO1Index( IO1 );
+    task.setIO2Index( IO2 );
+    task.setIO3Index( IO3 );
+    task.setSCKIndex( SCK );
+    task.setCSIndex( CS );
+
+    return task.call().getData().size();
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.sump.device.logicsniffer.sampleprocessor.*;
+
+
+/**
+ * Benchmarks unpacking the raw sample bytes sent by the LogicSniffer device
+ * into sample values for various combinations of enabled groups, using the
+ * specialised {@link SampleUnpacker}s and using a generic loop over the bytes
+ * of each sample, as done before.
+ * <p>
+ * The samples are unpacked in chunks of 64K samples, like the acquisition task
+ * does while reading the samples.
+ * </p>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@State( Scope.Thread )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class SampleUnpackerBenchmark
+{
+  // CONSTANTS
+
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  // VARIABLES
+
+  /** The enabled groups: one, two, three and four contiguous groups, and two sparse combinations. */
+  @Param( { "1", "3", "7", "15", "5", "11" } )
+  public int groupMask;
+  @Param( { "16777216" } )
+  public int sampleCount;
+
+  private byte[] rawData;
+  private int[] groupShifts;
+  private SampleUnpacker unpacker;
+  private int[] samples;
+
+  // METHODS
+
+  /**
+   * Creates the raw sample bytes.
+   */
+  @Setup
+  public void setUp()
+  {
+    final int groupCount = Integer.bitCount( this.groupMask );
+
+    this.rawData = new byte[groupCount * this.sampleCount];
+    new Random( 1234L ).nextBytes( this.rawData );
+
+    this.groupShifts = new int[groupCount];
+    for ( int g = 0, i = 0; i < groupCount; g++ )
+    {
+      if ( ( this.groupMask & ( 1 << g ) ) != 0 )
+      {
+        this.groupShifts[i++] = 8 * g;
+      }
+    }
+
+    this.unpacker = SampleUnpacker.create( this.groupMask );
+    this.samples = new int[CHUNK_SIZE];
+  }
+
+  /**
+   * Compacts all samples again, one group at a time, as done before by the RLE
+   * decoders.
+   */
+  @Benchmark
+  public int compactPerGroup()
+  {
+    final int[] shifts = this.groupShifts;
+
+    int result = 0;
+    for ( int i = 0; i < this.sampleCount; i++ )
+    {
+      final int sample = i * 0x9E3779B9;
+      int compacted = 0;
+      for ( int g = 0; g < shifts.length; g++ )
+      {
+        compacted |= ( ( sample >>> shifts[g] ) & 0xff ) << ( 8 * g );
+      }
+      result ^= compacted;
+    }
+    return result;
+  }
+
+  /**
+   * Compacts all samples again using the sample unpacker.
+   */
+  @Benchmark
+  public int compactWithUnpacker()
+  {
+    final SampleUnpacker unpacker = this.unpacker;
+
+    int result = 0;
+    for ( int i = 0; i < this.sampleCount; i++ )
+    {
+      result ^= unpacker.compact( i * 0x9E3779B9 );
+    }
+    return result;
+  }
+
+  /**
+   * Unpacks all samples by placing each byte at the position of its group.
+   */
+  @Benchmark
+  public int unpackPerByte()
+  {
+    final byte[] raw = this.rawData;
+    final int[] shifts = this.groupShifts;
+    final int[] chunk = this.samples;
+
+    int result = 0;
+    for ( int j = 0, offset = 0; offset < this.sampleCount; offset += CHUNK_SIZE )
+    {
+      final int count = Math.min( CHUNK_SIZE, this.sampleCount - offset );
+      for ( int i = 0; i < count; i++ )
+      {
+        int sample = 0;
+        for ( int g = 0; g < shifts.length; g++ )
+        {
+          sample |= ( ( raw[j++] & 0xff ) << shifts[g] );
+        }
+        chunk[i] = sample;
+      }
+      result ^= chunk[count - 1];
+    }
+    return result;
+  }
+
+  /**
+   * Unpacks all samples using the sample unpacker.
+   */
+  @Benchmark
+  public int unpackWithUnpacker()
+  {
+    final ByteBuffer raw = ByteBuffer.wrap( this.rawData ).order( ByteOrder.LITTLE_ENDIAN );
+    final int[] chunk = this.samples;
+
+    int result = 0;
+    for ( int offset = 0; offset < this.sampleCount; offset += CHUNK_SIZE )
+    {
+      final int count = Math.min( CHUNK_SIZE, this.sampleCount - offset );
+      this.unpacker.unpack( raw, chunk, 0, count );
+      result ^= chunk[count - 1];
+    }
+    return result;
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import java.awt.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.client.signaldisplay.laf.*;
+import nl.lxtreme.ols.client.signaldisplay.model.*;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Benchmarks the construction of signal lanes, that is, the polylines of the
+ * digital signals and analogue scopes, with and without the level-of-detail
+ * index.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@State( Scope.Thread )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class SignalLaneBenchmark
+{
+  // VARIABLES
+
+  @Param( { "1000", "100000", "1000000" } )
+  public int transitions;
+  @Param( { "1920" } )
+  public int width;
+
+  private AcquisitionResult data;
+  private LevelOfDetailIndex index;
+  private Rectangle clip;
+  private int[] columns;
+  private double zoomFactor;
+  private SignalLane lane;
+
+  // METHODS
+
+  /**
+   * Creates the captured data with the requested number of transitions, all
+   * visible in a view of the requested width.
+   */
+  @Setup
+  public void setUp()
+  {
+    final Random rnd = new Random( 1234L );
+
+    final int[] values = new int[this.transitions];
+    final long[] timestamps = new long[this.transitions];
+    long timestamp = 0L;
+    for ( int i = 0; i < this.transitions; i++ )
+    {
+      values[i] = rnd.nextInt();
+      timestamps[i] = timestamp;
+      timestamp += 1 + rnd.nextInt( 4 );
+    }
+
+    this.data = new CapturedData( values, timestamps, 0L, 100000000, 32, ~0, timestamp );
+    this.index = new LevelOfDetailIndex( this.data );
+    this.clip = new Rectangle( 0, 0, this.width, 20 );
+    this.zoomFactor = this.width / ( double )timestamp;
+    this.columns = getColumnIndices( this.data, this.clip, this.zoomFactor );
+    this.lane = new SignalLane();
+  }
+
+  /**
+   * Builds an analogue scope showing all transitions.
+   */
+  @Benchmark
+  public int buildAnalog()
+  {
+    this.lane.buildAnalog( this.data, 0, this.transitions - 1, this.zoomFactor, this.clip, 0xFF00, 80 );
+    return this.lane.size();
+  }
+
+  /**
+   * Builds an analogue scope showing the minimum and maximum of each column.
+   */
+  @Benchmark
+  public int buildAnalogSummary()
+  {
+    this.lane.buildAnalogSummary( this.data, this.index, this.columns, this.clip, 0xFF00, 80 );
+    return this.lane.size();
+  }
+
+  /**
+   * Builds a digital signal showing all transitions.
+   */
+  @Benchmark
+  public int buildDigital()
+  {
+    this.lane.buildDigital( this.data, 0, this.transitions - 1, this.zoomFactor, 0x01, 20 );
+    return this.lane.size();
+  }
+
+  /**
+   * Builds a digital signal summarizing the transitions of each column.
+   */
+  @Benchmark
+  public int buildDigitalSummary()
+  {
+    this.lane.buildDigitalSummary( this.data, this.index, this.columns, this.clip, 0x01, 20 );
+    return this.lane.size();
+  }
+
+  /**
+   * Returns the index of the first transition of each pixel column, like the
+   * signal view does.
+   */
+  private static int[] getColumnIndices( final AcquisitionResult aData, final Rectangle aClip,
+      final double aZoomFactor )
+  {
+    final int count = aData.getSampleCount();
+    final int[] result = new int[aClip.width + 1];
+
+    for ( int i = 0; i < result.length; i++ )
+    {
+      final long timestamp = ( long )Math.ceil( ( aClip.x + i ) / aZoomFactor );
+
+      int idx = aData.getSampleIndex( timestamp );
+      if ( ( idx < count ) && ( aData.getTimestamp( idx ) < timestamp ) )
+      {
+        idx++;
+      }
+      result[i] = idx;
+    }
+
+    return result;
+  }
+}
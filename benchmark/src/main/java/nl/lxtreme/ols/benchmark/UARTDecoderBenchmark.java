@@ -0,0 +1,187 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.tool.uart.*;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitEncoding;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitLevel;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitOrder;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.Parity;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.StopBits;
+import nl.lxtreme.ols.tool.uart.impl.*;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Benchmarks the UART decoder and the baud rate detection on random 8N1 frames
+ * on both the RxD and TxD lines, with some idle time between the frames.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@State( Scope.Thread )
+@Fork( 1 )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+public class UARTDecoderBenchmark
+{
+  // CONSTANTS
+
+  private static final int RXD = 0;
+  private static final int TXD = 1;
+
+  private static final int SAMPLE_RATE = 10000000;
+  private static final int BAUD_RATE = 115200;
+
+  // VARIABLES
+
+  @Param( { "10000", "100000" } )
+  public int frames;
+  @Param( { "true", "false" } )
+  public boolean detectBaudRate;
+
+  private AcquisitionResult data;
+  private NullListener listener;
+
+  // METHODS
+
+  /**
+   * Creates the captured data with the requested number of frames on each
+   * line, interleaving the frames of both lines.
+   */
+  @Setup
+  public void setUp()
+  {
+    final Random rnd = new Random( 1234L );
+    final double bitLength = SAMPLE_RATE / ( double )BAUD_RATE;
+
+    final List<Long> rxdEdges = new ArrayList<Long>();
+    final List<Long> txdEdges = new ArrayList<Long>();
+    final long end = createFrames( rxdEdges, rnd, bitLength, 0.0 );
+    createFrames( txdEdges, rnd, bitLength, 3.5 * bitLength );
+
+    // Merge the edges of both lines into transitions...
+    final int[] values = new int[rxdEdges.size() + txdEdges.size() + 1];
+    final long[] timestamps = new long[values.length];
+
+    int value = ( 1 << RXD ) | ( 1 << TXD );
+    int count = 0;
+    values[count++] = value;
+
+    int r = 0;
+    int t = 0;
+    while ( ( r < rxdEdges.size() ) || ( t < txdEdges.size() ) )
+    {
+      final long rxdTime = ( r < rxdEdges.size() ) ? rxdEdges.get( r ).longValue() : Long.MAX_VALUE;
+      final long txdTime = ( t < txdEdges.size() ) ? txdEdges.get( t ).longValue() : Long.MAX_VALUE;
+      final long time = Math.min( rxdTime, txdTime );
+      if ( rxdTime == time )
+      {
+        value ^= ( 1 << RXD );
+        r++;
+      }
+      if ( txdTime == time )
+      {
+        value ^= ( 1 << TXD );
+        t++;
+      }
+      if ( time == timestamps[count - 1] )
+      {
+        values[count - 1] = value;
+      }
+      else
+      {
+        timestamps[count] = time;
+        values[count++] = value;
+      }
+    }
+    // Idle for some time after the last frame...
+    final long absLength = end + ( long )( 10 * bitLength );
+
+    this.data = new CapturedData( Arrays.copyOf( values, count ), Arrays.copyOf( timestamps, count ), -1L,
+        SAMPLE_RATE, 8, 0xFF, absLength );
+    this.listener = new NullListener();
+  }
+
+  /**
+   * Detects the baud rate of the RxD line.
+   */
+  @Benchmark
+  public int analyzeBaudRate()
+  {
+    return new BaudRateAnalyzer( SAMPLE_RATE, this.data, 1 << RXD ).getBaudRate();
+  }
+
+  /**
+   * Decodes all frames of both lines.
+   */
+  @Benchmark
+  public int decode() throws Exception
+  {
+    final UARTAnalyserTask task = new UARTAnalyserTask( new BenchmarkContext( this.data ), this.listener,
+        this.listener );
+    task.setRxdIndex( RXD );
+    task.setTxdIndex( TXD );
+    task.setBaudRate( this.detectBaudRate ? UARTAnalyserTask.AUTO_DETECT_BAUDRATE : BAUD_RATE );
+    task.setBitCount( 8 );
+    task.setBitEncoding( BitEncoding.HIGH_IS_MARK );
+    task.setBitOrder( BitOrder.LSB_FIRST );
+    task.setIdleLevel( BitLevel.HIGH );
+    task.setParity( Parity.NONE );
+    task.setStopBits( StopBits.ONE );
+
+    return task.call().getData().size();
+  }
+
+  /**
+   * Creates the edges of random 8N1 frames with some idle time in between.
+   * 
+   * @return the time of the end of the last frame.
+   */
+  private long createFrames( final List<Long> aEdges, final Random aRnd, final double aBitLength,
+      final double aOffset )
+  {
+    double time = aOffset + aBitLength;
+    for ( int i = 0; i < this.frames; i++ )
+    {
+      // Start bit, 8 data bits, LSB first, and a stop bit...
+      final int frame = ( ( aRnd.nextInt( 256 ) << 1 ) | ( 1 << 9 ) );
+
+      int level = 1;
+      for ( int bit = 0; bit < 10; bit++ )
+      {
+        final int bitValue = ( frame >> bit ) & 1;
+        if ( bitValue != level )
+        {
+          aEdges.add( Long.valueOf( ( long )( time + ( bit * aBitLength ) ) ) );
+          level = bitValue;
+        }
+      }
+      time += ( 10 + aRnd.nextInt( 4 ) ) * aBitLength;
+    }
+    return ( long )time;
+  }
+}
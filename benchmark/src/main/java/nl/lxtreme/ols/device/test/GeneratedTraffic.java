@@ -0,0 +1,168 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.device.test;
+
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+
+
+/**
+ * Provides large captures of realistic traffic, generated by the same
+ * generators as used by the test device, for use by the benchmarks.
+ * <p>
+ * The generators are private to the test device, hence this class lives in
+ * the same package.
+ * </p>
+ */
+public final class GeneratedTraffic
+{
+  // INNER TYPES
+
+  /**
+   * Denotes the kind of traffic to generate.
+   */
+  public static enum Kind
+  {
+    /** I2C transactions, SDA on channel 0 and SCL on channel 1. */
+    I2C,
+    /** Standard speed 1-wire transactions on channel 0. */
+    ONE_WIRE,
+    /** A Manchester encoded stream on channel 0. */
+    MANCHESTER;
+  }
+
+  // CONSTANTS
+
+  /** The number of channels of the generated captures. */
+  public static final int CHANNELS = 8;
+  /** The enabled channels of the generated captures. */
+  public static final int ENABLED_CHANNELS = 0xFF;
+
+  private static final String MESSAGE = "Hello World, this is a sample bit stream!";
+
+  // VARIABLES
+
+  private final int[] samples;
+  private final int rate;
+  private final int trigger;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new GeneratedTraffic instance.
+   */
+  private GeneratedTraffic( final int[] aSamples, final int aRate, final int aTrigger )
+  {
+    this.samples = aSamples;
+    this.rate = aRate;
+    this.trigger = aTrigger;
+  }
+
+  // METHODS
+
+  /**
+   * Generates the given number of messages of the given kind of traffic.
+   * 
+   * @param aKind
+   *          the kind of traffic to generate, cannot be <code>null</code>;
+   * @param aMessages
+   *          the number of messages to generate, &gt; 0.
+   * @return the generated traffic, never <code>null</code>.
+   */
+  public static GeneratedTraffic generate( final Kind aKind, final int aMessages )
+  {
+    switch ( aKind )
+    {
+      case I2C:
+      {
+        final I2CGenerator generator = new I2CGenerator();
+        for ( int i = 0; i < aMessages; i++ )
+        {
+          generator.writeBitStream( MESSAGE );
+        }
+        return new GeneratedTraffic( generator.getData(), generator.getRate(), generator.getTrigger() );
+      }
+
+      case ONE_WIRE:
+      {
+        final OneWireGenerator generator = new OneWireGenerator( true /* aStandard */);
+        for ( int i = 0; i < aMessages; i++ )
+        {
+          generator.writeBitStream( MESSAGE );
+        }
+        return new GeneratedTraffic( generator.getData(), generator.getRate(), generator.getTrigger() );
+      }
+
+      case MANCHESTER:
+      {
+        final ManchesterEncoder encoder = new ManchesterEncoder();
+        for ( int i = 0; i < aMessages; i++ )
+        {
+          encoder.writeData( MESSAGE );
+        }
+        return new GeneratedTraffic( encoder.getData(), encoder.getRate(), encoder.getTrigger() );
+      }
+
+      default:
+        throw new IllegalArgumentException( "Unknown kind of traffic: " + aKind );
+    }
+  }
+
+  /**
+   * Returns the sample rate of the generated traffic.
+   * 
+   * @return a sample rate, in Hertz.
+   */
+  public int getRate()
+  {
+    return this.rate;
+  }
+
+  /**
+   * Returns the generated samples, one value per sample.
+   * 
+   * @return the samples, never <code>null</code>.
+   */
+  public int[] getSamples()
+  {
+    return this.samples;
+  }
+
+  /**
+   * Returns the trigger position of the generated traffic.
+   * 
+   * @return a sample index.
+   */
+  public int getTrigger()
+  {
+    return this.trigger;
+  }
+
+  /**
+   * Creates the captured data of the generated traffic.
+   * 
+   * @return new captured data, never <code>null</code>.
+   */
+  public AcquisitionResult toCapturedData()
+  {
+    return new CapturedData( this.samples, this.trigger, this.rate, CHANNELS, ENABLED_CHANNELS );
+  }
+}
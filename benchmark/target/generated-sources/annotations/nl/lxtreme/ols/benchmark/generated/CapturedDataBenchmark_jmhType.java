@@ -0,0 +1,4 @@
+package nl.lxtreme.ols.benchmark.generated;
+public class CapturedDataBenchmark_jmhType extends CapturedDataBenchmark_jmhType_B3 {
+}
+
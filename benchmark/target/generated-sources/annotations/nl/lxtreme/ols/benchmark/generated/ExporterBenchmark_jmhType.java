@@ -0,0 +1,4 @@
+package nl.lxtreme.ols.benchmark.generated;
+public class ExporterBenchmark_jmhType extends ExporterBenchmark_jmhType_B3 {
+}
+
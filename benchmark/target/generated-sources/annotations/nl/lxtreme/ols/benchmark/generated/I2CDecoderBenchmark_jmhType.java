@@ -0,0 +1,4 @@
+package nl.lxtreme.ols.benchmark.generated;
+public class I2CDecoderBenchmark_jmhType extends I2CDecoderBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package nl.lxtreme.ols.benchmark.generated;
+public class OlsDataBenchmark_jmhType extends OlsDataBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package nl.lxtreme.ols.benchmark.generated;
+public class SPIDecoderBenchmark_jmhType extends SPIDecoderBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package nl.lxtreme.ols.benchmark.generated;
+public class SampleUnpackerBenchmark_jmhType extends SampleUnpackerBenchmark_jmhType_B3 {
+}
+
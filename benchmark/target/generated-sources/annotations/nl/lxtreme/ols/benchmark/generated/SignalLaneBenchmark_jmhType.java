@@ -0,0 +1,4 @@
+package nl.lxtreme.ols.benchmark.generated;
+public class SignalLaneBenchmark_jmhType extends SignalLaneBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package nl.lxtreme.ols.benchmark.generated;
+public class UARTDecoderBenchmark_jmhType extends UARTDecoderBenchmark_jmhType_B3 {
+}
+
@@ -22,6 +22,7 @@ package nl.lxtreme.ols.client.project;
 
 
 import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.client.project.impl.*;
 import nl.lxtreme.ols.util.*;
 
@@ -71,6 +72,11 @@ public class Activator extends DependencyActivatorBase
                 .setService( HostProperties.class ) //
                 .setRequired( true ) //
             ) //
+            .add( createServiceDependency() //
+                .setService( TaskExecutionService.class ) //
+                .setRequired( false ) //
+                .setCallbacks( "setTaskExecutionService", "removeTaskExecutionService" ) //
+            ) //
             .add( createServiceDependency() //
                 .setService( LogService.class ) //
                 .setRequired( false ) //
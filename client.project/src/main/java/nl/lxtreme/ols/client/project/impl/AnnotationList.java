@@ -0,0 +1,220 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.data.annotation.*;
+
+
+/**
+ * Provides an append-only list of annotations, that can be read while
+ * annotations are added by a tool.
+ * <p>
+ * Appending takes amortized constant time. Annotations are never overwritten
+ * once added, not even when the list is cleared, which allows
+ * {@link #snapshot()} to return a view on the current annotations without
+ * copying them. The {@link AnnotationIndex} of the current annotations is kept
+ * until annotations are added or cleared.
+ * </p>
+ */
+final class AnnotationList
+{
+  // INNER TYPES
+
+  /**
+   * Provides an immutable view on the first annotations of an array.
+   */
+  static final class Snapshot extends AbstractList<Annotation<?>> implements RandomAccess
+  {
+    // VARIABLES
+
+    private final Annotation<?>[] elements;
+    private final int size;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new Snapshot instance.
+     */
+    Snapshot( final Annotation<?>[] aElements, final int aSize )
+    {
+      this.elements = aElements;
+      this.size = aSize;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Annotation<?> get( final int aIndex )
+    {
+      if ( ( aIndex < 0 ) || ( aIndex >= this.size ) )
+      {
+        throw new IndexOutOfBoundsException( "Invalid index: " + aIndex + "!" );
+      }
+      return this.elements[aIndex];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+      return this.size;
+    }
+  }
+
+  // CONSTANTS
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  // VARIABLES
+
+  private Annotation<?>[] elements;
+  private int size;
+  /** incremented upon each modification, to detect outdated indices. */
+  private int generation;
+  private AnnotationIndex index;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new, empty, AnnotationList instance.
+   */
+  public AnnotationList()
+  {
+    this.elements = new Annotation<?>[INITIAL_CAPACITY];
+    this.size = 0;
+  }
+
+  // METHODS
+
+  /**
+   * Appends the given annotation to this list.
+   *
+   * @param aAnnotation
+   *          the annotation to add, cannot be <code>null</code>.
+   */
+  public synchronized void add( final Annotation<?> aAnnotation )
+  {
+    ensureCapacity( this.size + 1 );
+    this.elements[this.size++] = aAnnotation;
+    modified();
+  }
+
+  /**
+   * Appends the given annotations to this list, in order.
+   *
+   * @param aAnnotations
+   *          the annotations to add, cannot be <code>null</code>.
+   */
+  public synchronized void addAll( final Collection<? extends Annotation<?>> aAnnotations )
+  {
+    ensureCapacity( this.size + aAnnotations.size() );
+    for ( Annotation<?> annotation : aAnnotations )
+    {
+      this.elements[this.size++] = annotation;
+    }
+    modified();
+  }
+
+  /**
+   * Removes all annotations from this list.
+   */
+  public synchronized void clear()
+  {
+    // Do not clear the current array, it might still be used by snapshots...
+    this.elements = new Annotation<?>[INITIAL_CAPACITY];
+    this.size = 0;
+    modified();
+  }
+
+  /**
+   * Returns the index of the current annotations of this list, creating it if
+   * necessary.
+   *
+   * @return an annotation index, never <code>null</code>.
+   */
+  public AnnotationIndex index()
+  {
+    final List<Annotation<?>> annotations;
+    final int indexedGeneration;
+    synchronized ( this )
+    {
+      if ( this.index != null )
+      {
+        return this.index;
+      }
+      annotations = snapshot();
+      indexedGeneration = this.generation;
+    }
+
+    // Do not hold the lock while indexing, as it blocks adding annotations...
+    final AnnotationIndex result = new AnnotationIndex( annotations );
+
+    synchronized ( this )
+    {
+      if ( indexedGeneration == this.generation )
+      {
+        this.index = result;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns an immutable view on the current annotations of this list, which
+   * is not affected by annotations added later on.
+   *
+   * @return a list of annotations, never <code>null</code>.
+   */
+  public synchronized List<Annotation<?>> snapshot()
+  {
+    return new Snapshot( this.elements, this.size );
+  }
+
+  /**
+   * Makes sure the array of annotations can hold at least the given number of
+   * annotations.
+   */
+  private void ensureCapacity( final int aCapacity )
+  {
+    if ( aCapacity > this.elements.length )
+    {
+      final int newCapacity = Math.max( aCapacity, this.elements.length + ( this.elements.length >> 1 ) );
+      this.elements = Arrays.copyOf( this.elements, newCapacity );
+    }
+  }
+
+  /**
+   * Invalidates the index of this list.
+   */
+  private void modified()
+  {
+    this.generation++;
+    this.index = null;
+  }
+}
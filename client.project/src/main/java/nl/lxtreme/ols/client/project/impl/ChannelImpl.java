@@ -23,8 +23,6 @@ package nl.lxtreme.ols.client.project.impl;
 
 import java.beans.*;
 import java.util.*;
-import java.util.List;
-import java.util.concurrent.*;
 
 import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.data.*;
@@ -48,7 +46,7 @@ public final class ChannelImpl implements Channel
   private String label;
   private boolean enabled;
 
-  private final List<Annotation<?>> annotations;
+  private final AnnotationList annotations;
   private final PropertyChangeSupport propertyChangeSupport;
 
   // CONSTRUCTORS
@@ -76,10 +74,10 @@ public final class ChannelImpl implements Channel
     this.label = aChannel.hasName() ? aChannel.getLabel() : null;
     this.enabled = aChannel.isEnabled();
 
-    this.annotations = new CopyOnWriteArrayList<Annotation<?>>();
+    this.annotations = new AnnotationList();
     if ( aRetainAnnotation )
     {
-      this.annotations.addAll( aChannel.getAnnotations() );
+      addAnnotations( aChannel.getAnnotations() );
     }
   }
 
@@ -103,7 +101,7 @@ public final class ChannelImpl implements Channel
     this.label = null;
     this.enabled = true;
 
-    this.annotations = new CopyOnWriteArrayList<Annotation<?>>();
+    this.annotations = new AnnotationList();
   }
 
   // METHODS
@@ -127,6 +125,27 @@ public final class ChannelImpl implements Channel
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void addAnnotations( final Collection<? extends Annotation<?>> aAnnotations )
+  {
+    final List<Annotation<?>> dataAnnotations = new ArrayList<Annotation<?>>( aAnnotations.size() );
+    for ( Annotation<?> annotation : aAnnotations )
+    {
+      if ( annotation instanceof DataAnnotation )
+      {
+        dataAnnotations.add( annotation );
+      }
+      else
+      {
+        addAnnotation( annotation );
+      }
+    }
+    this.annotations.addAll( dataAnnotations );
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -183,7 +202,16 @@ public final class ChannelImpl implements Channel
   @Override
   public Collection<Annotation<?>> getAnnotations()
   {
-    return Collections.unmodifiableCollection( this.annotations );
+    return this.annotations.snapshot();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public AnnotationIndex getAnnotationIndex()
+  {
+    return this.annotations.index();
   }
 
   /**
@@ -0,0 +1,507 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.logging.*;
+import java.util.zip.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+
+
+/**
+ * Helper class that is capable of reading & writing OLS data in a binary,
+ * chunked and compressed format.
+ * <p>
+ * The format consists of a header, containing all metadata of the capture and
+ * its cursors, followed by a number of chunks. Each chunk contains (at most)
+ * {@value #CHUNK_SIZE} samples, and consists of its sample count, its
+ * compressed length and the deflated sample data. Inside a chunk, each sample
+ * is stored as its value XOR-ed with the previous value (4 bytes), followed by
+ * the delta of its timestamp with the previous timestamp (as variable-length
+ * integer). Chunks are self-contained, that is, the first sample in each chunk
+ * is relative to zero.
+ * </p>
+ * <p>
+ * All multi-byte values are stored in big-endian order.
+ * </p>
+ */
+public final class OlsBinaryDataHelper
+{
+  // INNER TYPES
+
+  /**
+   * Provides a callback for partially read data, allowing the data to be shown
+   * while it is still being read.
+   */
+  static interface PartialDataListener
+  {
+    /**
+     * Called when a part of the data is read.
+     *
+     * @param aDataSet
+     *          the data set containing all data read so far, never
+     *          <code>null</code>.
+     */
+    void partialDataRead( DataSetImpl aDataSet );
+  }
+
+  // CONSTANTS
+
+  private static final Logger LOG = Logger.getLogger( OlsBinaryDataHelper.class.getName() );
+
+  /** "OLSB" */
+  static final int MAGIC = 0x4F4C5342;
+  static final int VERSION = 1;
+  /** The (maximum) number of samples per chunk. */
+  static final int CHUNK_SIZE = 64 * 1024;
+
+  /** Seven integers, two longs, one byte and the cursor count. */
+  private static final int HEADER_SIZE = ( 7 * 4 ) + ( 2 * 8 ) + 1 + 4;
+  /** The largest chunk size we accept while reading. */
+  private static final int MAX_CHUNK_SIZE = 1024 * 1024;
+  /** The maximum size of a single encoded sample: 4 + 10 bytes. */
+  private static final int MAX_SAMPLE_SIZE = 14;
+  /**
+   * The largest initial capacity we allocate up front, the sample count in the
+   * header is not trusted beyond this.
+   */
+  private static final int MAX_INITIAL_CAPACITY = 16 * CHUNK_SIZE;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new OlsBinaryDataHelper instance, never used.
+   */
+  private OlsBinaryDataHelper()
+  {
+    // NO-op
+  }
+
+  // METHODS
+
+  /**
+   * Reads the data from a given input stream.
+   * <p>
+   * The given input stream is <b>not</b> closed by this method.
+   * </p>
+   *
+   * @param aInput
+   *          the input stream to read the data from, cannot be
+   *          <code>null</code>.
+   * @return the read data set, never <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems, or in case the data is invalid.
+   */
+  public static DataSetImpl read( final InputStream aInput ) throws IOException
+  {
+    return read( aInput, -1L, null );
+  }
+
+  /**
+   * Reads the data from a given input stream, reporting the data read so far
+   * to the given listener.
+   * <p>
+   * The listener is called after an exponentially growing number of chunks, so
+   * that copying the partial data takes at most as long as reading all data.
+   * The given input stream is <b>not</b> closed by this method.
+   * </p>
+   *
+   * @param aInput
+   *          the input stream to read the data from, cannot be
+   *          <code>null</code>;
+   * @param aLength
+   *          the length of the data in the given stream, in bytes, or a
+   *          negative value if unknown. Used to validate the header;
+   * @param aListener
+   *          the listener to report partial data to, can be <code>null</code>.
+   * @return the read data set, never <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems, or in case the data is invalid.
+   * @throws InterruptedIOException
+   *           in case the current thread is interrupted while reading.
+   */
+  static DataSetImpl read( final InputStream aInput, final long aLength, final PartialDataListener aListener )
+      throws IOException
+  {
+    if ( LOG.isLoggable( Level.INFO ) )
+    {
+      LOG.info( "Reading binary OLS captured data from stream..." );
+    }
+
+    // Do not close this channel, as it would close the given stream as well...
+    final ReadableByteChannel channel = Channels.newChannel( aInput );
+
+    final ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+    readFully( channel, header );
+
+    if ( header.getInt() != MAGIC )
+    {
+      throw new IOException( "Not a binary OLS data file!" );
+    }
+    final int version = header.getInt();
+    if ( version != VERSION )
+    {
+      throw new IOException( "Unsupported binary OLS data file version: " + version );
+    }
+
+    final int chunkSize = header.getInt();
+    final int size = header.getInt();
+    final int rate = header.getInt();
+    final int channels = header.getInt();
+    final int enabledChannels = header.getInt();
+    final long triggerPos = header.getLong();
+    final long absLen = header.getLong();
+    final boolean cursorsEnabled = header.get() != 0;
+    final int cursorCount = header.getInt();
+
+    if ( ( chunkSize <= 0 ) || ( chunkSize > MAX_CHUNK_SIZE ) || ( size < 0 ) || ( cursorCount < 0 )
+        || ( cursorCount > Ols.MAX_CURSORS ) )
+    {
+      throw new IOException( "Data file is corrupt?! Invalid header!" );
+    }
+    if ( ( channels <= 0 ) || ( channels > 32 ) )
+    {
+      throw new IOException( "Data file is corrupt?! Channel count is not provided!" );
+    }
+    if ( aLength >= 0L )
+    {
+      // Each chunk takes at least its own header...
+      final long chunkCount = ( ( long )size + chunkSize - 1 ) / chunkSize;
+      if ( ( HEADER_SIZE + ( cursorCount * 8L ) + ( chunkCount * 8L ) ) > aLength )
+      {
+        throw new IOException( "Data file is corrupt?! Sample count exceeds the file size!" );
+      }
+    }
+
+    final DataSetImpl tempDataSet = new DataSetImpl();
+    tempDataSet.setCursorsEnabled( cursorsEnabled );
+
+    final ByteBuffer cursorData = ByteBuffer.allocate( cursorCount * 8 );
+    readFully( channel, cursorData );
+    for ( int i = 0; i < cursorCount; i++ )
+    {
+      final long timestamp = cursorData.getLong();
+      if ( ( timestamp > Long.MIN_VALUE ) && ( i < tempDataSet.getCursors().length ) )
+      {
+        tempDataSet.getCursor( i ).setTimestamp( timestamp );
+      }
+    }
+
+    // Do not trust the header with the initial capacity, the buffer grows (or
+    // spills to disk) as the chunks are actually read...
+    final TransitionBuffer buffer = new TransitionBuffer( Math.max( 1, Math.min( size, MAX_INITIAL_CAPACITY ) ) );
+
+    final ByteBuffer chunkHeader = ByteBuffer.allocate( 8 );
+    ByteBuffer compressed = ByteBuffer.allocate( 1024 );
+    final byte[] raw = new byte[( size > 0 ) ? ( chunkSize * MAX_SAMPLE_SIZE ) : 0];
+    final int maxCompressedLength = getMaxCompressedLength( raw.length );
+    final Inflater inflater = new Inflater();
+
+    // The number of bytes read so far, used to validate the chunk headers...
+    long offset = HEADER_SIZE + ( cursorCount * 8L );
+
+    try
+    {
+      int remaining = size;
+      int chunks = 0;
+      int nextReport = 1;
+      while ( remaining > 0 )
+      {
+        if ( Thread.currentThread().isInterrupted() )
+        {
+          throw new InterruptedIOException( "Reading of data interrupted!" );
+        }
+
+        chunkHeader.clear();
+        readFully( channel, chunkHeader );
+        final int count = chunkHeader.getInt();
+        final int compressedLength = chunkHeader.getInt();
+
+        if ( ( count <= 0 ) || ( count > Math.min( chunkSize, remaining ) ) || ( compressedLength < 0 )
+            || ( compressedLength > maxCompressedLength ) )
+        {
+          throw new IOException( "Data file is corrupt?! Invalid chunk header!" );
+        }
+
+        offset += chunkHeader.capacity();
+        if ( ( aLength >= 0L ) && ( compressedLength > ( aLength - offset ) ) )
+        {
+          throw new IOException( "Data file is corrupt?! Chunk length exceeds the file size!" );
+        }
+        offset += compressedLength;
+
+        if ( compressed.capacity() < compressedLength )
+        {
+          compressed = ByteBuffer.allocate( compressedLength );
+        }
+        compressed.clear();
+        compressed.limit( compressedLength );
+        readFully( channel, compressed );
+
+        inflater.reset();
+        inflater.setInput( compressed.array(), 0, compressedLength );
+
+        final int rawLength;
+        try
+        {
+          rawLength = inflater.inflate( raw );
+          if ( !inflater.finished() )
+          {
+            throw new IOException( "Data file is corrupt?! Chunk data is too large!" );
+          }
+        }
+        catch ( DataFormatException exception )
+        {
+          throw new IOException( "Data file is corrupt?! Invalid chunk data!" );
+        }
+
+        decodeChunk( ByteBuffer.wrap( raw, 0, rawLength ), count, buffer );
+
+        remaining -= count;
+
+        if ( ( aListener != null ) && ( remaining > 0 ) && ( ++chunks == nextReport ) )
+        {
+          nextReport <<= 1;
+
+          final AcquisitionResult partialData = buffer.createSnapshot( triggerPos, rate, channels, enabledChannels );
+          if ( partialData != null )
+          {
+            aListener.partialDataRead( new DataSetImpl( partialData, tempDataSet, false /* aRetainAnnotations */) );
+          }
+        }
+      }
+    }
+    finally
+    {
+      inflater.end();
+    }
+
+    final AcquisitionResult capturedData = buffer.createCapturedData( triggerPos, rate, channels, enabledChannels,
+        absLen );
+
+    return new DataSetImpl( capturedData, tempDataSet, false /* aRetainAnnotations */);
+  }
+
+  /**
+   * Writes the data of the given data set to the given output stream.
+   * <p>
+   * The given output stream is flushed, but <b>not</b> closed by this method.
+   * </p>
+   *
+   * @param aDataSet
+   *          the data set to write, cannot be <code>null</code>;
+   * @param aOutput
+   *          the output stream to write the data to, cannot be
+   *          <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public static void write( final DataSet aDataSet, final OutputStream aOutput ) throws IOException
+  {
+    final AcquisitionResult capturedData = aDataSet.getCapturedData();
+    final Cursor[] cursors = aDataSet.getCursors();
+
+    final int size = capturedData.getSampleCount();
+
+    final ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE + ( cursors.length * 8 ) );
+    header.putInt( MAGIC );
+    header.putInt( VERSION );
+    header.putInt( CHUNK_SIZE );
+    header.putInt( size );
+    header.putInt( capturedData.getSampleRate() );
+    header.putInt( capturedData.getChannels() );
+    header.putInt( capturedData.getEnabledChannels() );
+    header.putLong( capturedData.getTriggerPosition() );
+    header.putLong( capturedData.getAbsoluteLength() );
+    header.put( ( byte )( aDataSet.isCursorsEnabled() ? 1 : 0 ) );
+    header.putInt( cursors.length );
+    for ( Cursor cursor : cursors )
+    {
+      header.putLong( cursor.isDefined() ? cursor.getTimestamp() : Long.MIN_VALUE );
+    }
+
+    aOutput.write( header.array(), 0, header.position() );
+
+    final ByteBuffer raw = ByteBuffer.allocate( CHUNK_SIZE * MAX_SAMPLE_SIZE );
+    final byte[] compressed = new byte[getMaxCompressedLength( raw.capacity() )];
+    final byte[] chunkHeader = new byte[8];
+    final Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+
+    try
+    {
+      for ( int start = 0; start < size; start += CHUNK_SIZE )
+      {
+        final int count = Math.min( CHUNK_SIZE, size - start );
+
+        raw.clear();
+        encodeChunk( capturedData, start, count, raw );
+
+        deflater.reset();
+        deflater.setInput( raw.array(), 0, raw.position() );
+        deflater.finish();
+
+        int compressedLength = 0;
+        while ( !deflater.finished() )
+        {
+          compressedLength += deflater.deflate( compressed, compressedLength, compressed.length - compressedLength );
+        }
+
+        ByteBuffer.wrap( chunkHeader ).putInt( count ).putInt( compressedLength );
+        aOutput.write( chunkHeader );
+        aOutput.write( compressed, 0, compressedLength );
+      }
+    }
+    finally
+    {
+      deflater.end();
+      aOutput.flush();
+    }
+  }
+
+  /**
+   * Decodes a single chunk of samples into the given transition buffer.
+   *
+   * @param aRaw
+   *          the raw (inflated) chunk data;
+   * @param aCount
+   *          the number of samples in the chunk;
+   * @param aBuffer
+   *          the transition buffer to add the decoded samples to.
+   * @throws IOException
+   *           in case the chunk data is invalid.
+   */
+  private static void decodeChunk( final ByteBuffer aRaw, final int aCount, final TransitionBuffer aBuffer )
+      throws IOException
+  {
+    int value = 0;
+    long timestamp = 0L;
+
+    try
+    {
+      for ( int i = 0; i < aCount; i++ )
+      {
+        value ^= aRaw.getInt();
+
+        long delta = 0L;
+        int shift = 0;
+        byte b;
+        do
+        {
+          b = aRaw.get();
+          delta |= ( long )( b & 0x7F ) << shift;
+          shift += 7;
+        }
+        while ( b < 0 );
+
+        timestamp += delta;
+
+        aBuffer.add( value, timestamp );
+      }
+    }
+    catch ( BufferUnderflowException exception )
+    {
+      throw new IOException( "Data file is corrupt?! Chunk data is truncated!" );
+    }
+  }
+
+  /**
+   * Encodes a single chunk of samples.
+   *
+   * @param aData
+   *          the acquisition data to encode;
+   * @param aStart
+   *          the index of the first sample to encode;
+   * @param aCount
+   *          the number of samples to encode;
+   * @param aRaw
+   *          the buffer to encode the samples in.
+   */
+  private static void encodeChunk( final AcquisitionResult aData, final int aStart, final int aCount,
+      final ByteBuffer aRaw )
+  {
+    int prevValue = 0;
+    long prevTimestamp = 0L;
+
+    for ( int i = aStart, end = aStart + aCount; i < end; i++ )
+    {
+      final int value = aData.getValue( i );
+      // Timestamps never can be negative (it is a relative timestamp!)...
+      final long timestamp = aData.getTimestamp( i ) & Long.MAX_VALUE;
+
+      aRaw.putInt( value ^ prevValue );
+
+      long delta = timestamp - prevTimestamp;
+      while ( ( delta & ~0x7FL ) != 0L )
+      {
+        aRaw.put( ( byte )( ( delta & 0x7F ) | 0x80 ) );
+        delta >>>= 7;
+      }
+      aRaw.put( ( byte )delta );
+
+      prevValue = value;
+      prevTimestamp = timestamp;
+    }
+  }
+
+  /**
+   * Returns the maximum length of the given number of bytes once deflated,
+   * analogous to the conservative <tt>deflateBound()</tt> of zlib, including
+   * the zlib header and trailer.
+   *
+   * @param aLength
+   *          the number of bytes to deflate, >= 0.
+   * @return the maximum deflated length, in bytes.
+   */
+  static int getMaxCompressedLength( final int aLength )
+  {
+    return aLength + ( ( aLength + 7 ) >> 3 ) + ( ( aLength + 63 ) >> 6 ) + 5 + 6;
+  }
+
+  /**
+   * Reads from the given channel until the given buffer is full, and flips the
+   * buffer for reading.
+   *
+   * @param aChannel
+   *          the channel to read from;
+   * @param aBuffer
+   *          the buffer to fill.
+   * @throws IOException
+   *           in case of I/O problems, or in case the end of the channel is
+   *           reached prematurely.
+   */
+  private static void readFully( final ReadableByteChannel aChannel, final ByteBuffer aBuffer ) throws IOException
+  {
+    while ( aBuffer.hasRemaining() )
+    {
+      if ( aChannel.read( aBuffer ) < 0 )
+      {
+        throw new EOFException( "Data file is corrupt?! Unexpected end of data!" );
+      }
+    }
+    aBuffer.flip();
+  }
+}
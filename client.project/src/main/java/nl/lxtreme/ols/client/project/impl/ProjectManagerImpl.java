@@ -24,11 +24,14 @@ package nl.lxtreme.ols.client.project.impl;
 import java.beans.*;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.*;
 import java.util.zip.*;
 
 import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.util.*;
 
 
@@ -38,20 +41,141 @@ import nl.lxtreme.ols.util.*;
  */
 public class ProjectManagerImpl implements PropertyChangeListener, ProjectManager, ProjectProperties
 {
+  // INNER TYPES
+
+  /**
+   * Provides a task that loads the captured data of a project from its project
+   * file, publishing partial data while loading.
+   */
+  final class CaptureLoadTask implements Task<DataSet>, OlsBinaryDataHelper.PartialDataListener
+  {
+    // VARIABLES
+
+    private final ZipFile zipFile;
+    private final ZipEntry dataEntry;
+    private final ProjectImpl targetProject;
+    private final List<String> labels;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new CaptureLoadTask instance.
+     * 
+     * @param aZipFile
+     *          the project file to read from, will be closed by this task;
+     * @param aDataEntry
+     *          the entry containing the captured data;
+     * @param aProject
+     *          the project to load the captured data for;
+     * @param aLabels
+     *          the channel labels to merge with the captured data, can be
+     *          <code>null</code>.
+     */
+    CaptureLoadTask( final ZipFile aZipFile, final ZipEntry aDataEntry, final ProjectImpl aProject,
+        final List<String> aLabels )
+    {
+      this.zipFile = aZipFile;
+      this.dataEntry = aDataEntry;
+      this.targetProject = aProject;
+      this.labels = aLabels;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DataSet call() throws IOException
+    {
+      try
+      {
+        return load();
+      }
+      catch ( IOException exception )
+      {
+        LOG.log( Level.WARNING, "Failed to load captured data of project!", exception );
+
+        discardCapturedData();
+        captureLoadingFailed( this.targetProject, exception );
+        throw exception;
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void partialDataRead( final DataSetImpl aDataSet )
+    {
+      publishCapturedData( this.targetProject, aDataSet, this.labels );
+    }
+
+    /**
+     * Loads the captured data and publishes it to the target project.
+     * 
+     * @return the loaded data set, never <code>null</code>.
+     * @throws IOException
+     *           in case of I/O problems during the read of the captured data.
+     */
+    DataSet load() throws IOException
+    {
+      InputStream is = null;
+
+      try
+      {
+        is = new BufferedInputStream( this.zipFile.getInputStream( this.dataEntry ) );
+
+        final DataSetImpl dataSet;
+        if ( FILENAME_BINARY_CAPTURE_RESULTS.equals( this.dataEntry.getName() ) )
+        {
+          dataSet = OlsBinaryDataHelper.read( is, this.dataEntry.getSize(), this );
+        }
+        else
+        {
+          dataSet = OlsDataHelper.read( new InputStreamReader( is ), this.dataEntry.getSize() );
+        }
+
+        publishCapturedData( this.targetProject, dataSet, this.labels );
+
+        return dataSet;
+      }
+      finally
+      {
+        HostUtils.closeResource( is );
+        closeZipFile( this.zipFile );
+      }
+    }
+
+    /**
+     * Discards the partially loaded captured data of the target project, by
+     * replacing it with an empty data set.
+     */
+    void discardCapturedData()
+    {
+      publishCapturedData( this.targetProject, new DataSetImpl(), this.labels );
+    }
+  }
+
   // CONSTANTS
 
+  private static final Logger LOG = Logger.getLogger( ProjectManagerImpl.class.getName() );
+
   private static final String FILENAME_PROJECT_METADATA = "ols.project";
   private static final String FILENAME_CHANNEL_LABELS = "channel.labels";
   private static final String FILENAME_PROJECT_SETTINGS = "settings/";
   private static final String FILENAME_CAPTURE_RESULTS = "data.ols";
+  private static final String FILENAME_BINARY_CAPTURE_RESULTS = "data.olsb";
 
   // VARIABLES
 
   private volatile HostProperties hostProperties;
+  private volatile TaskExecutionService taskExecutionService;
 
   private final PropertyChangeSupport propertyChangeSupport;
 
-  private ProjectImpl project;
+  private volatile ProjectImpl project;
+  private volatile Future<DataSet> captureLoader;
 
   // CONSTRUCTORS
 
@@ -80,6 +204,8 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
    */
   public Project createNewProject()
   {
+    cancelCaptureLoading();
+
     setProject( new ProjectImpl() );
     return this.project;
   }
@@ -112,6 +238,8 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
       throw new IllegalArgumentException( "Input stream cannot be null!" );
     }
 
+    cancelCaptureLoading();
+
     final BufferedInputStream in = new BufferedInputStream( aInput );
     final ZipInputStream zipIS = new ZipInputStream( in );
 
@@ -143,6 +271,11 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
           loadCapturedResults( newProject, zipIS );
           entriesSeen = true;
         }
+        else if ( FILENAME_BINARY_CAPTURE_RESULTS.equals( name ) )
+        {
+          loadBinaryCapturedResults( newProject, zipIS );
+          entriesSeen = true;
+        }
         else if ( name.startsWith( FILENAME_PROJECT_SETTINGS ) )
         {
           final String userSettingsName = name.substring( FILENAME_PROJECT_SETTINGS.length() );
@@ -175,6 +308,137 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     }
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The project file is accessed randomly, allowing the metadata, channel
+   * labels and settings to be read without reading the captured data. The
+   * latter is read by a background task when a {@link TaskExecutionService} is
+   * available, or synchronously otherwise.
+   * </p>
+   */
+  @Override
+  public void loadProject( final File aFile ) throws IOException
+  {
+    if ( aFile == null )
+    {
+      throw new IllegalArgumentException( "File cannot be null!" );
+    }
+
+    cancelCaptureLoading();
+
+    final ZipFile zipFile = new ZipFile( aFile );
+    boolean closeZipFile = true;
+
+    final ProjectImpl newProject = new ProjectImpl();
+    // Make sure listeners retrieve the proper events...
+    copyPropertyChangeListeners( this.project, newProject );
+
+    List<String> labels = null;
+    ZipEntry dataEntry = null;
+
+    try
+    {
+      boolean entriesSeen = false;
+
+      final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while ( entries.hasMoreElements() )
+      {
+        final ZipEntry ze = entries.nextElement();
+        final String name = ze.getName();
+
+        if ( FILENAME_BINARY_CAPTURE_RESULTS.equals( name ) )
+        {
+          // Prefer the binary data over the textual data...
+          dataEntry = ze;
+          entriesSeen = true;
+        }
+        else if ( FILENAME_CAPTURE_RESULTS.equals( name ) )
+        {
+          if ( dataEntry == null )
+          {
+            dataEntry = ze;
+          }
+          entriesSeen = true;
+        }
+        else if ( FILENAME_PROJECT_METADATA.equals( name ) || FILENAME_CHANNEL_LABELS.equals( name )
+            || name.startsWith( FILENAME_PROJECT_SETTINGS ) )
+        {
+          final InputStream is = zipFile.getInputStream( ze );
+          try
+          {
+            if ( FILENAME_PROJECT_METADATA.equals( name ) )
+            {
+              loadProjectMetadata( newProject, is );
+            }
+            else if ( FILENAME_CHANNEL_LABELS.equals( name ) )
+            {
+              labels = loadChannelLabels( is );
+            }
+            else
+            {
+              final String userSettingsName = name.substring( FILENAME_PROJECT_SETTINGS.length() );
+              loadProjectSettings( newProject, userSettingsName, is );
+            }
+          }
+          finally
+          {
+            HostUtils.closeResource( is );
+          }
+          entriesSeen = true;
+        }
+      }
+
+      if ( !entriesSeen )
+      {
+        throw new IOException( "Invalid project file!" );
+      }
+
+      // Merge the channel labels with the channel-data in the project's data
+      // set; they are merged again once the captured data is loaded...
+      newProject.getDataSet().mergeChannelLabels( labels );
+
+      // Mark the project as no longer changed...
+      newProject.setChanged( false );
+
+      // Overwrite the main project...
+      setProject( newProject );
+
+      if ( dataEntry != null )
+      {
+        final CaptureLoadTask task = new CaptureLoadTask( zipFile, dataEntry, newProject, labels );
+        // The task takes care of closing the project file...
+        closeZipFile = false;
+
+        final TaskExecutionService executionService = this.taskExecutionService;
+        if ( executionService != null )
+        {
+          this.captureLoader = executionService.execute( task );
+        }
+        else
+        {
+          try
+          {
+            task.load();
+          }
+          catch ( IOException exception )
+          {
+            // Do not leave the partially loaded data behind...
+            task.discardCapturedData();
+            throw exception;
+          }
+        }
+      }
+    }
+    finally
+    {
+      if ( closeZipFile )
+      {
+        closeZipFile( zipFile );
+      }
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -204,6 +468,9 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
       throw new IllegalArgumentException( "Output stream cannot be null!" );
     }
 
+    // Make sure we're not storing partially loaded data...
+    awaitCaptureLoading();
+
     final BufferedOutputStream os = new BufferedOutputStream( aOutput );
     final ZipOutputStream zipOS = new ZipOutputStream( os );
 
@@ -240,6 +507,50 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     this.hostProperties = aHostProperties;
   }
 
+  /**
+   * Removes the task execution service used to load captured data with.
+   * 
+   * @param aTaskExecutionService
+   *          the task execution service to remove.
+   */
+  public void removeTaskExecutionService( final TaskExecutionService aTaskExecutionService )
+  {
+    if ( this.taskExecutionService == aTaskExecutionService )
+    {
+      this.taskExecutionService = null;
+    }
+  }
+
+  /**
+   * Sets the task execution service used to load captured data with.
+   * 
+   * @param aTaskExecutionService
+   *          the task execution service to set, can be <code>null</code> to
+   *          load captured data synchronously.
+   */
+  public void setTaskExecutionService( final TaskExecutionService aTaskExecutionService )
+  {
+    this.taskExecutionService = aTaskExecutionService;
+  }
+
+  /**
+   * Reads the capture results in binary format from the given ZIP-input
+   * stream.
+   * 
+   * @param aProject
+   *          the project to read the capture results for;
+   * @param aZipIS
+   *          the ZIP input stream to read the capture results from.
+   * @throws IOException
+   *           in case of I/O problems.
+   * @see OlsBinaryDataHelper
+   */
+  protected void loadBinaryCapturedResults( final ProjectImpl aProject, final ZipInputStream aZipIS )
+      throws IOException
+  {
+    aProject.setDataSet( OlsBinaryDataHelper.read( aZipIS ) );
+  }
+
   /**
    * Reads the capture results from the given ZIP-input stream.
    * 
@@ -256,18 +567,18 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
   }
 
   /**
-   * Reads the project channel labels from the given ZIP-input stream.
+   * Reads the project channel labels from the given input stream.
    * 
    * @param aProject
    *          the project to read the channel labels for;
-   * @param aZipIS
-   *          the ZIP input stream to read the channel labels from.
+   * @param aInput
+   *          the input stream to read the channel labels from.
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected List<String> loadChannelLabels( final ZipInputStream aZipIS ) throws IOException
+  protected List<String> loadChannelLabels( final InputStream aInput ) throws IOException
   {
-    final InputStreamReader isReader = new InputStreamReader( aZipIS );
+    final InputStreamReader isReader = new InputStreamReader( aInput );
     final BufferedReader reader = new BufferedReader( isReader );
 
     List<String> result = new ArrayList<String>();
@@ -283,18 +594,18 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
   }
 
   /**
-   * Reads the project metadata to the given ZIP-input stream.
+   * Reads the project metadata from the given input stream.
    * 
    * @param aProject
    *          the project to read the metadata for;
-   * @param aZipIS
-   *          the ZIP input stream to read the metadata from.
+   * @param aInput
+   *          the input stream to read the metadata from.
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected void loadProjectMetadata( final Project aProject, final ZipInputStream aZipIS ) throws IOException
+  protected void loadProjectMetadata( final Project aProject, final InputStream aInput ) throws IOException
   {
-    final InputStreamReader isReader = new InputStreamReader( aZipIS );
+    final InputStreamReader isReader = new InputStreamReader( aInput );
     final BufferedReader reader = new BufferedReader( isReader );
 
     String name = null;
@@ -316,24 +627,24 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
   }
 
   /**
-   * Reads the project settings to the given ZIP-input stream.
+   * Reads the project settings from the given input stream.
    * 
    * @param aProject
    *          the project to read the settings for;
    * @param aUserSettingsName
    *          the name of the user settings that is to be loaded;
-   * @param aZipIS
-   *          the ZIP input stream to read the settings from.
+   * @param aInput
+   *          the input stream to read the settings from.
    * @throws IOException
    *           in case of I/O problems.
    */
   protected void loadProjectSettings( final ProjectImpl aProject, final String aUserSettingsName,
-      final ZipInputStream aZipIS ) throws IOException
+      final InputStream aInput ) throws IOException
   {
     final Properties settings = new Properties();
     try
     {
-      settings.load( aZipIS );
+      settings.load( aInput );
     }
     finally
     {
@@ -346,7 +657,9 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
    * Stores the captured results to the given ZIP-output stream.
    * <p>
    * If the given project does not have capture results, this method does
-   * nothing.
+   * nothing. The capture results are stored in binary format, see
+   * {@link OlsBinaryDataHelper}; older projects containing the results in
+   * textual format can still be read.
    * </p>
    * 
    * @param aProject
@@ -364,10 +677,23 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
       return;
     }
 
-    final ZipEntry zipEntry = new ZipEntry( FILENAME_CAPTURE_RESULTS );
-    aZipOS.putNextEntry( zipEntry );
+    // The binary data is already compressed; don't bother compressing it
+    // again...
+    aZipOS.setLevel( Deflater.NO_COMPRESSION );
+
+    try
+    {
+      final ZipEntry zipEntry = new ZipEntry( FILENAME_BINARY_CAPTURE_RESULTS );
+      aZipOS.putNextEntry( zipEntry );
 
-    aProject.writeData( new OutputStreamWriter( aZipOS ) );
+      OlsBinaryDataHelper.write( dataSet, aZipOS );
+
+      aZipOS.closeEntry();
+    }
+    finally
+    {
+      aZipOS.setLevel( Deflater.DEFAULT_COMPRESSION );
+    }
   }
 
   /**
@@ -514,6 +840,123 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     }
   }
 
+  /**
+   * Closes the given ZIP file, ignoring any I/O exceptions.
+   * 
+   * @param aZipFile
+   *          the ZIP file to close, cannot be <code>null</code>.
+   */
+  static void closeZipFile( final ZipFile aZipFile )
+  {
+    try
+    {
+      aZipFile.close();
+    }
+    catch ( IOException exception )
+    {
+      // Ignore; nothing we can do about it...
+    }
+  }
+
+  /**
+   * Publishes the given (partially) loaded data set to the given project, but
+   * only if the given project is still the current project.
+   * 
+   * @param aProject
+   *          the project to publish the data set to;
+   * @param aDataSet
+   *          the data set to publish;
+   * @param aLabels
+   *          the channel labels to merge with the data set, can be
+   *          <code>null</code>.
+   */
+  final void publishCapturedData( final ProjectImpl aProject, final DataSetImpl aDataSet, final List<String> aLabels )
+  {
+    if ( this.project != aProject )
+    {
+      // Another project has been loaded in the meantime...
+      return;
+    }
+
+    aDataSet.mergeChannelLabels( aLabels );
+    aProject.setDataSet( aDataSet );
+  }
+
+  /**
+   * Reports the failure to load the captured data of the given project to all
+   * listeners, but only if the given project is still the current project.
+   * 
+   * @param aProject
+   *          the project whose captured data failed to load;
+   * @param aException
+   *          the cause of the failure.
+   */
+  final void captureLoadingFailed( final ProjectImpl aProject, final IOException aException )
+  {
+    if ( this.project != aProject )
+    {
+      // Another project has been loaded in the meantime...
+      return;
+    }
+
+    this.propertyChangeSupport.firePropertyChange( PROPERTY_CAPTURE_LOAD_FAILED, null, aException );
+  }
+
+  /**
+   * Waits until the captured data of the current project is completely loaded.
+   * <p>
+   * A failed load has already been reported to the listeners, and its partial
+   * data has been discarded, hence it does not prevent the project from being
+   * saved.
+   * </p>
+   * 
+   * @throws IOException
+   *           in case the current thread is interrupted while waiting.
+   */
+  private void awaitCaptureLoading() throws IOException
+  {
+    final Future<DataSet> loader = this.captureLoader;
+    if ( loader == null )
+    {
+      return;
+    }
+
+    try
+    {
+      loader.get();
+    }
+    catch ( CancellationException exception )
+    {
+      // Ignore; the project has been replaced...
+    }
+    catch ( ExecutionException exception )
+    {
+      // Ignore; already reported by the loading task itself...
+      if ( this.captureLoader == loader )
+      {
+        this.captureLoader = null;
+      }
+    }
+    catch ( InterruptedException exception )
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while loading captured data!" );
+    }
+  }
+
+  /**
+   * Cancels the loading of captured data of the current project, if any.
+   */
+  private void cancelCaptureLoading()
+  {
+    final Future<DataSet> loader = this.captureLoader;
+    if ( loader != null )
+    {
+      loader.cancel( true /* mayInterruptIfRunning */);
+      this.captureLoader = null;
+    }
+  }
+
   /**
    * Sets the current project to the given project.
    * 
@@ -0,0 +1,121 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.data.annotation.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link ChannelImpl}.
+ */
+public class ChannelImplTest
+{
+  // VARIABLES
+
+  private ChannelImpl channel;
+
+  // METHODS
+
+  /**
+   * Sets up the test cases.
+   */
+  @Before
+  public void setUp()
+  {
+    this.channel = new ChannelImpl( 3 );
+  }
+
+  /**
+   * Tests that adding annotations in bulk retains their order, and uses the
+   * other annotations as channel label.
+   */
+  @Test
+  public void testAddAnnotationsOk()
+  {
+    final List<Annotation<?>> annotations = new ArrayList<Annotation<?>>();
+    for ( int i = 0; i < 1000; i++ )
+    {
+      annotations.add( mock( DataAnnotation.class ) );
+    }
+    final Annotation<?> label = mock( Annotation.class );
+    when( label.toString() ).thenReturn( "label" );
+    annotations.add( 500, label );
+
+    this.channel.addAnnotations( annotations );
+
+    annotations.remove( label );
+    assertEquals( annotations, new ArrayList<Annotation<?>>( this.channel.getAnnotations() ) );
+    assertEquals( "label", this.channel.getLabel() );
+  }
+
+  /**
+   * Tests that the annotation index is kept until annotations are added or
+   * cleared.
+   */
+  @Test
+  public void testGetAnnotationIndexFollowsAnnotations()
+  {
+    final AnnotationIndex empty = this.channel.getAnnotationIndex();
+    assertTrue( empty.isEmpty() );
+    assertSame( empty, this.channel.getAnnotationIndex() );
+
+    final DataAnnotation<?> annotation = mock( DataAnnotation.class );
+    when( Long.valueOf( annotation.getStartTimestamp() ) ).thenReturn( Long.valueOf( 10L ) );
+    when( Long.valueOf( annotation.getEndTimestamp() ) ).thenReturn( Long.valueOf( 20L ) );
+    this.channel.addAnnotation( annotation );
+
+    assertSame( annotation, this.channel.getAnnotationIndex().getAnnotation( 15L ) );
+
+    this.channel.clearAnnotations();
+    assertTrue( this.channel.getAnnotationIndex().isEmpty() );
+  }
+
+  /**
+   * Tests that the returned annotations are not affected by annotations that
+   * are added or cleared later on.
+   */
+  @Test
+  public void testGetAnnotationsReturnsSnapshot()
+  {
+    final Annotation<?> first = mock( DataAnnotation.class );
+    this.channel.addAnnotation( first );
+
+    final Collection<Annotation<?>> snapshot = this.channel.getAnnotations();
+    for ( int i = 0; i < 100; i++ )
+    {
+      this.channel.addAnnotation( mock( DataAnnotation.class ) );
+    }
+    assertEquals( Collections.singletonList( first ), new ArrayList<Annotation<?>>( snapshot ) );
+    assertEquals( 101, this.channel.getAnnotations().size() );
+
+    this.channel.clearAnnotations();
+    assertEquals( 1, snapshot.size() );
+    assertTrue( this.channel.getAnnotations().isEmpty() );
+  }
+}
@@ -24,12 +24,18 @@ package nl.lxtreme.ols.client.project.impl;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.beans.*;
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.zip.*;
 
 import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.test.data.*;
 import nl.lxtreme.ols.util.*;
 
@@ -60,6 +66,32 @@ public class ProjectManagerImplTest
     this.projectManager.setHostProperties( mockProperties );
   }
 
+  /**
+   * Creates a binary capture header without cursors.
+   *
+   * @param aSize
+   *          the sample count to put in the header.
+   * @return the header bytes, never <code>null</code>.
+   */
+  private static byte[] createBinaryHeader( final int aSize ) throws IOException
+  {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    final DataOutputStream dos = new DataOutputStream( baos );
+    dos.writeInt( OlsBinaryDataHelper.MAGIC );
+    dos.writeInt( OlsBinaryDataHelper.VERSION );
+    dos.writeInt( OlsBinaryDataHelper.CHUNK_SIZE );
+    dos.writeInt( aSize );
+    dos.writeInt( 1000000 );
+    dos.writeInt( 8 );
+    dos.writeInt( 0xFF );
+    dos.writeLong( 0L );
+    dos.writeLong( aSize );
+    dos.writeByte( 0 );
+    dos.writeInt( 0 );
+    dos.flush();
+    return baos.toByteArray();
+  }
+
   /**
    * Test method for {@link SimpleProjectManager#createNewProject()}.
    */
@@ -96,6 +128,34 @@ public class ProjectManagerImplTest
     this.projectManager.loadProject( bais );
   }
 
+  /**
+   * Test method for
+   * {@link SimpleProjectManager#loadProject(java.io.InputStream)}.
+   */
+  @Test
+  public void testLoadTextualCaptureResultsOk() throws IOException
+  {
+    final AcquisitionResult mockedCapturedData = DataTestUtils.getMockedCapturedData();
+
+    final Project project = this.projectManager.createTemporaryProject();
+    project.setCapturedData( mockedCapturedData );
+
+    // Create a project file as written by older versions...
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
+    final ZipOutputStream zipOS = new ZipOutputStream( baos );
+    zipOS.putNextEntry( new ZipEntry( "data.ols" ) );
+    final Writer writer = new OutputStreamWriter( zipOS );
+    project.writeData( writer );
+    writer.flush();
+    zipOS.close();
+
+    final ByteArrayInputStream bais = new ByteArrayInputStream( baos.toByteArray() );
+    this.projectManager.loadProject( bais );
+
+    DataTestUtils.assertEquals( mockedCapturedData, this.projectManager.getCurrentProject().getDataSet()
+        .getCapturedData() );
+  }
+
   /**
    * Test method for
    * {@link SimpleProjectManager#loadProject(java.io.InputStream)}.
@@ -103,7 +163,7 @@ public class ProjectManagerImplTest
   @Test( expected = IllegalArgumentException.class )
   public void testLoadNullProjectFail() throws IOException
   {
-    this.projectManager.loadProject( null );
+    this.projectManager.loadProject( ( InputStream )null );
   }
 
   /**
@@ -141,6 +201,298 @@ public class ProjectManagerImplTest
         .getCapturedData() );
   }
 
+  /**
+   * Test method for {@link ProjectManagerImpl#loadProject(File)}.
+   */
+  @Test
+  public void testLoadProjectFileLoadsCaptureResultsInBackgroundOk() throws Exception
+  {
+    final int size = ( 4 * OlsBinaryDataHelper.CHUNK_SIZE ) + 3;
+    final int[] values = new int[size];
+    final long[] timestamps = new long[size];
+    for ( int i = 0; i < size; i++ )
+    {
+      values[i] = i;
+      timestamps[i] = 2L * i;
+    }
+
+    final AcquisitionResult capturedData = new CapturedData( values, timestamps, 10L, 1000000, 32, ~0, 2L * size );
+
+    final Project project = this.projectManager.getCurrentProject();
+    project.setName( "background" );
+    project.setCapturedData( capturedData );
+    project.getDataSet().getChannel( 1 ).setLabel( "label-1" );
+
+    final File file = File.createTempFile( "ols", ".olp" );
+    file.deleteOnExit();
+
+    final FileOutputStream fos = new FileOutputStream( file );
+    try
+    {
+      this.projectManager.saveProject( fos );
+    }
+    finally
+    {
+      fos.close();
+    }
+
+    // Make sure everything is gone...
+    this.projectManager.createNewProject();
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final List<Future<?>> futures = new ArrayList<Future<?>>();
+    this.projectManager.setTaskExecutionService( new TaskExecutionService()
+    {
+      @Override
+      public <RESULT_TYPE> Future<RESULT_TYPE> execute( final Task<RESULT_TYPE> aTask )
+      {
+        final Future<RESULT_TYPE> result = executor.submit( aTask );
+        futures.add( result );
+        return result;
+      }
+    } );
+
+    final AtomicInteger dataEvents = new AtomicInteger();
+    this.projectManager.addPropertyChangeListener( new PropertyChangeListener()
+    {
+      @Override
+      public void propertyChange( final PropertyChangeEvent aEvent )
+      {
+        if ( ProjectProperties.PROPERTY_CAPTURED_DATA.equals( aEvent.getPropertyName() ) )
+        {
+          dataEvents.incrementAndGet();
+        }
+      }
+    } );
+
+    try
+    {
+      this.projectManager.loadProject( file );
+
+      // The metadata is available directly...
+      assertEquals( "background", this.projectManager.getCurrentProject().getName() );
+      assertEquals( 1, futures.size() );
+
+      futures.get( 0 ).get( 30L, TimeUnit.SECONDS );
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+
+    final DataSet loadedDataSet = this.projectManager.getCurrentProject().getDataSet();
+
+    DataTestUtils.assertEquals( capturedData, loadedDataSet.getCapturedData() );
+    assertEquals( "label-1", loadedDataSet.getChannel( 1 ).getLabel() );
+    assertFalse( this.projectManager.getCurrentProject().isChanged() );
+    // Partial data should have been published before the complete data...
+    assertTrue( dataEvents.get() > 1 );
+  }
+
+  /**
+   * Tests that a failure to load the captured data in the background is
+   * reported to the listeners, discards the partially loaded data, and does
+   * not prevent the project from being saved afterwards.
+   */
+  @Test
+  public void testLoadProjectFileWithCorruptCaptureResultsReportsFailureOk() throws Exception
+  {
+    final File file = File.createTempFile( "ols", ".olp" );
+    file.deleteOnExit();
+
+    final ZipOutputStream zos = new ZipOutputStream( new FileOutputStream( file ) );
+    try
+    {
+      zos.putNextEntry( new ZipEntry( "data.olsb" ) );
+      zos.write( createBinaryHeader( Integer.MAX_VALUE ) );
+      zos.closeEntry();
+    }
+    finally
+    {
+      zos.close();
+    }
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final List<Future<?>> futures = new ArrayList<Future<?>>();
+    this.projectManager.setTaskExecutionService( new TaskExecutionService()
+    {
+      @Override
+      public <RESULT_TYPE> Future<RESULT_TYPE> execute( final Task<RESULT_TYPE> aTask )
+      {
+        final Future<RESULT_TYPE> result = executor.submit( aTask );
+        futures.add( result );
+        return result;
+      }
+    } );
+
+    final List<Object> failures = new ArrayList<Object>();
+    this.projectManager.addPropertyChangeListener( new PropertyChangeListener()
+    {
+      @Override
+      public void propertyChange( final PropertyChangeEvent aEvent )
+      {
+        if ( ProjectProperties.PROPERTY_CAPTURE_LOAD_FAILED.equals( aEvent.getPropertyName() ) )
+        {
+          failures.add( aEvent.getNewValue() );
+        }
+      }
+    } );
+
+    try
+    {
+      this.projectManager.loadProject( file );
+
+      assertEquals( 1, futures.size() );
+      try
+      {
+        futures.get( 0 ).get( 30L, TimeUnit.SECONDS );
+        fail( "Expected the loading of the captured data to fail!" );
+      }
+      catch ( ExecutionException exception )
+      {
+        assertTrue( exception.getCause() instanceof IOException );
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+
+    assertEquals( 1, failures.size() );
+    assertTrue( failures.get( 0 ) instanceof IOException );
+    assertNull( this.projectManager.getCurrentProject().getDataSet().getCapturedData() );
+
+    // Saving the project is possible again, and more than once...
+    this.projectManager.saveProject( new ByteArrayOutputStream() );
+    this.projectManager.saveProject( new ByteArrayOutputStream() );
+  }
+
+  /**
+   * Tests that an empty capture can be written and read back.
+   */
+  @Test
+  public void testBinaryEmptyCaptureRoundTripOk() throws IOException
+  {
+    final AcquisitionResult capturedData = new TransitionBuffer().createCapturedData( 0L, 1000000, 8, 0xFF, 0L );
+    assertEquals( 0, capturedData.getSampleCount() );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    OlsBinaryDataHelper.write( new DataSetImpl( capturedData, new DataSetImpl(), false /* aRetainAnnotations */),
+        baos );
+
+    final byte[] data = baos.toByteArray();
+    final AcquisitionResult readData = OlsBinaryDataHelper.read( new ByteArrayInputStream( data ), data.length,
+        null /* aListener */).getCapturedData();
+
+    assertEquals( 0, readData.getSampleCount() );
+    assertEquals( 1000000, readData.getSampleRate() );
+    assertEquals( 8, readData.getChannels() );
+  }
+
+  /**
+   * Tests that a chunk whose compressed length exceeds the maximum compressed
+   * length of a chunk is rejected before allocating any memory for it.
+   */
+  @Test( expected = IOException.class )
+  public void testLoadBinaryCaptureWithCorruptChunkLengthFails() throws IOException
+  {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    final DataOutputStream dos = new DataOutputStream( baos );
+    dos.write( createBinaryHeader( 1 ) );
+    dos.writeInt( 1 );
+    dos.writeInt( Integer.MAX_VALUE );
+    dos.flush();
+
+    OlsBinaryDataHelper.read( new ByteArrayInputStream( baos.toByteArray() ) );
+  }
+
+  /**
+   * Tests that a chunk whose compressed length exceeds the remaining data is
+   * rejected before allocating any memory for it.
+   */
+  @Test( expected = IOException.class )
+  public void testLoadBinaryCaptureWithTruncatedChunkFails() throws IOException
+  {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    final DataOutputStream dos = new DataOutputStream( baos );
+    dos.write( createBinaryHeader( 1 ) );
+    dos.writeInt( 1 );
+    dos.writeInt( OlsBinaryDataHelper.getMaxCompressedLength( OlsBinaryDataHelper.CHUNK_SIZE ) );
+    dos.flush();
+
+    final byte[] data = baos.toByteArray();
+    OlsBinaryDataHelper.read( new ByteArrayInputStream( data ), data.length, null /* aListener */);
+  }
+
+  /**
+   * Tests that a binary capture whose header claims more samples than the data
+   * can contain is rejected before allocating any memory for it.
+   */
+  @Test( expected = IOException.class )
+  public void testLoadBinaryCaptureWithCorruptSizeFails() throws IOException
+  {
+    final byte[] data = createBinaryHeader( Integer.MAX_VALUE );
+
+    OlsBinaryDataHelper.read( new ByteArrayInputStream( data ), data.length, null /* aListener */);
+  }
+
+  /**
+   * Tests that a binary capture whose header claims more samples than present
+   * fails with an I/O exception, even if the data length is unknown.
+   */
+  @Test( expected = IOException.class )
+  public void testLoadTruncatedBinaryCaptureFails() throws IOException
+  {
+    final byte[] data = createBinaryHeader( Integer.MAX_VALUE );
+
+    OlsBinaryDataHelper.read( new ByteArrayInputStream( data ) );
+  }
+
+  /**
+   * Test method for
+   * {@link SimpleProjectManager#saveProject(java.io.OutputStream)}.
+   */
+  @Test
+  public void testSaveProjectStoresLargeCaptureResultsOk() throws IOException
+  {
+    final Random rnd = new Random( 123L );
+
+    // Spans several chunks, and contains both small and large deltas...
+    final int size = ( 2 * OlsBinaryDataHelper.CHUNK_SIZE ) + 17;
+    final int[] values = new int[size];
+    final long[] timestamps = new long[size];
+    long time = 0L;
+    for ( int i = 0; i < size; i++ )
+    {
+      values[i] = ( i & 1 ) == 0 ? rnd.nextInt() : ~values[i - 1];
+      timestamps[i] = time;
+      time += ( ( i % 1000 ) == 0 ) ? ( 1L << 35 ) : 1 + rnd.nextInt( 100 );
+    }
+
+    final AcquisitionResult capturedData = new CapturedData( values, timestamps, 1234L, 1000000, 32, ~0, time );
+
+    final Project project = this.projectManager.getCurrentProject();
+    project.setCapturedData( capturedData );
+    project.getDataSet().setCursorsEnabled( true );
+    project.getDataSet().getCursor( 2 ).setTimestamp( 4711L );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
+    this.projectManager.saveProject( baos ); // should succeed...
+
+    // Make sure everything is gone...
+    this.projectManager.createNewProject();
+
+    final ByteArrayInputStream bais = new ByteArrayInputStream( baos.toByteArray() );
+    this.projectManager.loadProject( bais );
+
+    final DataSet loadedDataSet = this.projectManager.getCurrentProject().getDataSet();
+
+    DataTestUtils.assertEquals( capturedData, loadedDataSet.getCapturedData() );
+    assertTrue( loadedDataSet.isCursorsEnabled() );
+    assertEquals( 4711L, loadedDataSet.getCursor( 2 ).getTimestamp() );
+    assertFalse( loadedDataSet.getCursor( 1 ).isDefined() );
+  }
+
   /**
    * Test method for
    * {@link SimpleProjectManager#saveProject(java.io.OutputStream)}.
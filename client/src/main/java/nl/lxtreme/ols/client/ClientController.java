@@ -1000,6 +1000,37 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     this.repaintAccumulatingRunnable.add( ( Void )null );
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void onAnnotations( final Collection<? extends Annotation<?>> aAnnotations )
+  {
+    // Group the annotations per channel, allowing each channel to add them at
+    // once...
+    final Map<Integer, List<Annotation<?>>> annotationsPerChannel = new TreeMap<Integer, List<Annotation<?>>>();
+    for ( Annotation<?> annotation : aAnnotations )
+    {
+      final Integer channelIdx = Integer.valueOf( annotation.getChannel() );
+
+      List<Annotation<?>> annotations = annotationsPerChannel.get( channelIdx );
+      if ( annotations == null )
+      {
+        annotations = new ArrayList<Annotation<?>>();
+        annotationsPerChannel.put( channelIdx, annotations );
+      }
+      annotations.add( annotation );
+    }
+
+    for ( Map.Entry<Integer, List<Annotation<?>>> entry : annotationsPerChannel.entrySet() )
+    {
+      final Channel channel = getChannel( entry.getKey().intValue() );
+      channel.addAnnotations( entry.getValue() );
+    }
+
+    this.repaintAccumulatingRunnable.add( ( Void )null );
+  }
+
   /**
    * Opens a given file as OLS-data file.
    *
@@ -1035,13 +1066,10 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
    */
   public void openProjectFile( final File aFile ) throws IOException
   {
-    FileInputStream fis = null;
-
     try
     {
-      fis = new FileInputStream( aFile );
-
-      this.projectManager.loadProject( fis );
+      // The captured data itself is loaded in the background...
+      this.projectManager.loadProject( aFile );
 
       final Project project = getCurrentProject();
       project.setFilename( aFile );
@@ -1050,7 +1078,6 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     }
     finally
     {
-      HostUtils.closeResource( fis );
       updateActionsOnEDT();
     }
   }
@@ -1797,7 +1824,7 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
 
     if ( capturedData != null )
     {
-      final int dataLength = capturedData.getValues().length;
+      final int dataLength = capturedData.getSampleCount();
       if ( areCursorsEnabled() )
       {
         if ( isCursorSet( 0 ) )
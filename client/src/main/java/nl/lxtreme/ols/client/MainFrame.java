@@ -883,6 +883,20 @@ public final class MainFrame extends JFrame implements Closeable, PropertyChange
         }
       } );
     }
+    else if ( "captureLoadFailed".equals( propertyName ) )
+    {
+      final Exception exception = ( Exception )aEvent.getNewValue();
+
+      SwingComponentUtils.invokeOnEDT( new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          setStatus( "Loading of captured data failed! {0}", exception.getMessage() );
+          JErrorDialog.showDialog( MainFrame.this, "Loading the captured data failed!", exception );
+        }
+      } );
+    }
 
     this.controller.updateActionsOnEDT();
   }
@@ -44,8 +44,7 @@ class StateTableModel extends AbstractTableModel
 
   // VARIABLES
 
-  private final int[] values;
-  private final long[] timestamps;
+  private final AcquisitionResult capturedData;
   private final List<ElementGroup> groups;
   private final Radix[] viewModes;
 
@@ -56,9 +55,7 @@ class StateTableModel extends AbstractTableModel
    */
   public StateTableModel( final SignalDiagramModel aModel )
   {
-    AcquisitionResult capturedData = aModel.getCapturedData();
-    this.values = capturedData.getValues();
-    this.timestamps = capturedData.getTimestamps();
+    this.capturedData = aModel.getCapturedData();
 
     SignalElementManager sem = aModel.getSignalElementManager();
     Collection<ElementGroup> elementGroups = sem.getGroups();
@@ -151,7 +148,7 @@ class StateTableModel extends AbstractTableModel
   @Override
   public int getRowCount()
   {
-    return this.values.length;
+    return this.capturedData.getSampleCount();
   }
 
   /**
@@ -162,7 +159,7 @@ class StateTableModel extends AbstractTableModel
   {
     if ( aColumnIndex == 0 )
     {
-      return Long.valueOf( this.timestamps[aRowIndex] );
+      return Long.valueOf( this.capturedData.getTimestamp( aRowIndex ) );
     }
 
     int groupIdx = aColumnIndex - 1;
@@ -171,7 +168,7 @@ class StateTableModel extends AbstractTableModel
       return null;
     }
 
-    return Integer.valueOf( this.groups.get( groupIdx ).getValue( this.values[aRowIndex] ) );
+    return Integer.valueOf( this.groups.get( groupIdx ).getValue( this.capturedData.getValue( aRowIndex ) ) );
   }
 
   /**
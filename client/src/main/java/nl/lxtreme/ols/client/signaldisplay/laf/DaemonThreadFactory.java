@@ -0,0 +1,65 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.client.signaldisplay.laf;
+
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+
+/**
+ * Provides a thread factory for the background rendering threads, which should
+ * never keep the VM alive nor compete with the EDT.
+ */
+final class DaemonThreadFactory implements ThreadFactory
+{
+  // VARIABLES
+
+  private final String name;
+  private final AtomicInteger count;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new DaemonThreadFactory instance.
+   *
+   * @param aName
+   *          the base name of the created threads, cannot be <code>null</code>.
+   */
+  DaemonThreadFactory( final String aName )
+  {
+    this.name = aName;
+    this.count = new AtomicInteger();
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Thread newThread( final Runnable aRunnable )
+  {
+    final Thread result = new Thread( aRunnable, this.name + "-" + this.count.incrementAndGet() );
+    result.setDaemon( true );
+    result.setPriority( Thread.NORM_PRIORITY - 1 );
+    return result;
+  }
+}
@@ -0,0 +1,438 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.client.signaldisplay.laf;
+
+
+import java.awt.*;
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.client.signaldisplay.model.*;
+
+
+/**
+ * Provides the polyline of a single signal lane, that is, a digital channel or
+ * an analogue scope.
+ * <p>
+ * Building the polyline is kept separate from painting it, allowing multiple
+ * lanes to be built concurrently. Lanes are pooled to avoid reallocating their
+ * point buffers on each repaint; a lane obtained through {@link #acquire()}
+ * should be returned by calling {@link #release()} as soon as it is painted.
+ * </p>
+ */
+public final class SignalLane
+{
+  // CONSTANTS
+
+  /** The maximum number of transitions in a polyline. */
+  static final int POINT_COUNT = 1000000;
+
+  /** The largest number of points a pooled lane may retain. */
+  private static final int MAX_POOLED_CAPACITY = 16384;
+  /** The maximum number of lanes kept in the pool. */
+  private static final int MAX_POOL_SIZE = 64;
+
+  private static final ConcurrentLinkedQueue<SignalLane> POOL = new ConcurrentLinkedQueue<SignalLane>();
+
+  // VARIABLES
+
+  private int[] xPoints;
+  private int[] yPoints;
+  private int size;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new, empty, SignalLane instance.
+   */
+  public SignalLane()
+  {
+    this.xPoints = new int[0];
+    this.yPoints = new int[0];
+    this.size = 0;
+  }
+
+  // METHODS
+
+  /**
+   * Returns an empty lane, preferably from the pool of released lanes.
+   *
+   * @return a lane, never <code>null</code>.
+   */
+  public static SignalLane acquire()
+  {
+    final SignalLane result = POOL.poll();
+    if ( result != null )
+    {
+      return result;
+    }
+    return new SignalLane();
+  }
+
+  /**
+   * Builds the polyline of an analogue scope, showing each transition in the
+   * given range.
+   *
+   * @param aData
+   *          the captured data to use;
+   * @param aStartIdx
+   *          the first transition to show;
+   * @param aEndIdx
+   *          the last transition to show (exclusive);
+   * @param aZoomFactor
+   *          the current zoom factor;
+   * @param aClip
+   *          the clip to build the polyline for;
+   * @param aMask
+   *          the mask of the scope's channel group;
+   * @param aHeight
+   *          the height of the scope, in pixels.
+   */
+  public void buildAnalog( final AcquisitionResult aData, final int aStartIdx, final int aEndIdx,
+      final double aZoomFactor, final Rectangle aClip, final int aMask, final int aHeight )
+  {
+    ensureCapacity( Math.min( Math.max( 0, aEndIdx - aStartIdx ), POINT_COUNT ) + 2 );
+
+    final long mask = aMask & 0xFFFFFFFFL;
+    final int trailingZeros = Long.numberOfTrailingZeros( mask );
+    final long maxValue = getMaxValue( mask, trailingZeros );
+    final double scaleFactor = ( maxValue == 0L ) ? 1.0 : aHeight / ( double )maxValue;
+
+    final int[] x = this.xPoints;
+    final int[] y = this.yPoints;
+
+    int p = 0;
+    if ( aStartIdx == aEndIdx )
+    {
+      x[p] = aClip.x;
+      y[p] = aHeight;
+      p++;
+    }
+    else
+    {
+      for ( int sampleIdx = aStartIdx; ( p < POINT_COUNT ) && ( sampleIdx < aEndIdx ); sampleIdx++ )
+      {
+        long timestamp = aData.getTimestamp( sampleIdx );
+
+        int sampleValue = ( int )( maxValue - ( ( aData.getValue( sampleIdx ) & mask ) >> trailingZeros ) );
+
+        x[p] = ( int )( aZoomFactor * timestamp );
+        y[p] = ( int )( scaleFactor * sampleValue );
+        p++;
+      }
+    }
+
+    // Make sure we end at the last visible sample index...
+    x[p] = aClip.x + aClip.width;
+    y[p] = y[p - 1];
+    p++;
+
+    this.size = p;
+  }
+
+  /**
+   * Builds the polyline of an analogue scope, showing the minimum and maximum
+   * value of each pixel column.
+   *
+   * @param aData
+   *          the captured data to use;
+   * @param aIndex
+   *          the level-of-detail index of the captured data;
+   * @param aColumns
+   *          the index of the first transition of each pixel column;
+   * @param aClip
+   *          the clip to build the polyline for;
+   * @param aMask
+   *          the mask of the scope's channel group;
+   * @param aHeight
+   *          the height of the scope, in pixels.
+   */
+  public void buildAnalogSummary( final AcquisitionResult aData, final LevelOfDetailIndex aIndex,
+      final int[] aColumns, final Rectangle aClip, final int aMask, final int aHeight )
+  {
+    ensureCapacity( ( 3 * aClip.width ) + 2 );
+
+    final long mask = aMask & 0xFFFFFFFFL;
+    final int trailingZeros = Long.numberOfTrailingZeros( mask );
+    final long maxValue = getMaxValue( mask, trailingZeros );
+    final double scaleFactor = ( maxValue == 0L ) ? 1.0 : aHeight / ( double )maxValue;
+
+    final int[] x = this.xPoints;
+    final int[] y = this.yPoints;
+    final int[] summary = new int[2];
+
+    int p = 0;
+    for ( int col = 0; col < aClip.width; col++ )
+    {
+      final int fromIdx = aColumns[col];
+      final int toIdx = aColumns[col + 1];
+      if ( toIdx <= fromIdx )
+      {
+        // No transitions in this column...
+        continue;
+      }
+
+      aIndex.getMinMax( aMask, fromIdx, toIdx, summary );
+
+      final long minValue = ( summary[0] & mask ) >> trailingZeros;
+      final long maxSampleValue = ( summary[1] & mask ) >> trailingZeros;
+      final long lastValue = ( aData.getValue( toIdx - 1 ) & mask ) >> trailingZeros;
+
+      x[p] = aClip.x + col;
+      y[p] = ( int )( scaleFactor * ( maxValue - maxSampleValue ) );
+      p++;
+      x[p] = aClip.x + col;
+      y[p] = ( int )( scaleFactor * ( maxValue - minValue ) );
+      p++;
+      x[p] = aClip.x + col;
+      y[p] = ( int )( scaleFactor * ( maxValue - lastValue ) );
+      p++;
+    }
+
+    if ( p == 0 )
+    {
+      final long value = ( aData.getValue( Math.max( 0, aColumns[0] - 1 ) ) & mask ) >> trailingZeros;
+
+      x[p] = aClip.x;
+      y[p] = ( int )( scaleFactor * ( maxValue - value ) );
+      p++;
+    }
+
+    // Make sure we end at the last visible sample index...
+    x[p] = aClip.x + aClip.width;
+    y[p] = y[p - 1];
+    p++;
+
+    this.size = p;
+  }
+
+  /**
+   * Builds the polyline of a digital signal, showing each transition in the
+   * given range.
+   *
+   * @param aData
+   *          the captured data to use;
+   * @param aStartIdx
+   *          the first transition to show;
+   * @param aEndIdx
+   *          the last transition to show (inclusive);
+   * @param aZoomFactor
+   *          the current zoom factor;
+   * @param aMask
+   *          the mask of the signal's channel;
+   * @param aSignalHeight
+   *          the height of the signal, in pixels.
+   */
+  public void buildDigital( final AcquisitionResult aData, final int aStartIdx, final int aEndIdx,
+      final double aZoomFactor, final int aMask, final int aSignalHeight )
+  {
+    ensureCapacity( ( 2 * Math.min( Math.max( 0, aEndIdx - aStartIdx ), POINT_COUNT ) ) + 3 );
+
+    final int[] x = this.xPoints;
+    final int[] y = this.yPoints;
+
+    // Make sure we always start with time 0...
+    long timestamp = aData.getTimestamp( aStartIdx );
+    int prevSampleValue = ( aData.getValue( aStartIdx ) & aMask );
+
+    int xValue = ( int )( aZoomFactor * timestamp );
+    int yValue = ( prevSampleValue == 0 ? aSignalHeight : 0 );
+
+    x[0] = xValue;
+    y[0] = yValue;
+    int p = 1;
+
+    for ( int sampleIdx = aStartIdx + 1; ( p < POINT_COUNT ) && ( sampleIdx <= aEndIdx ); sampleIdx++ )
+    {
+      timestamp = aData.getTimestamp( sampleIdx );
+      int sampleValue = ( aData.getValue( sampleIdx ) & aMask );
+
+      xValue = ( int )( aZoomFactor * timestamp );
+
+      if ( prevSampleValue != sampleValue )
+      {
+        x[p] = xValue;
+        y[p] = ( prevSampleValue == 0 ? aSignalHeight : 0 );
+        p++;
+      }
+
+      x[p] = xValue;
+      y[p] = ( sampleValue == 0 ? aSignalHeight : 0 );
+      p++;
+
+      prevSampleValue = sampleValue;
+    }
+
+    this.size = p;
+  }
+
+  /**
+   * Builds the polyline of a digital signal using the level-of-detail index,
+   * emitting at most three points per pixel column.
+   *
+   * @param aData
+   *          the captured data to use;
+   * @param aIndex
+   *          the level-of-detail index of the captured data;
+   * @param aColumns
+   *          the index of the first transition of each pixel column;
+   * @param aClip
+   *          the clip to build the polyline for;
+   * @param aMask
+   *          the mask of the signal's channel;
+   * @param aSignalHeight
+   *          the height of the signal, in pixels.
+   */
+  public void buildDigitalSummary( final AcquisitionResult aData, final LevelOfDetailIndex aIndex,
+      final int[] aColumns, final Rectangle aClip, final int aMask, final int aSignalHeight )
+  {
+    ensureCapacity( ( 3 * aClip.width ) + 2 );
+
+    final int[] x = this.xPoints;
+    final int[] y = this.yPoints;
+    final int[] summary = new int[2];
+
+    int prevSampleValue = aData.getValue( Math.max( 0, aColumns[0] - 1 ) ) & aMask;
+
+    x[0] = aClip.x;
+    y[0] = ( prevSampleValue == 0 ? aSignalHeight : 0 );
+    int p = 1;
+
+    for ( int col = 0; col < aClip.width; col++ )
+    {
+      final int fromIdx = aColumns[col];
+      final int toIdx = aColumns[col + 1];
+      if ( toIdx <= fromIdx )
+      {
+        // No transitions in this column...
+        continue;
+      }
+
+      aIndex.getBitSummary( fromIdx, toIdx, summary );
+
+      final boolean anyHigh = ( prevSampleValue != 0 ) || ( ( summary[0] & aMask ) != 0 );
+      final boolean anyLow = ( prevSampleValue == 0 ) || ( ( ~summary[1] & aMask ) != 0 );
+
+      if ( anyHigh && anyLow )
+      {
+        final int sampleValue = aData.getValue( toIdx - 1 ) & aMask;
+        final int xValue = aClip.x + col;
+
+        // Draw a vertical line, showing all (short) glitches...
+        x[p] = xValue;
+        y[p] = ( prevSampleValue == 0 ? aSignalHeight : 0 );
+        p++;
+        x[p] = xValue;
+        y[p] = ( prevSampleValue == 0 ? 0 : aSignalHeight );
+        p++;
+        x[p] = xValue;
+        y[p] = ( sampleValue == 0 ? aSignalHeight : 0 );
+        p++;
+
+        prevSampleValue = sampleValue;
+      }
+    }
+
+    // Make sure we end at the last visible column...
+    x[p] = aClip.x + aClip.width;
+    y[p] = ( prevSampleValue == 0 ? aSignalHeight : 0 );
+    p++;
+
+    this.size = p;
+  }
+
+  /**
+   * Returns the X-coordinates of this lane's polyline.
+   *
+   * @return an array of X-coordinates, of which only the first {@link #size()}
+   *         are valid.
+   */
+  public int[] getXPoints()
+  {
+    return this.xPoints;
+  }
+
+  /**
+   * Returns the Y-coordinates of this lane's polyline.
+   *
+   * @return an array of Y-coordinates, of which only the first {@link #size()}
+   *         are valid.
+   */
+  public int[] getYPoints()
+  {
+    return this.yPoints;
+  }
+
+  /**
+   * Paints the polyline of this lane on the given canvas.
+   *
+   * @param aCanvas
+   *          the canvas to paint on, cannot be <code>null</code>.
+   */
+  public void paint( final Graphics2D aCanvas )
+  {
+    aCanvas.drawPolyline( this.xPoints, this.yPoints, this.size );
+  }
+
+  /**
+   * Returns this lane to the pool of lanes. This lane should no longer be used
+   * after calling this method.
+   */
+  public void release()
+  {
+    this.size = 0;
+
+    if ( ( this.xPoints.length <= MAX_POOLED_CAPACITY ) && ( POOL.size() < MAX_POOL_SIZE ) )
+    {
+      POOL.offer( this );
+    }
+  }
+
+  /**
+   * Returns the number of points in this lane's polyline.
+   *
+   * @return a number of points, &gt;= 0.
+   */
+  public int size()
+  {
+    return this.size;
+  }
+
+  /**
+   * Returns the maximum value of the given mask, shifted to the right.
+   */
+  private static long getMaxValue( final long aMask, final int aTrailingZeros )
+  {
+    final int onesCount = Long.SIZE - Long.numberOfLeadingZeros( aMask ) - aTrailingZeros;
+    return ( ( 1L << onesCount ) - 1L ) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Makes sure this lane can hold at least the given number of points.
+   */
+  private void ensureCapacity( final int aCapacity )
+  {
+    if ( this.xPoints.length < aCapacity )
+    {
+      this.xPoints = new int[aCapacity];
+      this.yPoints = new int[aCapacity];
+    }
+  }
+}
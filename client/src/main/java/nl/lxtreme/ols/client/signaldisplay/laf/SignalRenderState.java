@@ -0,0 +1,329 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.client.signaldisplay.laf;
+
+
+import java.awt.*;
+import java.util.List;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.client.signaldisplay.model.*;
+import nl.lxtreme.ols.client.signaldisplay.signalelement.*;
+import nl.lxtreme.ols.client.signaldisplay.signalelement.SignalElement.SignalElementType;
+
+
+/**
+ * Provides an immutable snapshot of everything needed to paint the signals.
+ * <p>
+ * The snapshot is taken on the EDT, after which the signals can be painted on
+ * any thread without touching the view model or the signal elements, which
+ * are <em>not</em> thread-safe.
+ * </p>
+ */
+final class SignalRenderState
+{
+  // INNER TYPES
+
+  /**
+   * Provides an immutable snapshot of a single UI-element.
+   */
+  static final class Element
+  {
+    // VARIABLES
+
+    /** the type of the signal element, or <code>null</code> for groups. */
+    final SignalElementType type;
+    final int yPosition;
+    final int height;
+    final Color color;
+    final boolean enabled;
+    final int mask;
+    final int offset;
+    final int signalHeight;
+    /** the masks of the digital signals in the group, in value order. */
+    final int[] valueMasks;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new Element instance.
+     *
+     * @param aElement
+     *          the UI-element to take a snapshot of, cannot be
+     *          <code>null</code>.
+     */
+    Element( final IUIElement aElement )
+    {
+      this.yPosition = aElement.getYposition();
+      this.height = aElement.getHeight();
+      this.color = aElement.getColor();
+      this.enabled = aElement.isEnabled();
+
+      if ( aElement instanceof SignalElement )
+      {
+        final SignalElement signalElement = ( SignalElement )aElement;
+
+        this.type = signalElement.getType();
+        this.mask = signalElement.getMask();
+        this.signalHeight = signalElement.getSignalHeight();
+        this.offset = signalElement.isDigitalSignal() ? signalElement.getOffset() : 0;
+        this.valueMasks = signalElement.isGroupSummary() ? getValueMasks( signalElement.getGroup() ) : null;
+      }
+      else
+      {
+        this.type = null;
+        this.mask = 0;
+        this.signalHeight = 0;
+        this.offset = 0;
+        this.valueMasks = null;
+      }
+    }
+
+    // METHODS
+
+    /**
+     * Returns the masks of all digital signals in the given group, from the
+     * most to the least significant bit of the group value.
+     */
+    private static int[] getValueMasks( final ElementGroup aGroup )
+    {
+      final List<SignalElement> elements = aGroup.getElements();
+
+      int count = 0;
+      final int[] masks = new int[elements.size()];
+      for ( int i = elements.size() - 1; i >= 0; i-- )
+      {
+        final SignalElement element = elements.get( i );
+        if ( element.isDigitalSignal() )
+        {
+          masks[count++] = element.getMask();
+        }
+      }
+
+      final int[] result = new int[count];
+      System.arraycopy( masks, 0, result, 0, count );
+      return result;
+    }
+
+    /**
+     * Returns the value of the given sample for this group summary.
+     *
+     * @see SignalElement#getValue(int)
+     */
+    int getValue( final int aSampleValue )
+    {
+      int value = 0;
+      for ( int valueMask : this.valueMasks )
+      {
+        value = ( value << 1 ) | ( ( ( aSampleValue & valueMask ) != 0 ) ? 1 : 0 );
+      }
+      return value;
+    }
+
+    /**
+     * Returns whether this element is an analogue scope.
+     */
+    boolean isAnalogSignal()
+    {
+      return this.type == SignalElementType.ANALOG_SIGNAL;
+    }
+
+    /**
+     * Returns whether this element is a digital signal.
+     */
+    boolean isDigitalSignal()
+    {
+      return this.type == SignalElementType.DIGITAL_SIGNAL;
+    }
+
+    /**
+     * Returns whether this element is an element group.
+     */
+    boolean isGroup()
+    {
+      return this.type == null;
+    }
+
+    /**
+     * Returns whether this element is a group summary.
+     */
+    boolean isGroupSummary()
+    {
+      return this.type == SignalElementType.GROUP_SUMMARY;
+    }
+  }
+
+  /**
+   * Provides the level-of-detail index of a single captured data set, which is
+   * created on first use, by whatever thread needs it first.
+   */
+  static final class DetailIndexHolder
+  {
+    // VARIABLES
+
+    private final AcquisitionResult data;
+    private volatile LevelOfDetailIndex index;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new DetailIndexHolder instance.
+     */
+    DetailIndexHolder( final AcquisitionResult aData )
+    {
+      this.data = aData;
+    }
+
+    // METHODS
+
+    /**
+     * Returns the level-of-detail index, creating it if needed.
+     *
+     * @return a level-of-detail index, never <code>null</code>.
+     */
+    LevelOfDetailIndex get()
+    {
+      LevelOfDetailIndex result = this.index;
+      if ( result == null )
+      {
+        synchronized ( this )
+        {
+          result = this.index;
+          if ( result == null )
+          {
+            this.index = result = new LevelOfDetailIndex( this.data );
+          }
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Returns whether this holder is for the given captured data.
+     */
+    boolean isHolderFor( final AcquisitionResult aData )
+    {
+      return this.data == aData;
+    }
+  }
+
+  // VARIABLES
+
+  final AcquisitionResult data;
+  final DetailIndexHolder detailIndex;
+  final double zoomFactor;
+  final Color backgroundColor;
+  final boolean hasTriggerData;
+  final long triggerOffset;
+  final Color triggerColor;
+  final int signalElementSpacing;
+  final Color groupSummaryBarColor;
+  final Font groupSummaryTextFont;
+  final int groupSummaryPadding;
+  final boolean groupSummaryAntiAliased;
+  final boolean scopeSignalAntiAliased;
+  final boolean sloppyScopeRenderingAllowed;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new SignalRenderState instance, should be called on the EDT.
+   *
+   * @param aModel
+   *          the model to take a snapshot of, cannot be <code>null</code>;
+   * @param aDetailIndex
+   *          the holder of the level-of-detail index of the captured data of
+   *          the given model, cannot be <code>null</code>.
+   */
+  SignalRenderState( final SignalViewModel aModel, final DetailIndexHolder aDetailIndex )
+  {
+    this.data = aModel.getCapturedData();
+    this.detailIndex = aDetailIndex;
+    this.zoomFactor = aModel.getZoomFactor();
+    this.backgroundColor = aModel.getBackgroundColor();
+    this.hasTriggerData = aModel.hasTriggerData();
+    this.triggerOffset = aModel.getTriggerOffset();
+    this.triggerColor = aModel.getTriggerColor();
+    this.signalElementSpacing = aModel.getSignalElementSpacing();
+    this.groupSummaryBarColor = aModel.getGroupSummaryBarColor();
+    this.groupSummaryTextFont = aModel.getGroupSummaryTextFont();
+    this.groupSummaryPadding = aModel.getGroupSummaryPadding();
+    this.groupSummaryAntiAliased = aModel.isRenderGroupSummaryAntiAliased();
+    this.scopeSignalAntiAliased = aModel.isRenderScopeSignalAntiAliased();
+    this.sloppyScopeRenderingAllowed = aModel.isSloppyScopeRenderingAllowed();
+  }
+
+  // METHODS
+
+  /**
+   * Takes a snapshot of the given UI-elements, should be called on the EDT.
+   *
+   * @param aElements
+   *          the UI-elements to take a snapshot of, cannot be <code>null</code>
+   *          .
+   * @return the snapshots of the given elements, never <code>null</code>.
+   */
+  static Element[] createElements( final IUIElement[] aElements )
+  {
+    final Element[] result = new Element[aElements.length];
+    for ( int i = 0; i < aElements.length; i++ )
+    {
+      result[i] = new Element( aElements[i] );
+    }
+    return result;
+  }
+
+  /**
+   * Returns the index of the last sample to paint in the given clip.
+   *
+   * @see SignalViewModel#getEndIndex(Rectangle, int)
+   */
+  int getEndIndex( final Rectangle aClip )
+  {
+    final int count = this.data.getSampleCount();
+    return Math.min( getSampleIndex( aClip.x + aClip.width ) + 1, count - 1 );
+  }
+
+  /**
+   * Returns the index of the first sample to paint in the given clip.
+   *
+   * @see SignalViewModel#getStartIndex(Rectangle)
+   */
+  int getStartIndex( final Rectangle aClip )
+  {
+    return Math.max( getSampleIndex( aClip.x ) - 1, 0 );
+  }
+
+  /**
+   * Converts the given X-coordinate to the corresponding sample index.
+   *
+   * @see SignalDiagramModel#locationToSampleIndex(Point)
+   */
+  private int getSampleIndex( final int aX )
+  {
+    final long timestamp = Math.max( -1L, ( long )Math.ceil( aX / this.zoomFactor ) );
+    final int idx = this.data.getSampleIndex( timestamp );
+    if ( idx < 0 )
+    {
+      return -1;
+    }
+    return Math.min( idx, this.data.getSampleCount() - 1 );
+  }
+}
@@ -0,0 +1,403 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.client.signaldisplay.laf;
+
+
+import java.awt.image.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+
+/**
+ * Provides a memory-bounded cache of pre-rendered tiles of the signal view,
+ * which are rendered in parallel by a pool of background threads.
+ * <p>
+ * Tiles are squares of {@value #TILE_SIZE} pixels, identified by the zoom
+ * factor they are rendered for and their column and row. Tiles rendered for
+ * other zoom factors are retained, so zooming back to an earlier zoom level
+ * does not need to render all tiles again. The least recently used tiles are
+ * evicted as soon as the total size of all tiles exceeds the memory bound.
+ * </p>
+ */
+final class SignalTileCache
+{
+  // INNER TYPES
+
+  /**
+   * Identifies a single tile.
+   */
+  static final class Tile
+  {
+    // VARIABLES
+
+    final double zoomFactor;
+    final int column;
+    final int row;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new Tile instance.
+     */
+    Tile( final double aZoomFactor, final int aColumn, final int aRow )
+    {
+      this.zoomFactor = aZoomFactor;
+      this.column = aColumn;
+      this.row = aRow;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals( final Object aObject )
+    {
+      if ( this == aObject )
+      {
+        return true;
+      }
+      if ( !( aObject instanceof Tile ) )
+      {
+        return false;
+      }
+
+      final Tile other = ( Tile )aObject;
+      return ( this.column == other.column ) && ( this.row == other.row )
+          && ( Double.doubleToLongBits( this.zoomFactor ) == Double.doubleToLongBits( other.zoomFactor ) );
+    }
+
+    /**
+     * Returns the X-coordinate of this tile.
+     */
+    int getX()
+    {
+      return this.column * TILE_SIZE;
+    }
+
+    /**
+     * Returns the Y-coordinate of this tile.
+     */
+    int getY()
+    {
+      return this.row * TILE_SIZE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+      final long bits = Double.doubleToLongBits( this.zoomFactor );
+
+      int result = 31 + ( int )( bits ^ ( bits >>> 32 ) );
+      result = ( 31 * result ) + this.column;
+      result = ( 31 * result ) + this.row;
+      return result;
+    }
+  }
+
+  /**
+   * Renders the contents of a single tile.
+   */
+  static interface TileRenderer
+  {
+    // METHODS
+
+    /**
+     * Renders the given tile.
+     *
+     * @param aTile
+     *          the tile to render, cannot be <code>null</code>.
+     * @return the rendered tile, or <code>null</code> if the tile could not be
+     *         rendered.
+     */
+    BufferedImage render( Tile aTile );
+  }
+
+  // CONSTANTS
+
+  /** The width and height of a single tile, in pixels. */
+  static final int TILE_SIZE = 256;
+
+  // VARIABLES
+
+  private final long maxBytes;
+  private final ExecutorService executor;
+  /** All cached tiles, in LRU-order. */
+  private final LinkedHashMap<Tile, BufferedImage> tiles;
+  /** All tiles that are currently queued or being rendered. */
+  private final Map<Tile, Future<?>> pending;
+  private final AtomicInteger generation;
+
+  private long usedBytes;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new SignalTileCache instance.
+   *
+   * @param aMaxBytes
+   *          the maximum number of bytes all cached tiles may occupy;
+   * @param aThreadCount
+   *          the number of threads to render tiles with, &gt; 0.
+   */
+  SignalTileCache( final long aMaxBytes, final int aThreadCount )
+  {
+    this.maxBytes = aMaxBytes;
+    this.tiles = new LinkedHashMap<Tile, BufferedImage>( 64, 0.75f, true /* accessOrder */);
+    this.pending = new HashMap<Tile, Future<?>>();
+    this.generation = new AtomicInteger();
+
+    this.executor = Executors.newFixedThreadPool( aThreadCount, new DaemonThreadFactory( "SignalTileRenderer" ) );
+  }
+
+  // METHODS
+
+  /**
+   * Returns the default maximum number of bytes for the tile cache, based on
+   * the maximum heap size.
+   *
+   * @return a number of bytes, &gt; 0.
+   */
+  static long getDefaultMaxBytes()
+  {
+    return Math.min( 64L * 1024L * 1024L, Runtime.getRuntime().maxMemory() / 16L );
+  }
+
+  /**
+   * Waits until the pending renderings of the given tiles are done, or the
+   * given timeout expires.
+   *
+   * @param aTiles
+   *          the tiles to wait for, cannot be <code>null</code>;
+   * @param aTimeout
+   *          the maximum time to wait, in milliseconds.
+   */
+  void await( final Collection<Tile> aTiles, final long aTimeout )
+  {
+    final List<Future<?>> futures = new ArrayList<Future<?>>();
+    synchronized ( this )
+    {
+      for ( Tile tile : aTiles )
+      {
+        final Future<?> future = this.pending.get( tile );
+        if ( future != null )
+        {
+          futures.add( future );
+        }
+      }
+    }
+
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( aTimeout );
+    for ( Future<?> future : futures )
+    {
+      try
+      {
+        future.get( Math.max( 0L, deadline - System.nanoTime() ), TimeUnit.NANOSECONDS );
+      }
+      catch ( TimeoutException exception )
+      {
+        // Out of time; the remaining tiles will be painted when rendered...
+        return;
+      }
+      catch ( CancellationException exception )
+      {
+        // Ignore; continue with the next tile...
+      }
+      catch ( ExecutionException exception )
+      {
+        // Ignore; continue with the next tile...
+      }
+      catch ( InterruptedException exception )
+      {
+        // Make sure our thread administration is correct...
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Cancels all pending renderings of tiles that are not in the given
+   * collection of tiles.
+   *
+   * @param aTiles
+   *          the tiles whose pending renderings should be retained.
+   */
+  synchronized void cancelAllBut( final Collection<Tile> aTiles )
+  {
+    final Iterator<Map.Entry<Tile, Future<?>>> iter = this.pending.entrySet().iterator();
+    while ( iter.hasNext() )
+    {
+      final Map.Entry<Tile, Future<?>> entry = iter.next();
+      if ( !aTiles.contains( entry.getKey() ) && entry.getValue().cancel( false /* mayInterruptIfRunning */) )
+      {
+        iter.remove();
+      }
+    }
+  }
+
+  /**
+   * Disposes this cache, stopping all background renderings.
+   * <p>
+   * After calling this method, this instance should <em>no longer</em> be used.
+   * </p>
+   */
+  void dispose()
+  {
+    invalidate();
+
+    this.executor.shutdownNow();
+  }
+
+  /**
+   * Returns the cached image of the given tile.
+   *
+   * @param aTile
+   *          the tile to return the image for, cannot be <code>null</code>.
+   * @return the cached image, or <code>null</code> if the tile is not cached.
+   */
+  synchronized BufferedImage get( final Tile aTile )
+  {
+    return this.tiles.get( aTile );
+  }
+
+  /**
+   * Invalidates all cached tiles and cancels all pending renderings.
+   */
+  synchronized void invalidate()
+  {
+    this.generation.incrementAndGet();
+
+    for ( Future<?> future : this.pending.values() )
+    {
+      future.cancel( false /* mayInterruptIfRunning */);
+    }
+    this.pending.clear();
+
+    for ( BufferedImage image : this.tiles.values() )
+    {
+      image.flush();
+    }
+    this.tiles.clear();
+    this.usedBytes = 0L;
+  }
+
+  /**
+   * Renders the given tile in the background, unless it is already cached or
+   * pending.
+   *
+   * @param aTile
+   *          the tile to render, cannot be <code>null</code>;
+   * @param aRenderer
+   *          the renderer to use, cannot be <code>null</code>;
+   * @param aCallback
+   *          the callback to run when the tile is rendered and cached, cannot
+   *          be <code>null</code>. Is run on the rendering thread!
+   */
+  synchronized void render( final Tile aTile, final TileRenderer aRenderer, final Runnable aCallback )
+  {
+    if ( this.tiles.containsKey( aTile ) || this.pending.containsKey( aTile ) || this.executor.isShutdown() )
+    {
+      // Nothing to do...
+      return;
+    }
+
+    final int expectedGeneration = this.generation.get();
+
+    final Future<?> future = this.executor.submit( new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        BufferedImage image = null;
+        try
+        {
+          if ( SignalTileCache.this.generation.get() == expectedGeneration )
+          {
+            image = aRenderer.render( aTile );
+          }
+        }
+        finally
+        {
+          // Always update our administration, even if the rendering failed...
+          if ( put( aTile, image, expectedGeneration ) )
+          {
+            aCallback.run();
+          }
+        }
+      }
+    } );
+
+    this.pending.put( aTile, future );
+  }
+
+  /**
+   * Stores the rendered image of the given tile, unless the cache has been
+   * invalidated in the mean time.
+   *
+   * @return <code>true</code> if the image is stored, <code>false</code>
+   *         otherwise.
+   */
+  private synchronized boolean put( final Tile aTile, final BufferedImage aImage, final int aGeneration )
+  {
+    if ( this.generation.get() != aGeneration )
+    {
+      // Invalidated in the mean time; the pending administration is already
+      // cleared...
+      return false;
+    }
+
+    this.pending.remove( aTile );
+
+    if ( aImage == null )
+    {
+      return false;
+    }
+
+    this.tiles.put( aTile, aImage );
+    this.usedBytes += getSize( aImage );
+
+    // Evict the least recently used tiles...
+    final Iterator<BufferedImage> iter = this.tiles.values().iterator();
+    while ( ( this.usedBytes > this.maxBytes ) && ( this.tiles.size() > 1 ) && iter.hasNext() )
+    {
+      final BufferedImage image = iter.next();
+      iter.remove();
+
+      this.usedBytes -= getSize( image );
+      image.flush();
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns the (approximate) number of bytes used by the given image.
+   */
+  private static long getSize( final BufferedImage aImage )
+  {
+    return 4L * aImage.getWidth() * aImage.getHeight();
+  }
+}
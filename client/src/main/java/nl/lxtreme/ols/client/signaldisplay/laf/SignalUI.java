@@ -21,11 +21,16 @@ package nl.lxtreme.ols.client.signaldisplay.laf;
 
 
 import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
 
 import javax.swing.*;
 import javax.swing.plaf.*;
 
 import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.annotation.*;
 import nl.lxtreme.ols.client.signaldisplay.*;
 import nl.lxtreme.ols.client.signaldisplay.model.*;
@@ -39,15 +44,194 @@ import nl.lxtreme.ols.client.signaldisplay.view.*;
  */
 public class SignalUI extends ComponentUI
 {
+  // INNER TYPES
+
+  /**
+   * Provides the state needed to build the lanes of a single paint.
+   */
+  private static final class LaneContext
+  {
+    // VARIABLES
+
+    final AcquisitionResult data;
+    final Rectangle clip;
+    final int startIdx;
+    final int endIdx;
+    final double zoomFactor;
+    /** the level-of-detail index, or <code>null</code> if not used. */
+    final LevelOfDetailIndex detailIndex;
+    final int[] columns;
+    final boolean summarizeScopes;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new LaneContext instance.
+     */
+    LaneContext( final AcquisitionResult aData, final Rectangle aClip, final int aStartIdx, final int aEndIdx,
+        final double aZoomFactor, final LevelOfDetailIndex aDetailIndex, final int[] aColumns,
+        final boolean aSummarizeScopes )
+    {
+      this.data = aData;
+      this.clip = aClip;
+      this.startIdx = aStartIdx;
+      this.endIdx = aEndIdx;
+      this.zoomFactor = aZoomFactor;
+      this.detailIndex = aDetailIndex;
+      this.columns = aColumns;
+      this.summarizeScopes = aSummarizeScopes;
+    }
+
+    // METHODS
+
+    /**
+     * Builds the lane of the given digital signal or analogue scope.
+     *
+     * @return the built lane, never <code>null</code>.
+     */
+    SignalLane build( final SignalRenderState.Element aElement )
+    {
+      final SignalLane result = SignalLane.acquire();
+
+      final int mask = aElement.mask;
+      if ( aElement.isDigitalSignal() )
+      {
+        if ( this.detailIndex != null )
+        {
+          result.buildDigitalSummary( this.data, this.detailIndex, this.columns, this.clip, mask,
+              aElement.signalHeight );
+        }
+        else
+        {
+          // "Normal" data set; draw as accurate as possible...
+          result.buildDigital( this.data, this.startIdx, this.endIdx, this.zoomFactor, mask, aElement.signalHeight );
+        }
+      }
+      else if ( this.summarizeScopes && ( this.startIdx != this.endIdx ) )
+      {
+        // Draw the minimum and maximum value of each pixel column...
+        result.buildAnalogSummary( this.data, this.detailIndex, this.columns, this.clip, mask, aElement.height );
+      }
+      else
+      {
+        result.buildAnalog( this.data, this.startIdx, this.endIdx, this.zoomFactor, this.clip, mask, aElement.height );
+      }
+
+      return result;
+    }
+
+    /**
+     * Returns the (estimated) cost of building the lane of the given element.
+     */
+    long getCost( final SignalRenderState.Element aElement )
+    {
+      final boolean summarized = aElement.isDigitalSignal() ? ( this.detailIndex != null ) : this.summarizeScopes;
+      return summarized ? ( SUMMARY_COLUMN_COST * this.clip.width ) : ( this.endIdx - this.startIdx );
+    }
+
+    /**
+     * Returns whether the given element is painted as lane.
+     */
+    boolean hasLane( final SignalRenderState.Element aElement )
+    {
+      if ( aElement.isDigitalSignal() )
+      {
+        // Forced zero'd channels are painted as simple line...
+        return aElement.enabled && ( this.startIdx != this.endIdx );
+      }
+      return aElement.isAnalogSignal();
+    }
+  }
+
+  /**
+   * Renders a single tile of the signal view, using only a snapshot of the
+   * render state and signal elements taken on the EDT.
+   */
+  private static final class TileRendererImpl implements SignalTileCache.TileRenderer
+  {
+    // VARIABLES
+
+    private final SignalRenderState state;
+    private final SignalRenderState.Element[] elements;
+    private final GraphicsConfiguration configuration;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new TileRendererImpl instance.
+     */
+    public TileRendererImpl( final SignalRenderState aState, final SignalRenderState.Element[] aElements,
+        final GraphicsConfiguration aConfiguration )
+    {
+      this.state = aState;
+      this.elements = aElements;
+      this.configuration = aConfiguration;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BufferedImage render( final SignalTileCache.Tile aTile )
+    {
+      final int size = SignalTileCache.TILE_SIZE;
+
+      final BufferedImage result;
+      if ( this.configuration != null )
+      {
+        result = this.configuration.createCompatibleImage( size, size, Transparency.OPAQUE );
+      }
+      else
+      {
+        result = new BufferedImage( size, size, BufferedImage.TYPE_INT_RGB );
+      }
+
+      final Graphics2D canvas = result.createGraphics();
+
+      try
+      {
+        // Use the coordinate system of the view itself...
+        canvas.translate( -aTile.getX(), -aTile.getY() );
+        canvas.setClip( aTile.getX(), aTile.getY(), size, size );
+
+        if ( this.elements.length > 0 )
+        {
+          paintSignals( canvas, this.state, this.elements );
+        }
+        else
+        {
+          canvas.setBackground( this.state.backgroundColor );
+          canvas.clearRect( aTile.getX(), aTile.getY(), size, size );
+        }
+      }
+      finally
+      {
+        canvas.dispose();
+      }
+
+      return result;
+    }
+  }
+
   // CONSTANTS
 
-  /** The maximum number of points in a polyline. */
-  private static final int POINT_COUNT = 1000000;
   /**
-   * The number of samples that are shown in a single view upon which is decided
-   * to draw the group summary and scope a bit sloppy.
+   * The number of transitions per pixel column upon which is decided to
+   * summarize the transitions using the level-of-detail index.
+   */
+  private static final int DETAIL_INDEX_THRESHOLD = 2;
+  /**
+   * The (estimated) total cost of building all lanes upon which is decided to
+   * build them in parallel.
    */
-  private static final int SLOPPY_DRAW_THRESHOLD = 10000;
+  private static final long PARALLEL_LANE_THRESHOLD = 100000L;
+  /** The (estimated) cost of summarizing a single pixel column of a lane. */
+  private static final long SUMMARY_COLUMN_COST = 16L;
+
+  private static final ExecutorService LANE_EXECUTOR = Executors.newFixedThreadPool( Runtime.getRuntime()
+      .availableProcessors(), new DaemonThreadFactory( "SignalLaneBuilder" ) );
 
   // VARIABLES
 
@@ -55,11 +239,107 @@ public class SignalUI extends ComponentUI
   private volatile MeasurementInfo measurementInfo;
   private volatile Rectangle measurementRect;
 
-  private static final int[] x = new int[2 * POINT_COUNT];
-  private static final int[] y = new int[2 * POINT_COUNT];
+  private SignalTileCache tileCache;
+  /** the captured data and render state the cached tiles are valid for. */
+  private AcquisitionResult tileData;
+  private List<Object> tileState;
+  /** the level-of-detail index of the captured data. */
+  private SignalRenderState.DetailIndexHolder detailIndex;
 
   // METHODS
 
+  /**
+   * Builds the lanes of all digital signals and analogue scopes in the given
+   * elements.
+   * <p>
+   * In case building all lanes is costly, they are built in parallel, with the
+   * calling thread building the first lane itself.
+   * </p>
+   *
+   * @return the built lanes, with the lane of each element at the same index
+   *         as the element itself, or <code>null</code> for elements without
+   *         lane.
+   */
+  private static SignalLane[] buildLanes( final LaneContext aContext, final SignalRenderState.Element[] aElements )
+  {
+    final SignalLane[] result = new SignalLane[aElements.length];
+
+    final List<Integer> laneIndices = new ArrayList<Integer>( aElements.length );
+    long cost = 0L;
+    for ( int i = 0; i < aElements.length; i++ )
+    {
+      if ( aContext.hasLane( aElements[i] ) )
+      {
+        laneIndices.add( Integer.valueOf( i ) );
+        cost += aContext.getCost( aElements[i] );
+      }
+    }
+
+    if ( ( laneIndices.size() < 2 ) || ( cost < PARALLEL_LANE_THRESHOLD ) )
+    {
+      for ( Integer idx : laneIndices )
+      {
+        result[idx.intValue()] = aContext.build( aElements[idx.intValue()] );
+      }
+      return result;
+    }
+
+    final List<Future<SignalLane>> futures = new ArrayList<Future<SignalLane>>( laneIndices.size() );
+    for ( int i = 1; i < laneIndices.size(); i++ )
+    {
+      final SignalRenderState.Element element = aElements[laneIndices.get( i ).intValue()];
+
+      futures.add( LANE_EXECUTOR.submit( new Callable<SignalLane>()
+      {
+        @Override
+        public SignalLane call()
+        {
+          return aContext.build( element );
+        }
+      } ) );
+    }
+
+    final int firstIdx = laneIndices.get( 0 ).intValue();
+    result[firstIdx] = aContext.build( aElements[firstIdx] );
+
+    boolean interrupted = false;
+    try
+    {
+      for ( int i = 1; i < laneIndices.size(); i++ )
+      {
+        final Future<SignalLane> future = futures.get( i - 1 );
+
+        // Wait uninterruptibly, as the lanes cannot be reused while their
+        // builds are still running...
+        while ( result[laneIndices.get( i ).intValue()] == null )
+        {
+          try
+          {
+            result[laneIndices.get( i ).intValue()] = future.get();
+          }
+          catch ( InterruptedException exception )
+          {
+            interrupted = true;
+          }
+          catch ( ExecutionException exception )
+          {
+            throw new RuntimeException( "Failed to build signal lane!", exception.getCause() );
+          }
+        }
+      }
+    }
+    finally
+    {
+      if ( interrupted )
+      {
+        // Make sure our thread administration is correct...
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    return result;
+  }
+
   /**
    * Creates the rendering hints for this the drawing of arrows.
    */
@@ -105,6 +385,110 @@ public class SignalUI extends ComponentUI
     return hints;
   }
 
+  /**
+   * Returns, for each pixel column in the given clip, the index of the first
+   * transition drawn in that column.
+   *
+   * @param aData
+   *          the captured data to use;
+   * @param aClip
+   *          the clip to determine the pixel columns for;
+   * @param aZoomFactor
+   *          the current zoom factor.
+   * @return an array with <tt>clip.width + 1</tt> transition indices, the last
+   *         index denotes the end of the last column.
+   */
+  private static int[] getColumnIndices( final AcquisitionResult aData, final Rectangle aClip,
+      final double aZoomFactor )
+  {
+    final int count = aData.getSampleCount();
+    final int[] result = new int[aClip.width + 1];
+
+    for ( int i = 0; i < result.length; i++ )
+    {
+      // A transition is drawn at column "x" iff x <= (zoom * t) < x + 1...
+      final long timestamp = ( long )Math.ceil( ( aClip.x + i ) / aZoomFactor );
+
+      int idx = aData.getSampleIndex( timestamp );
+      if ( ( idx < count ) && ( aData.getTimestamp( idx ) < timestamp ) )
+      {
+        idx++;
+      }
+      result[i] = idx;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the state of all signal elements and settings that influence the
+   * painting of the signals, that is, whose change invalidates all tiles.
+   */
+  private static List<Object> getRenderState( final SignalView aView, final SignalViewModel aModel )
+  {
+    final List<Object> result = new ArrayList<Object>();
+
+    for ( IUIElement element : aModel.getSignalElements( 0, aView.getHeight() ) )
+    {
+      result.add( element );
+      result.add( Integer.valueOf( element.getYposition() ) );
+      result.add( Integer.valueOf( element.getHeight() ) );
+      result.add( element.getColor() );
+      result.add( Boolean.valueOf( element.isEnabled() ) );
+
+      if ( element instanceof SignalElement )
+      {
+        final SignalElement signalElement = ( SignalElement )element;
+
+        result.add( signalElement.getType() );
+        result.add( Integer.valueOf( signalElement.getMask() ) );
+        result.add( Integer.valueOf( signalElement.getOffset() ) );
+        result.add( Integer.valueOf( signalElement.getSignalHeight() ) );
+      }
+    }
+
+    result.add( aModel.getBackgroundColor() );
+    result.add( Integer.valueOf( aModel.getSignalElementSpacing() ) );
+    result.add( Boolean.valueOf( aModel.hasTriggerData() ) );
+    result.add( Long.valueOf( aModel.getTriggerOffset() ) );
+    result.add( aModel.getTriggerColor() );
+    result.add( aModel.getGroupSummaryBarColor() );
+    result.add( aModel.getGroupSummaryTextFont() );
+    result.add( Integer.valueOf( aModel.getGroupSummaryPadding() ) );
+    result.add( Boolean.valueOf( aModel.isRenderGroupSummaryAntiAliased() ) );
+    result.add( Boolean.valueOf( aModel.isRenderScopeSignalAntiAliased() ) );
+    result.add( Boolean.valueOf( aModel.isSloppyScopeRenderingAllowed() ) );
+
+    return result;
+  }
+
+  /**
+   * Returns all tiles that intersect the given rectangle.
+   */
+  private static List<SignalTileCache.Tile> getTiles( final Rectangle aRect, final double aZoomFactor )
+  {
+    final List<SignalTileCache.Tile> result = new ArrayList<SignalTileCache.Tile>();
+    if ( aRect.isEmpty() )
+    {
+      return result;
+    }
+
+    final int firstColumn = Math.max( 0, aRect.x ) / SignalTileCache.TILE_SIZE;
+    final int lastColumn = ( aRect.x + aRect.width - 1 ) / SignalTileCache.TILE_SIZE;
+    final int firstRow = Math.max( 0, aRect.y ) / SignalTileCache.TILE_SIZE;
+    final int lastRow = ( aRect.y + aRect.height - 1 ) / SignalTileCache.TILE_SIZE;
+
+    for ( int row = firstRow; row <= lastRow; row++ )
+    {
+      for ( int column = firstColumn; column <= lastColumn; column++ )
+      {
+        result.add( new SignalTileCache.Tile( aZoomFactor, column, row ) );
+      }
+    }
+
+    return result;
+  }
+
   /**
    * Returns the current value of measurementRect.
    *
@@ -133,6 +517,21 @@ public class SignalUI extends ComponentUI
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void installUI( final JComponent aComponent )
+  {
+    super.installUI( aComponent );
+
+    this.tileCache = new SignalTileCache( SignalTileCache.getDefaultMaxBytes(), Runtime.getRuntime()
+        .availableProcessors() );
+    this.tileData = null;
+    this.tileState = null;
+    this.detailIndex = null;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -166,9 +565,13 @@ public class SignalUI extends ComponentUI
 
       try
       {
-        if ( elements.length > 0 )
+        if ( this.tileCache != null )
         {
-          paintSignals( canvas, model, elements );
+          paintTiles( canvas, view, model );
+        }
+        else if ( elements.length > 0 )
+        {
+          paintSignals( canvas, createRenderState( model ), SignalRenderState.createElements( elements ) );
         }
       }
       finally
@@ -202,6 +605,38 @@ public class SignalUI extends ComponentUI
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void uninstallUI( final JComponent aComponent )
+  {
+    if ( this.tileCache != null )
+    {
+      this.tileCache.dispose();
+      this.tileCache = null;
+    }
+    this.tileData = null;
+    this.tileState = null;
+    this.detailIndex = null;
+
+    super.uninstallUI( aComponent );
+  }
+
+  /**
+   * Takes a snapshot of the render state of the given model, reusing the
+   * level-of-detail index as long as the captured data does not change.
+   */
+  private SignalRenderState createRenderState( final SignalViewModel aModel )
+  {
+    final AcquisitionResult data = aModel.getCapturedData();
+    if ( ( this.detailIndex == null ) || !this.detailIndex.isHolderFor( data ) )
+    {
+      this.detailIndex = new SignalRenderState.DetailIndexHolder( data );
+    }
+    return new SignalRenderState( aModel, this.detailIndex );
+  }
+
   /**
    * Returns the stroke to use to render the annotation lines.
    *
@@ -234,8 +669,8 @@ public class SignalUI extends ComponentUI
   private void paintAnnotations( final Graphics2D aCanvas, final SignalViewModel aModel,
       final IUIElement[] aSignalElements )
   {
-    final long[] timestamps = aModel.getTimestamps();
-    if ( ( timestamps == null ) || ( timestamps.length == 0 ) || ( aSignalElements.length == 0 ) )
+    final AcquisitionResult data = aModel.getCapturedData();
+    if ( ( data == null ) || ( data.getSampleCount() == 0 ) || ( aSignalElements.length == 0 ) )
     {
       // Nothing to do...
       return;
@@ -243,10 +678,10 @@ public class SignalUI extends ComponentUI
 
     final Rectangle clip = aCanvas.getClipBounds();
     final int startIdx = aModel.getStartIndex( clip );
-    final int endIdx = aModel.getEndIndex( clip, timestamps.length );
+    final int endIdx = aModel.getEndIndex( clip, data.getSampleCount() );
 
-    final long startTimestamp = timestamps[startIdx];
-    final long endTimestamp = timestamps[endIdx];
+    final long startTimestamp = data.getTimestamp( startIdx );
+    final long endTimestamp = data.getTimestamp( endIdx );
 
     final double zoomFactor = aModel.getZoomFactor();
 
@@ -274,14 +709,14 @@ public class SignalUI extends ComponentUI
 
           if ( signalElement.isEnabled() )
           {
-            final AnnotationsHelper helper = new AnnotationsHelper( signalElement );
+            final AnnotationIndex index = signalElement.getChannel().getAnnotationIndex();
 
             aCanvas.setFont( aModel.getAnnotationFont() );
 
             final FontMetrics fm = aCanvas.getFontMetrics();
             final int fontHeight = fm.getHeight();
 
-            for ( DataAnnotation<?> ann : helper.getAnnotations( DataAnnotation.class, startTimestamp, endTimestamp ) )
+            for ( DataAnnotation<?> ann : index.getAnnotations( startTimestamp, endTimestamp ) )
             {
               final long annStartTime = ann.getStartTimestamp();
               final long annEndTime = ann.getEndTimestamp();
@@ -415,177 +850,226 @@ public class SignalUI extends ComponentUI
   /**
    * Paints the individual signal channels, group bytes and analogue scope
    * signals.
+   * <p>
+   * In case there are more transitions than pixels in view, all transitions
+   * of a pixel column are summarized by the level-of-detail index, keeping the
+   * painting time constant regardless of the number of transitions.
+   * </p>
+   * <p>
+   * The polylines of all lanes are built before anything is painted, allowing
+   * them to be built in parallel.
+   * </p>
    *
    * @param aCanvas
    *          the canvas to paint on, cannot be <code>null</code>;
-   * @param aModel
-   *          the model to use, cannot be <code>null</code>;
+   * @param aState
+   *          the render state to use, cannot be <code>null</code>;
    * @param aElements
    *          the UI-elements to draw, cannot be <code>null</code> or empty!
    */
-  private void paintSignals( final Graphics2D aCanvas, final SignalViewModel aModel, final IUIElement[] aElements )
+  private static void paintSignals( final Graphics2D aCanvas, final SignalRenderState aState,
+      final SignalRenderState.Element[] aElements )
   {
-    final int[] values = aModel.getDataValues();
-    final long[] timestamps = aModel.getTimestamps();
+    final AcquisitionResult data = aState.data;
 
     final Rectangle clip = aCanvas.getClipBounds();
 
-    aCanvas.setBackground( aModel.getBackgroundColor() );
+    aCanvas.setBackground( aState.backgroundColor );
     aCanvas.clearRect( clip.x, clip.y, clip.width, clip.height );
 
-    final int startIdx = aModel.getStartIndex( clip );
-    final int endIdx = aModel.getEndIndex( clip, values.length );
+    final int startIdx = aState.getStartIndex( clip );
+    final int endIdx = aState.getEndIndex( clip );
 
-    final double zoomFactor = aModel.getZoomFactor();
+    final double zoomFactor = aState.zoomFactor;
 
-    if ( aModel.hasTriggerData() )
+    if ( aState.hasTriggerData )
     {
-      final long triggerOffset = aModel.getTriggerOffset();
-      if ( ( timestamps[startIdx] <= triggerOffset ) && ( timestamps[endIdx] >= triggerOffset ) )
+      final long triggerOffset = aState.triggerOffset;
+      if ( ( data.getTimestamp( startIdx ) <= triggerOffset ) && ( data.getTimestamp( endIdx ) >= triggerOffset ) )
       {
         // Draw a line denoting the trigger position...
         final int x = ( int )Math.round( triggerOffset * zoomFactor ) - 1;
 
-        aCanvas.setColor( aModel.getTriggerColor() );
+        aCanvas.setColor( aState.triggerColor );
         aCanvas.drawLine( x, clip.y, x, clip.y + clip.height );
       }
     }
 
     // Start drawing at the correct position in the clipped region...
-    aCanvas.translate( 0, aElements[0].getYposition() );
+    aCanvas.translate( 0, aElements[0].yPosition );
+
+    // Summarize the transitions per pixel column in case there are (a lot)
+    // more transitions than pixels...
+    final boolean useDetailIndex = ( endIdx - startIdx ) > ( DETAIL_INDEX_THRESHOLD * clip.width );
+    final LevelOfDetailIndex detailIndex = useDetailIndex ? aState.detailIndex.get() : null;
+    final int[] columns = useDetailIndex ? getColumnIndices( data, clip, zoomFactor ) : null;
+    // Scopes and group summaries are only summarized when allowed to...
+    final boolean summarizeScopes = useDetailIndex && aState.sloppyScopeRenderingAllowed;
+
+    // Build the polylines of all lanes up front, possibly in parallel...
+    final LaneContext context = new LaneContext( data, clip, startIdx, endIdx, zoomFactor, detailIndex, columns,
+        summarizeScopes );
+    final SignalLane[] lanes = buildLanes( context, aElements );
 
-    final boolean enableSloppyScopePainting = aModel.isSloppyScopeRenderingAllowed();
-    int lastP = 0;
+    try
+    {
+      paintLanes( aCanvas, aState, aElements, lanes, context );
+    }
+    finally
+    {
+      for ( SignalLane lane : lanes )
+      {
+        if ( lane != null )
+        {
+          lane.release();
+        }
+      }
+    }
+  }
 
-    for ( IUIElement element : aElements )
+  /**
+   * Paints the given UI-elements, using the pre-built polylines of their lanes.
+   */
+  private static void paintLanes( final Graphics2D aCanvas, final SignalRenderState aState,
+      final SignalRenderState.Element[] aElements, final SignalLane[] aLanes, final LaneContext aContext )
+  {
+    final AcquisitionResult data = aContext.data;
+    final Rectangle clip = aContext.clip;
+    final int startIdx = aContext.startIdx;
+    final int endIdx = aContext.endIdx;
+    final double zoomFactor = aContext.zoomFactor;
+    final LevelOfDetailIndex detailIndex = aContext.detailIndex;
+    final int[] columns = aContext.columns;
+    final boolean summarizeScopes = aContext.summarizeScopes;
+
+    final int[] summary = new int[2];
+
+    for ( int i = 0; i < aElements.length; i++ )
     {
-      if ( element instanceof ElementGroup )
+      final SignalRenderState.Element signalElement = aElements[i];
+
+      if ( signalElement.isGroup() )
       {
         // Draw nothing...
 
         // advance to the next element...
-        aCanvas.translate( 0, element.getHeight() + aModel.getSignalElementSpacing() );
+        aCanvas.translate( 0, signalElement.height + aState.signalElementSpacing );
 
         continue;
       }
 
-      aCanvas.setColor( element.getColor() );
-
-      final SignalElement signalElement = ( SignalElement )element;
+      aCanvas.setColor( signalElement.color );
 
       if ( signalElement.isDigitalSignal() )
       {
-        int signalHeight = signalElement.getSignalHeight();
-        int signalOffset = signalElement.getOffset();
+        int signalHeight = signalElement.signalHeight;
+        int signalOffset = signalElement.offset;
 
         // Tell Swing how we would like to render ourselves...
         aCanvas.setRenderingHints( createSignalRenderingHints( false /* aUseAA */) );
 
         aCanvas.translate( 0, signalOffset );
 
-        if ( !signalElement.isEnabled() || ( startIdx == endIdx ) )
+        if ( aLanes[i] == null )
         {
           // Forced zero'd channel is *very* easy to draw...
           aCanvas.drawLine( clip.x, signalHeight, clip.x + clip.width, signalHeight );
         }
         else
         {
-          // "Normal" data set; draw as accurate as possible...
-          final int mask = signalElement.getMask();
-
-          // Make sure we always start with time 0...
-          long timestamp = timestamps[startIdx];
-          int prevSampleValue = ( values[startIdx] & mask );
-
-          int xValue = ( int )( zoomFactor * timestamp );
-          int yValue = ( prevSampleValue == 0 ? signalHeight : 0 );
-
-          x[0] = xValue;
-          y[0] = yValue;
-          int p = 1;
-
-          for ( int sampleIdx = startIdx + 1; ( p < POINT_COUNT ) && ( sampleIdx <= endIdx ); sampleIdx++ )
-          {
-            timestamp = timestamps[sampleIdx];
-            int sampleValue = ( values[sampleIdx] & mask );
-
-            xValue = ( int )( zoomFactor * timestamp );
-
-            if ( prevSampleValue != sampleValue )
-            {
-              x[p] = xValue;
-              y[p] = ( prevSampleValue == 0 ? signalHeight : 0 );
-              p++;
-            }
-
-            x[p] = xValue;
-            y[p] = ( sampleValue == 0 ? signalHeight : 0 );
-            p++;
-
-            prevSampleValue = sampleValue;
-          }
-
-          aCanvas.drawPolyline( x, y, p );
-
-          lastP = ( int )( ( p * 0.1 ) + ( lastP * 0.9 ) );
+          aLanes[i].paint( aCanvas );
         }
 
         // Move back to the original position...
         aCanvas.translate( 0, -signalOffset );
       }
 
-      int sampleIncr = 1;
-      if ( enableSloppyScopePainting && ( lastP > SLOPPY_DRAW_THRESHOLD ) )
-      {
-        sampleIncr = ( int )Math.max( 1.0, ( 1.0 / zoomFactor ) );
-      }
-
       if ( signalElement.isGroupSummary() )
       {
         // Tell Swing how we would like to render ourselves...
-        aCanvas.setRenderingHints( createSignalRenderingHints( aModel.isRenderGroupSummaryAntiAliased() ) );
-
-        int mask = signalElement.getMask();
+        aCanvas.setRenderingHints( createSignalRenderingHints( aState.groupSummaryAntiAliased ) );
 
-        int padding = aModel.getGroupSummaryPadding();
+        int mask = signalElement.mask;
 
-        int prevSampleValue = values[startIdx] & mask;
-        int prevX = ( int )( zoomFactor * timestamps[startIdx] );
+        int padding = aState.groupSummaryPadding;
 
-        aCanvas.setFont( aModel.getGroupSummaryTextFont() );
+        aCanvas.setFont( aState.groupSummaryTextFont );
 
         FontMetrics fm = aCanvas.getFontMetrics();
-        int textYpos = ( int )( ( signalElement.getHeight() + fm.getLeading() + fm.getMaxAscent() ) / 2.0 ) - padding;
+        int textYpos = ( int )( ( signalElement.height + fm.getLeading() + fm.getMaxAscent() ) / 2.0 ) - padding;
 
-        for ( int sampleIdx = startIdx + 1; sampleIdx < endIdx; sampleIdx += sampleIncr )
+        int prevSampleValue;
+        int prevX;
+        int firstIdx;
+        int lastIdx;
+        if ( summarizeScopes )
+        {
+          // Iterate over the pixel columns instead of the transitions...
+          prevSampleValue = data.getValue( Math.max( 0, columns[0] - 1 ) ) & mask;
+          prevX = clip.x;
+          firstIdx = 0;
+          lastIdx = clip.width;
+        }
+        else
         {
-          int sampleValue = ( values[sampleIdx] & mask );
+          prevSampleValue = data.getValue( startIdx ) & mask;
+          prevX = ( int )( zoomFactor * data.getTimestamp( startIdx ) );
+          firstIdx = startIdx + 1;
+          lastIdx = endIdx;
+        }
 
-          if ( sampleValue != prevSampleValue )
+        for ( int idx = firstIdx; idx < lastIdx; idx++ )
+        {
+          final int sampleValue;
+          final int x;
+          if ( summarizeScopes )
           {
-            int x = ( int )( zoomFactor * timestamps[sampleIdx] );
+            if ( columns[idx + 1] <= columns[idx] )
+            {
+              // No transitions in this column...
+              continue;
+            }
 
-            String text = String.format( "%02X", Integer.valueOf( signalElement.getValue( prevSampleValue ) ) );
+            detailIndex.getBitSummary( columns[idx], columns[idx + 1], summary );
+            if ( ( ( summary[0] & mask ) == prevSampleValue ) && ( ( summary[1] & mask ) == prevSampleValue ) )
+            {
+              // No changes in this column...
+              continue;
+            }
 
-            int textWidth = fm.stringWidth( text ) + ( 2 * padding );
-            int cellWidth = x - prevX;
-            if ( textWidth < cellWidth )
+            sampleValue = data.getValue( columns[idx + 1] - 1 ) & mask;
+            x = clip.x + idx;
+          }
+          else
+          {
+            sampleValue = ( data.getValue( idx ) & mask );
+            if ( sampleValue == prevSampleValue )
             {
-              int textXpos = prevX + ( int )( ( cellWidth - textWidth ) / 2.0 ) + padding;
+              continue;
+            }
 
-              aCanvas.setColor( signalElement.getColor() );
+            x = ( int )( zoomFactor * data.getTimestamp( idx ) );
+          }
 
-              aCanvas.drawString( text, textXpos, textYpos );
-            }
+          String text = String.format( "%02X", Integer.valueOf( signalElement.getValue( prevSampleValue ) ) );
 
-            aCanvas.setColor( aModel.getGroupSummaryBarColor() );
+          int textWidth = fm.stringWidth( text ) + ( 2 * padding );
+          int cellWidth = x - prevX;
+          if ( textWidth < cellWidth )
+          {
+            int textXpos = prevX + ( int )( ( cellWidth - textWidth ) / 2.0 ) + padding;
 
-            // draw a small line...
-            aCanvas.drawLine( x, padding, x, signalElement.getHeight() - padding );
+            aCanvas.setColor( signalElement.color );
 
-            prevX = x;
+            aCanvas.drawString( text, textXpos, textYpos );
           }
 
+          aCanvas.setColor( aState.groupSummaryBarColor );
+
+          // draw a small line...
+          aCanvas.drawLine( x, padding, x, signalElement.height - padding );
+
+          prevX = x;
           prevSampleValue = sampleValue;
         }
       }
@@ -593,54 +1077,103 @@ public class SignalUI extends ComponentUI
       if ( signalElement.isAnalogSignal() )
       {
         // Tell Swing how we would like to render ourselves...
-        aCanvas.setRenderingHints( createSignalRenderingHints( aModel.isRenderScopeSignalAntiAliased() ) );
+        aCanvas.setRenderingHints( createSignalRenderingHints( aState.scopeSignalAntiAliased ) );
 
-        aCanvas.setColor( signalElement.getColor() );
+        aCanvas.setColor( signalElement.color );
 
-        long mask = signalElement.getMask() & 0xFFFFFFFFL;
-        final int trailingZeros = Long.numberOfTrailingZeros( mask );
-        final int onesCount = Long.SIZE - Long.numberOfLeadingZeros( mask ) - trailingZeros;
-        final long maxValue = ( ( 1L << onesCount ) - 1L ) & 0xFFFFFFFFL;
-        double scaleFactor = ( maxValue == 0L ) ? 1.0 : signalElement.getHeight() / ( double )maxValue;
+        aLanes[i].paint( aCanvas );
+      }
 
-        // Make sure we always start with time 0...
-        int p = 0;
-        if ( startIdx == endIdx )
-        {
-          x[p] = clip.x;
-          y[p] = signalElement.getHeight();
-          p++;
-        }
-        else
-        {
-          for ( int sampleIdx = startIdx; ( p < POINT_COUNT ) && ( sampleIdx < endIdx ); sampleIdx += sampleIncr )
-          {
-            long timestamp = timestamps[sampleIdx];
+      // advance to the next element...
+      aCanvas.translate( 0, signalElement.height + aState.signalElementSpacing );
+    }
+  }
 
-            int sampleValue = ( int )( ( values[sampleIdx] & mask ) >> trailingZeros );
-            final int i_max = Math.min( endIdx, ( sampleIdx + sampleIncr ) - 1 );
-            for ( int i = sampleIdx + 1; i < i_max; i++ )
-            {
-              sampleValue += ( ( values[i] & mask ) >> trailingZeros );
-            }
-            sampleValue = ( int )( maxValue - ( sampleValue / ( double )sampleIncr ) );
+  /**
+   * Paints the signals by blitting the cached tiles that intersect the current
+   * clip.
+   * <p>
+   * Missing tiles are rendered in parallel in the background, together with
+   * the other visible tiles and their direct horizontal neighbours, so
+   * scrolling can use cached tiles as well. The EDT never waits for them;
+   * missing tiles are painted as empty area, and are repainted as soon as they
+   * become available.
+   * </p>
+   *
+   * @param aCanvas
+   *          the canvas to paint on, cannot be <code>null</code>;
+   * @param aView
+   *          the view to paint, cannot be <code>null</code>;
+   * @param aModel
+   *          the model to use, cannot be <code>null</code>.
+   */
+  private void paintTiles( final Graphics2D aCanvas, final SignalView aView, final SignalViewModel aModel )
+  {
+    final SignalTileCache cache = this.tileCache;
 
-            x[p] = ( int )( zoomFactor * timestamp );
-            y[p] = ( int )( scaleFactor * sampleValue );
-            p++;
-          }
-        }
+    // All cached tiles become invalid when the data or signal elements change;
+    // a zoom change simply yields other tiles...
+    final AcquisitionResult data = aModel.getCapturedData();
+    final List<Object> state = getRenderState( aView, aModel );
+    if ( ( data != this.tileData ) || !state.equals( this.tileState ) )
+    {
+      cache.invalidate();
+
+      this.tileData = data;
+      this.tileState = state;
+    }
+
+    final SignalRenderState renderState = createRenderState( aModel );
+    final double zoomFactor = renderState.zoomFactor;
+    final GraphicsConfiguration configuration = aView.getGraphicsConfiguration();
+
+    final Rectangle clip = aCanvas.getClipBounds();
 
-        // Make sure we end at the last visible sample index...
-        x[p] = clip.x + clip.width;
-        y[p] = y[p - 1];
-        p++;
+    Rectangle prefetchRect = aView.getVisibleRect();
+    prefetchRect.grow( SignalTileCache.TILE_SIZE, 0 );
+    prefetchRect = prefetchRect.intersection( new Rectangle( 0, 0, aView.getWidth(), aView.getHeight() ) );
 
-        aCanvas.drawPolyline( x, y, p );
+    // Render the tiles in the clip first...
+    final List<SignalTileCache.Tile> clipTiles = getTiles( clip, zoomFactor );
+    final Set<SignalTileCache.Tile> tiles = new LinkedHashSet<SignalTileCache.Tile>( clipTiles );
+    tiles.addAll( getTiles( prefetchRect, zoomFactor ) );
+
+    for ( final SignalTileCache.Tile tile : tiles )
+    {
+      if ( cache.get( tile ) != null )
+      {
+        continue;
       }
 
-      // advance to the next element...
-      aCanvas.translate( 0, signalElement.getHeight() + aModel.getSignalElementSpacing() );
+      final SignalRenderState.Element[] elements = SignalRenderState.createElements( aModel.getSignalElements(
+          tile.getY(), SignalTileCache.TILE_SIZE ) );
+
+      cache.render( tile, new TileRendererImpl( renderState, elements, configuration ), new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          aView.repaint( tile.getX(), tile.getY(), SignalTileCache.TILE_SIZE, SignalTileCache.TILE_SIZE );
+        }
+      } );
+    }
+
+    // Tiles scrolled out of view need no longer be rendered...
+    cache.cancelAllBut( tiles );
+
+    for ( SignalTileCache.Tile tile : clipTiles )
+    {
+      final BufferedImage image = cache.get( tile );
+      if ( image != null )
+      {
+        aCanvas.drawImage( image, tile.getX(), tile.getY(), null );
+      }
+      else
+      {
+        // Placeholder; the tile is repainted once rendered...
+        aCanvas.setColor( renderState.backgroundColor );
+        aCanvas.fillRect( tile.getX(), tile.getY(), SignalTileCache.TILE_SIZE, SignalTileCache.TILE_SIZE );
+      }
     }
   }
 }
@@ -0,0 +1,367 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.client.signaldisplay.model;
+
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+
+
+/**
+ * Provides a multi-resolution index on the transitions of a capture, allowing
+ * ranges of transitions to be summarized in (roughly) logarithmic time.
+ * <p>
+ * The index is a pyramid of levels, in which each bucket summarizes
+ * {@value #FAN_OUT} buckets of the level below it; the lowest level summarizes
+ * {@value #FAN_OUT} transitions. For digital signals, each bucket holds the
+ * bitwise OR and AND of all its values, telling whether a channel has been
+ * high and/or low in that bucket. For analog signals, the minimum and maximum
+ * value of a channel group are indexed on demand.
+ * </p>
+ * <p>
+ * This allows a signal to be painted with a constant number of points per
+ * pixel column, regardless of the number of transitions, while still showing
+ * all glitches.
+ * </p>
+ */
+public final class LevelOfDetailIndex
+{
+  // CONSTANTS
+
+  /** The number of buckets/transitions summarized by a single bucket. */
+  static final int FAN_OUT = 16;
+
+  private static final int FAN_OUT_SHIFT = 4;
+  private static final int FAN_OUT_MASK = FAN_OUT - 1;
+
+  // VARIABLES
+
+  private final AcquisitionResult data;
+  private final int[][] orLevels;
+  private final int[][] andLevels;
+  /** min/max levels per mask, lazily created. */
+  private final Map<Integer, int[][][]> minMaxLevels;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new LevelOfDetailIndex instance.
+   *
+   * @param aData
+   *          the captured data to index, cannot be <code>null</code>.
+   */
+  public LevelOfDetailIndex( final AcquisitionResult aData )
+  {
+    this.data = aData;
+    this.minMaxLevels = new HashMap<Integer, int[][][]>();
+
+    final int count = aData.getSampleCount();
+    final int levelCount = getLevelCount( count );
+
+    this.orLevels = new int[levelCount][];
+    this.andLevels = new int[levelCount][];
+
+    if ( levelCount > 0 )
+    {
+      int[] or = new int[bucketCount( count )];
+      int[] and = new int[or.length];
+      Arrays.fill( and, ~0 );
+
+      for ( int i = 0; i < count; i++ )
+      {
+        final int value = aData.getValue( i );
+        final int bucket = i >>> FAN_OUT_SHIFT;
+        or[bucket] |= value;
+        and[bucket] &= value;
+      }
+
+      this.orLevels[0] = or;
+      this.andLevels[0] = and;
+
+      for ( int level = 1; level < levelCount; level++ )
+      {
+        final int[] prevOr = or;
+        final int[] prevAnd = and;
+
+        or = new int[bucketCount( prevOr.length )];
+        and = new int[or.length];
+        Arrays.fill( and, ~0 );
+
+        for ( int i = 0; i < prevOr.length; i++ )
+        {
+          final int bucket = i >>> FAN_OUT_SHIFT;
+          or[bucket] |= prevOr[i];
+          and[bucket] &= prevAnd[i];
+        }
+
+        this.orLevels[level] = or;
+        this.andLevels[level] = and;
+      }
+    }
+  }
+
+  // METHODS
+
+  /**
+   * Returns the number of buckets needed to summarize the given number of
+   * items.
+   */
+  private static int bucketCount( final int aCount )
+  {
+    return ( aCount + FAN_OUT_MASK ) >>> FAN_OUT_SHIFT;
+  }
+
+  /**
+   * Returns the number of levels needed to summarize the given number of
+   * transitions into a single bucket.
+   */
+  private static int getLevelCount( final int aCount )
+  {
+    int result = 0;
+    int size = aCount;
+    while ( size > 1 )
+    {
+      size = bucketCount( size );
+      result++;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the bitwise OR and AND of all values in the given range of
+   * transitions.
+   *
+   * @param aFromIdx
+   *          the first transition index (inclusive);
+   * @param aToIdx
+   *          the last transition index (exclusive), &gt; aFromIdx;
+   * @param aResult
+   *          the array to store the result in, the OR-ed values are stored at
+   *          index 0, the AND-ed values at index 1.
+   */
+  public void getBitSummary( final int aFromIdx, final int aToIdx, final int[] aResult )
+  {
+    int or = 0;
+    int and = ~0;
+
+    int lo = aFromIdx;
+    int hi = aToIdx;
+
+    // Consume the unaligned transitions at both ends...
+    while ( ( lo < hi ) && ( ( lo & FAN_OUT_MASK ) != 0 ) )
+    {
+      final int value = this.data.getValue( lo++ );
+      or |= value;
+      and &= value;
+    }
+    while ( ( hi > lo ) && ( ( hi & FAN_OUT_MASK ) != 0 ) )
+    {
+      final int value = this.data.getValue( --hi );
+      or |= value;
+      and &= value;
+    }
+
+    lo >>>= FAN_OUT_SHIFT;
+    hi >>>= FAN_OUT_SHIFT;
+
+    // Continue with the unaligned buckets at each level...
+    for ( int level = 0; lo < hi; level++ )
+    {
+      final int[] orLevel = this.orLevels[level];
+      final int[] andLevel = this.andLevels[level];
+
+      while ( ( lo < hi ) && ( ( lo & FAN_OUT_MASK ) != 0 ) )
+      {
+        or |= orLevel[lo];
+        and &= andLevel[lo];
+        lo++;
+      }
+      while ( ( hi > lo ) && ( ( hi & FAN_OUT_MASK ) != 0 ) )
+      {
+        hi--;
+        or |= orLevel[hi];
+        and &= andLevel[hi];
+      }
+
+      lo >>>= FAN_OUT_SHIFT;
+      hi >>>= FAN_OUT_SHIFT;
+    }
+
+    aResult[0] = or;
+    aResult[1] = and;
+  }
+
+  /**
+   * Returns the minimum and maximum of all masked values in the given range of
+   * transitions.
+   * <p>
+   * The masked values are compared as <em>unsigned</em> values. The first call
+   * for a particular mask creates the index for that mask.
+   * </p>
+   *
+   * @param aMask
+   *          the mask to apply to all values;
+   * @param aFromIdx
+   *          the first transition index (inclusive);
+   * @param aToIdx
+   *          the last transition index (exclusive), &gt; aFromIdx;
+   * @param aResult
+   *          the array to store the result in, the minimum value is stored at
+   *          index 0, the maximum value at index 1.
+   */
+  public void getMinMax( final int aMask, final int aFromIdx, final int aToIdx, final int[] aResult )
+  {
+    final int[][][] levels = getMinMaxLevels( aMask );
+    final int[][] minLevels = levels[0];
+    final int[][] maxLevels = levels[1];
+
+    // Flip the sign bit to compare unsigned values as signed ones...
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+
+    int lo = aFromIdx;
+    int hi = aToIdx;
+
+    // Consume the unaligned transitions at both ends...
+    while ( ( lo < hi ) && ( ( lo & FAN_OUT_MASK ) != 0 ) )
+    {
+      final int value = ( this.data.getValue( lo++ ) & aMask ) ^ Integer.MIN_VALUE;
+      min = Math.min( min, value );
+      max = Math.max( max, value );
+    }
+    while ( ( hi > lo ) && ( ( hi & FAN_OUT_MASK ) != 0 ) )
+    {
+      final int value = ( this.data.getValue( --hi ) & aMask ) ^ Integer.MIN_VALUE;
+      min = Math.min( min, value );
+      max = Math.max( max, value );
+    }
+
+    lo >>>= FAN_OUT_SHIFT;
+    hi >>>= FAN_OUT_SHIFT;
+
+    // Continue with the unaligned buckets at each level...
+    for ( int level = 0; lo < hi; level++ )
+    {
+      final int[] minLevel = minLevels[level];
+      final int[] maxLevel = maxLevels[level];
+
+      while ( ( lo < hi ) && ( ( lo & FAN_OUT_MASK ) != 0 ) )
+      {
+        min = Math.min( min, minLevel[lo] );
+        max = Math.max( max, maxLevel[lo] );
+        lo++;
+      }
+      while ( ( hi > lo ) && ( ( hi & FAN_OUT_MASK ) != 0 ) )
+      {
+        hi--;
+        min = Math.min( min, minLevel[hi] );
+        max = Math.max( max, maxLevel[hi] );
+      }
+
+      lo >>>= FAN_OUT_SHIFT;
+      hi >>>= FAN_OUT_SHIFT;
+    }
+
+    aResult[0] = min ^ Integer.MIN_VALUE;
+    aResult[1] = max ^ Integer.MIN_VALUE;
+  }
+
+  /**
+   * Returns whether this index is created for the given captured data.
+   *
+   * @param aData
+   *          the captured data to test, can be <code>null</code>.
+   * @return <code>true</code> if this index indexes the given data,
+   *         <code>false</code> otherwise.
+   */
+  public boolean isIndexFor( final AcquisitionResult aData )
+  {
+    return this.data == aData;
+  }
+
+  /**
+   * Returns the minimum and maximum levels for the given mask, creating them
+   * if needed.
+   *
+   * @return an array with the minimum levels at index 0 and the maximum levels
+   *         at index 1. All values have their sign bit flipped.
+   */
+  private synchronized int[][][] getMinMaxLevels( final int aMask )
+  {
+    final Integer key = Integer.valueOf( aMask );
+
+    int[][][] result = this.minMaxLevels.get( key );
+    if ( result == null )
+    {
+      final int levelCount = this.orLevels.length;
+
+      final int[][] minLevels = new int[levelCount][];
+      final int[][] maxLevels = new int[levelCount][];
+
+      if ( levelCount > 0 )
+      {
+        int[] min = new int[this.orLevels[0].length];
+        int[] max = new int[min.length];
+        Arrays.fill( min, Integer.MAX_VALUE );
+        Arrays.fill( max, Integer.MIN_VALUE );
+
+        final int count = this.data.getSampleCount();
+        for ( int i = 0; i < count; i++ )
+        {
+          final int value = ( this.data.getValue( i ) & aMask ) ^ Integer.MIN_VALUE;
+          final int bucket = i >>> FAN_OUT_SHIFT;
+          min[bucket] = Math.min( min[bucket], value );
+          max[bucket] = Math.max( max[bucket], value );
+        }
+
+        minLevels[0] = min;
+        maxLevels[0] = max;
+
+        for ( int level = 1; level < levelCount; level++ )
+        {
+          final int[] prevMin = min;
+          final int[] prevMax = max;
+
+          min = new int[this.orLevels[level].length];
+          max = new int[min.length];
+          Arrays.fill( min, Integer.MAX_VALUE );
+          Arrays.fill( max, Integer.MIN_VALUE );
+
+          for ( int i = 0; i < prevMin.length; i++ )
+          {
+            final int bucket = i >>> FAN_OUT_SHIFT;
+            min[bucket] = Math.min( min[bucket], prevMin[i] );
+            max[bucket] = Math.max( max[bucket], prevMax[i] );
+          }
+
+          minLevels[level] = min;
+          maxLevels[level] = max;
+        }
+      }
+
+      result = new int[][][] { minLevels, maxLevels };
+      this.minMaxLevels.put( key, result );
+    }
+
+    return result;
+  }
+}
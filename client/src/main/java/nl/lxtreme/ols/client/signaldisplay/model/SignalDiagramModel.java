@@ -32,6 +32,7 @@ import javax.swing.event.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.Cursor;
+import nl.lxtreme.ols.api.data.EdgeIndex.ChannelEdges;
 import nl.lxtreme.ols.client.signaldisplay.*;
 import nl.lxtreme.ols.client.signaldisplay.laf.*;
 import nl.lxtreme.ols.client.signaldisplay.signalelement.*;
@@ -237,73 +238,64 @@ public class SignalDiagramModel
   }
 
   /**
+   * Finds the first edge of the given channel after the given timestamp.
+   *
    * @param aChannelIdx
+   *          the index of the channel to find the edge for;
    * @param aTimestamp
-   * @return
+   *          the timestamp to start searching from.
+   * @return the timestamp of the found edge, or the last timestamp if no such
+   *         edge exists.
    */
   public final long findEdgeAfter( final int aChannelIdx, final long aTimestamp )
   {
-    final long[] timestamps = getTimestamps();
-    final int[] values = getValues();
-
-    int refIdx = Arrays.binarySearch( timestamps, aTimestamp );
-    if ( refIdx < 0 )
+    final AcquisitionResult data = getCapturedData();
+    if ( ( data == null ) || ( data.getSampleCount() == 0 ) )
     {
-      refIdx = -( refIdx + 1 ) - 1;
+      return 0L;
     }
 
-    if ( ( refIdx < 0 ) || ( refIdx >= values.length ) )
+    if ( aTimestamp < data.getTimestamp( 0 ) )
     {
-      return timestamps[0];
+      return data.getTimestamp( 0 );
     }
 
-    // find the reference time value; which is the "timestamp" under the
-    // cursor...
-    final int mask = ( 1 << aChannelIdx );
-    final int refValue = ( values[refIdx] & mask );
+    final ChannelEdges edges = data.getEdgeIndex().getChannelEdges( aChannelIdx );
 
-    do
+    final int edge = edges.findEdgeAfter( aTimestamp );
+    if ( edge >= edges.getEdgeCount() )
     {
-      refIdx++;
+      return data.getTimestamp( data.getSampleCount() - 1 );
     }
-    while ( ( refIdx < ( values.length - 1 ) ) && ( ( values[refIdx] & mask ) == refValue ) );
-
-    return timestamps[refIdx];
+    return edges.getTimestamp( edge );
   }
 
   /**
+   * Finds the last edge of the given channel before the given timestamp.
+   *
    * @param aChannelIdx
+   *          the index of the channel to find the edge for;
    * @param aTimestamp
-   * @return
+   *          the timestamp to start searching from.
+   * @return the timestamp of the found edge, or the first timestamp if no such
+   *         edge exists.
    */
   public final long findEdgeBefore( final int aChannelIdx, final long aTimestamp )
   {
-    final long[] timestamps = getTimestamps();
-    final int[] values = getValues();
-
-    int refIdx = Arrays.binarySearch( timestamps, aTimestamp );
-    if ( refIdx < 0 )
+    final AcquisitionResult data = getCapturedData();
+    if ( ( data == null ) || ( data.getSampleCount() == 0 ) )
     {
-      refIdx = -( refIdx + 1 ) - 1;
+      return 0L;
     }
 
-    if ( ( refIdx < 0 ) || ( refIdx >= values.length ) )
-    {
-      return timestamps[0];
-    }
+    final ChannelEdges edges = data.getEdgeIndex().getChannelEdges( aChannelIdx );
 
-    // find the reference time value; which is the "timestamp" under the
-    // cursor...
-    final int mask = ( 1 << aChannelIdx );
-    final int refValue = ( values[refIdx] & mask );
-
-    do
+    final int edge = edges.findEdgeBefore( aTimestamp );
+    if ( edge < 0 )
     {
-      refIdx--;
+      return data.getTimestamp( 0 );
     }
-    while ( ( refIdx > 0 ) && ( ( values[refIdx] & mask ) == refValue ) );
-
-    return timestamps[Math.max( 0, refIdx )];
+    return edges.getTimestamp( edge );
   }
 
   /**
@@ -583,7 +575,8 @@ public class SignalDiagramModel
       return new MeasurementInfo( aSignalElement, refTime );
     }
 
-    final long[] timestamps = getTimestamps();
+    final AcquisitionResult data = getCapturedData();
+    final int sampleCount = getSampleCount();
 
     long ts = -1L;
     long tm = -1L;
@@ -592,47 +585,30 @@ public class SignalDiagramModel
 
     // find the reference time value; which is the "timestamp" under the
     // cursor...
-    final int[] values = getValues();
-    if ( ( refIdx >= 0 ) && ( refIdx < values.length ) )
+    if ( ( refIdx >= 0 ) && ( refIdx < sampleCount ) )
     {
-      final int mask = channel.getMask();
-      final int refValue = ( values[refIdx] & mask );
+      final ChannelEdges edges = data.getEdgeIndex().getChannelEdges( channel.getIndex() );
+      final long refTimestamp = data.getTimestamp( refIdx );
 
-      int idx = refIdx;
-      do
-      {
-        idx--;
-      }
-      while ( ( idx >= 0 ) && ( ( values[idx] & mask ) == refValue ) );
+      // the edge at which the pulse under the cursor starts, if any...
+      final int nextEdge = edges.findEdgeAfter( refTimestamp );
+      final int midEdge = nextEdge - 1;
 
-      // convert the found index back to "screen" values...
-      final int tm_idx = Math.max( 0, idx + 1 );
-      tm = ( tm_idx == 0 ) ? 0 : timestamps[tm_idx];
+      // convert the found edges back to "screen" values...
+      tm = ( midEdge >= 0 ) ? edges.getTimestamp( midEdge ) : 0L;
+      ts = ( midEdge >= 1 ) ? edges.getTimestamp( midEdge - 1 ) : 0L;
 
-      // Search for the original value again, to complete the pulse...
-      do
+      if ( nextEdge < edges.getEdgeCount() )
       {
-        idx--;
+        te = edges.getTimestamp( nextEdge );
       }
-      while ( ( idx >= 0 ) && ( ( values[idx] & mask ) != refValue ) );
-
-      // convert the found index back to "screen" values...
-      final int ts_idx = Math.max( 0, idx + 1 );
-      ts = ( ts_idx == 0 ) ? 0 : timestamps[ts_idx];
-
-      idx = refIdx;
-      do
+      else
       {
-        idx++;
+        te = ( sampleCount == 1 ) ? 0L : data.getTimestamp( sampleCount - 1 );
       }
-      while ( ( idx < values.length ) && ( ( values[idx] & mask ) == refValue ) );
-
-      // convert the found index back to "screen" values...
-      final int te_idx = Math.min( idx, timestamps.length - 1 );
-      te = ( te_idx == 0 ) ? 0 : timestamps[te_idx];
 
       // Determine the width of the "high" part...
-      if ( ( values[ts_idx] & mask ) != 0 )
+      if ( edges.getLevelAfter( Math.max( -1, midEdge - 1 ) ) != 0 )
       {
         th = Math.abs( tm - ts );
       }
@@ -781,19 +757,6 @@ public class SignalDiagramModel
     return capturedData.getSampleIndex( aValue );
   }
 
-  /**
-   * {@inheritDoc}
-   */
-  public long[] getTimestamps()
-  {
-    final AcquisitionResult capturedData = getCapturedData();
-    if ( capturedData == null )
-    {
-      return new long[0];
-    }
-    return capturedData.getTimestamps();
-  }
-
   /**
    * Returns the trigger position, if available.
    *
@@ -810,19 +773,6 @@ public class SignalDiagramModel
     return Long.valueOf( capturedData.getTriggerPosition() );
   }
 
-  /**
-   * {@inheritDoc}
-   */
-  public int[] getValues()
-  {
-    final AcquisitionResult capturedData = getCapturedData();
-    if ( capturedData == null )
-    {
-      return new int[0];
-    }
-    return capturedData.getValues();
-  }
-
   /**
    * Calculates the vertical block increment.
    * <p>
@@ -1222,6 +1172,14 @@ public class SignalDiagramModel
 
     this.dataSet = aDataSet;
 
+    // Determine the edges of all enabled channels up front, in the background,
+    // so searching for edges on the EDT need not to...
+    final AcquisitionResult capturedData = aDataSet.getCapturedData();
+    if ( capturedData != null )
+    {
+      capturedData.getEdgeIndex().prepareInBackground( capturedData.getEnabledChannels() );
+    }
+
     final IDataModelChangeListener[] listeners = this.eventListeners.getListeners( IDataModelChangeListener.class );
     for ( IDataModelChangeListener listener : listeners )
     {
@@ -1305,10 +1263,17 @@ public class SignalDiagramModel
   }
 
   /**
-   * {@inheritDoc}
+   * Returns the number of samples in the current acquisition data.
+   *
+   * @return a sample count, >= 0.
    */
-  private int getSampleCount()
+  public int getSampleCount()
   {
-    return getValues().length;
+    final AcquisitionResult capturedData = getCapturedData();
+    if ( capturedData == null )
+    {
+      return 0;
+    }
+    return capturedData.getSampleCount();
   }
 }
@@ -26,6 +26,7 @@ import java.awt.*;
 
 import javax.swing.*;
 
+import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.client.signaldisplay.*;
 import nl.lxtreme.ols.client.signaldisplay.model.SignalDiagramModel.*;
 import nl.lxtreme.ols.client.signaldisplay.view.*;
@@ -134,11 +135,14 @@ public class SignalViewModel extends AbstractViewModel
   }
 
   /**
-   * @return
+   * Returns the acquisition data to display.
+   *
+   * @return the acquisition data, can be <code>null</code> if no data is
+   *         present.
    */
-  public int[] getDataValues()
+  public AcquisitionResult getCapturedData()
   {
-    return this.controller.getViewModel().getValues();
+    return this.controller.getViewModel().getCapturedData();
   }
 
   /**
@@ -218,14 +222,6 @@ public class SignalViewModel extends AbstractViewModel
     return Math.max( index - 1, 0 );
   }
 
-  /**
-   * @return
-   */
-  public long[] getTimestamps()
-  {
-    return this.controller.getViewModel().getTimestamps();
-  }
-
   /**
    * Returns whether or not the alternative rendering style for annotations
    * should be used.
@@ -276,7 +272,8 @@ public class SignalViewModel extends AbstractViewModel
 
   /**
    * Returns whether or not the "sloppy" rendering for scopes and signal groups
-   * should be used.
+   * should be used, that is, whether their transitions may be summarized per
+   * pixel column by the {@link LevelOfDetailIndex}.
    * 
    * @return <code>true</code> if sloppy rendering is allowed,
    *         <code>false</code> otherwise.
@@ -88,26 +88,7 @@ public final class AnnotationsHelper
    */
   public DataAnnotation<?> getAnnotation( final long aTimestamp )
   {
-    DataAnnotation<?> result = null;
-    for ( Annotation<?> annotation : this.channel.getAnnotations() )
-    {
-      if ( !( annotation instanceof DataAnnotation<?> ) )
-      {
-        continue;
-      }
-
-      final DataAnnotation<?> ann = ( DataAnnotation<?> )annotation;
-
-      final long annStartTime = ann.getStartTimestamp();
-      final long annEndTime = ann.getEndTimestamp();
-
-      if ( ( annStartTime <= aTimestamp ) && ( annEndTime >= aTimestamp ) )
-      {
-        result = ann;
-        break;
-      }
-    }
-    return result;
+    return this.channel.getAnnotationIndex().getAnnotation( aTimestamp );
   }
 
   /**
@@ -120,26 +101,7 @@ public final class AnnotationsHelper
    */
   public DataAnnotation<?> getAnnotationAfter( final long aTimestamp )
   {
-    SortedSet<Annotation<?>> annotations = new TreeSet<Annotation<?>>( this.channel.getAnnotations() );
-    for ( Annotation<?> annotation : annotations )
-    {
-      if ( !( annotation instanceof DataAnnotation<?> ) )
-      {
-        continue;
-      }
-
-      final DataAnnotation<?> ann = ( DataAnnotation<?> )annotation;
-
-      final long annStartTime = ann.getStartTimestamp();
-      final long annEndTime = ann.getEndTimestamp();
-
-      if ( ( annStartTime >= aTimestamp ) && ( annEndTime >= aTimestamp ) )
-      {
-        return ann;
-      }
-    }
-
-    return null;
+    return this.channel.getAnnotationIndex().getAnnotationAfter( aTimestamp );
   }
 
   /**
@@ -152,32 +114,7 @@ public final class AnnotationsHelper
    */
   public DataAnnotation<?> getAnnotationBefore( final long aTimestamp )
   {
-    DataAnnotation<?> result = null;
-
-    SortedSet<Annotation<?>> annotations = new TreeSet<Annotation<?>>( this.channel.getAnnotations() );
-    for ( Annotation<?> annotation : annotations )
-    {
-      if ( !( annotation instanceof DataAnnotation<?> ) )
-      {
-        continue;
-      }
-
-      final DataAnnotation<?> ann = ( DataAnnotation<?> )annotation;
-
-      final long annStartTime = ann.getStartTimestamp();
-      final long annEndTime = ann.getEndTimestamp();
-
-      if ( ( annStartTime < aTimestamp ) && ( annEndTime < aTimestamp ) )
-      {
-        result = ann;
-      }
-      else
-      {
-        break;
-      }
-    }
-
-    return result;
+    return this.channel.getAnnotationIndex().getAnnotationBefore( aTimestamp );
   }
 
   /**
@@ -193,26 +130,12 @@ public final class AnnotationsHelper
       final long aEndTime )
   {
     List<T> result = new ArrayList<T>();
-    for ( Annotation<?> annotation : this.channel.getAnnotations() )
+    for ( DataAnnotation<?> annotation : this.channel.getAnnotationIndex().getAnnotations( aStartTime, aEndTime ) )
     {
-      if ( !aType.isAssignableFrom( annotation.getClass() ) )
-      {
-        continue;
-      }
-
-      final DataAnnotation<?> ann = ( DataAnnotation<?> )annotation;
-
-      final long annStartTime = ann.getStartTimestamp();
-      final long annEndTime = ann.getEndTimestamp();
-
-      if ( ( ( annStartTime < aStartTime ) && ( annEndTime < aStartTime ) )
-          || ( ( annStartTime > aEndTime ) && ( annEndTime > aEndTime ) ) )
+      if ( aType.isAssignableFrom( annotation.getClass() ) )
       {
-        // Simple reject: annotation falls outside clip boundaries...
-        continue;
+        result.add( ( T )annotation );
       }
-
-      result.add( ( T )ann );
     }
     return result;
   }
@@ -34,6 +34,7 @@ import javax.swing.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.Cursor;
+import nl.lxtreme.ols.api.data.EdgeIndex.ChannelEdges;
 import nl.lxtreme.ols.client.action.*;
 import nl.lxtreme.ols.client.actionmanager.*;
 import nl.lxtreme.ols.client.signaldisplay.*;
@@ -216,7 +217,7 @@ ICursorChangeListener, IMeasurementListener
     // VARIABLES
 
     private final AcquisitionResult result;
-    private final int mask;
+    private final int index;
     private final long startTimestamp;
     private final long endTimestamp;
 
@@ -229,7 +230,7 @@ ICursorChangeListener, IMeasurementListener
         final long aEndTimestamp )
     {
       this.result = aResult;
-      this.mask = ( 1 << aIndex );
+      this.index = aIndex;
       this.startTimestamp = aStartTimestamp;
       this.endTimestamp = aEndTimestamp;
     }
@@ -250,44 +251,44 @@ ICursorChangeListener, IMeasurementListener
 
       final boolean hasTimingData = this.result.hasTimingData();
 
-      final int[] values = this.result.getValues();
-      final long[] timestamps = this.result.getTimestamps();
+      final AcquisitionResult data = this.result;
+      final ChannelEdges edges = data.getEdgeIndex().getChannelEdges( this.index );
+
+      final long startTime = data.getTimestamp( startIdx );
+      final long endTime = data.getTimestamp( endIdx );
+
+      // All edges in the range (startTime, endTime]...
+      final int firstEdge = edges.findEdgeAfter( startTime );
+      final int lastEdge = edges.findEdgeAfter( endTime );
 
       int fallingEdgeCount = 0;
       long highTime = 0;
       int risingEdgeCount = 0;
       long lowTime = 0;
 
-      int i = startIdx;
-      long lastTransition = timestamps[i];
-      int lastBitValue = values[i++] & this.mask;
-
-      for ( ; !Thread.currentThread().isInterrupted() && ( i <= endIdx ); i++ )
+      if ( firstEdge < lastEdge )
       {
-        final int bitValue = values[i] & this.mask;
-        final Edge edge = Edge.toEdge( lastBitValue, bitValue );
+        risingEdgeCount = edges.countRisingEdges( firstEdge, lastEdge );
+        fallingEdgeCount = ( lastEdge - firstEdge ) - risingEdgeCount;
 
-        if ( !edge.isNone() )
+        // The period before the first edge starts at the start index...
+        final long firstPeriod = edges.getTimestamp( firstEdge ) - startTime;
+        if ( edges.isRising( firstEdge ) )
         {
-          final long periodTime = timestamps[i] - lastTransition;
-          lastTransition = timestamps[i];
-
-          if ( edge.isRising() )
-          {
-            // Low to high transition: previously seen a low-state...
-            risingEdgeCount++;
-            lowTime += periodTime;
-          }
-          else
-            /* if ( edge.isFalling() ) */
-          {
-            // High to low transition: previously seen a high-state...
-            fallingEdgeCount++;
-            highTime += periodTime;
-          }
+          // Low to high transition: previously seen a low-state...
+          lowTime += firstPeriod;
         }
+        else
+        {
+          // High to low transition: previously seen a high-state...
+          highTime += firstPeriod;
+        }
+
+        final long periodTime = edges.getTimestamp( lastEdge - 1 ) - edges.getTimestamp( firstEdge );
+        final long periodHighTime = edges.getHighTime( firstEdge, lastEdge - 1 );
 
-        lastBitValue = bitValue;
+        highTime += periodHighTime;
+        lowTime += periodTime - periodHighTime;
       }
 
       final double measureTime = Math.abs( ( this.endTimestamp - this.startTimestamp )
@@ -342,7 +343,7 @@ ICursorChangeListener, IMeasurementListener
       long start = this.startTimestamp;
       if ( start < 0L )
       {
-        start = model.getTimestamps()[0];
+        start = model.getCapturedData().getTimestamp( 0 );
       }
       long end = this.endTimestamp;
       if ( end < 0L )
@@ -0,0 +1,114 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.client.signaldisplay.laf;
+
+
+import static org.junit.Assert.*;
+
+import java.awt.*;
+import java.util.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.client.signaldisplay.model.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link SignalLane}.
+ */
+public class SignalLaneTest
+{
+  // METHODS
+
+  /**
+   * Tests that a digital lane contains a vertical and horizontal line for each
+   * transition.
+   */
+  @Test
+  public void testBuildDigitalOk() throws Exception
+  {
+    final AcquisitionResult data = new CapturedData( new int[] { 0, 1, 0 }, new long[] { 0L, 10L, 20L }, 0L, 100,
+        8, 0xFF, 30L );
+
+    final SignalLane lane = new SignalLane();
+    lane.buildDigital( data, 0, 2, 1.0, 0x01, 10 );
+
+    assertEquals( 5, lane.size() );
+    assertArrayEquals( new int[] { 0, 10, 10, 20, 20 }, Arrays.copyOf( lane.getXPoints(), lane.size() ) );
+    assertArrayEquals( new int[] { 10, 10, 0, 0, 10 }, Arrays.copyOf( lane.getYPoints(), lane.size() ) );
+  }
+
+  /**
+   * Tests that a summarized digital lane yields at most three points per pixel
+   * column, and shows glitches as vertical line.
+   */
+  @Test
+  public void testBuildDigitalSummaryOk() throws Exception
+  {
+    final int size = 1000;
+    final int[] values = new int[size];
+    final long[] timestamps = new long[size];
+    for ( int i = 0; i < size; i++ )
+    {
+      values[i] = i & 1;
+      timestamps[i] = i;
+    }
+
+    final AcquisitionResult data = new CapturedData( values, timestamps, 0L, 100, 8, 0xFF, size );
+    final Rectangle clip = new Rectangle( 0, 0, 10, 10 );
+    final int[] columns = new int[clip.width + 1];
+    for ( int i = 0; i < columns.length; i++ )
+    {
+      columns[i] = i * 100;
+    }
+
+    final SignalLane lane = new SignalLane();
+    lane.buildDigitalSummary( data, new LevelOfDetailIndex( data ), columns, clip, 0x01, 10 );
+
+    assertEquals( ( 3 * clip.width ) + 2, lane.size() );
+    for ( int i = 1; i < lane.size() - 1; i += 3 )
+    {
+      // Each column shows a vertical line spanning both levels...
+      assertEquals( lane.getXPoints()[i], lane.getXPoints()[i + 1] );
+      assertEquals( 10, Math.abs( lane.getYPoints()[i] - lane.getYPoints()[i + 1] ) );
+    }
+  }
+
+  /**
+   * Tests that released lanes are reused.
+   */
+  @Test
+  public void testReleasedLaneIsReusedOk() throws Exception
+  {
+    final SignalLane lane = SignalLane.acquire();
+    lane.release();
+
+    // Other lanes might have been pooled before ours...
+    boolean reused = false;
+    for ( int i = 0; !reused && ( i < 100 ); i++ )
+    {
+      reused = ( SignalLane.acquire() == lane );
+    }
+    assertTrue( reused );
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.client.signaldisplay.laf;
+
+
+import static org.junit.Assert.*;
+
+import java.awt.image.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.client.signaldisplay.laf.SignalTileCache.Tile;
+import nl.lxtreme.ols.client.signaldisplay.laf.SignalTileCache.TileRenderer;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link SignalTileCache}.
+ */
+public class SignalTileCacheTest
+{
+  // CONSTANTS
+
+  private static final int TILE_BYTES = 4 * SignalTileCache.TILE_SIZE * SignalTileCache.TILE_SIZE;
+
+  // VARIABLES
+
+  private SignalTileCache cache;
+  private TileRenderer renderer;
+
+  // METHODS
+
+  /**
+   * Sets up the cache, which can hold at most two tiles.
+   */
+  @Before
+  public void setUp()
+  {
+    this.cache = new SignalTileCache( 2L * TILE_BYTES, 2 );
+    this.renderer = new TileRenderer()
+    {
+      @Override
+      public BufferedImage render( final Tile aTile )
+      {
+        return new BufferedImage( SignalTileCache.TILE_SIZE, SignalTileCache.TILE_SIZE, BufferedImage.TYPE_INT_RGB );
+      }
+    };
+  }
+
+  /**
+   * Tears down the cache.
+   */
+  @After
+  public void tearDown()
+  {
+    this.cache.dispose();
+  }
+
+  /**
+   * Tests that invalidating the cache discards all cached tiles.
+   */
+  @Test
+  public void testInvalidateDiscardsTilesOk() throws Exception
+  {
+    final Tile tile = new Tile( 1.0, 0, 0 );
+    render( tile );
+
+    assertNotNull( this.cache.get( tile ) );
+
+    this.cache.invalidate();
+
+    assertNull( this.cache.get( tile ) );
+  }
+
+  /**
+   * Tests that the least recently used tile is evicted when the memory bound
+   * is exceeded.
+   */
+  @Test
+  public void testLeastRecentlyUsedTileIsEvictedOk() throws Exception
+  {
+    final Tile tile1 = new Tile( 1.0, 0, 0 );
+    final Tile tile2 = new Tile( 1.0, 1, 0 );
+    final Tile tile3 = new Tile( 2.0, 0, 0 );
+
+    render( tile1 );
+    render( tile2 );
+
+    // Make tile2 the least recently used one...
+    assertNotNull( this.cache.get( tile1 ) );
+
+    render( tile3 );
+
+    assertNotNull( this.cache.get( tile1 ) );
+    assertNull( this.cache.get( tile2 ) );
+    assertNotNull( this.cache.get( tile3 ) );
+  }
+
+  /**
+   * Renders the given tile and waits until it is cached.
+   */
+  private void render( final Tile aTile ) throws InterruptedException
+  {
+    final CountDownLatch latch = new CountDownLatch( 1 );
+    this.cache.render( aTile, this.renderer, new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        latch.countDown();
+      }
+    } );
+
+    assertTrue( latch.await( 5, TimeUnit.SECONDS ) );
+
+    // Make sure our pending administration is up-to-date as well...
+    this.cache.await( Collections.singleton( aTile ), 5000L );
+  }
+}
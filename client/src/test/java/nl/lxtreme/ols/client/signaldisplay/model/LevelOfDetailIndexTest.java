@@ -0,0 +1,132 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, <http://www.lxtreme.nl>
+ */
+package nl.lxtreme.ols.client.signaldisplay.model;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link LevelOfDetailIndex}.
+ */
+public class LevelOfDetailIndexTest
+{
+  // VARIABLES
+
+  private AcquisitionResult data;
+  private LevelOfDetailIndex index;
+
+  // METHODS
+
+  /**
+   * Sets up the test data, spanning several levels of the index.
+   */
+  @Before
+  public void setUp()
+  {
+    final Random rnd = new Random( 1234L );
+
+    final int size = ( LevelOfDetailIndex.FAN_OUT * LevelOfDetailIndex.FAN_OUT * 3 ) + 11;
+    final int[] values = new int[size];
+    final long[] timestamps = new long[size];
+    for ( int i = 0; i < size; i++ )
+    {
+      values[i] = rnd.nextInt();
+      timestamps[i] = i;
+    }
+
+    this.data = new CapturedData( values, timestamps, 0L, 100, 32, ~0, size );
+    this.index = new LevelOfDetailIndex( this.data );
+  }
+
+  /**
+   * Tests that the bit summary of arbitrary ranges equals the brute-force
+   * summary.
+   */
+  @Test
+  public void testBitSummaryOk()
+  {
+    final Random rnd = new Random( 4321L );
+    final int count = this.data.getSampleCount();
+    final int[] result = new int[2];
+
+    for ( int i = 0; i < 1000; i++ )
+    {
+      final int from = rnd.nextInt( count );
+      final int to = from + 1 + rnd.nextInt( count - from );
+
+      int or = 0;
+      int and = ~0;
+      for ( int j = from; j < to; j++ )
+      {
+        or |= this.data.getValue( j );
+        and &= this.data.getValue( j );
+      }
+
+      this.index.getBitSummary( from, to, result );
+
+      assertEquals( or, result[0] );
+      assertEquals( and, result[1] );
+    }
+  }
+
+  /**
+   * Tests that the minimum and maximum of arbitrary ranges equals the
+   * brute-force minimum and maximum, using unsigned comparison.
+   */
+  @Test
+  public void testMinMaxOk()
+  {
+    final Random rnd = new Random( 4321L );
+    final int count = this.data.getSampleCount();
+    final int[] result = new int[2];
+
+    for ( int mask : new int[] { 0xFF00, ~0 } )
+    {
+      for ( int i = 0; i < 1000; i++ )
+      {
+        final int from = rnd.nextInt( count );
+        final int to = from + 1 + rnd.nextInt( count - from );
+
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for ( int j = from; j < to; j++ )
+        {
+          final long value = ( this.data.getValue( j ) & mask ) & 0xFFFFFFFFL;
+          min = Math.min( min, value );
+          max = Math.max( max, value );
+        }
+
+        this.index.getMinMax( mask, from, to, result );
+
+        assertEquals( min, result[0] & 0xFFFFFFFFL );
+        assertEquals( max, result[1] & 0xFFFFFFFFL );
+      }
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.device.generic;
+
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+
+
+/**
+ * Reads the bytes of a channel one at a time, through a fixed-size buffer
+ * that is refilled in chunks.
+ * <p>
+ * Each time the buffer is refilled, the progress is reported and the current
+ * thread is checked for being interrupted. This allows files of any size to be
+ * read with a bounded amount of memory.
+ * </p>
+ * <p>
+ * This class is <b>not</b> thread-safe.
+ * </p>
+ */
+final class ChunkedByteReader
+{
+  // CONSTANTS
+
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  // VARIABLES
+
+  private final ReadableByteChannel channel;
+  private final long size;
+  private final AcquisitionProgressListener progressListener;
+  private final ByteBuffer buffer;
+  private final byte[] bytes;
+
+  private int position;
+  private int limit;
+  private long bytesRead;
+  private int lastProgress;
+  private boolean eof;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new ChunkedByteReader instance.
+   *
+   * @param aChannel
+   *          the channel to read from, cannot be <code>null</code>;
+   * @param aSize
+   *          the total number of bytes to read, used to report the progress, or
+   *          a value &lt;= 0 if unknown;
+   * @param aProgressListener
+   *          the listener to report the progress to, cannot be
+   *          <code>null</code>.
+   */
+  ChunkedByteReader( final ReadableByteChannel aChannel, final long aSize,
+      final AcquisitionProgressListener aProgressListener )
+  {
+    this.channel = aChannel;
+    this.size = aSize;
+    this.progressListener = aProgressListener;
+
+    this.buffer = ByteBuffer.allocate( BUFFER_SIZE );
+    this.bytes = this.buffer.array();
+    this.lastProgress = -1;
+  }
+
+  // METHODS
+
+  /**
+   * Reads the next byte.
+   *
+   * @return the next byte, &gt;= 0 &amp;&amp; &lt; 256, or -1 if the end of
+   *         the channel is reached.
+   * @throws IOException
+   *           in case of I/O problems, or in case the current thread is
+   *           interrupted.
+   */
+  int read() throws IOException
+  {
+    if ( ( this.position == this.limit ) && !fill() )
+    {
+      return -1;
+    }
+    return this.bytes[this.position++] & 0xFF;
+  }
+
+  /**
+   * Refills the buffer with the next chunk of bytes.
+   *
+   * @return <code>true</code> if at least one byte is read, <code>false</code>
+   *         if the end of the channel is reached.
+   */
+  private boolean fill() throws IOException
+  {
+    if ( this.eof )
+    {
+      return false;
+    }
+    if ( Thread.currentThread().isInterrupted() )
+    {
+      throw new InterruptedIOException( "Reading data interrupted!" );
+    }
+
+    this.buffer.clear();
+    int count;
+    do
+    {
+      count = this.channel.read( this.buffer );
+    }
+    while ( count == 0 );
+
+    if ( count < 0 )
+    {
+      this.eof = true;
+      this.position = this.limit = 0;
+      return false;
+    }
+
+    this.position = 0;
+    this.limit = count;
+    this.bytesRead += count;
+
+    if ( this.size > 0L )
+    {
+      final int progress = ( int )Math.min( 100L, ( this.bytesRead * 100L ) / this.size );
+      if ( progress != this.lastProgress )
+      {
+        this.progressListener.acquisitionInProgress( progress );
+        this.lastProgress = progress;
+      }
+    }
+    return true;
+  }
+}
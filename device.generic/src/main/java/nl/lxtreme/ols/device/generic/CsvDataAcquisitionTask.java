@@ -0,0 +1,87 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.device.generic;
+
+
+import java.io.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.devices.*;
+import nl.lxtreme.ols.util.*;
+
+
+/**
+ * Provides a generic acquisition task that can read comma-separated (CSV)
+ * sample data from any file-based source.
+ */
+public final class CsvDataAcquisitionTask implements AcquisitionTask
+{
+  // VARIABLES
+
+  private final AcquisitionProgressListener progressListener;
+  private final GenericDeviceConfigDialog deviceConfig;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new CsvDataAcquisitionTask instance.
+   *
+   * @param aDeviceConfig
+   *          the device configuration to use;
+   * @param aProgressListener
+   *          the listener to report the progress to.
+   */
+  public CsvDataAcquisitionTask( final GenericDeviceConfigDialog aDeviceConfig,
+      final AcquisitionProgressListener aProgressListener )
+  {
+    this.deviceConfig = aDeviceConfig;
+    this.progressListener = aProgressListener;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public AcquisitionResult call() throws IOException
+  {
+    FileInputStream stream = null;
+
+    try
+    {
+      this.progressListener.acquisitionInProgress( 0 );
+
+      final File file = new File( this.deviceConfig.getDevicePath() );
+      stream = new FileInputStream( file );
+
+      AcquisitionResult result = new CsvDataReader( stream.getChannel(), file.length(), this.progressListener ).read();
+
+      this.progressListener.acquisitionInProgress( 100 );
+
+      return result;
+    }
+    finally
+    {
+      HostUtils.closeResource( stream );
+    }
+  }
+}
@@ -0,0 +1,701 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.device.generic;
+
+
+import java.io.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.logging.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+
+
+/**
+ * Provides a single-pass reader for comma-separated sample data, such as the
+ * CSV files written by oscilloscopes, logic analyzers and the CSV exporter.
+ * <p>
+ * Each row holds a sample: the first column holds its time, the other columns
+ * hold the channel values. A channel is high if its value is a non-zero
+ * number. Columns can be separated by commas, semicolons or tabs, whichever
+ * occurs first in the first row. The rows are parsed directly into a
+ * {@link TransitionBuffer}, without creating any intermediary strings.
+ * </p>
+ * <p>
+ * The first row can be a header row, naming the columns. Channel columns whose
+ * names end with distinct channel numbers, like <tt>Ch.3</tt> or <tt>D3</tt>,
+ * are mapped onto those channels, otherwise the channels are numbered from
+ * left to right. The <tt>timestamp (rel)</tt> and <tt>sample rate (Hz)</tt>
+ * columns, as written by the CSV exporter, are used to determine the trigger
+ * position and sample rate.
+ * </p>
+ * <p>
+ * Data written by the CSV exporter is recognized by its <tt>timestamp
+ * (abs)</tt> or <tt>state (abs)</tt> column. As the exporter lists its
+ * channels MSB first, unnumbered channel columns of such data are numbered
+ * from right to left. A <tt>value (hex)</tt> column, as written by the
+ * exporter in its packed format, holds all channels as a single hexadecimal
+ * value, with four channels per digit.
+ * </p>
+ * <p>
+ * Times are either 64-bit sample numbers, or times in seconds. The latter
+ * applies if the first time has a fraction or exponent, or its column name
+ * ends with <tt>[s]</tt> or <tt>(s)</tt>. Times in seconds are mapped onto
+ * timestamps with a resolution of one nanosecond; samples that fall within the
+ * same nanosecond are merged, retaining the last value. Negative times, as
+ * written by oscilloscopes for samples before the trigger, are shifted to
+ * start at zero, with the trigger at time zero.
+ * </p>
+ * <p>
+ * Lines longer than {@value #MAX_LINE_LENGTH} characters are rejected.
+ * </p>
+ * <p>
+ * This class is <b>not</b> thread-safe, and a single instance should only be
+ * used to read a single CSV file.
+ * </p>
+ */
+final class CsvDataReader
+{
+  // CONSTANTS
+
+  private static final Logger LOG = Logger.getLogger( CsvDataReader.class.getName() );
+
+  /** The sample rate used for times in seconds. */
+  static final int NANOS_PER_SECOND = 1000000000;
+
+  /** The maximum length of a single line, in characters. */
+  static final int MAX_LINE_LENGTH = 64 * 1024;
+
+  private static final int MAX_MANTISSA_DIGITS = 18;
+
+  // VARIABLES
+
+  private final ChunkedByteReader reader;
+
+  private byte[] line;
+  private int lineLength;
+  private int lineNumber;
+  private int[] fieldStarts;
+  private int[] fieldEnds;
+  private int fieldCount;
+  private byte separator;
+
+  private int relColumn;
+  private int rateColumn;
+  private int hexColumn;
+  /** whether the data is written by the CSV exporter. */
+  private boolean exported;
+  /** The channel of each column, or -1 if the column is not a channel. */
+  private int[] columnChannels;
+  private boolean seconds;
+
+  private long mantissa;
+  private int exponent;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new CsvDataReader instance.
+   *
+   * @param aChannel
+   *          the channel to read the CSV data from, cannot be
+   *          <code>null</code>;
+   * @param aSize
+   *          the size of the CSV data, in bytes, or a value &lt;= 0 if
+   *          unknown;
+   * @param aProgressListener
+   *          the listener to report the progress to, cannot be
+   *          <code>null</code>.
+   */
+  CsvDataReader( final ReadableByteChannel aChannel, final long aSize,
+      final AcquisitionProgressListener aProgressListener )
+  {
+    this.reader = new ChunkedByteReader( aChannel, aSize, aProgressListener );
+    this.line = new byte[256];
+    this.fieldStarts = new int[16];
+    this.fieldEnds = new int[16];
+    this.relColumn = -1;
+    this.rateColumn = -1;
+    this.hexColumn = -1;
+  }
+
+  // METHODS
+
+  /**
+   * Reads all CSV data.
+   *
+   * @return the read acquisition result, never <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems, or in case the CSV data is invalid.
+   */
+  AcquisitionResult read() throws IOException
+  {
+    if ( LOG.isLoggable( Level.INFO ) )
+    {
+      LOG.info( "Parsing CSV data from stream..." );
+    }
+
+    if ( !nextLine() )
+    {
+      throw new IOException( "Invalid CSV data: no samples found!" );
+    }
+    this.separator = findSeparator();
+    splitLine();
+
+    if ( !parseNumber( 0 ) )
+    {
+      readHeader();
+      if ( !nextLine() )
+      {
+        throw new IOException( "Invalid CSV data: no samples found!" );
+      }
+      splitLine();
+    }
+    else
+    {
+      numberColumns( null );
+    }
+
+    int channelCount = 0;
+    int enabledChannels = 0;
+    if ( this.hexColumn >= 0 )
+    {
+      checkColumnCount();
+
+      // Each hexadecimal digit holds four channels...
+      final int digits = this.fieldEnds[this.hexColumn] - this.fieldStarts[this.hexColumn];
+      channelCount = Math.min( Ols.MAX_CHANNELS, 4 * digits );
+      enabledChannels = ( channelCount >= 32 ) ? ~0 : ( ( 1 << channelCount ) - 1 );
+    }
+    for ( int channel : this.columnChannels )
+    {
+      if ( channel >= 0 )
+      {
+        channelCount = Math.max( channelCount, channel + 1 );
+        enabledChannels |= ( 1 << channel );
+      }
+    }
+    if ( channelCount == 0 )
+    {
+      throw new IOException( "Invalid CSV data: no channel columns found!" );
+    }
+
+    if ( !this.seconds )
+    {
+      this.seconds = hasFractionOrExponent( 0 );
+    }
+
+    // The first sample determines the offset, trigger position and rate...
+    final long firstTime = parseTime( 0 );
+    final long offset = ( firstTime < 0L ) ? -firstTime : 0L;
+
+    long triggerPos = ( firstTime < 0L ) ? offset : Ols.NOT_AVAILABLE;
+    if ( this.relColumn >= 0 )
+    {
+      triggerPos = firstTime - parseTime( this.relColumn ) + offset;
+    }
+
+    int rate = this.seconds ? NANOS_PER_SECOND : Ols.NOT_AVAILABLE;
+    if ( this.rateColumn >= 0 )
+    {
+      rate = ( int )Math.min( Integer.MAX_VALUE, parseLong( this.rateColumn, 0 ) );
+    }
+
+    final TransitionBuffer buffer = new TransitionBuffer();
+
+    int value = parseValue();
+    long timestamp = firstTime + offset;
+    while ( nextLine() )
+    {
+      splitLine();
+
+      final long time = parseTime( 0 ) + offset;
+      if ( time < timestamp )
+      {
+        throw new IOException( "Invalid CSV data: time goes backwards at line " + this.lineNumber + "!" );
+      }
+      else if ( time > timestamp )
+      {
+        buffer.add( value, timestamp );
+        timestamp = time;
+      }
+      value = parseValue();
+    }
+    buffer.add( value, timestamp );
+
+    return buffer.createCapturedData( triggerPos, rate, channelCount, enabledChannels, -1L );
+  }
+
+  /**
+   * Verifies that the current line has all columns.
+   */
+  private void checkColumnCount() throws IOException
+  {
+    if ( this.fieldCount < this.columnChannels.length )
+    {
+      throw new IOException( "Invalid CSV data: missing column(s) at line " + this.lineNumber + "!" );
+    }
+  }
+
+  /**
+   * Determines the column separator from the current line.
+   */
+  private byte findSeparator()
+  {
+    boolean quoted = false;
+    for ( int i = 0; i < this.lineLength; i++ )
+    {
+      final byte c = this.line[i];
+      if ( c == '"' )
+      {
+        quoted = !quoted;
+      }
+      else if ( !quoted && ( ( c == ',' ) || ( c == ';' ) || ( c == '\t' ) ) )
+      {
+        return c;
+      }
+    }
+    return ',';
+  }
+
+  /**
+   * Returns the given field of the current line as string.
+   */
+  private String getField( final int aField )
+  {
+    final int start = this.fieldStarts[aField];
+    final char[] chars = new char[this.fieldEnds[aField] - start];
+    for ( int i = 0; i < chars.length; i++ )
+    {
+      chars[i] = ( char )( this.line[start + i] & 0xFF );
+    }
+    return new String( chars );
+  }
+
+  /**
+   * Returns whether the given field holds a number with a fraction or
+   * exponent.
+   */
+  private boolean hasFractionOrExponent( final int aField )
+  {
+    for ( int i = this.fieldStarts[aField]; i < this.fieldEnds[aField]; i++ )
+    {
+      final byte c = this.line[i];
+      if ( ( c == '.' ) || ( c == 'e' ) || ( c == 'E' ) )
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns whether the given column (other than the time column) holds a
+   * channel value.
+   */
+  private boolean isChannelColumn( final int aColumn )
+  {
+    return ( aColumn != this.relColumn ) && ( aColumn != this.rateColumn ) && ( aColumn != this.hexColumn );
+  }
+
+  /**
+   * Returns whether the given field of the current line holds a non-zero
+   * number, that is, has a non-zero digit before its exponent (if any).
+   */
+  private boolean isNonZero( final int aField )
+  {
+    for ( int i = this.fieldStarts[aField]; i < this.fieldEnds[aField]; i++ )
+    {
+      final byte c = this.line[i];
+      if ( ( c >= '1' ) && ( c <= '9' ) )
+      {
+        return true;
+      }
+      if ( ( c == 'e' ) || ( c == 'E' ) )
+      {
+        break;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Reads the next non-empty line.
+   *
+   * @return <code>true</code> if a line is read, <code>false</code> if the end
+   *         of the data is reached.
+   */
+  private boolean nextLine() throws IOException
+  {
+    int c = this.reader.read();
+    while ( ( c == '\r' ) || ( c == '\n' ) )
+    {
+      if ( c == '\n' )
+      {
+        this.lineNumber++;
+      }
+      c = this.reader.read();
+    }
+    if ( c < 0 )
+    {
+      return false;
+    }
+
+    this.lineNumber++;
+    this.lineLength = 0;
+    while ( ( c >= 0 ) && ( c != '\n' ) )
+    {
+      if ( c != '\r' )
+      {
+        if ( this.lineLength == this.line.length )
+        {
+          if ( this.lineLength >= MAX_LINE_LENGTH )
+          {
+            throw new IOException( "Invalid CSV data: line " + this.lineNumber + " is longer than "
+                + MAX_LINE_LENGTH + " characters!" );
+          }
+          this.line = Arrays.copyOf( this.line, Math.min( MAX_LINE_LENGTH, 2 * this.line.length ) );
+        }
+        this.line[this.lineLength++] = ( byte )c;
+      }
+      c = this.reader.read();
+    }
+    return true;
+  }
+
+  /**
+   * Assigns channels to all columns except for the time, relative time, sample
+   * rate and hexadecimal value columns.
+   *
+   * @param aHeaders
+   *          the column names, or <code>null</code> if there is no header row.
+   */
+  private void numberColumns( final String[] aHeaders )
+  {
+    this.columnChannels = new int[this.fieldCount];
+    this.columnChannels[0] = -1;
+
+    // Prefer the channel numbers in the column names, if they are usable...
+    int usedChannels = 0;
+    boolean numbered = ( aHeaders != null );
+    for ( int i = 1; numbered && ( i < this.fieldCount ); i++ )
+    {
+      if ( !isChannelColumn( i ) )
+      {
+        this.columnChannels[i] = -1;
+        continue;
+      }
+
+      final String header = aHeaders[i];
+      int idx = header.length();
+      while ( ( idx > 0 ) && Character.isDigit( header.charAt( idx - 1 ) ) )
+      {
+        idx--;
+      }
+      final int channel = ( ( idx < header.length() ) && ( ( header.length() - idx ) <= 2 ) ) ? Integer
+          .parseInt( header.substring( idx ) ) : -1;
+
+      numbered = ( channel >= 0 ) && ( channel < Ols.MAX_CHANNELS ) && ( ( usedChannels & ( 1 << channel ) ) == 0 );
+      usedChannels |= ( 1 << Math.max( 0, channel ) );
+      this.columnChannels[i] = channel;
+    }
+
+    if ( !numbered )
+    {
+      int channel = 0;
+      for ( int j = 1; j < this.fieldCount; j++ )
+      {
+        // The CSV exporter lists its channels MSB first...
+        final int i = this.exported ? ( this.fieldCount - j ) : j;
+        if ( !isChannelColumn( i ) || ( channel >= Ols.MAX_CHANNELS ) )
+        {
+          this.columnChannels[i] = -1;
+        }
+        else
+        {
+          this.columnChannels[i] = channel++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Parses the given field of the current line as hexadecimal number of at
+   * most 32 bits.
+   */
+  private int parseHex( final int aField ) throws IOException
+  {
+    final int start = this.fieldStarts[aField];
+    final int end = this.fieldEnds[aField];
+    if ( ( start == end ) || ( ( end - start ) > 8 ) )
+    {
+      throw new IOException( "Invalid CSV data: hexadecimal value of at most 8 digits expected in column "
+          + ( aField + 1 ) + " at line " + this.lineNumber + "!" );
+    }
+
+    int result = 0;
+    for ( int i = start; i < end; i++ )
+    {
+      final int digit = Character.digit( this.line[i], 16 );
+      if ( digit < 0 )
+      {
+        throw new IOException( "Invalid CSV data: hexadecimal value expected in column " + ( aField + 1 )
+            + " at line " + this.lineNumber + "!" );
+      }
+      result = ( result << 4 ) | digit;
+    }
+    return result;
+  }
+
+  /**
+   * Parses the given field of the current line as 64-bit integer, scaled by
+   * 10 to the power of the given exponent and rounded.
+   */
+  private long parseLong( final int aField, final int aExponent ) throws IOException
+  {
+    if ( ( aField >= this.fieldCount ) || !parseNumber( aField ) )
+    {
+      throw new IOException( "Invalid CSV data: number expected in column " + ( aField + 1 ) + " at line "
+          + this.lineNumber + "!" );
+    }
+
+    long result = this.mantissa;
+    int exp = this.exponent + aExponent;
+    for ( ; exp > 0; exp-- )
+    {
+      if ( Math.abs( result ) > ( Long.MAX_VALUE / 10L ) )
+      {
+        throw new IOException( "Invalid CSV data: number too large in column " + ( aField + 1 ) + " at line "
+            + this.lineNumber + "!" );
+      }
+      result *= 10L;
+    }
+    for ( ; ( exp < 0 ) && ( result != 0L ); exp++ )
+    {
+      // Round half away from zero...
+      final long remainder = result % 10L;
+      result /= 10L;
+      if ( ( exp == -1 ) && ( Math.abs( remainder ) >= 5L ) )
+      {
+        result += Long.signum( remainder );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Parses the given field of the current line as decimal number, with an
+   * optional sign, fraction and exponent.
+   *
+   * @return <code>true</code> if the field is a valid number,
+   *         <code>false</code> otherwise.
+   */
+  private boolean parseNumber( final int aField )
+  {
+    int i = this.fieldStarts[aField];
+    final int end = this.fieldEnds[aField];
+
+    boolean negative = false;
+    if ( ( i < end ) && ( ( this.line[i] == '-' ) || ( this.line[i] == '+' ) ) )
+    {
+      negative = ( this.line[i++] == '-' );
+    }
+
+    long m = 0L;
+    int exp = 0;
+    int digits = 0;
+    int significant = 0;
+    boolean fraction = false;
+    for ( ; i < end; i++ )
+    {
+      final byte c = this.line[i];
+      if ( ( c == '.' ) && !fraction )
+      {
+        fraction = true;
+      }
+      else if ( ( c >= '0' ) && ( c <= '9' ) )
+      {
+        digits++;
+        if ( significant < MAX_MANTISSA_DIGITS )
+        {
+          m = ( m * 10L ) + ( c - '0' );
+          if ( m > 0L )
+          {
+            significant++;
+          }
+          if ( fraction )
+          {
+            exp--;
+          }
+        }
+        else if ( !fraction )
+        {
+          // Drop the digits that do not fit...
+          exp++;
+        }
+      }
+      else
+      {
+        break;
+      }
+    }
+    if ( digits == 0 )
+    {
+      return false;
+    }
+
+    if ( ( i < end ) && ( ( this.line[i] == 'e' ) || ( this.line[i] == 'E' ) ) )
+    {
+      i++;
+      boolean negativeExp = false;
+      if ( ( i < end ) && ( ( this.line[i] == '-' ) || ( this.line[i] == '+' ) ) )
+      {
+        negativeExp = ( this.line[i++] == '-' );
+      }
+      if ( i == end )
+      {
+        return false;
+      }
+      int e = 0;
+      for ( ; ( i < end ) && ( this.line[i] >= '0' ) && ( this.line[i] <= '9' ) && ( e < 1000 ); i++ )
+      {
+        e = ( e * 10 ) + ( this.line[i] - '0' );
+      }
+      exp += negativeExp ? -e : e;
+    }
+
+    this.mantissa = negative ? -m : m;
+    this.exponent = exp;
+    return i == end;
+  }
+
+  /**
+   * Parses the given field of the current line as time.
+   */
+  private long parseTime( final int aField ) throws IOException
+  {
+    return parseLong( aField, this.seconds ? 9 : 0 );
+  }
+
+  /**
+   * Parses the channel values of the current line into a sample value.
+   */
+  private int parseValue() throws IOException
+  {
+    checkColumnCount();
+
+    int result = ( this.hexColumn >= 0 ) ? parseHex( this.hexColumn ) : 0;
+    for ( int i = 1; i < this.columnChannels.length; i++ )
+    {
+      final int channel = this.columnChannels[i];
+      if ( ( channel >= 0 ) && isNonZero( i ) )
+      {
+        result |= ( 1 << channel );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reads the column names from the current line.
+   */
+  private void readHeader()
+  {
+    final String[] headers = new String[this.fieldCount];
+    for ( int i = 0; i < headers.length; i++ )
+    {
+      headers[i] = getField( i ).trim();
+
+      final String header = headers[i].toLowerCase();
+      if ( i == 0 )
+      {
+        this.seconds = header.endsWith( "[s]" ) || header.endsWith( "(s)" );
+        this.exported = header.equals( "timestamp (abs)" ) || header.equals( "state (abs)" );
+      }
+      else if ( header.endsWith( "(rel)" ) )
+      {
+        this.relColumn = i;
+      }
+      else if ( header.startsWith( "sample rate" ) )
+      {
+        this.rateColumn = i;
+      }
+      else if ( header.endsWith( "(hex)" ) )
+      {
+        this.hexColumn = i;
+      }
+    }
+
+    numberColumns( headers );
+  }
+
+  /**
+   * Splits the current line into fields, removing surrounding whitespace and
+   * quotes.
+   */
+  private void splitLine()
+  {
+    this.fieldCount = 0;
+
+    int start = 0;
+    boolean quoted = false;
+    for ( int i = 0; i <= this.lineLength; i++ )
+    {
+      if ( ( i < this.lineLength ) && ( ( this.line[i] != this.separator ) || quoted ) )
+      {
+        if ( this.line[i] == '"' )
+        {
+          quoted = !quoted;
+        }
+        continue;
+      }
+
+      int s = start;
+      int e = i;
+      while ( ( s < e ) && ( this.line[s] <= ' ' ) )
+      {
+        s++;
+      }
+      while ( ( e > s ) && ( this.line[e - 1] <= ' ' ) )
+      {
+        e--;
+      }
+      if ( ( ( e - s ) >= 2 ) && ( this.line[s] == '"' ) && ( this.line[e - 1] == '"' ) )
+      {
+        s++;
+        e--;
+      }
+
+      if ( this.fieldCount == this.fieldStarts.length )
+      {
+        this.fieldStarts = Arrays.copyOf( this.fieldStarts, 2 * this.fieldCount );
+        this.fieldEnds = Arrays.copyOf( this.fieldEnds, 2 * this.fieldCount );
+      }
+      this.fieldStarts[this.fieldCount] = s;
+      this.fieldEnds[this.fieldCount] = e;
+      this.fieldCount++;
+
+      start = i + 1;
+    }
+  }
+}
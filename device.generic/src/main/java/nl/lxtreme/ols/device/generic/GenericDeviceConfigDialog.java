@@ -45,7 +45,7 @@ public class GenericDeviceConfigDialog extends JDialog implements Configurable,
 {
   // CONSTANTS
 
-  public static final String[] DATA_FORMATS = { "Raw", "OLS data format" };
+  public static final String[] DATA_FORMATS = { "Raw", "OLS data format", "Value change dump", "CSV" };
 
   private static final String DEFAULT_DATA_FORMAT = DATA_FORMATS[0];
 
@@ -71,9 +71,10 @@ public final class OlsDataAcquisitionTask implements AcquisitionTask
     {
       this.progressListener.acquisitionInProgress( 0 );
 
-      reader = new FileReader( this.deviceConfig.getDevicePath() );
+      final File file = new File( this.deviceConfig.getDevicePath() );
+      reader = new FileReader( file );
 
-      AcquisitionResult result = OlsDataHelper.read( reader );
+      AcquisitionResult result = OlsDataHelper.read( reader, file.length() );
 
       this.progressListener.acquisitionInProgress( 100 );
 
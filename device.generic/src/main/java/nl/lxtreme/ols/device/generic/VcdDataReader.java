@@ -0,0 +1,620 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.device.generic;
+
+
+import java.io.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.logging.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+
+
+/**
+ * Provides a single-pass reader for value change dumps (VCD), as written by
+ * most HDL simulators.
+ * <p>
+ * The value changes are parsed directly into a {@link TransitionBuffer},
+ * without expanding them to individual samples. Each bit of each declared
+ * variable is mapped onto its own channel, in the order of declaration, up to
+ * {@link Ols#MAX_CHANNELS} channels. Unknown and high-impedance values are
+ * read as zero, real variables are ignored.
+ * </p>
+ * <p>
+ * VCD times are 64-bit values in units of the declared timescale. Timescales
+ * of 1 ns or more are mapped one-to-one onto timestamps, with a sample rate of
+ * one sample per time unit. Smaller timescales are mapped onto a sample rate
+ * of {@value #MAX_SAMPLE_RATE} Hz; value changes that fall within the same
+ * nanosecond are merged, retaining the last value.
+ * </p>
+ * <p>
+ * This class is <b>not</b> thread-safe, and a single instance should only be
+ * used to read a single value change dump.
+ * </p>
+ */
+final class VcdDataReader
+{
+  // CONSTANTS
+
+  private static final Logger LOG = Logger.getLogger( VcdDataReader.class.getName() );
+
+  /** The highest sample rate used, 1 GHz, as sample rates are integers. */
+  static final int MAX_SAMPLE_RATE = 1000000000;
+
+  /** The longest token accepted, which limits vectors to 1023 bits. */
+  static final int MAX_TOKEN_LENGTH = 1024;
+
+  /** The first and last printable ASCII character, as used by identifiers. */
+  private static final int FIRST_ID_CHAR = '!';
+  private static final int LAST_ID_CHAR = '~';
+
+  private static final String[] TIME_UNITS = { "s", "ms", "us", "ns", "ps", "fs" };
+
+  // VARIABLES
+
+  private final ChunkedByteReader reader;
+  private final byte[] token;
+  /** The bits of the vector value currently being read. */
+  private final byte[] vector;
+  /** The channels of each variable with a single-character identifier. */
+  private final int[][] shortIds;
+  /** The channels of each variable with a longer identifier. */
+  private final Map<String, int[]> longIds;
+
+  private int tokenLength;
+  private int channelCount;
+  private int rate;
+  private long multiplier;
+  private long divisor;
+
+  private TransitionBuffer buffer;
+  private int value;
+  private long timestamp;
+  private boolean timeSet;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new VcdDataReader instance.
+   *
+   * @param aChannel
+   *          the channel to read the value change dump from, cannot be
+   *          <code>null</code>;
+   * @param aSize
+   *          the size of the value change dump, in bytes, or a value &lt;= 0
+   *          if unknown;
+   * @param aProgressListener
+   *          the listener to report the progress to, cannot be
+   *          <code>null</code>.
+   */
+  VcdDataReader( final ReadableByteChannel aChannel, final long aSize,
+      final AcquisitionProgressListener aProgressListener )
+  {
+    this.reader = new ChunkedByteReader( aChannel, aSize, aProgressListener );
+    this.token = new byte[MAX_TOKEN_LENGTH];
+    this.vector = new byte[MAX_TOKEN_LENGTH];
+    this.shortIds = new int[LAST_ID_CHAR - FIRST_ID_CHAR + 1][];
+    this.longIds = new HashMap<String, int[]>();
+
+    // Without a timescale declaration, assume 1 ns...
+    setTimescale( 1, -9 );
+  }
+
+  // METHODS
+
+  /**
+   * Reads the complete value change dump.
+   *
+   * @return the read acquisition result, never <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems, or in case the value change dump is
+   *           invalid.
+   */
+  AcquisitionResult read() throws IOException
+  {
+    if ( LOG.isLoggable( Level.INFO ) )
+    {
+      LOG.info( "Parsing value change dump from stream..." );
+    }
+
+    readDeclarations();
+    if ( this.channelCount == 0 )
+    {
+      throw new IOException( "Invalid value change dump: no variables declared!" );
+    }
+
+    this.buffer = new TransitionBuffer();
+    readValueChanges();
+    this.buffer.add( this.value, this.timestamp );
+
+    final int enabledChannels = ( int )( ( 1L << this.channelCount ) - 1 );
+    return this.buffer.createCapturedData( Ols.NOT_AVAILABLE, this.rate, this.channelCount, enabledChannels, -1L );
+  }
+
+  /**
+   * Allocates the channels for a declared variable.
+   */
+  private void declareVariable( final String aId, final int aSize )
+  {
+    if ( ( aSize <= 0 ) || ( getChannels( aId ) != null ) )
+    {
+      // Real variable, or an alias of an already declared variable...
+      return;
+    }
+
+    final int count = Math.min( aSize, Ols.MAX_CHANNELS - this.channelCount );
+    if ( count < aSize )
+    {
+      LOG.log( Level.WARNING, "Ignoring {0} bit(s) of variable {1}: too many channels!", new Object[] {
+          Integer.valueOf( aSize - count ), aId } );
+    }
+    if ( count == 0 )
+    {
+      return;
+    }
+
+    final int[] channels = new int[count];
+    for ( int i = 0; i < count; i++ )
+    {
+      channels[i] = this.channelCount++;
+    }
+
+    if ( isShortId( aId ) )
+    {
+      this.shortIds[aId.charAt( 0 ) - FIRST_ID_CHAR] = channels;
+    }
+    else
+    {
+      this.longIds.put( aId, channels );
+    }
+  }
+
+  /**
+   * Returns the channels of the variable with the given identifier.
+   *
+   * @return the channels of the variable, least significant bit first, or
+   *         <code>null</code> if the variable is not declared.
+   */
+  private int[] getChannels( final String aId )
+  {
+    if ( isShortId( aId ) )
+    {
+      return this.shortIds[aId.charAt( 0 ) - FIRST_ID_CHAR];
+    }
+    return this.longIds.get( aId );
+  }
+
+  /**
+   * Returns the channels of the variable whose identifier is in the current
+   * token, starting at the given offset.
+   */
+  private int[] getChannels( final int aOffset )
+  {
+    if ( ( this.tokenLength - aOffset ) == 1 )
+    {
+      final int c = this.token[aOffset];
+      if ( ( c >= FIRST_ID_CHAR ) && ( c <= LAST_ID_CHAR ) )
+      {
+        return this.shortIds[c - FIRST_ID_CHAR];
+      }
+    }
+    // Longer identifiers, and single non-ASCII characters...
+    return this.longIds.get( getToken( aOffset ) );
+  }
+
+  /**
+   * Returns the current token as string.
+   */
+  private String getToken( final int aOffset )
+  {
+    final char[] chars = new char[this.tokenLength - aOffset];
+    for ( int i = 0; i < chars.length; i++ )
+    {
+      chars[i] = ( char )this.token[aOffset + i];
+    }
+    return new String( chars );
+  }
+
+  /**
+   * Returns whether the given identifier is a single printable ASCII
+   * character, whose channels are kept in {@link #shortIds}.
+   */
+  private static boolean isShortId( final String aId )
+  {
+    if ( aId.length() != 1 )
+    {
+      return false;
+    }
+    final int c = aId.charAt( 0 );
+    return ( c >= FIRST_ID_CHAR ) && ( c <= LAST_ID_CHAR );
+  }
+
+  /**
+   * Reads the next whitespace-separated token.
+   *
+   * @return <code>true</code> if a token is read, <code>false</code> if the
+   *         end of the dump is reached.
+   * @throws IOException
+   *           in case the token is longer than {@value #MAX_TOKEN_LENGTH}
+   *           characters, as it cannot be interpreted correctly.
+   */
+  private boolean nextToken() throws IOException
+  {
+    return nextToken( false /* aTruncate */);
+  }
+
+  /**
+   * Reads the next whitespace-separated token.
+   *
+   * @param aTruncate
+   *          <code>true</code> to truncate tokens longer than
+   *          {@value #MAX_TOKEN_LENGTH} characters, <code>false</code> to
+   *          reject them.
+   * @return <code>true</code> if a token is read, <code>false</code> if the
+   *         end of the dump is reached.
+   */
+  private boolean nextToken( final boolean aTruncate ) throws IOException
+  {
+    int c;
+    do
+    {
+      c = this.reader.read();
+    }
+    while ( ( c >= 0 ) && ( c <= ' ' ) );
+
+    this.tokenLength = 0;
+    while ( c > ' ' )
+    {
+      if ( this.tokenLength < MAX_TOKEN_LENGTH )
+      {
+        this.token[this.tokenLength++] = ( byte )c;
+      }
+      else if ( !aTruncate )
+      {
+        // Truncating a vector value would silently drop its low-order bits...
+        throw new IOException( "Invalid value change dump: token longer than " + MAX_TOKEN_LENGTH + " characters!" );
+      }
+      c = this.reader.read();
+    }
+    return this.tokenLength > 0;
+  }
+
+  /**
+   * Reads the next token, which should be present.
+   */
+  private void nextTokenRequired() throws IOException
+  {
+    if ( !nextToken() )
+    {
+      throw new EOFException( "Invalid value change dump: unexpected end of data!" );
+    }
+  }
+
+  /**
+   * Parses the current token as 64-bit decimal number.
+   */
+  private long parseLong( final int aOffset ) throws IOException
+  {
+    if ( aOffset >= this.tokenLength )
+    {
+      throw new IOException( "Invalid value change dump: number expected!" );
+    }
+
+    long result = 0L;
+    for ( int i = aOffset; i < this.tokenLength; i++ )
+    {
+      final int digit = this.token[i] - '0';
+      if ( ( digit < 0 ) || ( digit > 9 ) )
+      {
+        throw new IOException( "Invalid value change dump: invalid number '" + getToken( aOffset ) + "'!" );
+      }
+      if ( result > ( ( Long.MAX_VALUE - digit ) / 10L ) )
+      {
+        throw new IOException( "Invalid value change dump: number too large '" + getToken( aOffset ) + "'!" );
+      }
+      result = ( result * 10L ) + digit;
+    }
+    return result;
+  }
+
+  /**
+   * Returns 10 to the power of the given exponent.
+   */
+  private static long pow10( final int aExponent )
+  {
+    long result = 1L;
+    for ( int i = 0; i < aExponent; i++ )
+    {
+      result *= 10L;
+    }
+    return result;
+  }
+
+  /**
+   * Reads all declarations, up to and including the
+   * <tt>$enddefinitions</tt> keyword.
+   */
+  private void readDeclarations() throws IOException
+  {
+    while ( nextToken() )
+    {
+      if ( tokenEquals( "$enddefinitions" ) )
+      {
+        skipToEnd();
+        return;
+      }
+      else if ( tokenEquals( "$timescale" ) )
+      {
+        readTimescale();
+      }
+      else if ( tokenEquals( "$var" ) )
+      {
+        readVariable();
+      }
+      else if ( this.token[0] == '$' )
+      {
+        // $scope, $upscope, $comment, $date, $version...
+        skipToEnd();
+      }
+      else
+      {
+        throw new IOException( "Invalid value change dump: unexpected '" + getToken( 0 ) + "'!" );
+      }
+    }
+    throw new EOFException( "Invalid value change dump: missing $enddefinitions!" );
+  }
+
+  /**
+   * Reads a timescale declaration, of the form <tt>1 ns</tt> or <tt>1ns</tt>.
+   */
+  private void readTimescale() throws IOException
+  {
+    nextTokenRequired();
+
+    final StringBuilder sb = new StringBuilder( getToken( 0 ) );
+    while ( nextToken() && !tokenEquals( "$end" ) )
+    {
+      sb.append( getToken( 0 ) );
+    }
+
+    final String timescale = sb.toString();
+    int idx = 0;
+    while ( ( idx < timescale.length() ) && Character.isDigit( timescale.charAt( idx ) ) )
+    {
+      idx++;
+    }
+
+    final int factor = ( idx > 0 ) ? Integer.parseInt( timescale.substring( 0, idx ) ) : -1;
+    final int unit = Arrays.asList( TIME_UNITS ).indexOf( timescale.substring( idx ) );
+    if ( ( ( factor != 1 ) && ( factor != 10 ) && ( factor != 100 ) ) || ( unit < 0 ) )
+    {
+      throw new IOException( "Invalid value change dump: unsupported timescale '" + timescale + "'!" );
+    }
+
+    setTimescale( factor, -3 * unit );
+  }
+
+  /**
+   * Reads all value changes, up to the end of the dump.
+   */
+  private void readValueChanges() throws IOException
+  {
+    while ( nextToken() )
+    {
+      final byte type = this.token[0];
+      switch ( type )
+      {
+        case '#':
+          setTime( parseLong( 1 ) );
+          break;
+
+        case '0':
+        case '1':
+        case 'x':
+        case 'X':
+        case 'z':
+        case 'Z':
+          final int[] channels = getChannels( 1 );
+          if ( channels != null )
+          {
+            setBit( channels[0], type == '1' );
+          }
+          break;
+
+        case 'b':
+        case 'B':
+          final int bits = this.tokenLength;
+          System.arraycopy( this.token, 0, this.vector, 0, bits );
+          nextTokenRequired();
+          final int[] vectorChannels = getChannels( 0 );
+          if ( vectorChannels != null )
+          {
+            // Bits are given MSB first, and are zero-extended...
+            for ( int i = 0; i < vectorChannels.length; i++ )
+            {
+              final int idx = bits - 1 - i;
+              setBit( vectorChannels[i], ( idx > 0 ) && ( this.vector[idx] == '1' ) );
+            }
+          }
+          break;
+
+        case 'r':
+        case 'R':
+          // Real values are not supported; skip its identifier...
+          nextTokenRequired();
+          break;
+
+        case '$':
+          // $dumpvars, $dumpall, $dumpon, $dumpoff & $end only enclose value
+          // changes...
+          if ( tokenEquals( "$comment" ) )
+          {
+            skipToEnd();
+          }
+          break;
+
+        default:
+          throw new IOException( "Invalid value change dump: unexpected '" + getToken( 0 ) + "'!" );
+      }
+    }
+  }
+
+  /**
+   * Reads a variable declaration, of the form
+   * <tt>type size identifier reference [range] $end</tt>.
+   */
+  private void readVariable() throws IOException
+  {
+    nextTokenRequired();
+    final boolean real = tokenEquals( "real" );
+    nextTokenRequired();
+    final int size = ( int )Math.min( Integer.MAX_VALUE, parseLong( 0 ) );
+    nextTokenRequired();
+    final String id = getToken( 0 );
+    skipToEnd();
+
+    declareVariable( id, real ? 0 : size );
+  }
+
+  /**
+   * Sets the value of a single channel.
+   *
+   * @param aChannel
+   *          the channel to set;
+   * @param aHigh
+   *          <code>true</code> to set the channel, <code>false</code> to clear
+   *          it.
+   */
+  private void setBit( final int aChannel, final boolean aHigh )
+  {
+    if ( aHigh )
+    {
+      this.value |= ( 1 << aChannel );
+    }
+    else
+    {
+      this.value &= ~( 1 << aChannel );
+    }
+  }
+
+  /**
+   * Sets the current time, adding the value of the previous time to the
+   * transition buffer.
+   *
+   * @param aTime
+   *          the time, in units of the timescale.
+   */
+  private void setTime( final long aTime ) throws IOException
+  {
+    if ( aTime > ( Long.MAX_VALUE / this.multiplier ) )
+    {
+      throw new IOException( "Invalid value change dump: time #" + aTime + " too large!" );
+    }
+    final long time = ( aTime * this.multiplier ) / this.divisor;
+
+    if ( !this.timeSet )
+    {
+      // Value changes before the first time belong to the first time...
+      this.timeSet = true;
+    }
+    else if ( time < this.timestamp )
+    {
+      throw new IOException( "Invalid value change dump: time #" + aTime + " goes backwards!" );
+    }
+    else if ( time > this.timestamp )
+    {
+      this.buffer.add( this.value, this.timestamp );
+    }
+    this.timestamp = time;
+  }
+
+  /**
+   * Sets the timescale to the given factor times 10 to the power of the given
+   * exponent, in seconds.
+   *
+   * @param aFactor
+   *          the timescale factor, either 1, 10 or 100;
+   * @param aExponent
+   *          the exponent of the timescale unit, &lt;= 0.
+   */
+  private void setTimescale( final int aFactor, final int aExponent )
+  {
+    if ( aExponent < -9 )
+    {
+      // Smaller than 1 ns: use the highest sample rate...
+      this.rate = MAX_SAMPLE_RATE;
+      this.multiplier = 1L;
+      this.divisor = pow10( -9 - aExponent ) / aFactor;
+    }
+    else if ( aFactor <= pow10( -aExponent ) )
+    {
+      // One sample per time unit...
+      this.rate = ( int )( pow10( -aExponent ) / aFactor );
+      this.multiplier = 1L;
+      this.divisor = 1L;
+    }
+    else
+    {
+      // 10 s or 100 s: use the lowest sample rate...
+      this.rate = 1;
+      this.multiplier = aFactor;
+      this.divisor = 1L;
+    }
+  }
+
+  /**
+   * Skips all tokens up to and including the next <tt>$end</tt> keyword.
+   */
+  private void skipToEnd() throws IOException
+  {
+    do
+    {
+      // Overly long tokens, such as words in comments, are skipped anyway...
+      if ( !nextToken( true /* aTruncate */) )
+      {
+        throw new EOFException( "Invalid value change dump: unexpected end of data!" );
+      }
+    }
+    while ( !tokenEquals( "$end" ) );
+  }
+
+  /**
+   * Returns whether the current token equals the given keyword.
+   */
+  private boolean tokenEquals( final String aKeyword )
+  {
+    if ( this.tokenLength != aKeyword.length() )
+    {
+      return false;
+    }
+    for ( int i = 0; i < this.tokenLength; i++ )
+    {
+      if ( this.token[i] != aKeyword.charAt( i ) )
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+}
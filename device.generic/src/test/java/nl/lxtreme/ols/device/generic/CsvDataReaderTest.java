@@ -0,0 +1,235 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.device.generic;
+
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.util.*;
+
+import javax.swing.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.export.csv.*;
+import nl.lxtreme.ols.export.csv.CsvExporter.ColumnFormat;
+import nl.lxtreme.ols.test.data.project.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link CsvDataReader}.
+ */
+public class CsvDataReaderTest
+{
+  // CONSTANTS
+
+  private static final int CHANNEL_COUNT = 8;
+  private static final int SAMPLE_RATE = 1000000;
+  private static final long TRIGGER_POSITION = 37L;
+
+  // METHODS
+
+  /**
+   * Tests that the data written by the CSV exporter in its packed hexadecimal
+   * format is read back unchanged.
+   */
+  @Test
+  public void testReadExportedHexRoundTripOk() throws IOException
+  {
+    assertRoundTrip( ColumnFormat.PACKED_HEX, false /* aLabeled */);
+  }
+
+  /**
+   * Tests that the data written by the CSV exporter with one column per
+   * channel is read back unchanged.
+   */
+  @Test
+  public void testReadExportedRoundTripOk() throws IOException
+  {
+    assertRoundTrip( ColumnFormat.PER_CHANNEL, false /* aLabeled */);
+  }
+
+  /**
+   * Tests that the data written by the CSV exporter with labeled channels,
+   * which do not end with a channel number, is read back unchanged.
+   */
+  @Test
+  public void testReadExportedWithLabelsRoundTripOk() throws IOException
+  {
+    assertRoundTrip( ColumnFormat.PER_CHANNEL, true /* aLabeled */);
+  }
+
+  /**
+   * Tests that an invalid hexadecimal value is rejected.
+   */
+  @Test( expected = IOException.class )
+  public void testReadInvalidHexValueFail() throws IOException
+  {
+    read( "\"timestamp (abs)\",\"value (hex)\"\n0,1F\n1,XZ\n" );
+  }
+
+  /**
+   * Tests that a line exceeding the maximum line length is rejected, rather
+   * than read into an ever growing buffer.
+   */
+  @Test( expected = IOException.class )
+  public void testReadTooLongLineFail() throws IOException
+  {
+    final StringBuilder sb = new StringBuilder( "time,a\n0,1\n1," );
+    while ( sb.length() < ( 2 * CsvDataReader.MAX_LINE_LENGTH ) )
+    {
+      sb.append( '0' );
+    }
+    read( sb.append( '\n' ).toString() );
+  }
+
+  /**
+   * Tests that the data written by the CSV exporter is read correctly,
+   * including its trigger position, sample rate and channel order.
+   */
+  @Test
+  public void testReadExportedDataOk() throws IOException
+  {
+    final AcquisitionResult result = read( "\"timestamp (abs)\",\"timestamp (rel)\",\"sample rate (Hz)\","
+        + "\"Ch.3\",\"Ch.2\",\"Ch.1\",\"Ch.0\"\n0,-5,100000,0,0,0,1\n3,-2,100000,0,0,1,1\n"
+        + "7,2,100000,1,0,0,0\n" );
+
+    assertEquals( 100000, result.getSampleRate() );
+    assertEquals( 5L, result.getTriggerPosition() );
+    assertEquals( 4, result.getChannels() );
+    assertArrayEquals( new long[] { 0L, 3L, 7L }, result.getTimestamps() );
+    assertArrayEquals( new int[] { 0x1, 0x3, 0x8 }, result.getValues() );
+  }
+
+  /**
+   * Tests that a row with too few columns is rejected.
+   */
+  @Test( expected = IOException.class )
+  public void testReadMissingColumnFail() throws IOException
+  {
+    read( "0,1,0\n1,1\n" );
+  }
+
+  /**
+   * Tests that data without a header row, with semicolons and sample numbers
+   * is read as state data.
+   */
+  @Test
+  public void testReadSampleNumbersWithoutHeaderOk() throws IOException
+  {
+    final AcquisitionResult result = read( "0;1;0\r\n\r\n2;1;0\r\n4;0;1\r\n4;1;1\r\n6;1;1\r\n" );
+
+    assertEquals( Ols.NOT_AVAILABLE, result.getSampleRate() );
+    assertEquals( 2, result.getChannels() );
+    assertArrayEquals( new long[] { 0L, 4L, 6L }, result.getTimestamps() );
+    assertArrayEquals( new int[] { 1, 3, 3 }, result.getValues() );
+  }
+
+  /**
+   * Tests that times in seconds are mapped onto nanoseconds, shifting negative
+   * times and using time zero as trigger position.
+   */
+  @Test
+  public void testReadSecondsOk() throws IOException
+  {
+    final AcquisitionResult result = read( "Time [s], Channel 1, Channel 0\n-1.5e-6, 1, 0.0\n-0.5E-6, 1, 3.3\n"
+        + "0.0000005, 0, 3.3\n0.00000050004, 1, 3.3\n" );
+
+    assertEquals( CsvDataReader.NANOS_PER_SECOND, result.getSampleRate() );
+    assertEquals( 1500L, result.getTriggerPosition() );
+    assertArrayEquals( new long[] { 0L, 1000L, 2000L }, result.getTimestamps() );
+    assertArrayEquals( new int[] { 2, 3, 3 }, result.getValues() );
+  }
+
+  /**
+   * Tests that data whose time goes backwards is rejected.
+   */
+  @Test( expected = IOException.class )
+  public void testReadTimeGoingBackwardsFail() throws IOException
+  {
+    read( "time,a\n5,1\n3,0\n" );
+  }
+
+  /**
+   * Asserts that the data exported by the CSV exporter in the given format is
+   * read back unchanged.
+   */
+  private void assertRoundTrip( final ColumnFormat aFormat, final boolean aLabeled ) throws IOException
+  {
+    final Random random = new Random( 42L );
+
+    final int size = 1000;
+    final int[] values = new int[size];
+    final long[] timestamps = new long[size];
+    for ( int i = 0; i < size; i++ )
+    {
+      // Each sample changes the value, as only transitions are read back...
+      values[i] = ( ( i == 0 ) ? 0 : values[i - 1] ) ^ ( 1 + random.nextInt( ( 1 << CHANNEL_COUNT ) - 1 ) );
+      timestamps[i] = ( ( i == 0 ) ? 0L : timestamps[i - 1] ) + 1L + random.nextInt( 100 );
+    }
+
+    final StubDataSet dataSet = new StubDataSet();
+    dataSet.setCapturedData( new CapturedData( values, timestamps, TRIGGER_POSITION, SAMPLE_RATE, CHANNEL_COUNT,
+        ( 1 << CHANNEL_COUNT ) - 1, timestamps[size - 1] + 1L ) );
+    dataSet.setCursorsEnabled( false );
+    if ( aLabeled )
+    {
+      final String[] labels = { "SCL", "SDA", "MOSI", "MISO", "SCK", "CS", "TXD", "RXD" };
+      for ( int i = 0; i < CHANNEL_COUNT; i++ )
+      {
+        dataSet.getChannel( i ).setLabel( labels[i] );
+      }
+    }
+
+    final ByteArrayOutputStream exported = new ByteArrayOutputStream();
+    new CsvExporter( aFormat, false /* aCursorWindowOnly */).export( dataSet, mock( JComponent.class ), exported );
+
+    final AcquisitionResult result = read( exported.toString( "US-ASCII" ) );
+
+    assertEquals( SAMPLE_RATE, result.getSampleRate() );
+    assertEquals( TRIGGER_POSITION, result.getTriggerPosition() );
+    assertEquals( CHANNEL_COUNT, result.getChannels() );
+    // the exporter ends with a sample at the absolute length...
+    final long[] expectedTimestamps = Arrays.copyOf( timestamps, size + 1 );
+    expectedTimestamps[size] = timestamps[size - 1] + 1L;
+    final int[] expectedValues = Arrays.copyOf( values, size + 1 );
+    expectedValues[size] = values[size - 1];
+
+    assertArrayEquals( expectedTimestamps, result.getTimestamps() );
+    assertArrayEquals( expectedValues, result.getValues() );
+    assertEquals( expectedTimestamps[size], result.getAbsoluteLength() );
+  }
+
+  /**
+   * Reads the given CSV data.
+   */
+  private AcquisitionResult read( final String aData ) throws IOException
+  {
+    final ReadableByteChannel channel = Channels.newChannel( new ByteArrayInputStream( aData.getBytes( "US-ASCII" ) ) );
+    return new CsvDataReader( channel, aData.length(), mock( AcquisitionProgressListener.class ) ).read();
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.device.generic;
+
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+import java.nio.channels.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link VcdDataReader}.
+ */
+public class VcdDataReaderTest
+{
+  // METHODS
+
+  /**
+   * Tests that single-character identifiers outside the printable ASCII range
+   * are read like longer identifiers.
+   */
+  @Test
+  public void testReadNonAsciiIdentifierOk() throws IOException
+  {
+    final byte[] data = ( "$var wire 1 \u00e9 a $end\n$var wire 1 ! b $end\n$enddefinitions $end\n"
+        + "#0\n1\u00e9\n0!\n#3\n0\u00e9\n1!\n" ).getBytes( "ISO-8859-1" );
+
+    final AcquisitionResult result = read( data );
+
+    assertEquals( 2, result.getChannels() );
+    assertArrayEquals( new long[] { 0L, 3L }, result.getTimestamps() );
+    assertArrayEquals( new int[] { 1, 2 }, result.getValues() );
+  }
+
+  /**
+   * Tests that a dump with 64-bit times and a timescale larger than one second
+   * is read correctly.
+   */
+  @Test
+  public void testReadLargeTimesOk() throws IOException
+  {
+    final AcquisitionResult result = read( "$timescale 10 s $end\n$var wire 1 ! a $end\n$enddefinitions $end\n"
+        + "#0\n0!\n#5000000000\n1!\n" );
+
+    assertEquals( 1, result.getSampleRate() );
+    assertArrayEquals( new long[] { 0L, 50000000000L }, result.getTimestamps() );
+    assertArrayEquals( new int[] { 0, 1 }, result.getValues() );
+  }
+
+  /**
+   * Tests that scalar and vector variables are mapped onto consecutive
+   * channels, and that real variables, comments and unknown values are
+   * handled.
+   */
+  @Test
+  public void testReadScalarAndVectorVariablesOk() throws IOException
+  {
+    final AcquisitionResult result = read( "$date today $end\n$timescale\n  10 ns\n$end\n"
+        + "$scope module top $end\n$var wire 1 ! clk $end\n$var wire 4 \" data [3:0] $end\n"
+        + "$var real 1 # voltage $end\n$var wire 8 id_long bus $end\n$upscope $end\n$enddefinitions $end\n"
+        + "#0\n$dumpvars\n0!\nbx \"\nr1.5 #\nb0 id_long\n$end\n"
+        + "#5\n1!\nb101 \"\n$comment halfway $end\nb11111111 id_long\n" + "#10\nx!\nr3.3 #\n" );
+
+    assertEquals( 100000000, result.getSampleRate() );
+    assertEquals( 13, result.getChannels() );
+    assertEquals( 0x1FFF, result.getEnabledChannels() );
+    assertEquals( Ols.NOT_AVAILABLE, result.getTriggerPosition() );
+    assertArrayEquals( new long[] { 0L, 5L, 10L }, result.getTimestamps() );
+    assertArrayEquals( new int[] { 0, 0x1FEB, 0x1FEA }, result.getValues() );
+  }
+
+  /**
+   * Tests that a timescale smaller than one nanosecond is mapped onto the
+   * highest sample rate, merging the value changes within a nanosecond.
+   */
+  @Test
+  public void testReadSubNanosecondTimescaleOk() throws IOException
+  {
+    final AcquisitionResult result = read( "$timescale 1ps $end\n$var wire 1 ! a $end\n$enddefinitions $end\n"
+        + "#0\n0!\n#400\n1!\n#600\n0!\n#1000\n1!\n#2500\n0!\n" );
+
+    assertEquals( VcdDataReader.MAX_SAMPLE_RATE, result.getSampleRate() );
+    assertArrayEquals( new long[] { 0L, 1L, 2L }, result.getTimestamps() );
+    assertArrayEquals( new int[] { 0, 1, 0 }, result.getValues() );
+  }
+
+  /**
+   * Tests that a dump whose time goes backwards is rejected.
+   */
+  @Test( expected = IOException.class )
+  public void testReadTimeGoingBackwardsFail() throws IOException
+  {
+    read( "$var wire 1 ! a $end\n$enddefinitions $end\n#10\n1!\n#5\n0!\n" );
+  }
+
+  /**
+   * Tests that a dump without variables is rejected.
+   */
+  @Test( expected = IOException.class )
+  public void testReadWithoutVariablesFail() throws IOException
+  {
+    read( "$timescale 1 ns $end\n$enddefinitions $end\n#0\n" );
+  }
+
+  /**
+   * Tests that a vector value longer than the maximum token length is
+   * rejected instead of silently losing its low-order bits.
+   */
+  @Test( expected = IOException.class )
+  public void testReadOverlyLongVectorFail() throws IOException
+  {
+    final StringBuilder value = new StringBuilder( "b1" );
+    for ( int i = 0; i < VcdDataReader.MAX_TOKEN_LENGTH; i++ )
+    {
+      value.append( '0' );
+    }
+    read( "$var wire 8 ! bus $end\n$enddefinitions $end\n#0\n" + value + " !\n" );
+  }
+
+  /**
+   * Tests that overly long words in skipped sections, such as comments, are
+   * tolerated.
+   */
+  @Test
+  public void testReadOverlyLongCommentOk() throws IOException
+  {
+    final StringBuilder comment = new StringBuilder();
+    for ( int i = 0; i <= VcdDataReader.MAX_TOKEN_LENGTH; i++ )
+    {
+      comment.append( 'x' );
+    }
+    final AcquisitionResult result = read( "$comment " + comment + " $end\n$var wire 1 ! a $end\n"
+        + "$enddefinitions $end\n#0\n1!\n" );
+
+    assertEquals( 1, result.getValues()[0] );
+  }
+
+  /**
+   * Reads the given value change dump.
+   */
+  private AcquisitionResult read( final String aData ) throws IOException
+  {
+    return read( aData.getBytes( "US-ASCII" ) );
+  }
+
+  /**
+   * Reads the given value change dump.
+   */
+  private AcquisitionResult read( final byte[] aData ) throws IOException
+  {
+    final ReadableByteChannel channel = Channels.newChannel( new ByteArrayInputStream( aData ) );
+    return new VcdDataReader( channel, aData.length, mock( AcquisitionProgressListener.class ) ).read();
+  }
+}
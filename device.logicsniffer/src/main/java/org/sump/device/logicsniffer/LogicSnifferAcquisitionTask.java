@@ -22,14 +22,12 @@ package org.sump.device.logicsniffer;
 
 
 import java.io.*;
-import java.util.*;
+import java.nio.*;
 import java.util.logging.*;
 
 import javax.microedition.io.*;
 
-import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
-import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.devices.*;
 import nl.lxtreme.ols.util.*;
 
@@ -48,6 +46,9 @@ public class LogicSnifferAcquisitionTask implements SumpProtocolConstants, Acqui
 
   private static final Logger LOG = Logger.getLogger( LogicSnifferAcquisitionTask.class.getName() );
 
+  /** The number of samples that is read and processed at once. */
+  private static final int SAMPLE_CHUNK_SIZE = 64 * 1024;
+
   // VARIABLES
 
   private final DeviceProfileManager deviceProfileManager;
@@ -114,54 +115,26 @@ public class LogicSnifferAcquisitionTask implements SumpProtocolConstants, Acqui
     // Setup/configure the device with the UI-settings...
     configureAndArmDevice();
 
-    // read all samples
-    int[] samples = readSamples( this.config.getEnabledGroupCount(), sampleCount );
-
-    if ( samples.length < sampleCount )
-    {
-      LOG.log( Level.INFO, "Only {0} samples read!", Integer.valueOf( samples.length ) );
-    }
-    else
-    {
-      LOG.log( Level.FINE, "{0} samples read. Starting post processing...", Integer.valueOf( sampleCount ) );
-    }
-
-    final List<Integer> values = new ArrayList<Integer>();
-    final List<Long> timestamps = new ArrayList<Long>();
-
-    // collect additional information for CapturedData; we use arrays here,
-    // as their values are to be filled from anonymous inner classes...
-    final long[] absoluteLength = { 0L };
-    final long[] triggerPos = { Ols.NOT_AVAILABLE };
+    // Collect the transitions directly into primitive arrays; the number of
+    // transitions is typically much lower than the number of samples...
+    final TransitionCollector collector = new TransitionCollector( Math.max( 1, sampleCount / 16 ) );
     final int rate = this.config.getSampleRate();
 
-    final SampleProcessorCallback callback = new SampleProcessorCallback()
-    {
-      public void addValue( final int aSampleValue, final long aTimestamp )
-      {
-        values.add( Integer.valueOf( aSampleValue ) );
-        timestamps.add( Long.valueOf( aTimestamp ) );
-      }
+    // Read all samples, and process them while they come in...
+    final SampleProcessor processor = createSampleProcessor( sampleCount, collector );
+    readSamples( this.config.getEnabledGroupCount(), sampleCount, processor );
 
-      public void ready( final long aAbsoluteLength, final long aTriggerPosition )
-      {
-        absoluteLength[0] = aAbsoluteLength;
-        if ( LogicSnifferAcquisitionTask.this.config.isTriggerEnabled() )
-        {
-          triggerPos[0] = aTriggerPosition;
-        }
-      }
-    };
-    // Process the actual samples...
-    createSampleProcessor( sampleCount, samples, callback ).process();
+    LOG.log( Level.FINE, "{0} samples read. Finishing post processing...", Integer.valueOf( sampleCount ) );
+
+    processor.finish();
 
     // Close the connection...
     close();
 
     // Issue #98: use the *enabled* channel count, not the total channel
     // count...
-    return new CapturedData( values, timestamps, triggerPos[0], rate, this.config.getEnabledChannelsCount(),
-        this.config.getEnabledChannelsMask(), absoluteLength[0] );
+    return collector.createCapturedData( this.config.isTriggerEnabled(), rate,
+        this.config.getEnabledChannelsCount(), this.config.getEnabledChannelsMask() );
   }
 
   /**
@@ -314,27 +287,50 @@ public class LogicSnifferAcquisitionTask implements SumpProtocolConstants, Acqui
   }
 
   /**
+   * Creates a sample processor that is able to process the samples in the
+   * order in which they are sent by the device.
+   * 
    * @param aSampleCount
    *          the actual number of samples to process;
-   * @param aSampleValues
-   *          the sample values to process;
    * @param aCallback
    *          the processor callback to use.
    * @return a sample processor instance, never <code>null</code>.
    */
-  private SampleProcessor createSampleProcessor( final int aSampleCount, final int[] aSampleValues,
-      final SampleProcessorCallback aCallback )
+  private SampleProcessor createSampleProcessor( final int aSampleCount, final SampleProcessorCallback aCallback )
   {
+    // Most devices send their last sample first...
+    final boolean lastSampleFirst = !this.config.isSamplesInReverseOrder();
+
     final SampleProcessor processor;
     if ( this.config.isRleEnabled() )
     {
       LOG.log( Level.INFO, "Decoding Run Length Encoded data, sample count: {0}", Integer.valueOf( aSampleCount ) );
-      processor = new RleDecoder( this.config, aSampleValues, this.trigcount, aCallback );
+      if ( !lastSampleFirst )
+      {
+        processor = new RleDecoder( this.config, aSampleCount, this.trigcount, aCallback );
+      }
+      else if ( this.config.isDoubleDataRateEnabled() )
+      {
+        // DDR-mode RLE data can only be decoded chronologically...
+        processor = new ReversingSampleBuffer( aSampleCount, new RleDecoder( this.config, aSampleCount,
+            this.trigcount, aCallback ) );
+      }
+      else
+      {
+        processor = new ReverseRleDecoder( this.config, aSampleCount, this.trigcount, aCallback );
+      }
     }
     else
     {
       LOG.log( Level.INFO, "Decoding unencoded data, sample count: {0}", Integer.valueOf( aSampleCount ) );
-      processor = new EqualityFilter( this.config, aSampleValues, this.trigcount, aCallback );
+      if ( lastSampleFirst )
+      {
+        processor = new ReverseEqualityFilter( this.config, this.trigcount, aCallback );
+      }
+      else
+      {
+        processor = new EqualityFilter( this.config, this.trigcount, aCallback );
+      }
     }
     return processor;
   }
@@ -398,41 +394,65 @@ public class LogicSnifferAcquisitionTask implements SumpProtocolConstants, Acqui
   }
 
   /**
-   * Reads all (or as many as possible) samples from the OLS device.
+   * Reads all (or as many as possible) samples from the OLS device, and feeds
+   * them in chunks to the given sample processor while they are read.
    * 
    * @param aEnabledGroupCount
-   *          the number of enabled groups (denotes the number of bytes for one sample);
+   *          the number of enabled groups (denotes the number of bytes for one
+   *          sample);
    * @param aSampleCount
-   *          the number of samples to read.
-   * @return the read samples, normalized to match the layout of the enabled groups.
+   *          the number of samples to read;
+   * @param aProcessor
+   *          the sample processor to feed the samples to, normalized to match
+   *          the layout of the enabled groups.
    * @throws IOException
    *           in case of I/O problems;
    * @throws InterruptedException
    *           in case the current thread was interrupted.
    */
-  private int[] readSamples( final int aEnabledGroupCount, int aSampleCount ) throws IOException, InterruptedException
+  private void readSamples( final int aEnabledGroupCount, final int aSampleCount, final SampleProcessor aProcessor )
+      throws IOException, InterruptedException
   {
     final int length = aEnabledGroupCount * aSampleCount;
-    final byte[] rawData = new byte[length];
+
+    // Determine how to unpack the samples of the enabled groups only once...
+    final SampleUnpacker unpacker = SampleUnpacker.create( this.config );
+
+    final int chunkSize = Math.min( aSampleCount, SAMPLE_CHUNK_SIZE );
+    final byte[] rawData = new byte[aEnabledGroupCount * chunkSize];
+    final ByteBuffer rawBuffer = ByteBuffer.wrap( rawData ).order( ByteOrder.LITTLE_ENDIAN );
+    final int[] samples = new int[chunkSize];
 
     try
     {
       int offset = 0;
-      int count = length;
-      while ( !Thread.currentThread().isInterrupted() && ( offset >= 0 ) && ( offset < length ) )
+      int pending = 0;
+      while ( !Thread.currentThread().isInterrupted() && ( offset < length ) )
       {
-        int read = this.inputStream.readRawData( rawData, offset, count );
+        final int count = Math.min( rawData.length - pending, length - offset );
+
+        int read = this.inputStream.readRawData( rawData, pending, count );
         if ( read < 0 )
         {
           throw new EOFException();
         }
-        else
-        {
-          count -= read;
-          offset += read;
-        }
 
-        this.acquisitionProgressListener.acquisitionInProgress( ( 100 * offset ) / length );
+        offset += read;
+        pending += read;
+
+        // Normalize all completely read samples, and process them...
+        final int sampleCount = pending / aEnabledGroupCount;
+        rawBuffer.clear();
+        unpacker.unpack( rawBuffer, samples, 0, sampleCount );
+
+        aProcessor.process( samples, 0, sampleCount );
+
+        // Keep the bytes of an incomplete sample for the next round...
+        final int used = sampleCount * aEnabledGroupCount;
+        System.arraycopy( rawData, used, rawData, 0, pending - used );
+        pending -= used;
+
+        this.acquisitionProgressListener.acquisitionInProgress( ( int )( ( 100L * offset ) / length ) );
       }
     }
     catch ( IOException exception )
@@ -450,35 +470,11 @@ public class LogicSnifferAcquisitionTask implements SumpProtocolConstants, Acqui
 
       this.acquisitionProgressListener.acquisitionInProgress( 100 );
     }
-    
+
     if ( Thread.currentThread().isInterrupted() )
     {
       // We're interrupted while read samples, do not proceed...
       throw new InterruptedException();
     }
-    
-    final int groupCount = this.config.getGroupCount();
-    
-    // Normalize the raw data into the sample data, as expected...
-    int[] samples = new int[aSampleCount];
-    for ( int i = samples.length - 1, j = 0; i >= 0; i-- )
-    {
-      for ( int g = 0; g < groupCount; g++ )
-      {
-        if ( this.config.isGroupEnabled( g ) )
-        {
-          samples[i] |= ( ( rawData[j++] & 0xff ) << ( 8 * g ) );
-        }
-      }
-    }
-
-    // In case the device sends its samples in "reverse" order, we need to
-    // revert it now, before processing them further...
-    if ( this.config.isSamplesInReverseOrder() )
-    {
-      HostUtils.reverse( samples );
-    }
-
-    return samples;
   }
 }
@@ -26,82 +26,104 @@ import org.sump.device.logicsniffer.*;
 
 /**
  * Processes all samples and only returns the actual changed sample values.
+ * <p>
+ * This filter expects the samples to be offered in chronological order, use
+ * {@link ReverseEqualityFilter} for samples that are offered from the last to
+ * the first sample.
+ * </p>
  */
 public final class EqualityFilter implements SampleProcessor
 {
   // VARIABLES
 
   private final LogicSnifferConfig config;
-  private final int[] buffer;
   private final int trigCount;
   private final SampleProcessorCallback callback;
 
+  private long time;
+  private int lastSample;
+
   // CONSTRUCTORS
 
   /**
    * @param aConfig
    *          the configuration to use;
-   * @param aBuffer
-   *          the buffer with sample data to decode.
    * @param aTrigCount
    *          the trigcount value;
    * @param aCallback
    *          the callback to use.
    */
-  public EqualityFilter( final LogicSnifferConfig aConfig, final int[] aBuffer, final int aTrigCount,
+  public EqualityFilter( final LogicSnifferConfig aConfig, final int aTrigCount,
       final SampleProcessorCallback aCallback )
   {
-    if ( aBuffer == null )
-    {
-      throw new IllegalArgumentException( "Buffer cannot be null!" );
-    }
-
     this.config = aConfig;
-    this.buffer = aBuffer;
     this.trigCount = aTrigCount;
     this.callback = aCallback;
+
+    this.time = 0L;
+    this.lastSample = 0; // first value doesn't really matter
   }
 
   // METHODS
 
   /**
-   * @see org.sump.device.logicsniffer.sampleprocessor.SampleProcessor#process()
+   * Returns the correction to apply to the trigger count.
+   * 
+   * @param aConfig
+   *          the configuration to use.
+   * @return a trigger count correction.
+   */
+  static int getTriggerCorrection( final LogicSnifferConfig aConfig )
+  {
+    // XXX JaWi: why is this correction needed?
+    int correction = 2;
+    if ( aConfig.getDivider() <= 3 )
+    {
+      correction = 1;
+    }
+    return correction;
+  }
+
+  /**
+   * @see org.sump.device.logicsniffer.sampleprocessor.SampleProcessor#finish()
    */
   @Override
-  public final void process()
+  public void finish()
   {
-    long time = 0;
+    // Ensure the last sample is shown as well (even if there was a lot of time
+    // between the last real sample and the end of the capture; i.e., constant
+    // data)...
+    this.callback.addValue( this.lastSample, this.time );
 
-    final int samples = this.buffer.length;
+    // Take the last seen time value as "absolete" length of this trace...
+    this.callback.ready( this.time, ( this.trigCount - getTriggerCorrection( this.config ) ) );
+  }
 
-    int lastSample = 0; // first value doesn't really matter
-    for ( int i = 0; i < samples; i++ )
+  /**
+   * @see org.sump.device.logicsniffer.sampleprocessor.SampleProcessor#process(int[], int, int)
+   */
+  @Override
+  public void process( final int[] aSamples, final int aOffset, final int aLength )
+  {
+    long t = this.time;
+    int last = this.lastSample;
+
+    final int end = aOffset + aLength;
+    for ( int i = aOffset; i < end; i++ )
     {
-      final int newSample = this.buffer[i];
+      final int newSample = aSamples[i];
 
-      if ( ( i == 0 ) || ( lastSample != newSample ) )
+      if ( ( t == 0L ) || ( last != newSample ) )
       {
         // add the read sample & add a timestamp value as well...
-        this.callback.addValue( newSample, time );
+        this.callback.addValue( newSample, t );
       }
 
-      lastSample = newSample;
-      time++;
-    }
-
-    // Ensure the last sample is shown as well (even if there was a lot of time
-    // between the last real sample and the end of the capture; i.e., constant
-    // data)...
-    this.callback.addValue( lastSample, time );
-
-    // XXX JaWi: why is this correction needed?
-    int correction = 2;
-    if ( this.config.getDivider() <= 3 )
-    {
-      correction = 1;
+      last = newSample;
+      t++;
     }
 
-    // Take the last seen time value as "absolete" length of this trace...
-    this.callback.ready( time, ( this.trigCount - correction ) );
+    this.time = t;
+    this.lastSample = last;
   }
 }
@@ -0,0 +1,132 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010 J.W. Janssen, www.lxtreme.nl
+ */
+package org.sump.device.logicsniffer.sampleprocessor;
+
+
+import org.sump.device.logicsniffer.*;
+
+
+/**
+ * Processes all samples and only returns the actual changed sample values.
+ * <p>
+ * This filter expects the samples to be offered from the last to the first
+ * sample, as most devices send their samples in this order.
+ * </p>
+ * 
+ * @see EqualityFilter
+ */
+public final class ReverseEqualityFilter implements SampleProcessor
+{
+  // VARIABLES
+
+  private final LogicSnifferConfig config;
+  private final int trigCount;
+  private final SampleProcessorCallback callback;
+  private final TransitionStack transitions;
+
+  private long count;
+  private int lastSample;
+  private int runValue;
+
+  // CONSTRUCTORS
+
+  /**
+   * @param aConfig
+   *          the configuration to use;
+   * @param aTrigCount
+   *          the trigcount value;
+   * @param aCallback
+   *          the callback to use.
+   */
+  public ReverseEqualityFilter( final LogicSnifferConfig aConfig, final int aTrigCount,
+      final SampleProcessorCallback aCallback )
+  {
+    this.config = aConfig;
+    this.trigCount = aTrigCount;
+    this.callback = aCallback;
+    this.transitions = new TransitionStack();
+
+    this.count = 0L;
+    this.lastSample = 0; // first value doesn't really matter
+  }
+
+  // METHODS
+
+  /**
+   * @see org.sump.device.logicsniffer.sampleprocessor.SampleProcessor#finish()
+   */
+  @Override
+  public void finish()
+  {
+    final long time = this.count;
+
+    if ( time > 0L )
+    {
+      // The first sample is always a transition...
+      this.transitions.push( this.runValue, time );
+    }
+
+    this.transitions.replay( this.callback, time );
+
+    // Ensure the last sample is shown as well (even if there was a lot of time
+    // between the last real sample and the end of the capture; i.e., constant
+    // data)...
+    this.callback.addValue( this.lastSample, time );
+
+    // Take the last seen time value as "absolete" length of this trace...
+    this.callback.ready( time, ( this.trigCount - EqualityFilter.getTriggerCorrection( this.config ) ) );
+  }
+
+  /**
+   * @see org.sump.device.logicsniffer.sampleprocessor.SampleProcessor#process(int[], int, int)
+   */
+  @Override
+  public void process( final int[] aSamples, final int aOffset, final int aLength )
+  {
+    long c = this.count;
+    int run = this.runValue;
+
+    final int end = aOffset + aLength;
+    for ( int i = aOffset; i < end; i++ )
+    {
+      final int sample = aSamples[i];
+
+      if ( c == 0L )
+      {
+        // The first sample we see is the last sample in time...
+        this.lastSample = sample;
+        run = sample;
+      }
+      else if ( sample != run )
+      {
+        // The (later) run of samples starts right after this sample, which is
+        // exactly "c" samples before the end...
+        this.transitions.push( run, c );
+        run = sample;
+      }
+
+      c++;
+    }
+
+    this.count = c;
+    this.runValue = run;
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010 J.W. Janssen, www.lxtreme.nl
+ */
+package org.sump.device.logicsniffer.sampleprocessor;
+
+
+import java.util.logging.*;
+
+import org.sump.device.logicsniffer.*;
+
+
+/**
+ * Provides a RLE decoder that decodes its samples from the last to the first
+ * sample, as most devices send their samples in this order.
+ * <p>
+ * As the absolute time of a sample depends on all RLE-counts preceeding it, the
+ * decoded transitions are kept relative to the end of the capture until all
+ * samples are decoded. Note that this decoder does not support "double data
+ * rate" mode, as the RLE-counts cannot be distinguished from sample values
+ * when reading them backwards in this mode.
+ * </p>
+ * 
+ * @see RleDecoder
+ */
+public final class ReverseRleDecoder implements SampleProcessor
+{
+  // CONSTANTS
+
+  private static final Logger LOG = Logger.getLogger( ReverseRleDecoder.class.getName() );
+
+  // VARIABLES
+
+  private final LogicSnifferConfig config;
+  private final int sampleCount;
+  private final int trigCount;
+  private final SampleProcessorCallback callback;
+  private final TransitionStack transitions;
+  private final SampleUnpacker unpacker;
+
+  private final int rleCountValue;
+  private final int rleCountMask;
+
+  private int count;
+  private long timeFromEnd;
+  private long pendingCount;
+  private boolean haveSample;
+  private int lastSample;
+  private int runValue;
+  private int runIndex;
+  private long runTimeFromEnd;
+  private long trigTimeFromEnd;
+  private long nextTrigTimeFromEnd;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new ReverseRleDecoder instance.
+   * 
+   * @param aConfig
+   *          the configuration to use;
+   * @param aSampleCount
+   *          the total number of samples that is to be decoded;
+   * @param aTrigCount
+   *          the trigcount value;
+   * @param aCallback
+   *          the callback to use.
+   */
+  public ReverseRleDecoder( final LogicSnifferConfig aConfig, final int aSampleCount, final int aTrigCount,
+      final SampleProcessorCallback aCallback )
+  {
+    if ( aConfig.isDoubleDataRateEnabled() )
+    {
+      throw new IllegalArgumentException( "Cannot decode DDR-mode samples in reverse order!" );
+    }
+
+    this.config = aConfig;
+    this.sampleCount = aSampleCount;
+    this.trigCount = aTrigCount;
+    this.callback = aCallback;
+    this.transitions = new TransitionStack();
+    this.unpacker = SampleUnpacker.create( aConfig );
+
+    this.rleCountValue = RleDecoder.getRleCountValue( this.config.getRLEDataWidth() );
+    this.rleCountMask = this.rleCountValue - 1;
+
+    this.count = 0;
+    this.timeFromEnd = 0L;
+    this.pendingCount = 0L;
+    this.haveSample = false;
+    this.lastSample = -1;
+    this.trigTimeFromEnd = -1L;
+    this.nextTrigTimeFromEnd = -1L;
+  }
+
+  // METHODS
+
+  /**
+   * @see org.sump.device.logicsniffer.sampleprocessor.SampleProcessor#finish()
+   */
+  @Override
+  public void finish()
+  {
+    if ( this.haveSample )
+    {
+      // The first sample value is always a transition...
+      pushRun();
+    }
+
+    if ( this.pendingCount > 0L )
+    {
+      LOG.warning( "Ignoring RLE count without preceeding sample value: " + Long.toHexString( this.pendingCount ) );
+    }
+
+    final long time = this.timeFromEnd;
+
+    // Mimic the chronological decoder: the trigger position is the first
+    // transition after the trigger count that does not start at time 0...
+    long rleTrigPos = 0L;
+    if ( this.trigTimeFromEnd >= 0L )
+    {
+      rleTrigPos = time - this.trigTimeFromEnd;
+      if ( ( rleTrigPos == 0L ) && ( this.nextTrigTimeFromEnd >= 0L ) )
+      {
+        rleTrigPos = time - this.nextTrigTimeFromEnd;
+      }
+    }
+
+    this.transitions.replay( this.callback, time );
+
+    // Ensure the last sample is shown as well (even if there was a lot of time
+    // between the last real sample and the end of the capture; i.e., constant
+    // data)...
+    this.callback.addValue( this.lastSample, time );
+
+    // Take the last seen time value as "absolete" length of this trace...
+    this.callback.ready( time, rleTrigPos - 1 );
+  }
+
+  /**
+   * @see org.sump.device.logicsniffer.sampleprocessor.SampleProcessor#process(int[], int, int)
+   */
+  @Override
+  public void process( final int[] aSamples, final int aOffset, final int aLength )
+  {
+    final int end = aOffset + aLength;
+    for ( int i = aOffset; i < end; i++, this.count++ )
+    {
+      final int sampleValue = aSamples[i];
+      final int normalizedSampleValue = this.unpacker.compact( sampleValue );
+
+      if ( ( normalizedSampleValue & this.rleCountValue ) != 0 )
+      {
+        // A count belongs to the sample value that preceeds it in time, which
+        // we've not yet seen...
+        this.pendingCount += ( normalizedSampleValue & this.rleCountMask );
+      }
+      else
+      {
+        // A sample value lasts for one sample period, plus the time of all
+        // counts following it (unless its value is "invalid")...
+        this.timeFromEnd += 1L;
+        if ( sampleValue >= 0 )
+        {
+          this.timeFromEnd += this.pendingCount;
+        }
+        this.pendingCount = 0L;
+
+        final int index = this.sampleCount - 1 - this.count;
+        if ( !this.haveSample )
+        {
+          this.haveSample = true;
+          this.lastSample = sampleValue;
+        }
+        else if ( sampleValue != this.runValue )
+        {
+          // The later run of samples is a transition...
+          pushRun();
+        }
+
+        // Keep track of the earliest sample of the current run...
+        this.runValue = sampleValue;
+        this.runIndex = index;
+        this.runTimeFromEnd = this.timeFromEnd;
+      }
+    }
+  }
+
+  /**
+   * Pushes the current run of samples as transition.
+   */
+  private void pushRun()
+  {
+    this.transitions.push( this.runValue, this.runTimeFromEnd );
+
+    if ( this.runIndex >= this.trigCount )
+    {
+      this.nextTrigTimeFromEnd = this.trigTimeFromEnd;
+      this.trigTimeFromEnd = this.runTimeFromEnd;
+    }
+  }
+}
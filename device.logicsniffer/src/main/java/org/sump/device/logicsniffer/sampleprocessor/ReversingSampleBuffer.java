@@ -0,0 +1,89 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010 J.W. Janssen, www.lxtreme.nl
+ */
+package org.sump.device.logicsniffer.sampleprocessor;
+
+
+/**
+ * Provides a sample processor that buffers all samples offered from the last to
+ * the first sample, and offers them in chronological order to another sample
+ * processor once all samples are received.
+ * <p>
+ * This processor is only used in case the samples cannot be decoded in reverse
+ * order, and needs as much memory as the number of samples.
+ * </p>
+ */
+public final class ReversingSampleBuffer implements SampleProcessor
+{
+  // VARIABLES
+
+  private final SampleProcessor processor;
+  private final int[] buffer;
+
+  private int position;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new ReversingSampleBuffer instance.
+   * 
+   * @param aSampleCount
+   *          the total number of samples to buffer;
+   * @param aProcessor
+   *          the sample processor to offer the samples to, cannot be
+   *          <code>null</code>.
+   */
+  public ReversingSampleBuffer( final int aSampleCount, final SampleProcessor aProcessor )
+  {
+    if ( aProcessor == null )
+    {
+      throw new IllegalArgumentException( "Processor cannot be null!" );
+    }
+
+    this.processor = aProcessor;
+    this.buffer = new int[aSampleCount];
+    this.position = aSampleCount;
+  }
+
+  // METHODS
+
+  /**
+   * @see org.sump.device.logicsniffer.sampleprocessor.SampleProcessor#finish()
+   */
+  @Override
+  public void finish()
+  {
+    this.processor.process( this.buffer, this.position, this.buffer.length - this.position );
+    this.processor.finish();
+  }
+
+  /**
+   * @see org.sump.device.logicsniffer.sampleprocessor.SampleProcessor#process(int[], int, int)
+   */
+  @Override
+  public void process( final int[] aSamples, final int aOffset, final int aLength )
+  {
+    final int end = aOffset + aLength;
+    for ( int i = aOffset; i < end; i++ )
+    {
+      this.buffer[--this.position] = aSamples[i];
+    }
+  }
+}
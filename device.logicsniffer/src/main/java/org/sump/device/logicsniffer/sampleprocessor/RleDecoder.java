@@ -28,6 +28,11 @@ import org.sump.device.logicsniffer.*;
 
 /**
  * Provides a RLE decoder.
+ * <p>
+ * This decoder expects the samples to be offered in chronological order, use
+ * {@link ReverseRleDecoder} for samples that are offered from the last to the
+ * first sample.
+ * </p>
  */
 public final class RleDecoder implements SampleProcessor
 {
@@ -38,12 +43,23 @@ public final class RleDecoder implements SampleProcessor
   // VARIABLES
 
   private final LogicSnifferConfig config;
-  private final int[] buffer;
+  private final int sampleCount;
   private final int trigCount;
   private final SampleProcessorCallback callback;
+  private final SampleUnpacker unpacker;
 
   private final int rleCountValue;
   private final int rleCountMask;
+  // shiftBits needs to be 8 if 8 bit selected and 16 if 16 bit selected
+  private final int rleShiftBits;
+  private final boolean ddrMode;
+
+  private int index;
+  private long time;
+  private long rleTrigPos;
+  private int lastSample;
+  private long ddrCount;
+  private boolean ddrCountPending;
 
   // CONSTRUCTORS
 
@@ -51,152 +67,160 @@ public final class RleDecoder implements SampleProcessor
    * Creates a new RleDecoder instance.
    * 
    * @param aConfig
-   * @param aBuffer
+   *          the configuration to use;
+   * @param aSampleCount
+   *          the total number of samples that is to be decoded;
    * @param aTrigCount
+   *          the trigcount value;
    * @param aCallback
+   *          the callback to use.
    */
-  public RleDecoder( final LogicSnifferConfig aConfig, final int[] aBuffer, final int aTrigCount,
+  public RleDecoder( final LogicSnifferConfig aConfig, final int aSampleCount, final int aTrigCount,
       final SampleProcessorCallback aCallback )
   {
-    if ( aBuffer == null )
-    {
-      throw new IllegalArgumentException( "Buffer cannot be null!" );
-    }
-
     this.config = aConfig;
-    this.buffer = aBuffer;
+    this.sampleCount = aSampleCount;
     this.trigCount = aTrigCount;
     this.callback = aCallback;
+    this.unpacker = SampleUnpacker.create( aConfig );
 
     // enabled group count is "automatically" corrected for DDR/Demux mode...
-    final int width = this.config.getRLEDataWidth();
-    switch ( width )
+    this.rleShiftBits = this.config.getRLEDataWidth();
+    this.rleCountValue = getRleCountValue( this.rleShiftBits );
+    this.rleCountMask = this.rleCountValue - 1;
+    this.ddrMode = this.config.isDoubleDataRateEnabled();
+
+    this.index = 0;
+    this.time = 0L;
+    this.rleTrigPos = 0L;
+    this.lastSample = -1;
+    this.ddrCountPending = false;
+  }
+
+  // METHODS
+
+  /**
+   * Returns the bit that denotes a RLE-count for the given RLE data width.
+   * 
+   * @param aWidth
+   *          the RLE data width, in bits.
+   * @return the RLE-count bit value.
+   * @throws IllegalArgumentException
+   *           in case the given width is not supported.
+   */
+  static int getRleCountValue( final int aWidth )
+  {
+    switch ( aWidth )
     {
       case 32:
-        this.rleCountValue = 0x80000000;
-        this.rleCountMask = this.rleCountValue - 1;
-        break;
+        return 0x80000000;
       case 24:
-        this.rleCountValue = 0x800000;
-        this.rleCountMask = this.rleCountValue - 1;
-        break;
+        return 0x800000;
       case 16:
-        this.rleCountValue = 0x8000;
-        this.rleCountMask = this.rleCountValue - 1;
-        break;
+        return 0x8000;
       case 8:
-        this.rleCountValue = 0x80;
-        this.rleCountMask = this.rleCountValue - 1;
-        break;
+        return 0x80;
       default:
         throw new IllegalArgumentException( "Illegal RLE width! Should be 8, 16, 24 or 32!" );
     }
   }
 
-  // METHODS
-
   /**
-   * @see org.sump.device.logicsniffer.sampleprocessor.SampleProcessor#process()
+   * @see org.sump.device.logicsniffer.sampleprocessor.SampleProcessor#finish()
    */
-  public void process()
+  @Override
+  public void finish()
   {
-    long time = 0;
-    long rleTrigPos = 0;
-    int lastSample = -1;
+    // Ensure the last sample is shown as well (even if there was a lot of time
+    // between the last real sample and the end of the capture; i.e., constant
+    // data)...
+    this.callback.addValue( this.lastSample, this.time );
 
+    // Take the last seen time value as "absolete" length of this trace...
+    this.callback.ready( this.time, this.rleTrigPos - 1 );
+  }
+
+  /**
+   * @see org.sump.device.logicsniffer.sampleprocessor.SampleProcessor#process(int[], int, int)
+   */
+  @Override
+  public void process( final int[] aSamples, final int aOffset, final int aLength )
+  {
     // if msb set increment time by the count value
     // else save sample check trigger pos and increment time by 1
     // this should work for either dogsbody or rasmus bitstreams
 
-    final int samples = this.buffer.length;
+    final int end = aOffset + aLength;
+    for ( int i = aOffset; i < end; i++, this.index++ )
+    {
+      final int sampleValue = aSamples[i];
+      final int normalizedSampleValue = this.unpacker.compact( sampleValue );
 
-    // shiftBits needs to be 8 if 8 bit selected and 16 if 16 bit selected
-    final int rleShiftBits = this.config.getRLEDataWidth();
-    final boolean ddrMode = this.config.isDoubleDataRateEnabled();
+      if ( this.ddrCountPending )
+      {
+        // In case of "double data rate", the RLE-counts are encoded as 16-
+        // resp. 32-bit values, so we need to take two samples for each
+        // count (as they are 8- or 16-bits in DDR mode).
+        // This should also solve issue #31...
 
-    for ( int i = 0; i < samples; i++ )
-    {
-      final int sampleValue = this.buffer[i];
-      final int normalizedSampleValue = normalizeSampleValue( sampleValue );
+        // Issue #55: double the RLE-count as we're using DDR mode which
+        // takes two samples in one time period...
+        long ddrCount = ( ( this.ddrCount << this.rleShiftBits ) | normalizedSampleValue );
+        addTime( 2L * ddrCount );
 
+        this.ddrCountPending = false;
+      }
       // if a count just add it to the time
-      if ( ( normalizedSampleValue & this.rleCountValue ) != 0 )
+      else if ( ( normalizedSampleValue & this.rleCountValue ) != 0 )
       {
         long count = ( normalizedSampleValue & this.rleCountMask );
-        if ( ddrMode && ( i < ( samples - 1 ) ) )
+        if ( this.ddrMode && ( this.index < ( this.sampleCount - 1 ) ) )
         {
-          // In case of "double data rate", the RLE-counts are encoded as 16-
-          // resp. 32-bit values, so we need to take two samples for each
-          // count (as they are 8- or 16-bits in DDR mode).
-          // This should also solve issue #31...
-
-          // Issue #55: double the RLE-count as we're using DDR mode which
-          // takes two samples in one time period...
-          long ddrCount = ( ( count << rleShiftBits ) | normalizeSampleValue( this.buffer[++i] ) );
-          count = 2L * ddrCount;
-        }
-
-        if ( lastSample >= 0 )
-        {
-          time += count;
+          // The lower part of the count is in the next sample, which might
+          // be in the next chunk...
+          this.ddrCount = count;
+          this.ddrCountPending = true;
         }
         else
         {
-          LOG.warning( "Ignoring RLE count without preceeding sample value: " + Long.toHexString( count ) );
+          addTime( count );
         }
       }
       else
       {
         // this is a data value only save data if different to last
-        if ( sampleValue != lastSample )
+        if ( sampleValue != this.lastSample )
         {
           // set the trigger position as a time value
-          if ( ( i >= this.trigCount ) && ( rleTrigPos == 0 ) )
+          if ( ( this.index >= this.trigCount ) && ( this.rleTrigPos == 0 ) )
           {
-            rleTrigPos = time;
+            this.rleTrigPos = this.time;
           }
 
           // add the read sample & add a timestamp value as well...
-          this.callback.addValue( sampleValue, time );
-          lastSample = sampleValue;
+          this.callback.addValue( sampleValue, this.time );
+          this.lastSample = sampleValue;
         }
-        time++;
+        this.time++;
       }
     }
-
-    // Ensure the last sample is shown as well (even if there was a lot of time
-    // between the last real sample and the end of the capture; i.e., constant
-    // data)...
-    this.callback.addValue( lastSample, time );
-
-    // Take the last seen time value as "absolete" length of this trace...
-    this.callback.ready( time, rleTrigPos - 1 );
   }
 
   /**
-   * Normalizes the given sample value to mask out the unused channel groups and
-   * get a sample value in the correct width.
+   * Adds a given RLE-count to the current time.
    * 
-   * @param aSampleValue
-   *          the original sample to normalize.
-   * @return the normalized sample value.
+   * @param aCount
+   *          the RLE-count to add.
    */
-  private int normalizeSampleValue( final int aSampleValue )
+  private void addTime( final long aCount )
   {
-    int groupCount = this.config.getGroupCount();
-    int compdata = 0;
-
-    // to enable non contiguous channel groups
-    // need to remove zero data from unused groups
-    int indata = aSampleValue;
-    for ( int j = 0, outcount = 0; j < groupCount; j++ )
+    if ( this.lastSample >= 0 )
     {
-      if ( this.config.isGroupEnabled( j ) )
-      {
-        compdata |= ( ( indata & 0xff ) << ( 8 * outcount++ ) );
-      }
-      indata >>= 8;
+      this.time += aCount;
+    }
+    else
+    {
+      LOG.warning( "Ignoring RLE count without preceeding sample value: " + Long.toHexString( aCount ) );
     }
-    return compdata;
   }
 }
@@ -24,11 +24,29 @@ package org.sump.device.logicsniffer.sampleprocessor;
 /**
  * Denotes a sample processor, which performs a transformation function (such as
  * uncompressing) on a set of samples.
+ * <p>
+ * Samples are offered in chunks, in the order in which they are received from
+ * the device, allowing them to be processed while the remainder of the samples
+ * is still being transferred.
+ * </p>
  */
 public interface SampleProcessor
 {
   /**
-   * Processes the samples.
+   * Signals that all samples are processed, causing the results to be reported
+   * to the callback.
    */
-  void process();
+  void finish();
+
+  /**
+   * Processes a chunk of samples.
+   * 
+   * @param aSamples
+   *          the array with samples to process;
+   * @param aOffset
+   *          the offset in the given array to start processing;
+   * @param aLength
+   *          the number of samples to process.
+   */
+  void process( int[] aSamples, int aOffset, int aLength );
 }
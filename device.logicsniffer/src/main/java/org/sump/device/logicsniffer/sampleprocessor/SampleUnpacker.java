@@ -0,0 +1,334 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010 J.W. Janssen, www.lxtreme.nl
+ */
+package org.sump.device.logicsniffer.sampleprocessor;
+
+
+import java.nio.*;
+
+import nl.lxtreme.ols.api.*;
+
+import org.sump.device.logicsniffer.*;
+
+
+/**
+ * Converts the raw bytes sent by the device into sample values, and back.
+ * <p>
+ * The device only sends the bytes of the enabled channel groups, lowest group
+ * first. Unpacking a sample places each of these bytes at the position of its
+ * group, leaving the bits of the disabled groups zero. Compacting a sample
+ * does the reverse, removing the gaps of the disabled groups.
+ * </p>
+ * <p>
+ * Use {@link #create(int)} to obtain an unpacker specialised for a particular
+ * set of enabled groups, so that the enabled groups need not be looked up for
+ * each sample or byte.
+ * </p>
+ */
+public abstract class SampleUnpacker
+{
+  // INNER TYPES
+
+  /**
+   * Unpacks samples of contiguous enabled groups, which only need to be
+   * shifted to the position of the lowest enabled group.
+   */
+  static final class ContiguousUnpacker extends SampleUnpacker
+  {
+    // VARIABLES
+
+    private final int shift;
+    private final int mask;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new ContiguousUnpacker instance.
+     */
+    ContiguousUnpacker( final int aGroupCount, final int aFirstGroup )
+    {
+      super( aGroupCount );
+
+      this.shift = 8 * aFirstGroup;
+      this.mask = ( aGroupCount == 4 ) ? ~0 : ( ( 1 << ( 8 * aGroupCount ) ) - 1 );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int compact( final int aSample )
+    {
+      return ( aSample >>> this.shift ) & this.mask;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void unpack( final ByteBuffer aRaw, final int[] aSamples, final int aOffset, final int aCount )
+    {
+      readPacked( aRaw, aSamples, aOffset, aCount );
+
+      final int shift = this.shift;
+      if ( shift != 0 )
+      {
+        final int end = aOffset + aCount;
+        for ( int i = aOffset; i < end; i++ )
+        {
+          aSamples[i] <<= shift;
+        }
+      }
+    }
+  }
+
+  /**
+   * Unpacks samples of non-contiguous enabled groups, which need to be spread
+   * over the positions of each of the enabled groups.
+   */
+  static final class SparseUnpacker extends SampleUnpacker
+  {
+    // VARIABLES
+
+    private final int[] shifts;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new SparseUnpacker instance.
+     */
+    SparseUnpacker( final int aGroupMask )
+    {
+      super( Integer.bitCount( aGroupMask ) );
+
+      this.shifts = new int[getBytesPerSample()];
+      for ( int g = 0, i = 0; i < this.shifts.length; g++ )
+      {
+        if ( ( aGroupMask & ( 1 << g ) ) != 0 )
+        {
+          this.shifts[i++] = 8 * g;
+        }
+      }
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int compact( final int aSample )
+    {
+      int result = 0;
+      for ( int i = 0; i < this.shifts.length; i++ )
+      {
+        result |= ( ( aSample >>> this.shifts[i] ) & 0xff ) << ( 8 * i );
+      }
+      return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void unpack( final ByteBuffer aRaw, final int[] aSamples, final int aOffset, final int aCount )
+    {
+      readPacked( aRaw, aSamples, aOffset, aCount );
+
+      // At most three groups are enabled, otherwise they'd be contiguous...
+      final int shift0 = this.shifts[0];
+      final int shift1 = this.shifts[1];
+      final int shift2 = ( this.shifts.length > 2 ) ? this.shifts[2] : 0;
+
+      final int end = aOffset + aCount;
+      for ( int i = aOffset; i < end; i++ )
+      {
+        final int packed = aSamples[i];
+        aSamples[i] = ( ( packed & 0xff ) << shift0 ) | ( ( ( packed >>> 8 ) & 0xff ) << shift1 )
+            | ( ( ( packed >>> 16 ) & 0xff ) << shift2 );
+      }
+    }
+  }
+
+  // VARIABLES
+
+  private final int bytesPerSample;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new SampleUnpacker instance.
+   *
+   * @param aBytesPerSample
+   *          the number of enabled groups.
+   */
+  SampleUnpacker( final int aBytesPerSample )
+  {
+    this.bytesPerSample = aBytesPerSample;
+  }
+
+  // METHODS
+
+  /**
+   * Creates a sample unpacker for the given enabled groups.
+   *
+   * @param aGroupMask
+   *          the enabled groups, bit <em>n</em> denotes whether group
+   *          <em>n</em> is enabled.
+   * @return a sample unpacker, never <code>null</code>.
+   * @throws IllegalArgumentException
+   *           in case the given mask denotes groups that do not exist.
+   */
+  public static SampleUnpacker create( final int aGroupMask )
+  {
+    if ( ( aGroupMask & ~( ( 1 << Ols.MAX_BLOCKS ) - 1 ) ) != 0 )
+    {
+      throw new IllegalArgumentException( "Invalid group mask: " + Integer.toBinaryString( aGroupMask ) + "!" );
+    }
+
+    final int groupCount = Integer.bitCount( aGroupMask );
+    final int firstGroup = ( groupCount == 0 ) ? 0 : Integer.numberOfTrailingZeros( aGroupMask );
+    if ( ( aGroupMask >>> firstGroup ) == ( ( 1 << groupCount ) - 1 ) )
+    {
+      return new ContiguousUnpacker( groupCount, firstGroup );
+    }
+    return new SparseUnpacker( aGroupMask );
+  }
+
+  /**
+   * Creates a sample unpacker for the enabled groups of the given
+   * configuration.
+   *
+   * @param aConfig
+   *          the configuration to use, cannot be <code>null</code>.
+   * @return a sample unpacker, never <code>null</code>.
+   */
+  public static SampleUnpacker create( final LogicSnifferConfig aConfig )
+  {
+    int groupMask = 0;
+    // Important: #getGroupCount takes care of DDR-mode for us...
+    for ( int g = aConfig.getGroupCount() - 1; g >= 0; g-- )
+    {
+      if ( aConfig.isGroupEnabled( g ) )
+      {
+        groupMask |= ( 1 << g );
+      }
+    }
+    return create( groupMask );
+  }
+
+  /**
+   * Compacts the given sample value by removing the bits of the disabled
+   * groups, yielding the sample value as sent by the device.
+   *
+   * @param aSample
+   *          the unpacked sample value to compact.
+   * @return the compacted sample value.
+   */
+  public abstract int compact( int aSample );
+
+  /**
+   * Returns the number of bytes the device sends for each sample.
+   *
+   * @return the number of enabled groups, &gt;= 0.
+   */
+  public final int getBytesPerSample()
+  {
+    return this.bytesPerSample;
+  }
+
+  /**
+   * Unpacks a number of samples from the given raw bytes.
+   *
+   * @param aRaw
+   *          the raw bytes to unpack, in little endian byte order, starting
+   *          at its current position. Its position is advanced past the
+   *          unpacked samples;
+   * @param aSamples
+   *          the array to store the unpacked samples in;
+   * @param aOffset
+   *          the offset in the given array to store the first sample;
+   * @param aCount
+   *          the number of samples to unpack.
+   */
+  public abstract void unpack( ByteBuffer aRaw, int[] aSamples, int aOffset, int aCount );
+
+  /**
+   * Reads a number of samples as sent by the device, that is, without any
+   * gaps for the disabled groups.
+   */
+  final void readPacked( final ByteBuffer aRaw, final int[] aSamples, final int aOffset, final int aCount )
+  {
+    if ( this.bytesPerSample == 4 )
+    {
+      aRaw.asIntBuffer().get( aSamples, aOffset, aCount );
+      aRaw.position( aRaw.position() + ( 4 * aCount ) );
+      return;
+    }
+
+    final byte[] raw;
+    final int start;
+    if ( aRaw.hasArray() )
+    {
+      raw = aRaw.array();
+      start = aRaw.arrayOffset() + aRaw.position();
+      aRaw.position( aRaw.position() + ( this.bytesPerSample * aCount ) );
+    }
+    else
+    {
+      raw = new byte[this.bytesPerSample * aCount];
+      start = 0;
+      aRaw.get( raw );
+    }
+
+    final int end = aOffset + aCount;
+    switch ( this.bytesPerSample )
+    {
+      case 3:
+        for ( int i = aOffset, j = start; i < end; i++, j += 3 )
+        {
+          aSamples[i] = ( raw[j] & 0xff ) | ( ( raw[j + 1] & 0xff ) << 8 ) | ( ( raw[j + 2] & 0xff ) << 16 );
+        }
+        break;
+
+      case 2:
+        for ( int i = aOffset, j = start; i < end; i++, j += 2 )
+        {
+          aSamples[i] = ( raw[j] & 0xff ) | ( ( raw[j + 1] & 0xff ) << 8 );
+        }
+        break;
+
+      case 1:
+        for ( int i = aOffset, j = start; i < end; i++, j++ )
+        {
+          aSamples[i] = raw[j] & 0xff;
+        }
+        break;
+
+      default:
+        for ( int i = aOffset; i < end; i++ )
+        {
+          aSamples[i] = 0;
+        }
+        break;
+    }
+  }
+}
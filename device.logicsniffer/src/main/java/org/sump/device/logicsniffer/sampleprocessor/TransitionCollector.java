@@ -0,0 +1,104 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010 J.W. Janssen, www.lxtreme.nl
+ */
+package org.sump.device.logicsniffer.sampleprocessor;
+
+
+import java.io.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+
+
+/**
+ * Provides a {@link SampleProcessorCallback} that collects all processed
+ * samples in a {@link TransitionBuffer}, avoiding any boxing of sample values
+ * and timestamps.
+ */
+public final class TransitionCollector implements SampleProcessorCallback
+{
+  // VARIABLES
+
+  private final TransitionBuffer buffer;
+
+  private long absoluteLength;
+  private long triggerPosition;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new TransitionCollector instance.
+   *
+   * @param aExpectedTransitions
+   *          the expected number of transitions, used as initial capacity of
+   *          the buffer, > 0.
+   */
+  public TransitionCollector( final int aExpectedTransitions )
+  {
+    this.buffer = new TransitionBuffer( aExpectedTransitions );
+    this.absoluteLength = 0L;
+    this.triggerPosition = Ols.NOT_AVAILABLE;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void addValue( final int aSampleValue, final long aTimestamp )
+  {
+    this.buffer.add( aSampleValue, aTimestamp );
+  }
+
+  /**
+   * Creates the captured data from all collected transitions.
+   *
+   * @param aTriggerEnabled
+   *          <code>true</code> if the trigger position reported by the sample
+   *          processor should be used, <code>false</code> to omit it;
+   * @param aRate
+   *          the sample rate;
+   * @param aChannels
+   *          the number of used channels;
+   * @param aEnabledChannels
+   *          the bit mask identifying the used channels.
+   * @return a new {@link AcquisitionResult} instance, never <code>null</code>.
+   * @throws IOException
+   *           in case the collected transitions could not be spilled to disk.
+   * @see TransitionBuffer#createCapturedData(long, int, int, int, long)
+   */
+  public AcquisitionResult createCapturedData( final boolean aTriggerEnabled, final int aRate, final int aChannels,
+      final int aEnabledChannels ) throws IOException
+  {
+    final long triggerPos = aTriggerEnabled ? this.triggerPosition : Ols.NOT_AVAILABLE;
+    return this.buffer.createCapturedData( triggerPos, aRate, aChannels, aEnabledChannels, this.absoluteLength );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void ready( final long aAbsoluteLength, final long aTriggerPosition )
+  {
+    this.absoluteLength = aAbsoluteLength;
+    this.triggerPosition = aTriggerPosition;
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010 J.W. Janssen, www.lxtreme.nl
+ */
+package org.sump.device.logicsniffer.sampleprocessor;
+
+
+/**
+ * Provides a stack of transitions for sample processors that decode their
+ * samples from the last to the first sample.
+ * <p>
+ * As the absolute time of a transition is only known after all samples are
+ * decoded, the transitions are stored with their time relative to the
+ * <em>end</em> of the capture.
+ * </p>
+ */
+final class TransitionStack
+{
+  // CONSTANTS
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  // VARIABLES
+
+  private int[] values;
+  private long[] timesFromEnd;
+  private int size;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new TransitionStack instance.
+   */
+  public TransitionStack()
+  {
+    this.values = new int[INITIAL_CAPACITY];
+    this.timesFromEnd = new long[INITIAL_CAPACITY];
+    this.size = 0;
+  }
+
+  // METHODS
+
+  /**
+   * Pushes a transition on this stack.
+   *
+   * @param aValue
+   *          the sample value of the transition;
+   * @param aTimeFromEnd
+   *          the time of the transition, relative to the end of the capture.
+   */
+  public void push( final int aValue, final long aTimeFromEnd )
+  {
+    if ( this.size == this.values.length )
+    {
+      final int newCapacity = Math.max( INITIAL_CAPACITY, this.size + ( this.size >> 1 ) );
+
+      final int[] newValues = new int[newCapacity];
+      System.arraycopy( this.values, 0, newValues, 0, this.size );
+      this.values = newValues;
+
+      final long[] newTimes = new long[newCapacity];
+      System.arraycopy( this.timesFromEnd, 0, newTimes, 0, this.size );
+      this.timesFromEnd = newTimes;
+    }
+
+    this.values[this.size] = aValue;
+    this.timesFromEnd[this.size] = aTimeFromEnd;
+    this.size++;
+  }
+
+  /**
+   * Replays all transitions, in chronological order, to the given callback.
+   *
+   * @param aCallback
+   *          the callback to replay the transitions to;
+   * @param aAbsoluteLength
+   *          the absolute length of the capture, used to convert the relative
+   *          times to absolute times.
+   */
+  public void replay( final SampleProcessorCallback aCallback, final long aAbsoluteLength )
+  {
+    for ( int i = this.size - 1; i >= 0; i-- )
+    {
+      aCallback.addValue( this.values[i], aAbsoluteLength - this.timesFromEnd[i] );
+    }
+
+    // Release our memory as soon as possible...
+    this.values = new int[0];
+    this.timesFromEnd = new long[0];
+    this.size = 0;
+  }
+}
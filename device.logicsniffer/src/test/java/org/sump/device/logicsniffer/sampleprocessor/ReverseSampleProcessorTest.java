@@ -0,0 +1,207 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package org.sump.device.logicsniffer.sampleprocessor;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+import org.sump.device.logicsniffer.*;
+
+
+/**
+ * Test cases that verify that the reverse sample processors yield the same
+ * results as their chronological counterparts.
+ */
+public class ReverseSampleProcessorTest
+{
+  // INNER TYPES
+
+  /**
+   * Records all values given to it.
+   */
+  static final class RecordingCallback implements SampleProcessorCallback
+  {
+    final List<Long> transitions = new ArrayList<Long>();
+    long absoluteLength = -1L;
+    long triggerPosition = -1L;
+
+    @Override
+    public void addValue( final int aSampleValue, final long aTimestamp )
+    {
+      this.transitions.add( Long.valueOf( ( ( long )aSampleValue << 32 ) ^ aTimestamp ) );
+    }
+
+    @Override
+    public void ready( final long aAbsoluteLength, final long aTriggerPosition )
+    {
+      this.absoluteLength = aAbsoluteLength;
+      this.triggerPosition = aTriggerPosition;
+    }
+  }
+
+  // CONSTANTS
+
+  private static final int SAMPLE_COUNT = 4096;
+
+  // VARIABLES
+
+  private LogicSnifferConfig config;
+  private Random random;
+
+  // METHODS
+
+  /**
+   * Sets up the test case.
+   */
+  @Before
+  public void setUp() throws Exception
+  {
+    this.config = new LogicSnifferConfig();
+    this.config.setEnabledChannels( 0xFF );
+
+    this.random = new Random( 123L );
+  }
+
+  /**
+   * Tests that the {@link ReverseEqualityFilter} yields the same results as the
+   * {@link EqualityFilter}.
+   */
+  @Test
+  public void testReverseEqualityFilterOk()
+  {
+    final int[] samples = createSamples( false );
+
+    for ( int trigCount : new int[] { 0, 10, SAMPLE_COUNT / 2 } )
+    {
+      final RecordingCallback expected = new RecordingCallback();
+      final RecordingCallback actual = new RecordingCallback();
+
+      processChronologically( samples, new EqualityFilter( this.config, trigCount, expected ) );
+      processReversed( samples, new ReverseEqualityFilter( this.config, trigCount, actual ) );
+
+      assertSameResults( expected, actual );
+    }
+  }
+
+  /**
+   * Tests that the {@link ReverseRleDecoder} yields the same results as the
+   * {@link RleDecoder}.
+   */
+  @Test
+  public void testReverseRleDecoderOk()
+  {
+    final int[] samples = createSamples( true );
+
+    for ( int trigCount : new int[] { 0, 10, SAMPLE_COUNT / 2, SAMPLE_COUNT } )
+    {
+      final RecordingCallback expected = new RecordingCallback();
+      final RecordingCallback actual = new RecordingCallback();
+
+      processChronologically( samples, new RleDecoder( this.config, SAMPLE_COUNT, trigCount, expected ) );
+      processReversed( samples, new ReverseRleDecoder( this.config, SAMPLE_COUNT, trigCount, actual ) );
+
+      assertSameResults( expected, actual );
+    }
+  }
+
+  /**
+   * Tests that the {@link ReversingSampleBuffer} yields the same results as
+   * decoding the samples chronologically.
+   */
+  @Test
+  public void testReversingSampleBufferOk()
+  {
+    final int[] samples = createSamples( true );
+
+    final RecordingCallback expected = new RecordingCallback();
+    final RecordingCallback actual = new RecordingCallback();
+
+    processChronologically( samples, new RleDecoder( this.config, SAMPLE_COUNT, 10, expected ) );
+    processReversed( samples, new ReversingSampleBuffer( SAMPLE_COUNT, new RleDecoder( this.config, SAMPLE_COUNT,
+        10, actual ) ) );
+
+    assertSameResults( expected, actual );
+  }
+
+  /**
+   * Asserts the given callbacks received the same results.
+   */
+  private void assertSameResults( final RecordingCallback aExpected, final RecordingCallback aActual )
+  {
+    assertEquals( aExpected.transitions, aActual.transitions );
+    assertEquals( aExpected.absoluteLength, aActual.absoluteLength );
+    assertEquals( aExpected.triggerPosition, aActual.triggerPosition );
+  }
+
+  /**
+   * Creates random 8-bit samples, optionally with RLE-counts.
+   */
+  private int[] createSamples( final boolean aIncludeCounts )
+  {
+    final int[] result = new int[SAMPLE_COUNT];
+    for ( int i = 0; i < result.length; i++ )
+    {
+      if ( aIncludeCounts && this.random.nextBoolean() )
+      {
+        result[i] = 0x80 | this.random.nextInt( 0x80 );
+      }
+      else
+      {
+        // Use only a few distinct values to get runs of equal samples...
+        result[i] = this.random.nextInt( 4 );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Offers the given samples at once in chronological order.
+   */
+  private void processChronologically( final int[] aSamples, final SampleProcessor aProcessor )
+  {
+    aProcessor.process( aSamples, 0, aSamples.length );
+    aProcessor.finish();
+  }
+
+  /**
+   * Offers the given samples in chunks of varying size in reverse order.
+   */
+  private void processReversed( final int[] aSamples, final SampleProcessor aProcessor )
+  {
+    final int[] reversed = new int[aSamples.length];
+    for ( int i = 0; i < aSamples.length; i++ )
+    {
+      reversed[i] = aSamples[aSamples.length - 1 - i];
+    }
+
+    int offset = 0;
+    while ( offset < reversed.length )
+    {
+      final int length = Math.min( reversed.length - offset, 1 + this.random.nextInt( 100 ) );
+      aProcessor.process( reversed, offset, length );
+      offset += length;
+    }
+    aProcessor.finish();
+  }
+}
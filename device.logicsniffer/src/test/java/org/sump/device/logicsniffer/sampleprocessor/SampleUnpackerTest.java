@@ -0,0 +1,128 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package org.sump.device.logicsniffer.sampleprocessor;
+
+
+import static org.junit.Assert.*;
+
+import java.nio.*;
+import java.util.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link SampleUnpacker}.
+ */
+public class SampleUnpackerTest
+{
+  // CONSTANTS
+
+  private static final int SAMPLE_COUNT = 1001;
+
+  // METHODS
+
+  /**
+   * Tests that compacting an unpacked sample yields the original sample for
+   * all combinations of enabled groups.
+   */
+  @Test
+  public void testCompactOk() throws Exception
+  {
+    final Random rnd = new Random( 1234L );
+
+    for ( int mask = 0; mask < 16; mask++ )
+    {
+      final SampleUnpacker unpacker = SampleUnpacker.create( mask );
+
+      for ( int i = 0; i < SAMPLE_COUNT; i++ )
+      {
+        final int sample = rnd.nextInt();
+        assertEquals( "Mask: " + mask, compact( mask, sample ), unpacker.compact( sample ) );
+      }
+    }
+  }
+
+  /**
+   * Tests that an invalid group mask is not accepted.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testCreateInvalidMaskFail() throws Exception
+  {
+    SampleUnpacker.create( 0x10 );
+  }
+
+  /**
+   * Tests that unpacking raw bytes yields the same samples as placing each byte
+   * at the position of its group, for all combinations of enabled groups.
+   */
+  @Test
+  public void testUnpackOk() throws Exception
+  {
+    final Random rnd = new Random( 1234L );
+
+    for ( int mask = 0; mask < 16; mask++ )
+    {
+      final SampleUnpacker unpacker = SampleUnpacker.create( mask );
+      final int groupCount = Integer.bitCount( mask );
+      assertEquals( groupCount, unpacker.getBytesPerSample() );
+
+      final byte[] raw = new byte[groupCount * SAMPLE_COUNT];
+      rnd.nextBytes( raw );
+
+      // Unpack at an odd offset in two parts, to verify the position handling...
+      final int[] samples = new int[SAMPLE_COUNT + 3];
+      final ByteBuffer buffer = ByteBuffer.wrap( raw ).order( ByteOrder.LITTLE_ENDIAN );
+      unpacker.unpack( buffer, samples, 3, 500 );
+      unpacker.unpack( buffer, samples, 503, SAMPLE_COUNT - 500 );
+      assertFalse( buffer.hasRemaining() );
+
+      for ( int i = 0, j = 0; i < SAMPLE_COUNT; i++ )
+      {
+        int expected = 0;
+        for ( int g = 0; g < 4; g++ )
+        {
+          if ( ( mask & ( 1 << g ) ) != 0 )
+          {
+            expected |= ( raw[j++] & 0xff ) << ( 8 * g );
+          }
+        }
+        assertEquals( "Mask: " + mask + ", sample: " + i, expected, samples[i + 3] );
+      }
+    }
+  }
+
+  /**
+   * Compacts the given sample one group at a time.
+   */
+  private static int compact( final int aMask, final int aSample )
+  {
+    int result = 0;
+    for ( int g = 0, i = 0; g < 4; g++ )
+    {
+      if ( ( aMask & ( 1 << g ) ) != 0 )
+      {
+        result |= ( ( aSample >>> ( 8 * g ) ) & 0xff ) << ( 8 * i++ );
+      }
+    }
+    return result;
+  }
+}
@@ -22,33 +22,86 @@ package nl.lxtreme.ols.export.csv;
 
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import javax.swing.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.Channel;
 import nl.lxtreme.ols.api.data.export.*;
 
 
 /**
  * Provides a CSV exporter for exporting the acquisition data in a
  * comma-separated format.
+ * <p>
+ * Large captures are formatted in chunks on multiple threads, while the
+ * formatted chunks are written in order on the calling thread.
+ * </p>
  */
 public class CsvExporter implements Exporter
 {
+  // INNER TYPES
+
+  /**
+   * Denotes how the channel values are written.
+   */
+  public static enum ColumnFormat
+  {
+    /** Writes one column per channel, holding either 0 or 1. */
+    PER_CHANNEL,
+    /** Writes a single column holding all channels as hexadecimal value. */
+    PACKED_HEX;
+  }
+
+  // CONSTANTS
+
+  /** The number of rows formatted at once. */
+  static final int CHUNK_SIZE = 8192;
+
+  /** The number of formatted chunks that may wait for being written, per thread. */
+  private static final int PENDING_CHUNKS_PER_THREAD = 2;
+
   // VARIABLES
 
   private final char colSeparator;
+  private final ColumnFormat columnFormat;
+  private final boolean cursorWindowOnly;
 
   // CONSTRUCTORS
 
   /**
-   * Creates a new {@link CsvExporter} instance.
+   * Creates a new {@link CsvExporter} instance, exporting all samples with one
+   * column per channel.
    */
   public CsvExporter()
   {
+    this( ColumnFormat.PER_CHANNEL, false /* aCursorWindowOnly */);
+  }
+
+  /**
+   * Creates a new {@link CsvExporter} instance.
+   * 
+   * @param aColumnFormat
+   *          the format of the channel columns, cannot be <code>null</code>;
+   * @param aCursorWindowOnly
+   *          <code>true</code> to only export the samples between the first
+   *          two cursors, if both are set, <code>false</code> to export all
+   *          samples.
+   */
+  public CsvExporter( final ColumnFormat aColumnFormat, final boolean aCursorWindowOnly )
+  {
+    if ( aColumnFormat == null )
+    {
+      throw new IllegalArgumentException( "Column format cannot be null!" );
+    }
     this.colSeparator = ',';
+    this.columnFormat = aColumnFormat;
+    this.cursorWindowOnly = aCursorWindowOnly;
   }
 
   // METHODS
@@ -60,32 +113,57 @@ public class CsvExporter implements Exporter
   public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream )
       throws IOException
   {
-    final PrintStream stream = new PrintStream( aStream );
-
-    try
+    final WritableByteChannel channel;
+    if ( aStream instanceof FileOutputStream )
+    {
+      channel = ( ( FileOutputStream )aStream ).getChannel();
+    }
+    else
     {
-      // Write header row...
-      writeHeaderRow( stream, createHeaderRowValues( aDataSet ) );
+      channel = Channels.newChannel( aStream );
+    }
+
+    final AcquisitionResult capturedData = aDataSet.getCapturedData();
+    final CsvRowFormatter formatter = new CsvRowFormatter( this.colSeparator, this.columnFormat, capturedData,
+        aDataSet.getChannels() );
 
-      final Channel[] channels = aDataSet.getChannels();
+    // Write header row...
+    writeFully( channel, ByteBuffer.wrap( createHeaderRow( aDataSet ).getBytes() ) );
 
-      final AcquisitionResult capturedData = aDataSet.getCapturedData();
-      final int sampleRate = capturedData.getSampleRate();
-      final int[] values = capturedData.getValues();
-      final long[] timestamps = capturedData.getTimestamps();
-      final long triggerPos = capturedData.getTriggerPosition();
+    int startIdx = 0;
+    int endIdx = capturedData.getSampleCount();
+    if ( this.cursorWindowOnly && aDataSet.isCursorsEnabled() )
+    {
+      final Cursor cursor1 = aDataSet.getCursor( 0 );
+      final Cursor cursor2 = aDataSet.getCursor( 1 );
+      if ( cursor1.isDefined() && cursor2.isDefined() )
+      {
+        final long startTime = Math.min( cursor1.getTimestamp(), cursor2.getTimestamp() );
+        final long endTime = Math.max( cursor1.getTimestamp(), cursor2.getTimestamp() );
 
-      // Write data...
-      for ( int i = 0; i < values.length; i++ )
+        // Include the sample that holds the state at the start of the window...
+        startIdx = Math.max( 0, findSample( capturedData, startTime ) );
+        endIdx = findSample( capturedData, endTime ) + 1;
+      }
+    }
+
+    // Write data...
+    final int threadCount = Math.min( Runtime.getRuntime().availableProcessors(),
+        ( endIdx - startIdx + CHUNK_SIZE - 1 ) / CHUNK_SIZE );
+    if ( threadCount < 2 )
+    {
+      for ( int i = startIdx; i < endIdx; i += CHUNK_SIZE )
       {
-        // Write data row...
-        writeDataRow( stream, timestamps[i], triggerPos, sampleRate, values[i], channels );
+        writeFully( channel, formatter.format( capturedData, i, Math.min( endIdx, i + CHUNK_SIZE ) ) );
       }
     }
-    finally
+    else
     {
-      stream.flush();
+      writeInParallel( channel, formatter, capturedData, startIdx, endIdx, threadCount );
     }
+
+    // Make sure callers wrapping the stream get all data...
+    aStream.flush();
   }
 
   /**
@@ -103,6 +181,18 @@ public class CsvExporter implements Exporter
   @Override
   public String getName()
   {
+    if ( ( this.columnFormat == ColumnFormat.PACKED_HEX ) && this.cursorWindowOnly )
+    {
+      return "CSV File (hex, between cursors)";
+    }
+    else if ( this.columnFormat == ColumnFormat.PACKED_HEX )
+    {
+      return "CSV File (hex)";
+    }
+    else if ( this.cursorWindowOnly )
+    {
+      return "CSV File (between cursors)";
+    }
     return "CSV File";
   }
 
@@ -125,6 +215,28 @@ public class CsvExporter implements Exporter
     }
   }
 
+  /**
+   * @param aDataSet
+   * @return the header row, including its line separator.
+   */
+  private String createHeaderRow( final DataSet aDataSet )
+  {
+    final String[] headers = createHeaderRowValues( aDataSet );
+
+    final StringBuilder sb = new StringBuilder();
+    for ( int i = 0; i < headers.length; i++ )
+    {
+      if ( i > 0 )
+      {
+        sb.append( this.colSeparator );
+      }
+      sb.append( quote( headers[i] ) );
+    }
+    sb.append( System.getProperty( "line.separator", "\n" ) );
+
+    return sb.toString();
+  }
+
   /**
    * @param aDataSet
    * @return
@@ -164,11 +276,43 @@ public class CsvExporter implements Exporter
       result.add( "sample rate (Hz)" );
     }
 
-    createChannelHeaders( result, channels );
+    if ( this.columnFormat == ColumnFormat.PACKED_HEX )
+    {
+      result.add( "value (hex)" );
+    }
+    else
+    {
+      createChannelHeaders( result, channels );
+    }
 
     return result.toArray( new String[result.size()] );
   }
 
+  /**
+   * Finds the last sample at or before the given time.
+   * 
+   * @return the index of the found sample, or -1 if all samples are after the
+   *         given time.
+   */
+  private static int findSample( final AcquisitionResult aCapturedData, final long aTime )
+  {
+    int low = 0;
+    int high = aCapturedData.getSampleCount() - 1;
+    while ( low <= high )
+    {
+      final int mid = ( low + high ) >>> 1;
+      if ( aCapturedData.getTimestamp( mid ) <= aTime )
+      {
+        low = mid + 1;
+      }
+      else
+      {
+        high = mid - 1;
+      }
+    }
+    return high;
+  }
+
   /**
    * @param aValue
    * @return
@@ -179,65 +323,77 @@ public class CsvExporter implements Exporter
   }
 
   /**
-   * @param aStream
-   *          the output stream to write the data values to;
-   * @param aAbsTime
-   * @param aTriggerPos
-   * @param aValue
-   * @param aChannels
-   * @throws IOException
-   *           in case of I/O problems.
+   * Writes all remaining bytes of the given buffer to the given channel.
    */
-  private void writeDataRow( final PrintStream aStream, final long aAbsTime, final long aTriggerPos,
-      final int aSampleRate, final int aValue, final Channel[] aChannels ) throws IOException
+  private static void writeFully( final WritableByteChannel aChannel, final ByteBuffer aBuffer ) throws IOException
   {
-    aStream.print( aAbsTime );
-
-    if ( aTriggerPos > 0 )
+    while ( aBuffer.hasRemaining() )
     {
-      aStream.print( this.colSeparator );
-      aStream.print( aAbsTime - aTriggerPos );
+      aChannel.write( aBuffer );
     }
-    if ( aSampleRate > 0 )
-    {
-      aStream.print( this.colSeparator );
-      aStream.print( aSampleRate );
-    }
-
-    if ( aChannels != null )
-    {
-      int l = aChannels.length;
-      for ( int i = 0; i < l; i++ )
-      {
-        Channel channel = aChannels[l - i - 1];
-        int v = ( aValue & channel.getMask() ) >> channel.getIndex();
-        aStream.print( this.colSeparator );
-        aStream.print( v );
-      }
-    }
-
-    aStream.println();
   }
 
   /**
-   * @param aStream
-   *          the output stream to write the headers to;
-   * @param aHeaders
-   *          the header values to write.
+   * Formats the given range of samples in chunks on multiple threads, and
+   * writes the formatted chunks in order to the given channel.
+   * 
    * @throws IOException
    *           in case of I/O problems.
    */
-  private void writeHeaderRow( final PrintStream aStream, final String[] aHeaders ) throws IOException
+  private void writeInParallel( final WritableByteChannel aChannel, final CsvRowFormatter aFormatter,
+      final AcquisitionResult aCapturedData, final int aStartIdx, final int aEndIdx, final int aThreadCount )
+      throws IOException
   {
-    for ( int i = 0; i < aHeaders.length; i++ )
+    final int maxPending = PENDING_CHUNKS_PER_THREAD * aThreadCount;
+    final LinkedList<Future<ByteBuffer>> pending = new LinkedList<Future<ByteBuffer>>();
+
+    final ExecutorService executor = Executors.newFixedThreadPool( aThreadCount );
+    try
     {
-      if ( i > 0 )
+      int nextIdx = aStartIdx;
+      while ( ( nextIdx < aEndIdx ) || !pending.isEmpty() )
       {
-        aStream.print( this.colSeparator );
+        // Keep all threads busy, without formatting too far ahead of the
+        // writes...
+        while ( ( nextIdx < aEndIdx ) && ( pending.size() < maxPending ) )
+        {
+          final int chunkStartIdx = nextIdx;
+          final int chunkEndIdx = Math.min( aEndIdx, nextIdx + CHUNK_SIZE );
+          pending.addLast( executor.submit( new Callable<ByteBuffer>()
+          {
+            @Override
+            public ByteBuffer call() throws Exception
+            {
+              return aFormatter.format( aCapturedData, chunkStartIdx, chunkEndIdx );
+            }
+          } ) );
+          nextIdx = chunkEndIdx;
+        }
+
+        writeFully( aChannel, pending.removeFirst().get() );
       }
-      aStream.print( quote( aHeaders[i] ) );
     }
-
-    aStream.println();
+    catch ( InterruptedException exception )
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Export interrupted!" );
+    }
+    catch ( ExecutionException exception )
+    {
+      final Throwable cause = exception.getCause();
+      if ( cause instanceof IOException )
+      {
+        throw ( IOException )cause;
+      }
+      if ( cause instanceof Error )
+      {
+        throw ( Error )cause;
+      }
+      throw new IOException( "Failed to format CSV data!", cause );
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
   }
 }
@@ -0,0 +1,260 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2012 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.csv;
+
+
+import java.nio.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.export.csv.CsvExporter.ColumnFormat;
+
+
+/**
+ * Formats the data rows of a CSV export directly into bytes.
+ * <p>
+ * All column layout is determined once, upon construction. Formatting a range
+ * of samples does not change the state of a formatter, so a single formatter
+ * can be used to format multiple ranges concurrently.
+ * </p>
+ */
+final class CsvRowFormatter
+{
+  // CONSTANTS
+
+  private static final byte[] HEX_DIGITS = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D',
+      'E', 'F' };
+  /** The maximum length of a formatted long value, including its sign. */
+  private static final int MAX_LONG_LENGTH = 20;
+  /** The number of samples read at once. */
+  private static final int READ_SIZE = 256;
+
+  // VARIABLES
+
+  private final byte separator;
+  private final byte[] lineSeparator;
+  private final long triggerPos;
+  private final byte[] sampleRate;
+  private final ColumnFormat columnFormat;
+  private final int[] channelShifts;
+  private final int hexDigits;
+  private final int maxRowLength;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link CsvRowFormatter} instance.
+   *
+   * @param aSeparator
+   *          the column separator to use;
+   * @param aColumnFormat
+   *          the format of the channel columns, cannot be <code>null</code>;
+   * @param aCapturedData
+   *          the captured data that is to be formatted, cannot be
+   *          <code>null</code>;
+   * @param aChannels
+   *          the channels to write, cannot be <code>null</code>.
+   */
+  CsvRowFormatter( final char aSeparator, final ColumnFormat aColumnFormat, final AcquisitionResult aCapturedData,
+      final Channel[] aChannels )
+  {
+    this.separator = ( byte )aSeparator;
+    this.columnFormat = aColumnFormat;
+    this.triggerPos = aCapturedData.getTriggerPosition();
+
+    // Use the same line separator as PrintStream#println would...
+    final String lineSeparator = System.getProperty( "line.separator", "\n" );
+    this.lineSeparator = toBytes( lineSeparator );
+
+    final int rate = aCapturedData.getSampleRate();
+    this.sampleRate = ( rate > 0 ) ? toBytes( Integer.toString( rate ) ) : null;
+
+    // Channels are listed in "inverse" order, MSB first...
+    this.channelShifts = new int[aChannels.length];
+    for ( int i = 0; i < aChannels.length; i++ )
+    {
+      this.channelShifts[i] = aChannels[aChannels.length - i - 1].getIndex();
+    }
+    this.hexDigits = Math.max( 1, ( aChannels.length + 3 ) / 4 );
+
+    int maxLength = MAX_LONG_LENGTH + this.lineSeparator.length;
+    if ( hasRelativeTime() )
+    {
+      maxLength += 1 + MAX_LONG_LENGTH;
+    }
+    if ( this.sampleRate != null )
+    {
+      maxLength += 1 + this.sampleRate.length;
+    }
+    if ( aColumnFormat == ColumnFormat.PACKED_HEX )
+    {
+      maxLength += 1 + this.hexDigits;
+    }
+    else
+    {
+      maxLength += 2 * this.channelShifts.length;
+    }
+    this.maxRowLength = maxLength;
+  }
+
+  // METHODS
+
+  /**
+   * Formats a range of samples, one row per sample.
+   * <p>
+   * The samples are read in bulk, so concurrent formatters do not contend on
+   * reading the captured data sample by sample.
+   * </p>
+   *
+   * @param aCapturedData
+   *          the captured data to format, cannot be <code>null</code>;
+   * @param aStartIndex
+   *          the index of the first sample to format, inclusive;
+   * @param aEndIndex
+   *          the index of the last sample to format, exclusive.
+   * @return a buffer with the formatted rows, ready to be written, never
+   *         <code>null</code>.
+   */
+  ByteBuffer format( final AcquisitionResult aCapturedData, final int aStartIndex, final int aEndIndex )
+  {
+    final int[] values = new int[READ_SIZE];
+    final long[] timestamps = new long[READ_SIZE];
+
+    final byte[] buffer = new byte[( aEndIndex - aStartIndex ) * this.maxRowLength];
+    final byte[] digits = new byte[MAX_LONG_LENGTH];
+    final boolean relativeTime = hasRelativeTime();
+
+    int pos = 0;
+    int readIdx = READ_SIZE;
+    for ( int i = aStartIndex; i < aEndIndex; i++ )
+    {
+      if ( readIdx == READ_SIZE )
+      {
+        aCapturedData.getSamples( i, Math.min( aEndIndex, i + READ_SIZE ), values, timestamps );
+        readIdx = 0;
+      }
+
+      final long timestamp = timestamps[readIdx];
+      final int value = values[readIdx++];
+
+      pos = writeLong( buffer, pos, timestamp, digits );
+      if ( relativeTime )
+      {
+        buffer[pos++] = this.separator;
+        pos = writeLong( buffer, pos, timestamp - this.triggerPos, digits );
+      }
+      if ( this.sampleRate != null )
+      {
+        buffer[pos++] = this.separator;
+        pos = writeBytes( buffer, pos, this.sampleRate );
+      }
+
+      if ( this.columnFormat == ColumnFormat.PACKED_HEX )
+      {
+        buffer[pos++] = this.separator;
+        for ( int shift = 4 * ( this.hexDigits - 1 ); shift >= 0; shift -= 4 )
+        {
+          buffer[pos++] = HEX_DIGITS[( value >>> shift ) & 0x0F];
+        }
+      }
+      else
+      {
+        for ( int shift : this.channelShifts )
+        {
+          buffer[pos++] = this.separator;
+          buffer[pos++] = ( byte )( '0' + ( ( value >>> shift ) & 1 ) );
+        }
+      }
+
+      pos = writeBytes( buffer, pos, this.lineSeparator );
+    }
+
+    return ByteBuffer.wrap( buffer, 0, pos );
+  }
+
+  /**
+   * Returns whether rows contain the time relative to the trigger.
+   *
+   * @return <code>true</code> if a relative time column is written,
+   *         <code>false</code> otherwise.
+   */
+  boolean hasRelativeTime()
+  {
+    return this.triggerPos > 0;
+  }
+
+  /**
+   * Converts a string of ASCII characters to bytes.
+   */
+  private static byte[] toBytes( final String aValue )
+  {
+    final byte[] result = new byte[aValue.length()];
+    for ( int i = 0; i < result.length; i++ )
+    {
+      result[i] = ( byte )aValue.charAt( i );
+    }
+    return result;
+  }
+
+  /**
+   * Copies the given bytes into the given buffer.
+   *
+   * @return the position directly after the written bytes.
+   */
+  private static int writeBytes( final byte[] aBuffer, final int aPos, final byte[] aBytes )
+  {
+    System.arraycopy( aBytes, 0, aBuffer, aPos, aBytes.length );
+    return aPos + aBytes.length;
+  }
+
+  /**
+   * Writes the given value as decimal number into the given buffer.
+   *
+   * @return the position directly after the written number.
+   */
+  private static int writeLong( final byte[] aBuffer, final int aPos, final long aValue, final byte[] aDigits )
+  {
+    int pos = aPos;
+    // Work with negative values, as not all negative values can be negated...
+    long value = aValue;
+    if ( value < 0 )
+    {
+      aBuffer[pos++] = '-';
+    }
+    else
+    {
+      value = -value;
+    }
+
+    int count = 0;
+    do
+    {
+      aDigits[count++] = ( byte )( '0' - ( value % 10 ) );
+      value /= 10;
+    }
+    while ( value != 0 );
+
+    while ( count > 0 )
+    {
+      aBuffer[pos++] = aDigits[--count];
+    }
+    return pos;
+  }
+}
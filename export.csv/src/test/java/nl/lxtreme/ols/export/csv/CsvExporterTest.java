@@ -70,6 +70,108 @@ public class CsvExporterTest
     this.separator = System.getProperty( "line.separator", "\n" );
   }
 
+  /**
+   * Test method for
+   * {@link CsvExporter#export(DataSet, JComponent, OutputStream)}.
+   * <p>
+   * Tests that only the samples between the first two cursors are exported in
+   * the time-window mode, including the sample holding the state at the start
+   * of the window.
+   * </p>
+   */
+  @Test
+  public void testExportCursorWindowOnlyOk() throws Exception
+  {
+    final StubDataSet dataSet = createTestDataSet( CHANNEL_COUNT, 10, SAMPLE_RATE, -1 );
+    dataSet.setCursorsEnabled( true );
+    // Cursors can be placed in any order...
+    dataSet.getCursor( 0 ).setTimestamp( 6L );
+    dataSet.getCursor( 1 ).setTimestamp( 3L );
+
+    this.exporter = new CsvExporter( CsvExporter.ColumnFormat.PER_CHANNEL, true /* aCursorWindowOnly */);
+    this.exporter.export( dataSet, this.component, this.outputStream );
+
+    String[] results = getCsvData();
+    assertCsvDimensions( results, 1 /* header */+ 4, 2 /* time + samplerate */+ CHANNEL_COUNT );
+    assertEquals( "3,100000,0,0,1,1", results[1] );
+    assertEquals( "6,100000,0,1,1,0", results[4] );
+  }
+
+  /**
+   * Test method for
+   * {@link CsvExporter#export(DataSet, JComponent, OutputStream)}.
+   * <p>
+   * Tests that all data is flushed to the given stream, even if the caller
+   * wraps it in a buffered stream that is not closed.
+   * </p>
+   */
+  @Test
+  public void testExportFlushesStreamOk() throws Exception
+  {
+    final int dataSize = 10;
+
+    final DataSet dataSet = createTestDataSet( CHANNEL_COUNT, dataSize, SAMPLE_RATE, 0 );
+
+    this.exporter.export( dataSet, this.component, new BufferedOutputStream( this.outputStream, 64 * 1024 ) );
+
+    String[] results = getCsvData();
+    assertCsvDimensions( results, 1 /* header */+ dataSize, 2 /* time + samplerate */+ CHANNEL_COUNT );
+  }
+
+  /**
+   * Test method for
+   * {@link CsvExporter#export(DataSet, JComponent, OutputStream)}.
+   * <p>
+   * Tests that a data set larger than a single chunk is exported completely
+   * and in order.
+   * </p>
+   */
+  @Test
+  public void testExportLargeDataSetOk() throws Exception
+  {
+    final int dataSize = ( 10 * CsvExporter.CHUNK_SIZE ) + 17;
+
+    final DataSet dataSet = createTestDataSet( CHANNEL_COUNT, dataSize, SAMPLE_RATE, 10 );
+
+    this.exporter.export( dataSet, this.component, this.outputStream );
+
+    String[] results = getCsvData();
+    assertCsvDimensions( results, 1 /* header */+ dataSize, 3 /* time abs, time rel & sample rate */
+        + CHANNEL_COUNT );
+    for ( int i = 0; i < dataSize; i++ )
+    {
+      final String[] cols = getCsvCols( results[i + 1] );
+      assertEquals( Integer.toString( i ), cols[0] );
+      assertEquals( Integer.toString( i - 10 ), cols[1] );
+    }
+    assertEquals( "5,-5,100000,0,1,0,1", results[6] );
+  }
+
+  /**
+   * Test method for
+   * {@link CsvExporter#export(DataSet, JComponent, OutputStream)}.
+   * <p>
+   * Tests that all channels are exported as a single hexadecimal column in the
+   * packed-hex mode.
+   * </p>
+   */
+  @Test
+  public void testExportPackedHexOk() throws Exception
+  {
+    final int dataSize = 16;
+
+    final DataSet dataSet = createTestDataSet( CHANNEL_COUNT, dataSize, SAMPLE_RATE, -1 );
+
+    this.exporter = new CsvExporter( CsvExporter.ColumnFormat.PACKED_HEX, false /* aCursorWindowOnly */);
+    this.exporter.export( dataSet, this.component, this.outputStream );
+
+    String[] results = getCsvData();
+    assertCsvDimensions( results, 1 /* header */+ dataSize, 2 /* time + samplerate */+ 1 /* value */);
+    assertEquals( "\"timestamp (abs)\",\"sample rate (Hz)\",\"value (hex)\"", results[0] );
+    assertEquals( "10,100000,A", results[11] );
+    assertEquals( "15,100000,F", results[16] );
+  }
+
   /**
    * Test method for
    * {@link CsvExporter#export(DataSet, JComponent, OutputStream)}.
@@ -182,6 +284,25 @@ public class CsvExporterTest
     assertCsvDimensions( results, expectedRows, expectedCols );
   }
 
+  /**
+   * Test method for {@link CsvExporter#getName()}.
+   * <p>
+   * Tests that all variants of the exporter have a unique name, as exporters
+   * are registered by their name.
+   * </p>
+   */
+  @Test
+  public void testVariantNamesAreUniqueOk()
+  {
+    final Set<String> names = new HashSet<String>();
+    for ( CsvExporter.ColumnFormat format : CsvExporter.ColumnFormat.values() )
+    {
+      assertTrue( names.add( new CsvExporter( format, false /* aCursorWindowOnly */).getName() ) );
+      assertTrue( names.add( new CsvExporter( format, true /* aCursorWindowOnly */).getName() ) );
+    }
+    assertTrue( names.contains( new CsvExporter().getName() ) );
+  }
+
   /**
    * @param aCsvData
    * @param aExpectedRows
@@ -201,7 +322,7 @@ public class CsvExporterTest
    * @param aChannelCount
    * @return
    */
-  private DataSet createTestDataSet( final int aChannelCount, final int aSize, final int aSampleRate,
+  private StubDataSet createTestDataSet( final int aChannelCount, final int aSize, final int aSampleRate,
       final long aTriggerPos )
   {
     List<Integer> values = new ArrayList<Integer>( aSize );
@@ -0,0 +1,351 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.vcd;
+
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+
+/**
+ * Provides an output stream that compresses its data in GZIP format on a
+ * separate thread, so writing and compressing the data can overlap.
+ * <p>
+ * The written data is collected in a small, fixed pool of chunks, which are
+ * handed to the compression thread once full, and returned to the pool once
+ * compressed. Hence, writing does not allocate anything.
+ * </p>
+ * <p>
+ * Closing this stream finishes the compressed data, but does <em>not</em> close
+ * the underlying stream.
+ * </p>
+ */
+final class AsyncGzipOutputStream extends OutputStream
+{
+  // INNER TYPES
+
+  /**
+   * Provides a chunk of written data.
+   */
+  static final class Chunk
+  {
+    // VARIABLES
+
+    final byte[] data;
+    int length;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new Chunk instance.
+     */
+    Chunk( final int aSize )
+    {
+      this.data = new byte[aSize];
+    }
+  }
+
+  /**
+   * Provides a thread factory for the compression thread, which should never
+   * keep the VM alive, not even if the stream is never closed.
+   */
+  static final class CompressorThreadFactory implements ThreadFactory
+  {
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Thread newThread( final Runnable aRunnable )
+    {
+      final Thread result = new Thread( aRunnable, THREAD_NAME );
+      result.setDaemon( true );
+      return result;
+    }
+  }
+
+  // CONSTANTS
+
+  /** The name of the compression thread. */
+  static final String THREAD_NAME = "VcdGzipCompressor";
+
+  /** The maximum number of written chunks waiting to be compressed. */
+  private static final int MAX_PENDING_CHUNKS = 4;
+  /** The size of a single chunk, in bytes. */
+  static final int CHUNK_SIZE = 64 * 1024;
+  /** Denotes the end of the written data. */
+  private static final Chunk END_OF_DATA = new Chunk( 0 );
+
+  // VARIABLES
+
+  private final BlockingQueue<Chunk> chunks;
+  private final BlockingQueue<Chunk> freeChunks;
+  private final ExecutorService executor;
+  private final Future<Void> result;
+
+  private Chunk current;
+  private boolean closed;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link AsyncGzipOutputStream} instance.
+   * 
+   * @param aStream
+   *          the stream to write the compressed data to, cannot be
+   *          <code>null</code>.
+   */
+  AsyncGzipOutputStream( final OutputStream aStream )
+  {
+    // One chunk more is being compressed, and one more is being written...
+    final int poolSize = MAX_PENDING_CHUNKS + 2;
+
+    this.chunks = new ArrayBlockingQueue<Chunk>( poolSize + 1 );
+    this.freeChunks = new ArrayBlockingQueue<Chunk>( poolSize );
+    for ( int i = 0; i < poolSize; i++ )
+    {
+      this.freeChunks.add( new Chunk( CHUNK_SIZE ) );
+    }
+
+    this.executor = Executors.newSingleThreadExecutor( new CompressorThreadFactory() );
+    this.result = this.executor.submit( new Callable<Void>()
+    {
+      @Override
+      public Void call() throws Exception
+      {
+        compress( aStream );
+        return null;
+      }
+    } );
+  }
+
+  // METHODS
+
+  /**
+   * Finishes the compressed data and waits until all of it is written to the
+   * underlying stream.
+   * 
+   * @throws IOException
+   *           in case of I/O problems while compressing.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    if ( this.closed )
+    {
+      return;
+    }
+    this.closed = true;
+
+    try
+    {
+      flush();
+      enqueue( END_OF_DATA );
+      awaitResult();
+    }
+    finally
+    {
+      this.executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Hands the data written so far to the compression thread. Note that this
+   * does <em>not</em> flush the compressed data to the underlying stream.
+   */
+  @Override
+  public void flush() throws IOException
+  {
+    final Chunk chunk = this.current;
+    if ( ( chunk != null ) && ( chunk.length > 0 ) )
+    {
+      this.current = null;
+      enqueue( chunk );
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write( final byte[] aBuffer, final int aOffset, final int aLength ) throws IOException
+  {
+    if ( this.closed )
+    {
+      throw new IOException( "Stream already closed!" );
+    }
+
+    int offset = aOffset;
+    int remaining = aLength;
+    while ( remaining > 0 )
+    {
+      // Copy the data, as the caller is free to reuse its buffer...
+      final Chunk chunk = getCurrentChunk();
+      final int count = Math.min( remaining, chunk.data.length - chunk.length );
+      System.arraycopy( aBuffer, offset, chunk.data, chunk.length, count );
+      chunk.length += count;
+
+      offset += count;
+      remaining -= count;
+
+      if ( chunk.length == chunk.data.length )
+      {
+        this.current = null;
+        enqueue( chunk );
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write( final int aByte ) throws IOException
+  {
+    if ( this.closed )
+    {
+      throw new IOException( "Stream already closed!" );
+    }
+
+    final Chunk chunk = getCurrentChunk();
+    chunk.data[chunk.length++] = ( byte )aByte;
+
+    if ( chunk.length == chunk.data.length )
+    {
+      this.current = null;
+      enqueue( chunk );
+    }
+  }
+
+  /**
+   * Compresses all chunks until the end of the data is reached.
+   */
+  final void compress( final OutputStream aStream ) throws IOException, InterruptedException
+  {
+    final GZIPOutputStream gzip = new GZIPOutputStream( aStream, ValueChangeDumpWriter.BUFFER_SIZE )
+    {
+      {
+        // Value change dumps are very repetitive, so the fastest compression
+        // level already compresses them well...
+        this.def.setLevel( Deflater.BEST_SPEED );
+      }
+    };
+
+    Chunk chunk;
+    while ( ( chunk = this.chunks.take() ) != END_OF_DATA )
+    {
+      gzip.write( chunk.data, 0, chunk.length );
+
+      // Return the chunk to the pool, so it can be written again...
+      chunk.length = 0;
+      this.freeChunks.add( chunk );
+    }
+
+    gzip.finish();
+    gzip.flush();
+  }
+
+  /**
+   * Waits until the compression is finished, rethrowing any problem it had.
+   */
+  private void awaitResult() throws IOException
+  {
+    try
+    {
+      this.result.get();
+    }
+    catch ( InterruptedException exception )
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while compressing!" );
+    }
+    catch ( ExecutionException exception )
+    {
+      final Throwable cause = exception.getCause();
+      if ( cause instanceof IOException )
+      {
+        throw ( IOException )cause;
+      }
+      throw new IOException( "Compression failed!", cause );
+    }
+  }
+
+  /**
+   * Rethrows the problem of the compression thread, if it stopped before the
+   * end of the data was reached.
+   */
+  private void checkCompressionRunning() throws IOException
+  {
+    if ( this.result.isDone() )
+    {
+      // The compression thread stopped (failed), nobody takes our chunk...
+      awaitResult();
+      throw new IOException( "Compression ended prematurely!" );
+    }
+  }
+
+  /**
+   * Hands the given chunk to the compression thread.
+   */
+  private void enqueue( final Chunk aChunk ) throws IOException
+  {
+    try
+    {
+      while ( !this.chunks.offer( aChunk, 100, TimeUnit.MILLISECONDS ) )
+      {
+        checkCompressionRunning();
+      }
+    }
+    catch ( InterruptedException exception )
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while compressing!" );
+    }
+  }
+
+  /**
+   * Returns the chunk to write to, waiting until the compression thread
+   * returns a chunk to the pool if all chunks are pending.
+   */
+  private Chunk getCurrentChunk() throws IOException
+  {
+    if ( this.current == null )
+    {
+      try
+      {
+        Chunk chunk;
+        while ( ( chunk = this.freeChunks.poll( 100, TimeUnit.MILLISECONDS ) ) == null )
+        {
+          checkCompressionRunning();
+        }
+        this.current = chunk;
+      }
+      catch ( InterruptedException exception )
+      {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException( "Interrupted while compressing!" );
+      }
+    }
+    return this.current;
+  }
+}
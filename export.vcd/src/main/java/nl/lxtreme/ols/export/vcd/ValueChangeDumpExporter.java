@@ -42,7 +42,35 @@ public class ValueChangeDumpExporter implements Exporter
   // CONSTANTS
 
   private static final String ID = "OLS Java Client";
-  private static final String VERSION = "VCD exporter v1.1";
+  private static final String VERSION = "VCD exporter v1.2";
+
+  // VARIABLES
+
+  private final boolean compress;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new ValueChangeDumpExporter instance writing uncompressed value
+   * change dumps.
+   */
+  public ValueChangeDumpExporter()
+  {
+    this( false /* aCompress */);
+  }
+
+  /**
+   * Creates a new ValueChangeDumpExporter instance.
+   * 
+   * @param aCompress
+   *          <code>true</code> to compress the value change dump in GZIP
+   *          format, on a separate thread, <code>false</code> to write it
+   *          uncompressed.
+   */
+  public ValueChangeDumpExporter( final boolean aCompress )
+  {
+    this.compress = aCompress;
+  }
 
   // METHODS
 
@@ -53,20 +81,26 @@ public class ValueChangeDumpExporter implements Exporter
   public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream )
       throws IOException
   {
-    final PrintWriter writer = new PrintWriter( aStream );
+    final OutputStream stream = this.compress ? new AsyncGzipOutputStream( aStream ) : aStream;
     try
     {
       final AcquisitionResult capturedData = aDataSet.getCapturedData();
 
       final double timescale = getTimebase( capturedData.getSampleRate() );
 
+      final PrintWriter writer = new PrintWriter( stream );
       writePreamble( writer, aDataSet, timescale );
       writeVariableDump( writer, aDataSet );
-      writeDataDump( writer, capturedData, timescale );
+      writer.flush();
+
+      writeDataDump( stream, capturedData, timescale );
     }
     finally
     {
-      writer.flush();
+      if ( this.compress )
+      {
+        stream.close();
+      }
     }
   }
 
@@ -76,6 +110,10 @@ public class ValueChangeDumpExporter implements Exporter
   @Override
   public String[] getFilenameExtentions()
   {
+    if ( this.compress )
+    {
+      return new String[] { "vcd.gz" };
+    }
     return new String[] { "vcd" };
   }
 
@@ -85,40 +123,54 @@ public class ValueChangeDumpExporter implements Exporter
   @Override
   public String getName()
   {
+    if ( this.compress )
+    {
+      return "Value Change Dump (gzip)";
+    }
     return "Value Change Dump";
   }
 
   /**
-   * @param aWriter
+   * Writes all value changes of the given captured data.
+   * 
+   * @param aStream
+   *          the stream to write to, cannot be <code>null</code>;
    * @param aCapturedData
+   *          the captured data to write, cannot be <code>null</code>;
    * @param aTimebase
+   *          the timebase of the written timestamps.
+   * @throws IOException
+   *           in case of I/O problems.
    */
-  protected void writeDataDump( final PrintWriter aWriter, final AcquisitionResult aCapturedData, final double aTimebase )
+  protected void writeDataDump( final OutputStream aStream, final AcquisitionResult aCapturedData,
+      final double aTimebase ) throws IOException
   {
-    final int[] values = aCapturedData.getValues();
-    final long[] timestamps = aCapturedData.getTimestamps();
     final int channelCount = aCapturedData.getChannels();
-    final int channelMask = aCapturedData.getEnabledChannels();
+    final int channelMask = aCapturedData.getEnabledChannels()
+        & ( ( channelCount >= 32 ) ? ~0 : ( ( 1 << channelCount ) - 1 ) );
 
-    int oldValue = -1;
-    for ( int i = 0, size = values.length; i < size; i++ )
-    {
-      final int value = values[i];
-      final long timestamp = timestamps[i];
+    final double unitsPerSample = 1.0 / ( aCapturedData.getSampleRate() * aTimebase );
 
-      final int time = ( int )( timestamp / ( aCapturedData.getSampleRate() * aTimebase ) );
+    final ValueChangeDumpWriter writer = new ValueChangeDumpWriter( aStream, Math.max( 1, channelCount ) );
+
+    int oldValue = 0;
+    for ( int i = 0, size = aCapturedData.getSampleCount(); i < size; i++ )
+    {
+      final int value = aCapturedData.getValue( i );
+      // The first sample defines the initial value of all channels...
+      final int changed = ( i == 0 ) ? channelMask : ( ( value ^ oldValue ) & channelMask );
 
-      if ( ( i == 0 ) || ( oldValue != value ) )
+      if ( ( i == 0 ) || ( changed != 0 ) )
       {
-        writeTime( aWriter, time );
-        writeVariableData( aWriter, channelCount, channelMask, value, oldValue, ( i == 0 ) );
+        writer.writeTime( toTime( aCapturedData.getTimestamp( i ), unitsPerSample ) );
+        writer.writeChanges( value, changed );
       }
 
       oldValue = value;
     }
 
-    final int time = ( int )( aCapturedData.getAbsoluteLength() / ( aCapturedData.getSampleRate() * aTimebase ) );
-    writeTime( aWriter, time );
+    writer.writeTime( toTime( aCapturedData.getAbsoluteLength(), unitsPerSample ) );
+    writer.flush();
   }
 
   /**
@@ -147,51 +199,6 @@ public class ValueChangeDumpExporter implements Exporter
     aWriter.printf( "x%s", getIdentifier( aIndex ) ).println();
   }
 
-  /**
-   * @param aWriter
-   * @param aTimebase
-   */
-  protected void writeTime( final PrintWriter aWriter, final long aTimebase )
-  {
-    ValueChangeDumpHelper.writeTime( aWriter, aTimebase );
-  }
-
-  /**
-   * @param aWriter
-   *          the writer to write the variable data to;
-   * @param aChannelCount
-   *          the total channel count;
-   * @param aChannelMask
-   *          the enabled channel mask;
-   * @param aValue
-   *          the value to write.
-   */
-  protected void writeVariableData( final PrintWriter aWriter, final int aChannelCount, final int aChannelMask,
-      final int aValue, final int aOldValue, final boolean aAllBits )
-  {
-    int value = aValue;
-    int oldValue = aOldValue;
-    int mask = aChannelMask;
-    for ( int i = 0; i < aChannelCount; i++ )
-    {
-      if ( ( mask & ( 1 << i ) ) == 0 )
-      {
-        continue;
-      }
-
-      final int bitValue = ( value & 1 );
-      final int oldBitValue = ( oldValue & 1 );
-
-      if ( aAllBits || ( bitValue != oldBitValue ) )
-      {
-        aWriter.printf( "%d%s", Integer.valueOf( bitValue ), getIdentifier( i ) ).println();
-      }
-
-      value >>= 1;
-      oldValue >>= 1;
-    }
-  }
-
   /**
    * Writes down all variable definitions.
    * 
@@ -250,4 +257,30 @@ public class ValueChangeDumpExporter implements Exporter
 
     writeCloseDeclaration( aWriter );
   }
+
+  /**
+   * Converts the given timestamp to the timebase of the value change dump.
+   * 
+   * @param aTimestamp
+   *          the timestamp to convert, in samples;
+   * @param aUnitsPerSample
+   *          the number of time units per sample.
+   * @return the converted time, in time units.
+   */
+  private static long toTime( final long aTimestamp, final double aUnitsPerSample )
+  {
+    if ( Double.isInfinite( aUnitsPerSample ) || Double.isNaN( aUnitsPerSample ) )
+    {
+      return aTimestamp;
+    }
+
+    // Stay in integer arithmetic for whole numbers of units per sample, which
+    // is the common case, to avoid rounding errors on long captures...
+    final long factor = Math.round( aUnitsPerSample );
+    if ( ( factor > 0 ) && ( Math.abs( aUnitsPerSample - factor ) < 1.0e-9 * factor ) )
+    {
+      return aTimestamp * factor;
+    }
+    return ( long )( aTimestamp * aUnitsPerSample );
+  }
 }
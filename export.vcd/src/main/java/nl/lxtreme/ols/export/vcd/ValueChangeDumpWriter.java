@@ -0,0 +1,209 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.vcd;
+
+
+import java.io.*;
+
+
+/**
+ * Writes the value changes of a value change dump into a large byte buffer,
+ * without any intermediate strings.
+ * <p>
+ * Each channel is identified by a single character (see
+ * {@link ValueChangeDumpHelper#getIdentifier(int)}), so a value change always
+ * consists of the new value, the identifier and a line separator.
+ * </p>
+ */
+final class ValueChangeDumpWriter
+{
+  // CONSTANTS
+
+  /** The size of the write buffer, in bytes. */
+  static final int BUFFER_SIZE = 256 * 1024;
+
+  /** A timestamp consists of '#', a sign, at most 19 digits and a line separator. */
+  private static final int MAX_TIME_LENGTH = 24;
+
+  // VARIABLES
+
+  private final OutputStream stream;
+  private final byte[] identifiers;
+  private final byte[] lineSeparator;
+  private final byte[] buffer;
+  private final byte[] digits;
+  private final int maxChangesLength;
+
+  private int position;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ValueChangeDumpWriter} instance.
+   * 
+   * @param aStream
+   *          the stream to write to, cannot be <code>null</code>;
+   * @param aChannelCount
+   *          the number of channels, &gt; 0 &amp;&amp; &lt;= 32.
+   */
+  ValueChangeDumpWriter( final OutputStream aStream, final int aChannelCount )
+  {
+    this.stream = aStream;
+
+    this.identifiers = new byte[aChannelCount];
+    for ( int i = 0; i < aChannelCount; i++ )
+    {
+      this.identifiers[i] = ( byte )ValueChangeDumpHelper.getIdentifier( i ).charAt( 0 );
+    }
+
+    // Use the same line separator as the preamble written by a PrintWriter...
+    final String separator = System.getProperty( "line.separator", "\n" );
+    this.lineSeparator = new byte[separator.length()];
+    for ( int i = 0; i < this.lineSeparator.length; i++ )
+    {
+      this.lineSeparator[i] = ( byte )separator.charAt( i );
+    }
+
+    this.buffer = new byte[BUFFER_SIZE];
+    this.digits = new byte[20];
+    this.maxChangesLength = aChannelCount * ( 2 + this.lineSeparator.length );
+  }
+
+  // METHODS
+
+  /**
+   * Writes all buffered bytes to the underlying stream.
+   * 
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  void flush() throws IOException
+  {
+    if ( this.position > 0 )
+    {
+      this.stream.write( this.buffer, 0, this.position );
+      this.position = 0;
+    }
+    this.stream.flush();
+  }
+
+  /**
+   * Writes the new value of each of the given changed channels.
+   * 
+   * @param aValue
+   *          the sample value to take the new values from;
+   * @param aChangedChannels
+   *          the channels to write the value of, bit <em>n</em> denoting
+   *          channel <em>n</em>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  void writeChanges( final int aValue, final int aChangedChannels ) throws IOException
+  {
+    ensureCapacity( this.maxChangesLength );
+
+    final byte[] buf = this.buffer;
+    int pos = this.position;
+
+    int changed = aChangedChannels;
+    while ( changed != 0 )
+    {
+      final int channel = Integer.numberOfTrailingZeros( changed );
+      changed &= changed - 1;
+
+      buf[pos++] = ( byte )( '0' + ( ( aValue >>> channel ) & 1 ) );
+      buf[pos++] = this.identifiers[channel];
+      pos = writeLineSeparator( buf, pos );
+    }
+
+    this.position = pos;
+  }
+
+  /**
+   * Writes a timestamp, such as "#1234".
+   * 
+   * @param aTime
+   *          the time to write.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  void writeTime( final long aTime ) throws IOException
+  {
+    ensureCapacity( MAX_TIME_LENGTH );
+
+    final byte[] buf = this.buffer;
+    int pos = this.position;
+
+    buf[pos++] = '#';
+
+    long time = aTime;
+    if ( time < 0 )
+    {
+      buf[pos++] = '-';
+      time = -time;
+    }
+
+    // Format the digits backwards, then copy them in the right order...
+    int count = 0;
+    do
+    {
+      final long next = time / 10;
+      this.digits[count++] = ( byte )( '0' + ( time - ( next * 10 ) ) );
+      time = next;
+    }
+    while ( time > 0 );
+
+    while ( count > 0 )
+    {
+      buf[pos++] = this.digits[--count];
+    }
+
+    this.position = writeLineSeparator( buf, pos );
+  }
+
+  /**
+   * Makes sure the buffer can hold the given number of bytes, writing it to
+   * the underlying stream if necessary.
+   */
+  private void ensureCapacity( final int aLength ) throws IOException
+  {
+    if ( ( this.position + aLength ) > this.buffer.length )
+    {
+      this.stream.write( this.buffer, 0, this.position );
+      this.position = 0;
+    }
+  }
+
+  /**
+   * Writes the line separator at the given position.
+   * 
+   * @return the position directly after the line separator.
+   */
+  private int writeLineSeparator( final byte[] aBuffer, final int aPosition )
+  {
+    int pos = aPosition;
+    for ( byte b : this.lineSeparator )
+    {
+      aBuffer[pos++] = b;
+    }
+    return pos;
+  }
+}
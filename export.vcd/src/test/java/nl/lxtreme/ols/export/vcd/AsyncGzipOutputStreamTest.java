@@ -0,0 +1,149 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.vcd;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+import org.junit.*;
+
+
+/**
+ * Provides test cases for {@link AsyncGzipOutputStream}.
+ */
+public class AsyncGzipOutputStreamTest
+{
+  // METHODS
+
+  /**
+   * Tests that the written data survives the reuse of the caller's buffer and
+   * of the pooled chunks, for writes spanning many chunks.
+   */
+  @Test
+  public void testWriteReusedBufferOk() throws IOException
+  {
+    final Random random = new Random( 42L );
+    final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    final AsyncGzipOutputStream stream = new AsyncGzipOutputStream( compressed );
+
+    // Write more chunks than the pool holds, with sizes not aligned to a chunk...
+    final byte[] buffer = new byte[AsyncGzipOutputStream.CHUNK_SIZE + 1000];
+    for ( int i = 0; i < 20; i++ )
+    {
+      random.nextBytes( buffer );
+      final int length = random.nextInt( buffer.length );
+
+      stream.write( buffer, 0, length );
+      expected.write( buffer, 0, length );
+    }
+    stream.close();
+
+    assertArrayEquals( expected.toByteArray(), decompress( compressed.toByteArray() ) );
+  }
+
+  /**
+   * Tests that writing single bytes, flushing in between, yields the written
+   * data.
+   */
+  @Test
+  public void testWriteSingleBytesOk() throws IOException
+  {
+    final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    final AsyncGzipOutputStream stream = new AsyncGzipOutputStream( compressed );
+
+    for ( int i = 0; i < ( 3 * AsyncGzipOutputStream.CHUNK_SIZE ); i++ )
+    {
+      stream.write( i % 251 );
+      expected.write( i % 251 );
+
+      if ( ( i % 10000 ) == 0 )
+      {
+        stream.flush();
+      }
+    }
+    stream.close();
+
+    assertArrayEquals( expected.toByteArray(), decompress( compressed.toByteArray() ) );
+  }
+
+  /**
+   * Tests that writing to a closed stream fails.
+   */
+  @Test( expected = IOException.class )
+  public void testWriteAfterCloseFail() throws IOException
+  {
+    final AsyncGzipOutputStream stream = new AsyncGzipOutputStream( new ByteArrayOutputStream() );
+    stream.close();
+
+    stream.write( 1 );
+  }
+
+  /**
+   * Tests that the data is compressed on a named daemon thread, which does not
+   * keep the VM alive in case the stream is never closed.
+   */
+  @Test
+  public void testCompressOnDaemonThreadOk() throws IOException
+  {
+    final List<Thread> writers = new ArrayList<Thread>();
+    final AsyncGzipOutputStream stream = new AsyncGzipOutputStream( new ByteArrayOutputStream()
+    {
+      @Override
+      public synchronized void write( final byte[] aBuffer, final int aOffset, final int aLength )
+      {
+        writers.add( Thread.currentThread() );
+        super.write( aBuffer, aOffset, aLength );
+      }
+    } );
+    stream.write( new byte[1024] );
+    stream.close();
+
+    assertFalse( writers.isEmpty() );
+    for ( Thread writer : writers )
+    {
+      assertTrue( writer.isDaemon() );
+      assertEquals( AsyncGzipOutputStream.THREAD_NAME, writer.getName() );
+    }
+  }
+
+  /**
+   * Decompresses the given GZIP data.
+   */
+  private static byte[] decompress( final byte[] aData ) throws IOException
+  {
+    final ByteArrayOutputStream result = new ByteArrayOutputStream();
+    final InputStream is = new GZIPInputStream( new ByteArrayInputStream( aData ) );
+    final byte[] buffer = new byte[4096];
+    int read;
+    while ( ( read = is.read( buffer ) ) > 0 )
+    {
+      result.write( buffer, 0, read );
+    }
+    return result.toByteArray();
+  }
+}
@@ -21,15 +21,18 @@
 package nl.lxtreme.ols.export.vcd;
 
 
+import static org.junit.Assert.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
 import java.io.*;
+import java.util.zip.*;
 
 import javax.swing.*;
 
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.test.data.*;
+import nl.lxtreme.ols.test.data.DataTestUtils.TestDataProvider;
 import nl.lxtreme.ols.util.*;
 
 import org.junit.*;
@@ -44,7 +47,6 @@ public class ValueChangeDumpExporterTest
   // VARIABLES
 
   private JComponent component;
-  private OutputStream nullOutputStream;
   private ValueChangeDumpExporter exporter;
 
   @Rule
@@ -59,7 +61,6 @@ public class ValueChangeDumpExporterTest
   public void setUp()
   {
     this.component = mock( JComponent.class );
-    this.nullOutputStream = mock( OutputStream.class );
     this.exporter = spy( new ValueChangeDumpExporter() );
   }
 
@@ -76,13 +77,13 @@ public class ValueChangeDumpExporterTest
   {
     DataSet dataSet = DataTestUtils.createStubDataSet( 16 );
 
-    this.exporter.export( dataSet, this.component, this.nullOutputStream );
+    final String dump = exportToString( this.exporter, dataSet );
 
     verify( this.exporter ).writeVariableDump( any( PrintWriter.class ), eq( dataSet ) );
     verify( this.exporter, times( 16 ) ).writeSingleVariableDefinition( any( PrintWriter.class ), anyInt() );
-    verify( this.exporter, times( 2 ) ).writeVariableData( any( PrintWriter.class ), eq( 16 ), eq( 65535 ), anyInt(),
-        anyInt(), anyBoolean() );
-    verify( this.exporter, times( 3 ) ).writeTime( any( PrintWriter.class ), anyLong() );
+    // all 16 initial values, then the 8 channels toggling once...
+    assertEquals( 16 + 8, countValueChanges( dump ) );
+    assertEquals( 3, countTimestamps( dump ) );
   }
 
   /**
@@ -98,13 +99,13 @@ public class ValueChangeDumpExporterTest
   {
     DataSet dataSet = DataTestUtils.createStubDataSet( 8 );
 
-    this.exporter.export( dataSet, this.component, this.nullOutputStream );
+    final String dump = exportToString( this.exporter, dataSet );
 
     verify( this.exporter ).writeVariableDump( any( PrintWriter.class ), eq( dataSet ) );
     verify( this.exporter, times( 8 ) ).writeSingleVariableDefinition( any( PrintWriter.class ), anyInt() );
-    verify( this.exporter, times( 4 ) ).writeVariableData( any( PrintWriter.class ), eq( 8 ), eq( 255 ), anyInt(),
-        anyInt(), anyBoolean() );
-    verify( this.exporter, times( 5 ) ).writeTime( any( PrintWriter.class ), anyLong() );
+    // all 8 initial values, then the 8 channels toggling three times...
+    assertEquals( 8 + ( 3 * 8 ), countValueChanges( dump ) );
+    assertEquals( 5, countTimestamps( dump ) );
   }
 
   /**
@@ -146,12 +147,123 @@ public class ValueChangeDumpExporterTest
   {
     DataSet dataSet = DataTestUtils.createStubDataSet( 1 );
 
-    this.exporter.export( dataSet, this.component, this.nullOutputStream );
+    final String dump = exportToString( this.exporter, dataSet );
 
     verify( this.exporter ).writeVariableDump( any( PrintWriter.class ), eq( dataSet ) );
     verify( this.exporter, times( 1 ) ).writeSingleVariableDefinition( any( PrintWriter.class ), anyInt() );
-    verify( this.exporter, times( 16 ) ).writeVariableData( any( PrintWriter.class ), eq( 1 ), eq( 1 ), anyInt(),
-        anyInt(), anyBoolean() );
-    verify( this.exporter, times( 17 ) ).writeTime( any( PrintWriter.class ), anyLong() );
+    assertEquals( 16, countValueChanges( dump ) );
+    assertEquals( 17, countTimestamps( dump ) );
+  }
+
+  /**
+   * Test method for
+   * {@link ValueChangeDumpExporter#export(DataSet, JComponent, OutputStream)} .
+   * <p>
+   * This method tests that a compressed value change dump equals the
+   * uncompressed one.
+   * </p>
+   */
+  @Test
+  public void testExportCompressedDataDumpOk() throws IOException
+  {
+    DataSet dataSet = DataTestUtils.createStubDataSet( 10000, 8 );
+
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    new ValueChangeDumpExporter( true /* aCompress */).export( dataSet, this.component, compressed );
+
+    final ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+    final InputStream is = new GZIPInputStream( new ByteArrayInputStream( compressed.toByteArray() ) );
+    final byte[] buffer = new byte[4096];
+    int read;
+    while ( ( read = is.read( buffer ) ) > 0 )
+    {
+      uncompressed.write( buffer, 0, read );
+    }
+
+    assertEquals( withoutDate( exportToString( new ValueChangeDumpExporter(), dataSet ) ),
+        withoutDate( uncompressed.toString() ) );
+  }
+
+  /**
+   * Test method for
+   * {@link ValueChangeDumpExporter#export(DataSet, JComponent, OutputStream)} .
+   * <p>
+   * This method tests that timestamps beyond the range of an integer are
+   * written correctly.
+   * </p>
+   */
+  @Test
+  public void testExportLongCaptureDataDumpOk() throws IOException
+  {
+    DataSet dataSet = DataTestUtils.createStubDataSet( 4, 1, 1000000, new TestDataProvider()
+    {
+      @Override
+      public void fillData( final int[] aValues, final long[] aTimestamps, final int aDataSize )
+      {
+        for ( int i = 0; i < aDataSize; i++ )
+        {
+          aValues[i] = ( i & 1 );
+          aTimestamps[i] = i * 10000000000L;
+        }
+      }
+    } );
+
+    final String dump = exportToString( this.exporter, dataSet );
+
+    // a sample rate of 1MHz yields a timebase of 1us...
+    assertTrue( dump.contains( "#30000000000" ) );
+    assertTrue( dump.contains( "#30000000001" ) );
+  }
+
+  /**
+   * Returns the number of timestamps in the given value change dump.
+   */
+  private static int countTimestamps( final String aDump )
+  {
+    int count = 0;
+    for ( String line : aDump.split( "[\\r\\n]+" ) )
+    {
+      if ( line.startsWith( "#" ) )
+      {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of scalar value changes in the given value change dump.
+   */
+  private static int countValueChanges( final String aDump )
+  {
+    final String data = aDump.substring( aDump.indexOf( "$enddefinitions" ) );
+
+    int count = 0;
+    for ( String line : data.split( "[\\r\\n]+" ) )
+    {
+      if ( line.matches( "[01]\\S" ) )
+      {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Exports the given data set with the given exporter.
+   */
+  private String exportToString( final ValueChangeDumpExporter aExporter, final DataSet aDataSet ) throws IOException
+  {
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    aExporter.export( aDataSet, this.component, stream );
+    return stream.toString();
+  }
+
+  /**
+   * Removes the date declaration from the given value change dump.
+   */
+  private static String withoutDate( final String aDump )
+  {
+    return aDump.replaceAll( "\\$date [^$]*\\$end", "" );
   }
 }
@@ -229,7 +229,7 @@ public final class DataTestUtils
   public static ToolContext createToolContext( final AcquisitionResult aContainer )
   {
     final int startSampleIdx = Math.max( 0, aContainer.getSampleIndex( aContainer.getTriggerPosition() ) - 1 );
-    final int lastSampleIdx = aContainer.getValues().length - 1;
+    final int lastSampleIdx = aContainer.getSampleCount() - 1;
     return createToolContext( aContainer, startSampleIdx, lastSampleIdx );
   }
 
@@ -243,7 +243,7 @@ public final class DataTestUtils
    */
   public static ToolContext createToolContext( final AcquisitionResult aContainer, final int aStartSampleIdx )
   {
-    final int lastSampleIdx = aContainer.getValues().length - 1;
+    final int lastSampleIdx = aContainer.getSampleCount() - 1;
     return createToolContext( aContainer, aStartSampleIdx, lastSampleIdx );
   }
 
@@ -261,7 +261,7 @@ public final class DataTestUtils
       final int aLastSampleIdx )
   {
     final Integer first = Integer.valueOf( Math.max( 0, aStartSampleIdx ) );
-    final Integer last = Integer.valueOf( Math.min( aLastSampleIdx, aData.getValues().length - 1 ) );
+    final Integer last = Integer.valueOf( Math.min( aLastSampleIdx, aData.getSampleCount() - 1 ) );
     final Integer size = Integer.valueOf( last.intValue() - first.intValue() );
 
     // Do NOT use Mockito#mock for this; it appears to slow things down *really*
@@ -372,12 +372,24 @@ public final class DataTestUtils
         return 8;
       }
 
+      @Override
+      public EdgeIndex getEdgeIndex()
+      {
+        return new EdgeIndex( this );
+      }
+
       @Override
       public int getEnabledChannels()
       {
         return 0xFF;
       }
 
+      @Override
+      public int getSampleCount()
+      {
+        return 4;
+      }
+
       @Override
       public int getSampleIndex( final long aTimeValue )
       {
@@ -390,6 +402,22 @@ public final class DataTestUtils
         return 100;
       }
 
+      @Override
+      public void getSamples( final int aStartIdx, final int aEndIdx, final int[] aValues, final long[] aTimestamps )
+      {
+        for ( int i = aStartIdx; i < aEndIdx; i++ )
+        {
+          aValues[i - aStartIdx] = getValue( i );
+          aTimestamps[i - aStartIdx] = getTimestamp( i );
+        }
+      }
+
+      @Override
+      public long getTimestamp( final int aSampleIdx )
+      {
+        return getTimestamps()[aSampleIdx];
+      }
+
       @Override
       public long[] getTimestamps()
       {
@@ -402,6 +430,12 @@ public final class DataTestUtils
         return -1L;
       }
 
+      @Override
+      public int getValue( final int aSampleIdx )
+      {
+        return getValues()[aSampleIdx];
+      }
+
       @Override
       public int[] getValues()
       {
@@ -234,11 +234,10 @@ public final class OlsDataHelper
 
     try
     {
-      final int[] values = capturedData.getValues();
-      final long[] timestamps = capturedData.getTimestamps();
+      final int sampleCount = capturedData.getSampleCount();
 
       bw.write( ";Size: " );
-      bw.write( Integer.toString( values.length ) );
+      bw.write( Integer.toString( sampleCount ) );
       bw.newLine();
 
       bw.write( ";Rate: " );
@@ -281,9 +280,9 @@ public final class OlsDataHelper
           bw.newLine();
         }
       }
-      for ( int i = 0; i < values.length; i++ )
+      for ( int i = 0; i < sampleCount; i++ )
       {
-        bw.write( formatSample( values[i], timestamps[i] ) );
+        bw.write( formatSample( capturedData.getValue( i ), capturedData.getTimestamp( i ) ) );
         bw.newLine();
       }
     }
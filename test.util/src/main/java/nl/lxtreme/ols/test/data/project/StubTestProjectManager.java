@@ -84,6 +84,15 @@ public class StubTestProjectManager implements ProjectManager
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void loadProject( final File aFile ) throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * {@inheritDoc}
    */
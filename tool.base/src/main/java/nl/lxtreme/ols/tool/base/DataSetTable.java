@@ -0,0 +1,112 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import java.awt.*;
+
+import javax.swing.*;
+import javax.swing.table.*;
+
+import nl.lxtreme.ols.util.swing.component.*;
+
+
+/**
+ * Provides a table for showing the decoded data of a {@link DataSetTableModel}
+ * , rendering only the rows that are visible.
+ */
+public class DataSetTable extends JLxTable
+{
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new DataSetTable instance.
+   *
+   * @param aModel
+   *          the table model to show, cannot be <code>null</code>.
+   */
+  public DataSetTable( final DataSetTableModel<?> aModel )
+  {
+    super( aModel );
+
+    setSelectionMode( ListSelectionModel.SINGLE_INTERVAL_SELECTION );
+    setFillsViewportHeight( true );
+    setAutoResizeMode( AUTO_RESIZE_ALL_COLUMNS );
+  }
+
+  // METHODS
+
+  /**
+   * Returns the table model of this table.
+   *
+   * @return the table model, never <code>null</code>.
+   */
+  public DataSetTableModel<?> getDataSetModel()
+  {
+    return ( DataSetTableModel<?> )getModel();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Component prepareRenderer( final TableCellRenderer aRenderer, final int aRow, final int aColumn )
+  {
+    final Component comp = super.prepareRenderer( aRenderer, aRow, aColumn );
+    if ( isPaintingForPrint() || !isCellSelected( aRow, aColumn ) )
+    {
+      final Color color = getDataSetModel().getRowBackground( convertRowIndexToModel( aRow ) );
+      if ( color != null )
+      {
+        comp.setBackground( color );
+      }
+    }
+    return comp;
+  }
+
+  /**
+   * Selects the row that is active at the given time, and scrolls it into
+   * view.
+   *
+   * @param aTime
+   *          the time to scroll to, in seconds, relative to the trigger (if
+   *          any).
+   * @return <code>true</code> if a row is selected, <code>false</code> if this
+   *         table has no rows.
+   */
+  public boolean scrollToTime( final double aTime )
+  {
+    final int modelRow = getDataSetModel().findRow( aTime );
+    if ( modelRow < 0 )
+    {
+      return false;
+    }
+
+    final int row = convertRowIndexToView( modelRow );
+    getSelectionModel().setSelectionInterval( row, row );
+    scrollRectToVisible( getCellRect( row, 0, true /* includeSpacing */) );
+    return true;
+  }
+}
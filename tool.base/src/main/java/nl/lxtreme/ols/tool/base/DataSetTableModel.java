@@ -0,0 +1,262 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import java.awt.*;
+
+import javax.swing.table.*;
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.util.*;
+
+
+/**
+ * Provides a table model directly on top of the decoded data of a
+ * {@link BaseDataSet}.
+ * <p>
+ * Unlike a rendered (HTML) page of all decoded data, this model does not
+ * format anything up front: a {@link DataSetTable} only asks for the values of
+ * the rows that are actually visible, so the costs of showing the results no
+ * longer grow with the number of decoded symbols.
+ * </p>
+ * <p>
+ * By default, each decoded data item is shown as a row. Alternatively, a row
+ * index can be given, for example, to show several items as a single row.
+ * </p>
+ *
+ * @param <DATA>
+ *          the type of the decoded data.
+ */
+public abstract class DataSetTableModel<DATA extends BaseData<DATA>> extends AbstractTableModel
+{
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
+  // VARIABLES
+
+  private final String[] columnNames;
+
+  private volatile BaseDataSet<DATA> dataSet;
+  private volatile int[] rows;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new DataSetTableModel instance.
+   *
+   * @param aColumnNames
+   *          the names of the columns of this model, cannot be
+   *          <code>null</code>.
+   */
+  protected DataSetTableModel( final String... aColumnNames )
+  {
+    this.columnNames = aColumnNames.clone();
+  }
+
+  // METHODS
+
+  /**
+   * Returns the row of the decoded data that is active at the given time, that
+   * is, the last row starting at or before the given time, or the first row if
+   * the given time lies before all rows.
+   *
+   * @param aTime
+   *          the time to search for, in seconds, relative to the trigger (if
+   *          any).
+   * @return the index of the found row, or -1 if this model has no rows.
+   */
+  public final int findRow( final double aTime )
+  {
+    final BaseDataSet<DATA> ds = this.dataSet;
+    if ( ds == null )
+    {
+      return -1;
+    }
+
+    final int rowCount = getRowCount();
+    if ( rowCount == 0 )
+    {
+      return -1;
+    }
+
+    // The decoded data is always sorted on its start sample index...
+    int low = 0;
+    int high = rowCount - 1;
+    while ( low < high )
+    {
+      final int mid = ( low + high + 1 ) >>> 1;
+      if ( ds.getTime( getRowData( mid ).getStartSampleIndex() ) <= aTime )
+      {
+        low = mid;
+      }
+      else
+      {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final int getColumnCount()
+  {
+    return this.columnNames.length;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final String getColumnName( final int aColumn )
+  {
+    return this.columnNames[aColumn];
+  }
+
+  /**
+   * Returns the index of the decoded data shown in the given row.
+   *
+   * @param aRow
+   *          the index of the row to return the data index for.
+   * @return the index of the decoded data in the data set, &gt;= 0.
+   */
+  public final int getDataIndex( final int aRow )
+  {
+    final int[] index = this.rows;
+    return ( index == null ) ? aRow : index[aRow];
+  }
+
+  /**
+   * Returns the data set shown by this model.
+   *
+   * @return the current data set, can be <code>null</code>.
+   */
+  public final BaseDataSet<DATA> getDataSet()
+  {
+    return this.dataSet;
+  }
+
+  /**
+   * Returns the background color for the given row.
+   *
+   * @param aRow
+   *          the index of the row to return the background color for.
+   * @return a background color, or <code>null</code> to use the default
+   *         background color of the table.
+   */
+  public Color getRowBackground( final int aRow )
+  {
+    return null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final int getRowCount()
+  {
+    final BaseDataSet<DATA> ds = this.dataSet;
+    if ( ds == null )
+    {
+      return 0;
+    }
+    final int[] index = this.rows;
+    return ( index == null ) ? ds.getData().size() : index.length;
+  }
+
+  /**
+   * Returns the decoded data of the given row.
+   *
+   * @param aRow
+   *          the index of the row to return the decoded data for.
+   * @return the decoded data, never <code>null</code>.
+   */
+  public final DATA getRowData( final int aRow )
+  {
+    return this.dataSet.getData().get( getDataIndex( aRow ) );
+  }
+
+  /**
+   * Returns the formatted start time of the given row.
+   *
+   * @param aRow
+   *          the index of the row to return the start time for.
+   * @return a formatted time, never <code>null</code>.
+   */
+  public final String getRowTime( final int aRow )
+  {
+    return Unit.Time.format( this.dataSet.getTime( getRowData( aRow ).getStartSampleIndex() ) );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final Object getValueAt( final int aRow, final int aColumn )
+  {
+    return getValueAt( aRow, getRowData( aRow ), aColumn );
+  }
+
+  /**
+   * Sets the data set to show in this model.
+   *
+   * @param aDataSet
+   *          the data set to show, can be <code>null</code> to show nothing.
+   */
+  public final void setDataSet( final BaseDataSet<DATA> aDataSet )
+  {
+    setDataSet( aDataSet, null );
+  }
+
+  /**
+   * Sets the data set to show in this model, with the given row index.
+   *
+   * @param aDataSet
+   *          the data set to show, can be <code>null</code> to show nothing;
+   * @param aRows
+   *          the indices of the decoded data to show as rows, in ascending
+   *          order, or <code>null</code> to show all decoded data.
+   */
+  public final void setDataSet( final BaseDataSet<DATA> aDataSet, final int[] aRows )
+  {
+    this.rows = aRows;
+    this.dataSet = aDataSet;
+
+    fireTableDataChanged();
+  }
+
+  /**
+   * Returns the value of a single cell.
+   *
+   * @param aRow
+   *          the index of the row;
+   * @param aData
+   *          the decoded data of the row, never <code>null</code>;
+   * @param aColumn
+   *          the index of the column.
+   * @return the cell value, can be <code>null</code>.
+   */
+  protected abstract Object getValueAt( int aRow, DATA aData, int aColumn );
+}
@@ -24,6 +24,8 @@ package nl.lxtreme.ols.tool.base;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
+import java.util.regex.*;
+
 import javax.swing.*;
 
 import nl.lxtreme.ols.tool.base.ExportAware.*;
@@ -221,6 +223,14 @@ public class ToolUtils
     }
   }
 
+  // CONSTANTS
+
+  /** Matches a time with an optional unit, such as "1.5 ms" or "-20us". */
+  private static final Pattern TIME_PATTERN = Pattern
+      .compile( "\\s*([-+]?(?:\\d+\\.?\\d*|\\.\\d+)(?:[eE][-+]?\\d+)?)\\s*([mu\u00B5\u03BCnp]?s?)\\s*" );
+
+  // METHODS
+
   /**
    * Convenience method to create a close button that closes this dialog.
    * 
@@ -232,6 +242,48 @@ public class ToolUtils
     return StandardActionFactory.createCloseButton();
   }
 
+  /**
+   * Factory method for creating a pane showing the given table, along with a
+   * field to jump to the row at a particular time.
+   * <p>
+   * The time can be entered with an optional unit, such as "1.5 ms" or
+   * "-20us". Without a unit, the time is taken in seconds.
+   * </p>
+   * 
+   * @param aTable
+   *          the table to show, cannot be <code>null</code>.
+   * @return a pane with the given table, never <code>null</code>.
+   */
+  public static JPanel createDataSetTablePane( final DataSetTable aTable )
+  {
+    final JTextField timeField = new JTextField( 12 );
+    timeField.setToolTipText( "Enter a time, for example, 1.5 ms, to jump to the data decoded at that time." );
+    timeField.addActionListener( new ActionListener()
+    {
+      @Override
+      public void actionPerformed( final ActionEvent aEvent )
+      {
+        final Double time = parseTime( timeField.getText() );
+        if ( ( time == null ) || !aTable.scrollToTime( time.doubleValue() ) )
+        {
+          Toolkit.getDefaultToolkit().beep();
+        }
+      }
+    } );
+
+    final JLabel timeLabel = new JLabel( "Go to time:" );
+    timeLabel.setLabelFor( timeField );
+
+    final JPanel searchPane = new JPanel( new FlowLayout( FlowLayout.RIGHT, 4, 0 ) );
+    searchPane.add( timeLabel );
+    searchPane.add( timeField );
+
+    final JPanel pane = new JPanel( new BorderLayout( 0, 4 ) );
+    pane.add( searchPane, BorderLayout.NORTH );
+    pane.add( new JScrollPane( aTable ), BorderLayout.CENTER );
+    return pane;
+  }
+
   /**
    * Factory method for creating an "export" button that -upon execution- calls
    * the methods {@link #storeToCsvFile(File, Object)} or
@@ -320,4 +372,43 @@ public class ToolUtils
     JOptionPane.showMessageDialog( aParent, aMessage, "Warning ...", JOptionPane.WARNING_MESSAGE );
   }
 
+  /**
+   * Parses a time with an optional unit, such as "1.5 ms".
+   * 
+   * @param aText
+   *          the text to parse, cannot be <code>null</code>.
+   * @return the parsed time, in seconds, or <code>null</code> if the given
+   *         text is not a valid time.
+   */
+  static Double parseTime( final String aText )
+  {
+    final Matcher matcher = TIME_PATTERN.matcher( aText );
+    if ( !matcher.matches() )
+    {
+      return null;
+    }
+
+    final double value = Double.parseDouble( matcher.group( 1 ) );
+    final String unit = matcher.group( 2 );
+    if ( unit.isEmpty() )
+    {
+      return Double.valueOf( value );
+    }
+
+    switch ( unit.charAt( 0 ) )
+    {
+      case 'm':
+        return Double.valueOf( value * 1.0e-3 );
+      case 'u':
+      case '\u00B5':
+      case '\u03BC':
+        return Double.valueOf( value * 1.0e-6 );
+      case 'n':
+        return Double.valueOf( value * 1.0e-9 );
+      case 'p':
+        return Double.valueOf( value * 1.0e-12 );
+      default:
+        return Double.valueOf( value );
+    }
+  }
 }
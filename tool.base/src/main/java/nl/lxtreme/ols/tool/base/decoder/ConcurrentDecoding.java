@@ -0,0 +1,125 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base.decoder;
+
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+
+/**
+ * Runs several independent decoding tasks, such as the decoding of different
+ * channels or different segments of the same channel, concurrently.
+ */
+public final class ConcurrentDecoding
+{
+  // INNER TYPES
+
+  /**
+   * Provides a thread factory for the decoding threads, which should never
+   * keep the VM alive.
+   */
+  static final class DecoderThreadFactory implements ThreadFactory
+  {
+    // VARIABLES
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Thread newThread( final Runnable aRunnable )
+    {
+      final Thread result = new Thread( aRunnable, THREAD_NAME + "-" + this.count.incrementAndGet() );
+      result.setDaemon( true );
+      return result;
+    }
+  }
+
+  // CONSTANTS
+
+  /** The base name of the decoding threads. */
+  static final String THREAD_NAME = "ToolDecoder";
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new ConcurrentDecoding instance, never used.
+   */
+  private ConcurrentDecoding()
+  {
+    // NO-op
+  }
+
+  // METHODS
+
+  /**
+   * Runs all given tasks, concurrently if there is more than one task and
+   * more than one thread is allowed, and waits until all of them are done.
+   *
+   * @param aTasks
+   *          the tasks to run, cannot be <code>null</code>;
+   * @param aMaximumThreadCount
+   *          the maximum number of threads to use, > 0.
+   * @throws Exception
+   *           the exception of the first failing task, in case any of the
+   *           given tasks failed.
+   */
+  public static <T> void invokeAll( final List<? extends Callable<T>> aTasks, final int aMaximumThreadCount )
+      throws Exception
+  {
+    final int threadCount = Math.min( aTasks.size(), aMaximumThreadCount );
+    if ( threadCount < 2 )
+    {
+      for ( Callable<T> task : aTasks )
+      {
+        task.call();
+      }
+      return;
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool( threadCount, new DecoderThreadFactory() );
+    try
+    {
+      for ( Future<T> future : executor.invokeAll( aTasks ) )
+      {
+        future.get();
+      }
+    }
+    catch ( ExecutionException exception )
+    {
+      final Throwable cause = exception.getCause();
+      if ( cause instanceof Exception )
+      {
+        throw ( Exception )cause;
+      }
+      throw ( Error )cause;
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+}
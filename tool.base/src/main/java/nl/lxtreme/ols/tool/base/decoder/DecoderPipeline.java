@@ -0,0 +1,192 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base.decoder;
+
+
+import static nl.lxtreme.ols.util.NumberUtils.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.tools.*;
+
+
+/**
+ * Feeds samples, one at a time, to one or more {@link StreamingDecoder}s in
+ * chunks.
+ * <p>
+ * A pipeline can be fed by anything producing samples in time order, such as
+ * an acquisition in progress or a data file being read, or can replay
+ * captured data through {@link #replay}. Instances of this class are not
+ * thread-safe.
+ * </p>
+ */
+public final class DecoderPipeline
+{
+  // CONSTANTS
+
+  /** The default number of samples pushed to the decoders at once. */
+  public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+  // VARIABLES
+
+  private final StreamingDecoder[] decoders;
+  private final SampleChunk chunk;
+
+  private int nextIndex;
+  private boolean started;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new DecoderPipeline instance.
+   *
+   * @param aChunkSize
+   *          the number of samples to push to the decoders at once, &gt; 0;
+   * @param aDecoders
+   *          the decoders to feed, cannot be <code>null</code>.
+   */
+  public DecoderPipeline( final int aChunkSize, final StreamingDecoder... aDecoders )
+  {
+    this.decoders = aDecoders.clone();
+    this.chunk = new SampleChunk( aChunkSize );
+  }
+
+  // METHODS
+
+  /**
+   * Replays a range of captured data through the given decoders.
+   *
+   * @param aData
+   *          the captured data to replay, cannot be <code>null</code>;
+   * @param aStartIndex
+   *          the sample index of the first sample to replay, inclusive;
+   * @param aEndIndex
+   *          the sample index of the last sample to replay, exclusive;
+   * @param aProgressListener
+   *          the listener to report progress to, cannot be <code>null</code>;
+   * @param aDecoders
+   *          the decoders to feed, cannot be <code>null</code>.
+   */
+  public static void replay( final AcquisitionResult aData, final int aStartIndex, final int aEndIndex,
+      final ToolProgressListener aProgressListener, final StreamingDecoder... aDecoders )
+  {
+    final DecoderPipeline pipeline = new DecoderPipeline( DEFAULT_CHUNK_SIZE, aDecoders );
+    pipeline.begin( aStartIndex, aData.getValue( aStartIndex ), aData.getTimestamp( aStartIndex ) );
+
+    for ( int idx = aStartIndex + 1; idx < aEndIndex; idx++ )
+    {
+      if ( pipeline.add( aData.getValue( idx ), aData.getTimestamp( idx ) ) )
+      {
+        aProgressListener.setProgress( getPercentage( idx, aStartIndex, aEndIndex ) );
+      }
+    }
+
+    pipeline.end();
+    aProgressListener.setProgress( 100 );
+  }
+
+  /**
+   * Adds the next sample, pushing all pending samples to the decoders if the
+   * current chunk is full.
+   *
+   * @param aValue
+   *          the sample value;
+   * @param aTimestamp
+   *          the timestamp of the sample.
+   * @return <code>true</code> if the samples were pushed to the decoders,
+   *         <code>false</code> otherwise.
+   */
+  public boolean add( final int aValue, final long aTimestamp )
+  {
+    if ( !this.started )
+    {
+      throw new IllegalStateException( "Pipeline not started!" );
+    }
+    if ( this.chunk.add( aValue, aTimestamp ) )
+    {
+      flush();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Starts this pipeline with the first sample.
+   *
+   * @param aSampleIndex
+   *          the sample index of the first sample, &gt;= 0;
+   * @param aValue
+   *          the value of the first sample;
+   * @param aTimestamp
+   *          the timestamp of the first sample.
+   */
+  public void begin( final int aSampleIndex, final int aValue, final long aTimestamp )
+  {
+    if ( this.started )
+    {
+      throw new IllegalStateException( "Pipeline already started!" );
+    }
+    this.started = true;
+    this.nextIndex = aSampleIndex + 1;
+    this.chunk.clear( this.nextIndex );
+
+    for ( StreamingDecoder decoder : this.decoders )
+    {
+      decoder.begin( aSampleIndex, aValue, aTimestamp );
+    }
+  }
+
+  /**
+   * Pushes all pending samples to the decoders and ends the decoding.
+   */
+  public void end()
+  {
+    if ( !this.started )
+    {
+      throw new IllegalStateException( "Pipeline not started!" );
+    }
+    flush();
+    this.started = false;
+
+    for ( StreamingDecoder decoder : this.decoders )
+    {
+      decoder.end( this.nextIndex );
+    }
+  }
+
+  /**
+   * Pushes all pending samples to the decoders.
+   */
+  private void flush()
+  {
+    if ( this.chunk.isEmpty() )
+    {
+      return;
+    }
+
+    for ( StreamingDecoder decoder : this.decoders )
+    {
+      decoder.decode( this.chunk );
+    }
+
+    this.nextIndex += this.chunk.getLength();
+    this.chunk.clear( this.nextIndex );
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base.decoder;
+
+
+/**
+ * Provides a chunk of consecutive samples, each consisting of a value and a
+ * timestamp, as pushed to a {@link StreamingDecoder}.
+ * <p>
+ * Like the captured data itself, the samples are normally the transitions of
+ * the sampled channels. Chunks are reused, so decoders must not keep a
+ * reference to a chunk after having decoded it.
+ * </p>
+ */
+public final class SampleChunk
+{
+  // VARIABLES
+
+  private final int[] values;
+  private final long[] timestamps;
+
+  private int firstIndex;
+  private int length;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new, empty, SampleChunk instance.
+   *
+   * @param aCapacity
+   *          the maximum number of samples in this chunk, &gt; 0.
+   */
+  public SampleChunk( final int aCapacity )
+  {
+    if ( aCapacity <= 0 )
+    {
+      throw new IllegalArgumentException( "Capacity must be positive!" );
+    }
+    this.values = new int[aCapacity];
+    this.timestamps = new long[aCapacity];
+  }
+
+  // METHODS
+
+  /**
+   * Appends a sample to this chunk.
+   *
+   * @param aValue
+   *          the sample value;
+   * @param aTimestamp
+   *          the timestamp of the sample.
+   * @return <code>true</code> if this chunk is full after adding the sample,
+   *         <code>false</code> otherwise.
+   */
+  public boolean add( final int aValue, final long aTimestamp )
+  {
+    this.values[this.length] = aValue;
+    this.timestamps[this.length] = aTimestamp;
+    return ++this.length == this.values.length;
+  }
+
+  /**
+   * Empties this chunk.
+   *
+   * @param aFirstIndex
+   *          the sample index of the first sample to add, &gt;= 0.
+   */
+  public void clear( final int aFirstIndex )
+  {
+    this.firstIndex = aFirstIndex;
+    this.length = 0;
+  }
+
+  /**
+   * Returns the sample index of the first sample of this chunk.
+   *
+   * @return a sample index, &gt;= 0.
+   */
+  public int getFirstIndex()
+  {
+    return this.firstIndex;
+  }
+
+  /**
+   * Returns the number of samples in this chunk.
+   *
+   * @return a sample count, &gt;= 0.
+   */
+  public int getLength()
+  {
+    return this.length;
+  }
+
+  /**
+   * Returns the sample index of a sample of this chunk.
+   *
+   * @param aIndex
+   *          the index of the sample in this chunk, &gt;= 0 &amp;&amp; &lt;
+   *          {@link #getLength()}.
+   * @return the sample index in the captured data.
+   */
+  public int getSampleIndex( final int aIndex )
+  {
+    return this.firstIndex + aIndex;
+  }
+
+  /**
+   * Returns the timestamp of a sample of this chunk.
+   *
+   * @param aIndex
+   *          the index of the sample in this chunk, &gt;= 0 &amp;&amp; &lt;
+   *          {@link #getLength()}.
+   * @return the timestamp of the sample.
+   */
+  public long getTimestamp( final int aIndex )
+  {
+    return this.timestamps[aIndex];
+  }
+
+  /**
+   * Returns the value of a sample of this chunk.
+   *
+   * @param aIndex
+   *          the index of the sample in this chunk, &gt;= 0 &amp;&amp; &lt;
+   *          {@link #getLength()}.
+   * @return the sample value.
+   */
+  public int getValue( final int aIndex )
+  {
+    return this.values[aIndex];
+  }
+
+  /**
+   * Returns whether this chunk is empty.
+   *
+   * @return <code>true</code> if this chunk has no samples, <code>false</code>
+   *         otherwise.
+   */
+  public boolean isEmpty()
+  {
+    return this.length == 0;
+  }
+}
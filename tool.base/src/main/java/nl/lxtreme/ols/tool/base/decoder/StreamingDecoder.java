@@ -0,0 +1,71 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base.decoder;
+
+
+/**
+ * Denotes a decoder to which samples are pushed in chunks, in time order,
+ * instead of a decoder that pulls samples from the captured data.
+ * <p>
+ * As such, a streaming decoder never needs all captured data at once. It can
+ * decode samples while they are being acquired, or decode data that does not
+ * fit in memory. Use a {@link DecoderPipeline} to feed samples to one or more
+ * streaming decoders.
+ * </p>
+ * <p>
+ * The methods of a decoder are called in the order {@link #begin}, zero or
+ * more times {@link #decode}, and finally {@link #end}, all from the same
+ * thread.
+ * </p>
+ */
+public interface StreamingDecoder
+{
+  // METHODS
+
+  /**
+   * Called with the first sample, denoting the initial state of all channels.
+   *
+   * @param aSampleIndex
+   *          the sample index of the first sample;
+   * @param aValue
+   *          the value of the first sample;
+   * @param aTimestamp
+   *          the timestamp of the first sample.
+   */
+  void begin( int aSampleIndex, int aValue, long aTimestamp );
+
+  /**
+   * Called for each chunk of samples following the first sample.
+   *
+   * @param aChunk
+   *          the samples to decode, never <code>null</code> or empty. Only
+   *          valid during this call.
+   */
+  void decode( SampleChunk aChunk );
+
+  /**
+   * Called after the last chunk of samples is decoded.
+   *
+   * @param aSampleIndex
+   *          the sample index directly after the last decoded sample.
+   */
+  void end( int aSampleIndex );
+}
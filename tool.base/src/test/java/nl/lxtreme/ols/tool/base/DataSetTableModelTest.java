@@ -0,0 +1,217 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import static org.junit.Assert.*;
+
+import nl.lxtreme.ols.api.data.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link DataSetTableModel}.
+ */
+public class DataSetTableModelTest
+{
+  // INNER TYPES
+
+  /**
+   * Provides a single decoded data item.
+   */
+  static final class TestData extends BaseData<TestData>
+  {
+    /**
+     * Creates a new TestData instance.
+     */
+    TestData( final int aIdx, final int aSampleIdx )
+    {
+      super( aIdx, 0, aSampleIdx, aSampleIdx );
+    }
+  }
+
+  /**
+   * Provides a data set to which data can be added.
+   */
+  static final class TestDataSet extends BaseDataSet<TestData>
+  {
+    /**
+     * Creates a new TestDataSet instance.
+     */
+    TestDataSet( final CapturedData aData, final int... aSampleIndexes )
+    {
+      super( 0, aData.getValues().length - 1, aData );
+
+      for ( int sampleIdx : aSampleIndexes )
+      {
+        addData( new TestData( size(), sampleIdx ) );
+      }
+    }
+  }
+
+  /**
+   * Provides a table model showing only the data index.
+   */
+  static final class TestDataTableModel extends DataSetTableModel<TestData>
+  {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new TestDataTableModel instance.
+     */
+    TestDataTableModel()
+    {
+      super( "Index" );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object getValueAt( final int aRow, final TestData aData, final int aColumn )
+    {
+      return Integer.valueOf( aData.getIndex() );
+    }
+  }
+
+  // CONSTANTS
+
+  /** 1kHz, hence each timestamp is a millisecond. */
+  private static final int SAMPLE_RATE = 1000;
+
+  // VARIABLES
+
+  private CapturedData data;
+  private TestDataTableModel model;
+
+  // METHODS
+
+  /**
+   * Creates a capture with samples at 0, 10, 20, ..., 90 ms.
+   */
+  @Before
+  public void setUp()
+  {
+    final int[] values = new int[10];
+    final long[] timestamps = new long[values.length];
+    for ( int i = 0; i < values.length; i++ )
+    {
+      values[i] = i & 1;
+      timestamps[i] = 10L * i;
+    }
+    this.data = new CapturedData( values, timestamps, -1L, SAMPLE_RATE, 1, 1, timestamps[timestamps.length - 1] );
+
+    this.model = new TestDataTableModel();
+  }
+
+  /**
+   * Tests that a time after the last row yields the last row.
+   */
+  @Test
+  public void testFindRowAfterLastRowOk()
+  {
+    this.model.setDataSet( new TestDataSet( this.data, 1, 3, 5 ) );
+
+    assertEquals( 2, this.model.findRow( 0.051 ) );
+    assertEquals( 2, this.model.findRow( 1.0 ) );
+  }
+
+  /**
+   * Tests that a time before the first row yields the first row.
+   */
+  @Test
+  public void testFindRowBeforeFirstRowOk()
+  {
+    this.model.setDataSet( new TestDataSet( this.data, 1, 3, 5 ) );
+
+    assertEquals( 0, this.model.findRow( 0.0 ) );
+    assertEquals( 0, this.model.findRow( -1.0 ) );
+  }
+
+  /**
+   * Tests that a time between two rows yields the earlier row.
+   */
+  @Test
+  public void testFindRowBetweenRowsOk()
+  {
+    this.model.setDataSet( new TestDataSet( this.data, 1, 3, 5 ) );
+
+    assertEquals( 0, this.model.findRow( 0.015 ) );
+    assertEquals( 0, this.model.findRow( 0.029 ) );
+    assertEquals( 1, this.model.findRow( 0.031 ) );
+    assertEquals( 1, this.model.findRow( 0.049 ) );
+  }
+
+  /**
+   * Tests that a time equal to the start of a row yields that row.
+   */
+  @Test
+  public void testFindRowEqualToRowOk()
+  {
+    this.model.setDataSet( new TestDataSet( this.data, 1, 3, 5 ) );
+
+    assertEquals( 0, this.model.findRow( 0.01 ) );
+    assertEquals( 1, this.model.findRow( 0.03 ) );
+    assertEquals( 2, this.model.findRow( 0.05 ) );
+  }
+
+  /**
+   * Tests that a row for a time equal to several rows yields the last of them.
+   */
+  @Test
+  public void testFindRowEqualToSeveralRowsOk()
+  {
+    this.model.setDataSet( new TestDataSet( this.data, 1, 3, 3, 3, 5 ) );
+
+    assertEquals( 3, this.model.findRow( 0.03 ) );
+    assertEquals( 3, this.model.findRow( 0.04 ) );
+  }
+
+  /**
+   * Tests that no row is found without data.
+   */
+  @Test
+  public void testFindRowWithoutDataOk()
+  {
+    assertEquals( -1, this.model.findRow( 0.0 ) );
+
+    this.model.setDataSet( new TestDataSet( this.data ) );
+    assertEquals( -1, this.model.findRow( 0.0 ) );
+  }
+
+  /**
+   * Tests that rows are searched through the given row index.
+   */
+  @Test
+  public void testFindRowWithRowIndexOk()
+  {
+    this.model.setDataSet( new TestDataSet( this.data, 1, 2, 3, 4, 5, 6 ), new int[] { 0, 2, 4 } );
+
+    assertEquals( 3, this.model.getRowCount() );
+    assertEquals( 0, this.model.findRow( 0.025 ) );
+    assertEquals( 1, this.model.findRow( 0.03 ) );
+    assertEquals( 1, this.model.findRow( 0.045 ) );
+    assertEquals( 2, this.model.findRow( 0.07 ) );
+
+    assertEquals( 4, this.model.getDataIndex( 2 ) );
+    assertEquals( Integer.valueOf( 4 ), this.model.getValueAt( 2, 0 ) );
+  }
+}
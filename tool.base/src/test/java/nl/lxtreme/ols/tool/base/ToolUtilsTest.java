@@ -0,0 +1,109 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link ToolUtils}.
+ */
+public class ToolUtilsTest
+{
+  // CONSTANTS
+
+  private static final double EPSILON = 1.0e-15;
+
+  // METHODS
+
+  /**
+   * Tests that times with an exponent are parsed correctly.
+   */
+  @Test
+  public void testParseTimeWithExponentOk()
+  {
+    assertTime( 1.5e-3, "1.5e-3" );
+    assertTime( 1.5e-3, "1.5E-3 s" );
+    assertTime( 2.0e-6, "2e-3ms" );
+    assertTime( 1.0e3, "1e+3" );
+    assertTime( -2.5e-9, "-2.5e0 ns" );
+  }
+
+  /**
+   * Tests that invalid times are not parsed.
+   */
+  @Test
+  public void testParseTimeWithInvalidInputFail()
+  {
+    assertNull( ToolUtils.parseTime( "" ) );
+    assertNull( ToolUtils.parseTime( "   " ) );
+    assertNull( ToolUtils.parseTime( "abc" ) );
+    assertNull( ToolUtils.parseTime( "ms" ) );
+    assertNull( ToolUtils.parseTime( "1.2.3" ) );
+    assertNull( ToolUtils.parseTime( "1 ks" ) );
+    assertNull( ToolUtils.parseTime( "1 m s" ) );
+    assertNull( ToolUtils.parseTime( "1e" ) );
+    assertNull( ToolUtils.parseTime( "--1" ) );
+  }
+
+  /**
+   * Tests that times with a sign are parsed correctly.
+   */
+  @Test
+  public void testParseTimeWithSignOk()
+  {
+    assertTime( -1.0, "-1" );
+    assertTime( 1.0, "+1" );
+    assertTime( -0.5e-3, "-.5ms" );
+    assertTime( 0.25e-6, "+0.25 us" );
+  }
+
+  /**
+   * Tests that times with all supported units are parsed correctly.
+   */
+  @Test
+  public void testParseTimeWithUnitOk()
+  {
+    assertTime( 2.0, "2" );
+    assertTime( 2.0, "2s" );
+    assertTime( 2.0, "2." );
+    assertTime( 1.5e-3, "1.5ms" );
+    assertTime( 1.5e-3, "1.5m" );
+    assertTime( 3.0e-6, "3 us" );
+    assertTime( 3.0e-6, "3 \u00B5s" );
+    assertTime( 3.0e-6, "3 \u03BCs" );
+    assertTime( 4.0e-9, "4ns" );
+    assertTime( 5.0e-12, "5ps" );
+    assertTime( 1.0e-3, "  1 ms  " );
+  }
+
+  /**
+   * Asserts that the given text is parsed as the given time.
+   */
+  private static void assertTime( final double aExpected, final String aText )
+  {
+    final Double time = ToolUtils.parseTime( aText );
+    assertNotNull( "Not parsed: " + aText, time );
+    assertEquals( aText, aExpected, time.doubleValue(), Math.abs( aExpected ) * EPSILON );
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base.decoder;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link ConcurrentDecoding}.
+ */
+public class ConcurrentDecodingTest
+{
+  // INNER TYPES
+
+  /**
+   * Records the thread it is called on, and optionally fails.
+   */
+  static final class RecordingTask implements Callable<Thread>
+  {
+    // VARIABLES
+
+    private final Exception failure;
+    volatile Thread thread;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new RecordingTask instance.
+     */
+    RecordingTask( final Exception aFailure )
+    {
+      this.failure = aFailure;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Thread call() throws Exception
+    {
+      this.thread = Thread.currentThread();
+      if ( this.failure != null )
+      {
+        throw this.failure;
+      }
+      return this.thread;
+    }
+  }
+
+  // METHODS
+
+  /**
+   * Tests that the tasks are run on named daemon threads, such that they never
+   * keep the VM alive.
+   */
+  @Test
+  public void testInvokeAllUsesNamedDaemonThreadsOk() throws Exception
+  {
+    final List<RecordingTask> tasks = Arrays.asList( new RecordingTask( null ), new RecordingTask( null ) );
+
+    ConcurrentDecoding.invokeAll( tasks, 2 );
+
+    for ( RecordingTask task : tasks )
+    {
+      assertNotSame( Thread.currentThread(), task.thread );
+      assertTrue( task.thread.isDaemon() );
+      assertTrue( task.thread.getName().startsWith( ConcurrentDecoding.THREAD_NAME ) );
+    }
+  }
+
+  /**
+   * Tests that a single task is run on the calling thread.
+   */
+  @Test
+  public void testInvokeAllSingleTaskOnCallingThreadOk() throws Exception
+  {
+    final RecordingTask task = new RecordingTask( null );
+
+    ConcurrentDecoding.invokeAll( Collections.singletonList( task ), 4 );
+
+    assertSame( Thread.currentThread(), task.thread );
+  }
+
+  /**
+   * Tests that the exception of a failing task is rethrown as is.
+   */
+  @Test( expected = IOException.class )
+  public void testInvokeAllRethrowsFailureOk() throws Exception
+  {
+    final List<RecordingTask> tasks = Arrays.asList( new RecordingTask( null ), new RecordingTask( new IOException() ) );
+
+    ConcurrentDecoding.invokeAll( tasks, 2 );
+  }
+}
@@ -0,0 +1,282 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base.decoder;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.tools.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link DecoderPipeline}.
+ */
+public class DecoderPipelineTest
+{
+  // INNER TYPES
+
+  /**
+   * Records all samples pushed to it.
+   */
+  static final class RecordingDecoder implements StreamingDecoder
+  {
+    // VARIABLES
+
+    final List<Integer> chunkLengths = new ArrayList<Integer>();
+    final List<Integer> values = new ArrayList<Integer>();
+    final List<Long> timestamps = new ArrayList<Long>();
+
+    int beginIndex = -1;
+    int endIndex = -1;
+    int nextIndex = -1;
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void begin( final int aSampleIndex, final int aValue, final long aTimestamp )
+    {
+      assertEquals( "Begin called twice?!", -1, this.beginIndex );
+      this.beginIndex = aSampleIndex;
+      this.nextIndex = aSampleIndex + 1;
+      this.values.add( Integer.valueOf( aValue ) );
+      this.timestamps.add( Long.valueOf( aTimestamp ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void decode( final SampleChunk aChunk )
+    {
+      assertTrue( "Decode called before begin?!", this.beginIndex >= 0 );
+      assertEquals( "Decode called after end?!", -1, this.endIndex );
+      assertFalse( "Empty chunk?!", aChunk.isEmpty() );
+      assertEquals( "Chunk does not follow previous chunk?!", this.nextIndex, aChunk.getFirstIndex() );
+
+      for ( int i = 0; i < aChunk.getLength(); i++ )
+      {
+        assertEquals( this.nextIndex + i, aChunk.getSampleIndex( i ) );
+        this.values.add( Integer.valueOf( aChunk.getValue( i ) ) );
+        this.timestamps.add( Long.valueOf( aChunk.getTimestamp( i ) ) );
+      }
+
+      this.chunkLengths.add( Integer.valueOf( aChunk.getLength() ) );
+      this.nextIndex += aChunk.getLength();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void end( final int aSampleIndex )
+    {
+      assertEquals( "End called twice?!", -1, this.endIndex );
+      this.endIndex = aSampleIndex;
+    }
+  }
+
+  /**
+   * Records all reported progress.
+   */
+  static final class RecordingProgressListener implements ToolProgressListener
+  {
+    // VARIABLES
+
+    final List<Integer> progress = new ArrayList<Integer>();
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setProgress( final int aPercentage )
+    {
+      this.progress.add( Integer.valueOf( aPercentage ) );
+    }
+  }
+
+  // CONSTANTS
+
+  private static final int CHUNK_SIZE = DecoderPipeline.DEFAULT_CHUNK_SIZE;
+
+  // METHODS
+
+  /**
+   * Creates captured data in which each sample has a unique value and
+   * timestamp.
+   */
+  private static AcquisitionResult createData( final int aSize )
+  {
+    final int[] values = new int[aSize];
+    final long[] timestamps = new long[aSize];
+    for ( int i = 0; i < aSize; i++ )
+    {
+      values[i] = i ^ 0x5A5A;
+      timestamps[i] = 3L * i + 7L;
+    }
+    return new CapturedData( values, timestamps, -1L, 1000000, 32, 0xFFFFFFFF, timestamps[aSize - 1] );
+  }
+
+  /**
+   * Tests that adding a sample to a pipeline that is not started fails.
+   */
+  @Test( expected = IllegalStateException.class )
+  public void testAddBeforeBeginFail()
+  {
+    new DecoderPipeline( 4, new RecordingDecoder() ).add( 1, 1L );
+  }
+
+  /**
+   * Tests that a pipeline can only be started once.
+   */
+  @Test( expected = IllegalStateException.class )
+  public void testBeginTwiceFail()
+  {
+    final DecoderPipeline pipeline = new DecoderPipeline( 4, new RecordingDecoder() );
+    pipeline.begin( 0, 0, 0L );
+    pipeline.begin( 1, 1, 1L );
+  }
+
+  /**
+   * Tests that samples are pushed to all decoders as soon as a chunk is full,
+   * and the remaining samples when the pipeline ends.
+   */
+  @Test
+  public void testPushChunksOk()
+  {
+    final RecordingDecoder decoder1 = new RecordingDecoder();
+    final RecordingDecoder decoder2 = new RecordingDecoder();
+
+    final DecoderPipeline pipeline = new DecoderPipeline( 3, decoder1, decoder2 );
+    pipeline.begin( 10, 100, 1000L );
+
+    assertFalse( pipeline.add( 101, 1001L ) );
+    assertFalse( pipeline.add( 102, 1002L ) );
+    assertTrue( decoder1.chunkLengths.isEmpty() );
+
+    assertTrue( pipeline.add( 103, 1003L ) );
+    assertEquals( Arrays.asList( Integer.valueOf( 3 ) ), decoder1.chunkLengths );
+
+    assertFalse( pipeline.add( 104, 1004L ) );
+    pipeline.end();
+
+    for ( RecordingDecoder decoder : Arrays.asList( decoder1, decoder2 ) )
+    {
+      assertEquals( 10, decoder.beginIndex );
+      assertEquals( 15, decoder.endIndex );
+      assertEquals( Arrays.asList( Integer.valueOf( 3 ), Integer.valueOf( 1 ) ), decoder.chunkLengths );
+      assertEquals( Arrays.asList( Integer.valueOf( 100 ), Integer.valueOf( 101 ), Integer.valueOf( 102 ),
+          Integer.valueOf( 103 ), Integer.valueOf( 104 ) ), decoder.values );
+    }
+  }
+
+  /**
+   * Tests that replaying a range of exactly one chunk after the first sample
+   * pushes a single chunk.
+   */
+  @Test
+  public void testReplayExactChunkOk()
+  {
+    final AcquisitionResult data = createData( CHUNK_SIZE + 1 );
+
+    final RecordingDecoder decoder = new RecordingDecoder();
+    final RecordingProgressListener listener = new RecordingProgressListener();
+    DecoderPipeline.replay( data, 0, data.getSampleCount(), listener, decoder );
+
+    assertEquals( Arrays.asList( Integer.valueOf( CHUNK_SIZE ) ), decoder.chunkLengths );
+    assertEquals( data.getSampleCount(), decoder.endIndex );
+    assertEquals( Integer.valueOf( 100 ), listener.progress.get( listener.progress.size() - 1 ) );
+  }
+
+  /**
+   * Tests that replaying a range that does not start at zero, and does not end
+   * on a chunk boundary, pushes every sample in the range exactly once, in
+   * order, and reports increasing progress ending at 100%.
+   */
+  @Test
+  public void testReplayRangeOk()
+  {
+    final AcquisitionResult data = createData( 3 * CHUNK_SIZE + 17 );
+    final int startIdx = 5;
+    final int endIdx = data.getSampleCount() - 3;
+
+    final RecordingDecoder decoder = new RecordingDecoder();
+    final RecordingProgressListener listener = new RecordingProgressListener();
+    DecoderPipeline.replay( data, startIdx, endIdx, listener, decoder );
+
+    assertEquals( startIdx, decoder.beginIndex );
+    assertEquals( endIdx, decoder.endIndex );
+    assertEquals( endIdx - startIdx, decoder.values.size() );
+    for ( int i = 0; i < decoder.values.size(); i++ )
+    {
+      assertEquals( data.getValue( startIdx + i ), decoder.values.get( i ).intValue() );
+      assertEquals( data.getTimestamp( startIdx + i ), decoder.timestamps.get( i ).longValue() );
+    }
+
+    // all chunks are full, except for the last one...
+    final int chunkCount = decoder.chunkLengths.size();
+    assertEquals( 4, chunkCount );
+    for ( int i = 0; i < chunkCount - 1; i++ )
+    {
+      assertEquals( CHUNK_SIZE, decoder.chunkLengths.get( i ).intValue() );
+    }
+    assertEquals( ( endIdx - startIdx - 1 ) % CHUNK_SIZE, decoder.chunkLengths.get( chunkCount - 1 ).intValue() );
+
+    // progress is reported once per full chunk, and once at the end...
+    assertEquals( chunkCount, listener.progress.size() );
+    int last = 0;
+    for ( Integer progress : listener.progress )
+    {
+      assertTrue( "Progress decreased?!", progress.intValue() >= last );
+      assertTrue( "Progress out of range?!", progress.intValue() <= 100 );
+      last = progress.intValue();
+    }
+    assertEquals( 100, last );
+  }
+
+  /**
+   * Tests that replaying a single sample only begins and ends the decoders.
+   */
+  @Test
+  public void testReplaySingleSampleOk()
+  {
+    final AcquisitionResult data = createData( 10 );
+
+    final RecordingDecoder decoder = new RecordingDecoder();
+    final RecordingProgressListener listener = new RecordingProgressListener();
+    DecoderPipeline.replay( data, 4, 5, listener, decoder );
+
+    assertEquals( 4, decoder.beginIndex );
+    assertEquals( 5, decoder.endIndex );
+    assertTrue( decoder.chunkLengths.isEmpty() );
+    assertEquals( Arrays.asList( Integer.valueOf( 100 ) ), listener.progress );
+  }
+}
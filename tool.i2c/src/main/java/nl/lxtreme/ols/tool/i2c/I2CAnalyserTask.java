@@ -24,12 +24,19 @@ package nl.lxtreme.ols.tool.i2c;
 import static nl.lxtreme.ols.util.NumberUtils.*;
 
 import java.beans.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.util.logging.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.annotation.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.tool.base.annotation.*;
+import nl.lxtreme.ols.tool.base.decoder.*;
+import nl.lxtreme.ols.tool.i2c.I2CDecoder.DecoderState;
+import nl.lxtreme.ols.tool.i2c.I2CDecoder.I2CDecoderCallback;
 
 
 /**
@@ -37,6 +44,191 @@ import nl.lxtreme.ols.tool.base.annotation.*;
  */
 public class I2CAnalyserTask implements ToolTask<I2CDataSet>
 {
+  // INNER TYPES
+
+  /**
+   * Decodes a segment of the data into its own data set, such that multiple
+   * segments can be decoded concurrently.
+   */
+  final class Segment implements Callable<Segment>, I2CDecoderCallback
+  {
+    // VARIABLES
+
+    final int beginIdx;
+    final int endIdx;
+    final DecoderState entryState;
+    final I2CDataSet dataSet;
+    final List<Annotation<?>> annotations;
+    /** whether decoding this segment counts towards the progress. */
+    final boolean countProgress;
+
+    DecoderState state;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link Segment} instance.
+     * 
+     * @param aBeginIdx
+     *          the sample index of the sample providing the initial levels of
+     *          SCL and SDA, decoding starts at the sample after it;
+     * @param aEndIdx
+     *          the sample index to stop decoding, exclusive;
+     * @param aEntryState
+     *          the (assumed) decoder state at the start of this segment.
+     */
+    Segment( final int aBeginIdx, final int aEndIdx, final DecoderState aEntryState )
+    {
+      this( aBeginIdx, aEndIdx, aEntryState, true /* aCountProgress */);
+    }
+
+    /**
+     * Creates a new {@link Segment} instance.
+     * 
+     * @param aBeginIdx
+     *          the sample index of the sample providing the initial levels of
+     *          SCL and SDA, decoding starts at the sample after it;
+     * @param aEndIdx
+     *          the sample index to stop decoding, exclusive;
+     * @param aEntryState
+     *          the (assumed) decoder state at the start of this segment;
+     * @param aCountProgress
+     *          <code>true</code> if decoding this segment counts towards the
+     *          progress, <code>false</code> if its samples are already counted,
+     *          as it is decoded again.
+     */
+    private Segment( final int aBeginIdx, final int aEndIdx, final DecoderState aEntryState,
+        final boolean aCountProgress )
+    {
+      this.countProgress = aCountProgress;
+      this.beginIdx = aBeginIdx;
+      this.endIdx = aEndIdx;
+      this.entryState = aEntryState;
+      this.dataSet = new I2CDataSet( aBeginIdx, aEndIdx, I2CAnalyserTask.this.context.getData() );
+      this.annotations = new ArrayList<Annotation<?>>();
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Segment call() throws Exception
+    {
+      final AcquisitionResult data = I2CAnalyserTask.this.context.getData();
+
+      final I2CDecoder decoder = new I2CDecoder( I2CAnalyserTask.this.sclIdx, I2CAnalyserTask.this.sdaIdx, this,
+          this.entryState );
+      final DecoderPipeline pipeline = new DecoderPipeline( DecoderPipeline.DEFAULT_CHUNK_SIZE, decoder );
+
+      pipeline.begin( this.beginIdx, data.getValue( this.beginIdx ), data.getTimestamp( this.beginIdx ) );
+
+      int reported = 0;
+      for ( int idx = this.beginIdx + 1; idx < this.endIdx; idx++ )
+      {
+        if ( pipeline.add( data.getValue( idx ), data.getTimestamp( idx ) ) && this.countProgress )
+        {
+          reportProgress( I2CAnalyserTask.this.decodedSamples.addAndGet( DecoderPipeline.DEFAULT_CHUNK_SIZE ),
+              I2CAnalyserTask.this.samplesToDecode );
+          reported += DecoderPipeline.DEFAULT_CHUNK_SIZE;
+        }
+      }
+
+      pipeline.end();
+
+      if ( this.countProgress )
+      {
+        final int remainder = ( this.endIdx - this.beginIdx - 1 ) - reported;
+        reportProgress( I2CAnalyserTask.this.decodedSamples.addAndGet( remainder ),
+            I2CAnalyserTask.this.samplesToDecode );
+      }
+
+      this.state = decoder.getState();
+      return this;
+    }
+
+    /**
+     * Creates a segment that decodes the same samples as this segment again,
+     * starting with the given decoder state.
+     * 
+     * @param aEntryState
+     *          the decoder state at the start of the segment.
+     * @return a new segment, not yet decoded, never <code>null</code>.
+     */
+    Segment redecode( final DecoderState aEntryState )
+    {
+      // the samples of this segment are already counted...
+      return new Segment( this.beginIdx, this.endIdx, aEntryState, false /* aCountProgress */);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onAck( final int aSampleIdx, final long aTimestamp )
+    {
+      reportACK( this.dataSet, aSampleIdx );
+
+      this.annotations.add( new SampleDataAnnotation( I2CAnalyserTask.this.sdaIdx, aTimestamp, I2CDataSet.I2C_ACK ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onBusError( final int aSampleIdx, final long aTimestamp )
+    {
+      reportBusError( this.dataSet, aSampleIdx );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onData( final int aStartIdx, final long aStartTimestamp, final int aEndIdx,
+        final long aEndTimestamp, final int aByteValue, final String aDescription )
+    {
+      reportData( this.dataSet, aStartIdx, aEndIdx, aByteValue );
+
+      this.annotations.add( new SampleDataAnnotation( I2CAnalyserTask.this.sdaIdx, aStartTimestamp, aEndTimestamp,
+          aDescription ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onNack( final int aSampleIdx, final long aTimestamp )
+    {
+      reportNACK( this.dataSet, aSampleIdx );
+
+      this.annotations.add( new SampleDataAnnotation( I2CAnalyserTask.this.sdaIdx, aTimestamp, I2CDataSet.I2C_NACK ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onStartCondition( final int aSampleIdx, final long aTimestamp )
+    {
+      reportStartCondition( this.dataSet, aSampleIdx );
+
+      this.annotations.add( new SampleDataAnnotation( I2CAnalyserTask.this.sdaIdx, aTimestamp, I2CDataSet.I2C_START ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onStopCondition( final int aSampleIdx, final long aTimestamp )
+    {
+      reportStopCondition( this.dataSet, aSampleIdx );
+
+      this.annotations.add( new SampleDataAnnotation( I2CAnalyserTask.this.sdaIdx, aTimestamp, I2CDataSet.I2C_STOP ) );
+    }
+  }
+
   // CONSTANTS
 
   public static final String LINE_A = "LineA";
@@ -48,7 +240,8 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
   private static final String CHANNEL_SCL_NAME = "SCL";
   private static final String CHANNEL_SDA_NAME = "SDA";
 
-  private static final int I2C_BITCOUNT = 8;
+  /** The maximum number of segments to decode concurrently. */
+  private static final int MAX_SEGMENTS = 64;
 
   private static final Logger LOG = Logger.getLogger( I2CAnalyserTask.class.getName() );
 
@@ -70,6 +263,11 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
   private int lineBidx;
   private int sdaIdx;
   private int sclIdx;
+  private int minimumSegmentSize;
+  private long samplesToDecode;
+
+  private final AtomicLong decodedSamples;
+  private final AtomicInteger reportedProgress;
 
   // CONSTRUCTORS
 
@@ -90,6 +288,10 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
 
     // the default behaviour is remained as-is...
     this.detectSDA_SCL = true;
+
+    this.minimumSegmentSize = 1 << 16;
+    this.decodedSamples = new AtomicLong();
+    this.reportedProgress = new AtomicInteger();
   }
 
   // METHODS
@@ -117,13 +319,6 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
   {
     final AcquisitionResult data = this.context.getData();
 
-    final int[] values = data.getValues();
-    final long[] timestamps = data.getTimestamps();
-
-    // process the captured data and write to output
-    int oldSCL, oldSDA, bitCount;
-    int byteValue;
-
     if ( LOG.isLoggable( Level.FINE ) )
     {
       LOG.log( Level.FINE, "Line A mask = 0x{0}", Integer.toHexString( this.lineAmask ) );
@@ -133,6 +328,8 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
     int startOfDecode = this.context.getStartSampleIndex();
     int endOfDecode = this.context.getEndSampleIndex();
 
+    this.reportedProgress.set( -1 );
+
     if ( this.detectSDA_SCL )
     {
       startOfDecode = autodetectDataAndClock( data, startOfDecode, endOfDecode );
@@ -153,196 +350,57 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
     prepareResults();
 
     /*
-     * Now decode the bytes, SDA may only change when SCL is low. Otherwise it
-     * may be a repeated start condition or stop condition. If the start/stop
-     * condition is not at a byte boundary a bus error is detected. So we have
-     * to scan for SCL rises and for SDA changes during SCL is high. Each byte
-     * is followed by a 9th bit (ACK/NACK).
+     * Now decode the bytes, see I2CDecoder for the details.
+     * 
+     * As the bus is idle after a stop condition, the data is split into
+     * segments at stop conditions, which are decoded concurrently assuming the
+     * decoder is idle at the start of each segment. In the rare case this
+     * assumption does not hold, a segment is decoded again with the actual
+     * state of the decoder.
      */
-    int idx = i2cDataSet.getStartOfDecode();
-    int prevIdx = -1;
-
-    oldSCL = values[idx] & sclMask;
-    oldSDA = values[idx] & sdaMask;
-
-    bitCount = I2C_BITCOUNT;
-    byteValue = 0;
-
-    boolean startCondFound = false;
-    boolean tenBitAddress = false;
-    int slaveAddress = 0x00;
-    int direction = -1;
+    final List<Segment> segments = createSegments( data, i2cDataSet.getStartOfDecode(),
+        i2cDataSet.getEndOfDecode(), sclMask, sdaMask );
 
     if ( this.detectSDA_SCL )
     {
+      final Segment first = segments.get( 0 );
+
       // We've just found our start condition, start the report with that...
-      reportStartCondition( i2cDataSet, startOfDecode );
+      reportStartCondition( first.dataSet, startOfDecode );
 
-      this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[startOfDecode],
+      first.annotations.add( new SampleDataAnnotation( this.sdaIdx, data.getTimestamp( startOfDecode ),
           I2CDataSet.I2C_START ) );
 
-      startCondFound = true;
+      first.entryState.startCondFound = true;
     }
 
-    for ( ; idx < i2cDataSet.getEndOfDecode(); idx++ )
-    {
-      final int dataValue = values[idx];
+    this.samplesToDecode = i2cDataSet.getEndOfDecode() - i2cDataSet.getStartOfDecode() - 1;
+    this.decodedSamples.set( 0L );
+    this.reportedProgress.set( -1 );
 
-      final int sda = ( dataValue & sdaMask );
-      final int scl = ( dataValue & sclMask );
+    ConcurrentDecoding.invokeAll( segments, Runtime.getRuntime().availableProcessors() );
 
-      // detect SCL fall/rise
-      if ( oldSCL > scl )
-      {
-        // SCL falls
-        if ( ( prevIdx < 0 ) || ( bitCount == I2C_BITCOUNT ) )
-        {
-          prevIdx = idx;
-        }
+    // Stitch the decoded segments back together...
+    final AnnotationBatch annotations = new AnnotationBatch( this.annotationListener );
+    for ( int i = 0; i < segments.size(); i++ )
+    {
+      final Segment segment = segments.get( i );
 
-        if ( bitCount == 0 )
-        {
-          // store decoded byte
-          reportData( i2cDataSet, prevIdx, idx, byteValue );
-
-          final String annotation;
-          if ( startCondFound )
-          {
-            // This is the (7- or 10-bit) address part...
-            direction = ( byteValue & 0x01 );
-
-            if ( ( byteValue & 0xf8 ) == 0xf0 )
-            {
-              // 10-bit address part...
-              slaveAddress = ( byteValue & 0x06 ) << 6;
-              tenBitAddress = true;
-
-              annotation = String.format( "Setup %s 10-bit slave", ( direction == 1 ) ? "read from" : "write to" );
-            }
-            else
-            {
-              if ( tenBitAddress )
-              {
-                // 10-bit address needs the first few bits of the previous slave
-                // address, so OR-ing is needed here...
-                slaveAddress |= ( byteValue & 0xFF );
-              }
-              else
-              {
-                // 7-bit address, directly available. See issue #51
-                slaveAddress = ( ( byteValue >> 1 ) & 0xFF );
-              }
-              startCondFound = false;
-
-              annotation = String.format( tenBitAddress ? "Setup %s slave: 0x%X " : "Setup %s slave: 0x%X [0x%X]",
-                  ( direction == 1 ) ? "read from" : "write to", Integer.valueOf( slaveAddress ),
-                  Integer.valueOf( byteValue ) );
-
-              tenBitAddress = false;
-            }
-          }
-          else
-          {
-            annotation = String.format( "%s data: 0x%X (%c)", ( direction == 1 ) ? "Read" : "Write",
-                Integer.valueOf( byteValue ), Integer.valueOf( byteValue ) );
-          }
-
-          this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[prevIdx],
-              timestamps[idx], annotation ) );
-
-          byteValue = 0;
-        }
-      }
-      else if ( scl > oldSCL )
-      {
-        // SCL rises
-        if ( sda != oldSDA )
-        {
-          reportBusError( i2cDataSet, idx );
-        }
-        else
-        {
-          // read SDA
-          if ( bitCount != 0 )
-          {
-            bitCount--;
-            if ( sda != 0 )
-            {
-              byteValue |= ( 1 << bitCount );
-            }
-          }
-          else
-          {
-            // read the confirmation of the slave...
-            if ( sda != 0 )
-            {
-              // NACK
-              reportNACK( i2cDataSet, idx );
-
-              this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[idx],
-                  I2CDataSet.I2C_NACK ) );
-            }
-            else
-            {
-              // ACK
-              reportACK( i2cDataSet, idx );
-
-              this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[idx],
-                  I2CDataSet.I2C_ACK ) );
-            }
-
-            // next byte
-            bitCount = I2C_BITCOUNT;
-            byteValue = 0;
-          }
-        }
-      }
+      i2cDataSet.merge( segment.dataSet );
+      annotations.addAll( segment.annotations );
 
-      // detect SDA change when SCL high
-      if ( ( scl == sclMask ) && ( sda != oldSDA ) )
+      if ( ( i + 1 ) < segments.size() )
       {
-        // SDA changes here
-        if ( ( bitCount > 0 ) && ( bitCount < ( I2C_BITCOUNT - 1 ) ) )
-        {
-          // bus error, no complete byte detected
-          reportBusError( i2cDataSet, idx );
-        }
-        else
+        final Segment next = segments.get( i + 1 );
+        if ( !segment.state.isEquivalent( next.entryState ) )
         {
-          if ( sda > oldSDA )
-          {
-            // SDA rises, this is a stop condition
-            reportStopCondition( i2cDataSet, idx );
-
-            this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[idx],
-                I2CDataSet.I2C_STOP ) );
-
-            slaveAddress = 0x00;
-            direction = -1;
-          }
-          else
-          {
-            // SDA falls, this is a start condition
-            reportStartCondition( i2cDataSet, idx );
-
-            this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[idx],
-                I2CDataSet.I2C_START ) );
-
-            startCondFound = true;
-          }
-
-          // new byte
-          bitCount = I2C_BITCOUNT;
-          byteValue = 0;
+          LOG.log( Level.FINE, "Decoding segment starting at {0} again...", Integer.valueOf( next.beginIdx + 1 ) );
+
+          segments.set( i + 1, next.redecode( segment.state ).call() );
         }
       }
-
-      oldSCL = scl;
-      oldSDA = sda;
-
-      this.progressListener
-          .setProgress( getPercentage( idx, i2cDataSet.getStartOfDecode(), i2cDataSet.getEndOfDecode() ) );
     }
+    annotations.commit();
 
     return i2cDataSet;
   }
@@ -417,6 +475,26 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
     this.reportStop = aReportStop;
   }
 
+  /**
+   * Sets the minimal number of samples of a segment that is decoded on its
+   * own.
+   * 
+   * @param aMinimumSegmentSize
+   *          the minimum segment size, &gt; 0.
+   */
+  final void setMinimumSegmentSize( final int aMinimumSegmentSize )
+  {
+    this.minimumSegmentSize = aMinimumSegmentSize;
+  }
+
+  /**
+   * @return the number of samples decoded so far, as counted for the progress.
+   */
+  final long getDecodedSampleCount()
+  {
+    return this.decodedSamples.get();
+  }
+
   /**
    * @return the sclIdx
    */
@@ -448,8 +526,6 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
   {
     final int dataMask = this.lineAmask | this.lineBmask;
 
-    final int[] values = aData.getValues();
-
     int sampleIdx;
     /*
      * first of all scan both lines until they are high (IDLE), then the first
@@ -457,7 +533,7 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
      */
     for ( sampleIdx = aStartOfDecode; sampleIdx < aEndOfDecode; sampleIdx++ )
     {
-      final int dataValue = values[sampleIdx];
+      final int dataValue = aData.getValue( sampleIdx );
 
       if ( ( dataValue & dataMask ) == dataMask )
       {
@@ -465,7 +541,7 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
         break;
       }
 
-      this.progressListener.setProgress( getPercentage( sampleIdx, aStartOfDecode, aEndOfDecode ) );
+      reportProgress( sampleIdx - aStartOfDecode, aEndOfDecode - aStartOfDecode );
     }
 
     if ( sampleIdx == aEndOfDecode )
@@ -478,7 +554,7 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
     // a is now the start of idle, now find the first start condition
     for ( ; sampleIdx < aEndOfDecode; sampleIdx++ )
     {
-      final int sample = values[sampleIdx];
+      final int sample = aData.getValue( sampleIdx );
       final int dataValue = sample & dataMask;
 
       if ( ( dataValue != dataMask ) && ( dataValue != 0 ) )
@@ -505,7 +581,7 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
         }
       }
 
-      this.progressListener.setProgress( getPercentage( sampleIdx, aStartOfDecode, aEndOfDecode ) );
+      reportProgress( sampleIdx - aStartOfDecode, aEndOfDecode - aStartOfDecode );
     }
 
     if ( sampleIdx == aEndOfDecode )
@@ -518,6 +594,62 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
     return sampleIdx;
   }
 
+  /**
+   * Splits the data in segments that end with a stop condition.
+   * 
+   * @param aData
+   *          the data to split;
+   * @param aStartOfDecode
+   *          the starting sample index;
+   * @param aEndOfDecode
+   *          the ending sample index;
+   * @param aSclMask
+   *          the mask of the SCL line;
+   * @param aSdaMask
+   *          the mask of the SDA line.
+   * @return the segments, in order, never empty.
+   */
+  private List<Segment> createSegments( final AcquisitionResult aData, final int aStartOfDecode,
+      final int aEndOfDecode, final int aSclMask, final int aSdaMask )
+  {
+    final int length = aEndOfDecode - aStartOfDecode;
+    final int segmentCount = Math.max( 1, Math.min( MAX_SEGMENTS, length / this.minimumSegmentSize ) );
+    final int segmentSize = length / segmentCount;
+
+    final List<Segment> result = new ArrayList<Segment>();
+
+    int beginIdx = aStartOfDecode;
+    for ( int i = 1; i < segmentCount; i++ )
+    {
+      // Look for the first stop condition after the desired segment size...
+      int idx = Math.max( beginIdx + 2, aStartOfDecode + ( i * segmentSize ) );
+      for ( ; idx < aEndOfDecode; idx++ )
+      {
+        final int prevValue = aData.getValue( idx - 1 );
+        final int value = aData.getValue( idx );
+
+        if ( ( ( prevValue & aSclMask ) != 0 ) && ( ( value & aSclMask ) != 0 ) && ( ( prevValue & aSdaMask ) == 0 )
+            && ( ( value & aSdaMask ) != 0 ) )
+        {
+          break;
+        }
+      }
+      if ( idx >= ( aEndOfDecode - 1 ) )
+      {
+        break;
+      }
+
+      result.add( new Segment( beginIdx, idx + 1, new DecoderState() ) );
+
+      // the next segment continues with the levels of the stop condition...
+      beginIdx = idx;
+    }
+
+    result.add( new Segment( beginIdx, aEndOfDecode, new DecoderState() ) );
+
+    return result;
+  }
+
   /**
    * Prepares everything for the upcoming results.
    */
@@ -576,6 +708,30 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
     }
   }
 
+  /**
+   * Reports the progress, but only if it changed since the last report.
+   * 
+   * @param aValue
+   *          the number of processed samples;
+   * @param aRange
+   *          the total number of samples to process.
+   */
+  private void reportProgress( final long aValue, final long aRange )
+  {
+    final int percentage = getPercentage( aValue, aRange );
+
+    int reported = this.reportedProgress.get();
+    while ( percentage > reported )
+    {
+      if ( this.reportedProgress.compareAndSet( reported, percentage ) )
+      {
+        this.progressListener.setProgress( percentage );
+        return;
+      }
+      reported = this.reportedProgress.get();
+    }
+  }
+
   /**
    * @param aTime
    */
@@ -60,6 +60,15 @@ public final class I2CData extends BaseData<I2CData>
     this.value = 0;
   }
 
+  /**
+   * Creates a copy of the given data with another index.
+   */
+  I2CData( final int aIdx, final I2CData aData )
+  {
+    super( aIdx, aData.getChannelIdx(), aData.getStartSampleIndex(), aData.getEndSampleIndex(), aData.getEventName() );
+    this.value = aData.value;
+  }
+
   // METHODS
 
   /**
@@ -78,6 +78,25 @@ public final class I2CDataSet extends BaseDataSet<I2CData>
     return this.decodedBytes;
   }
 
+  /**
+   * Merges the given data set, holding the decoded data of a segment of the
+   * data, into this data set, as if its data was reported to this data set
+   * directly.
+   * 
+   * @param aDataSet
+   *          the data set to merge, cannot be <code>null</code>.
+   */
+  public void merge( final I2CDataSet aDataSet )
+  {
+    for ( I2CData data : aDataSet.getData() )
+    {
+      addData( new I2CData( size(), data ) );
+    }
+
+    this.busErrors += aDataSet.busErrors;
+    this.decodedBytes += aDataSet.decodedBytes;
+  }
+
   /**
    * @param aTime
    */
@@ -0,0 +1,447 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.i2c;
+
+
+import nl.lxtreme.ols.tool.base.decoder.*;
+
+
+/**
+ * Provides a streaming decoder for I2C data.
+ * <p>
+ * SDA may only change when SCL is low. Otherwise it may be a repeated start
+ * condition or stop condition. If the start/stop condition is not at a byte
+ * boundary a bus error is detected. So we have to scan for SCL rises and for
+ * SDA changes during SCL is high. Each byte is followed by a 9th bit
+ * (ACK/NACK).
+ * </p>
+ */
+public class I2CDecoder implements StreamingDecoder
+{
+  // INNER TYPES
+
+  /**
+   * Holds the state of the decoder, which can be carried over from one decoder
+   * to the next.
+   */
+  static final class DecoderState
+  {
+    // VARIABLES
+
+    int oldSCL;
+    int oldSDA;
+    int bitCount;
+    int byteValue;
+    int prevIdx;
+    long prevTimestamp;
+    boolean startCondFound;
+    boolean tenBitAddress;
+    int slaveAddress;
+    int direction;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link DecoderState} instance for an idle bus.
+     */
+    DecoderState()
+    {
+      this.bitCount = I2C_BITCOUNT;
+      this.byteValue = 0;
+      this.prevIdx = -1;
+      this.prevTimestamp = -1L;
+      this.startCondFound = false;
+      this.tenBitAddress = false;
+      this.slaveAddress = 0x00;
+      this.direction = -1;
+    }
+
+    /**
+     * Creates a new {@link DecoderState} instance as copy of the given state.
+     */
+    DecoderState( final DecoderState aState )
+    {
+      this.oldSCL = aState.oldSCL;
+      this.oldSDA = aState.oldSDA;
+      this.bitCount = aState.bitCount;
+      this.byteValue = aState.byteValue;
+      this.prevIdx = aState.prevIdx;
+      this.prevTimestamp = aState.prevTimestamp;
+      this.startCondFound = aState.startCondFound;
+      this.tenBitAddress = aState.tenBitAddress;
+      this.slaveAddress = aState.slaveAddress;
+      this.direction = aState.direction;
+    }
+
+    // METHODS
+
+    /**
+     * Returns whether decoding from the given state yields the same results as
+     * decoding from this state, ignoring the levels of SCL and SDA.
+     */
+    boolean isEquivalent( final DecoderState aState )
+    {
+      // The index of the previous SCL fall is overwritten before it is used
+      // when starting a new byte...
+      return ( this.bitCount == aState.bitCount ) && ( this.byteValue == aState.byteValue )
+          && ( ( this.bitCount == I2C_BITCOUNT ) || ( this.prevIdx == aState.prevIdx ) )
+          && ( this.startCondFound == aState.startCondFound ) && ( this.tenBitAddress == aState.tenBitAddress )
+          && ( this.slaveAddress == aState.slaveAddress ) && ( this.direction == aState.direction );
+    }
+  }
+
+  /**
+   * Provides callbacks for the decoded conditions and bytes.
+   */
+  public static interface I2CDecoderCallback
+  {
+    // METHODS
+
+    /**
+     * Called when the slave acknowledged a byte.
+     * 
+     * @param aSampleIdx
+     *          the sample index of the acknowledge;
+     * @param aTimestamp
+     *          the timestamp of the acknowledge.
+     */
+    void onAck( int aSampleIdx, long aTimestamp );
+
+    /**
+     * Called when SDA changed at an unexpected moment.
+     * 
+     * @param aSampleIdx
+     *          the sample index of the bus error;
+     * @param aTimestamp
+     *          the timestamp of the bus error.
+     */
+    void onBusError( int aSampleIdx, long aTimestamp );
+
+    /**
+     * Called when a byte has been fully decoded.
+     * 
+     * @param aStartIdx
+     *          the sample index on which the byte started;
+     * @param aStartTimestamp
+     *          the timestamp on which the byte started;
+     * @param aEndIdx
+     *          the sample index on which the byte ended;
+     * @param aEndTimestamp
+     *          the timestamp on which the byte ended;
+     * @param aByteValue
+     *          the decoded byte;
+     * @param aDescription
+     *          the description of the byte, such as the addressed slave or
+     *          the direction of the data, cannot be <code>null</code>.
+     */
+    void onData( int aStartIdx, long aStartTimestamp, int aEndIdx, long aEndTimestamp, int aByteValue,
+        String aDescription );
+
+    /**
+     * Called when the slave did not acknowledge a byte.
+     * 
+     * @param aSampleIdx
+     *          the sample index of the not-acknowledge;
+     * @param aTimestamp
+     *          the timestamp of the not-acknowledge.
+     */
+    void onNack( int aSampleIdx, long aTimestamp );
+
+    /**
+     * Called on a (repeated) start condition.
+     * 
+     * @param aSampleIdx
+     *          the sample index of the start condition;
+     * @param aTimestamp
+     *          the timestamp of the start condition.
+     */
+    void onStartCondition( int aSampleIdx, long aTimestamp );
+
+    /**
+     * Called on a stop condition.
+     * 
+     * @param aSampleIdx
+     *          the sample index of the stop condition;
+     * @param aTimestamp
+     *          the timestamp of the stop condition.
+     */
+    void onStopCondition( int aSampleIdx, long aTimestamp );
+  }
+
+  // CONSTANTS
+
+  private static final int I2C_BITCOUNT = 8;
+
+  // VARIABLES
+
+  private final int sclMask;
+  private final int sdaMask;
+  private final I2CDecoderCallback callback;
+  private final DecoderState state;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link I2CDecoder} instance for an idle bus.
+   * 
+   * @param aSclIdx
+   *          the channel index of SCL, &gt;= 0;
+   * @param aSdaIdx
+   *          the channel index of SDA, &gt;= 0;
+   * @param aCallback
+   *          the callback to report the decoded conditions and bytes to,
+   *          cannot be <code>null</code>.
+   */
+  public I2CDecoder( final int aSclIdx, final int aSdaIdx, final I2CDecoderCallback aCallback )
+  {
+    this( aSclIdx, aSdaIdx, aCallback, new DecoderState() );
+  }
+
+  /**
+   * Creates a new {@link I2CDecoder} instance continuing from the given state.
+   * 
+   * @param aSclIdx
+   *          the channel index of SCL, &gt;= 0;
+   * @param aSdaIdx
+   *          the channel index of SDA, &gt;= 0;
+   * @param aCallback
+   *          the callback to report the decoded conditions and bytes to,
+   *          cannot be <code>null</code>;
+   * @param aEntryState
+   *          the state to continue from, cannot be <code>null</code>. The
+   *          levels of SCL and SDA are taken from the first sample.
+   */
+  I2CDecoder( final int aSclIdx, final int aSdaIdx, final I2CDecoderCallback aCallback,
+      final DecoderState aEntryState )
+  {
+    this.sclMask = 1 << aSclIdx;
+    this.sdaMask = 1 << aSdaIdx;
+    this.callback = aCallback;
+    this.state = new DecoderState( aEntryState );
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void begin( final int aSampleIndex, final int aValue, final long aTimestamp )
+  {
+    this.state.oldSCL = aValue & this.sclMask;
+    this.state.oldSDA = aValue & this.sdaMask;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void decode( final SampleChunk aChunk )
+  {
+    final int sdaMask = this.sdaMask;
+    final int sclMask = this.sclMask;
+    final DecoderState state = this.state;
+
+    int oldSCL = state.oldSCL;
+    int oldSDA = state.oldSDA;
+    int bitCount = state.bitCount;
+    int byteValue = state.byteValue;
+    int prevIdx = state.prevIdx;
+    long prevTimestamp = state.prevTimestamp;
+
+    boolean startCondFound = state.startCondFound;
+    boolean tenBitAddress = state.tenBitAddress;
+    int slaveAddress = state.slaveAddress;
+    int direction = state.direction;
+
+    for ( int i = 0; i < aChunk.getLength(); i++ )
+    {
+      final int dataValue = aChunk.getValue( i );
+
+      final int sda = ( dataValue & sdaMask );
+      final int scl = ( dataValue & sclMask );
+
+      // detect SCL fall/rise
+      if ( oldSCL > scl )
+      {
+        // SCL falls
+        final int idx = aChunk.getSampleIndex( i );
+        if ( ( prevIdx < 0 ) || ( bitCount == I2C_BITCOUNT ) )
+        {
+          prevIdx = idx;
+          prevTimestamp = aChunk.getTimestamp( i );
+        }
+
+        if ( bitCount == 0 )
+        {
+          final String description;
+          if ( startCondFound )
+          {
+            // This is the (7- or 10-bit) address part...
+            direction = ( byteValue & 0x01 );
+
+            if ( ( byteValue & 0xf8 ) == 0xf0 )
+            {
+              // 10-bit address part...
+              slaveAddress = ( byteValue & 0x06 ) << 6;
+              tenBitAddress = true;
+
+              description = String.format( "Setup %s 10-bit slave", ( direction == 1 ) ? "read from" : "write to" );
+            }
+            else
+            {
+              if ( tenBitAddress )
+              {
+                // 10-bit address needs the first few bits of the previous slave
+                // address, so OR-ing is needed here...
+                slaveAddress |= ( byteValue & 0xFF );
+              }
+              else
+              {
+                // 7-bit address, directly available. See issue #51
+                slaveAddress = ( ( byteValue >> 1 ) & 0xFF );
+              }
+              startCondFound = false;
+
+              description = String.format( tenBitAddress ? "Setup %s slave: 0x%X " : "Setup %s slave: 0x%X [0x%X]",
+                  ( direction == 1 ) ? "read from" : "write to", Integer.valueOf( slaveAddress ),
+                  Integer.valueOf( byteValue ) );
+
+              tenBitAddress = false;
+            }
+          }
+          else
+          {
+            description = String.format( "%s data: 0x%X (%c)", ( direction == 1 ) ? "Read" : "Write",
+                Integer.valueOf( byteValue ), Integer.valueOf( byteValue ) );
+          }
+
+          // store decoded byte
+          this.callback.onData( prevIdx, prevTimestamp, idx, aChunk.getTimestamp( i ), byteValue, description );
+
+          byteValue = 0;
+        }
+      }
+      else if ( scl > oldSCL )
+      {
+        // SCL rises
+        if ( sda != oldSDA )
+        {
+          this.callback.onBusError( aChunk.getSampleIndex( i ), aChunk.getTimestamp( i ) );
+        }
+        else
+        {
+          // read SDA
+          if ( bitCount != 0 )
+          {
+            bitCount--;
+            if ( sda != 0 )
+            {
+              byteValue |= ( 1 << bitCount );
+            }
+          }
+          else
+          {
+            // read the confirmation of the slave...
+            if ( sda != 0 )
+            {
+              this.callback.onNack( aChunk.getSampleIndex( i ), aChunk.getTimestamp( i ) );
+            }
+            else
+            {
+              this.callback.onAck( aChunk.getSampleIndex( i ), aChunk.getTimestamp( i ) );
+            }
+
+            // next byte
+            bitCount = I2C_BITCOUNT;
+            byteValue = 0;
+          }
+        }
+      }
+
+      // detect SDA change when SCL high
+      if ( ( scl == sclMask ) && ( sda != oldSDA ) )
+      {
+        // SDA changes here
+        if ( ( bitCount > 0 ) && ( bitCount < ( I2C_BITCOUNT - 1 ) ) )
+        {
+          // bus error, no complete byte detected
+          this.callback.onBusError( aChunk.getSampleIndex( i ), aChunk.getTimestamp( i ) );
+        }
+        else
+        {
+          if ( sda > oldSDA )
+          {
+            // SDA rises, this is a stop condition
+            this.callback.onStopCondition( aChunk.getSampleIndex( i ), aChunk.getTimestamp( i ) );
+
+            slaveAddress = 0x00;
+            direction = -1;
+          }
+          else
+          {
+            // SDA falls, this is a start condition
+            this.callback.onStartCondition( aChunk.getSampleIndex( i ), aChunk.getTimestamp( i ) );
+
+            startCondFound = true;
+          }
+
+          // new byte
+          bitCount = I2C_BITCOUNT;
+          byteValue = 0;
+        }
+      }
+
+      oldSCL = scl;
+      oldSDA = sda;
+    }
+
+    state.oldSCL = oldSCL;
+    state.oldSDA = oldSDA;
+    state.bitCount = bitCount;
+    state.byteValue = byteValue;
+    state.prevIdx = prevIdx;
+    state.prevTimestamp = prevTimestamp;
+    state.startCondFound = startCondFound;
+    state.tenBitAddress = tenBitAddress;
+    state.slaveAddress = slaveAddress;
+    state.direction = direction;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void end( final int aSampleIndex )
+  {
+    // Nop; an incomplete byte at the end of the data is not reported...
+  }
+
+  /**
+   * Returns the current state of this decoder.
+   * 
+   * @return a copy of the state, never <code>null</code>.
+   */
+  DecoderState getState()
+  {
+    return new DecoderState( this.state );
+  }
+}
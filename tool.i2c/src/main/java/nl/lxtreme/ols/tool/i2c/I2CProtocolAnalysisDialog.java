@@ -61,19 +61,103 @@ import org.osgi.framework.*;
 public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet> implements ExportAware<I2CDataSet>,
     PropertyChangeListener
 {
+  // INNER TYPES
+
+  /**
+   * Provides the table model for the decoded I2C data.
+   */
+  final class I2CDataTableModel extends DataSetTableModel<I2CData>
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new I2CDataTableModel instance.
+     */
+    public I2CDataTableModel()
+    {
+      super( "Index", "Time", "Hex", "Bin", "Dec", "ASCII" );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Color getRowBackground( final int aRow )
+    {
+      final I2CData data = getRowData( aRow );
+      if ( !data.isEvent() )
+      {
+        return null;
+      }
+
+      final String event = data.getEventName();
+      if ( I2CDataSet.I2C_START.equals( event ) || I2CDataSet.I2C_STOP.equals( event ) )
+      {
+        return EVENT_COLOR;
+      }
+      else if ( I2CDataSet.I2C_ACK.equals( event ) )
+      {
+        return ACK_COLOR;
+      }
+      else if ( I2CDataSet.I2C_NACK.equals( event ) )
+      {
+        return NACK_COLOR;
+      }
+      // unknown event
+      return UNKNOWN_EVENT_COLOR;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object getValueAt( final int aRow, final I2CData aData, final int aColumn )
+    {
+      switch ( aColumn )
+      {
+        case 0:
+          return Integer.valueOf( aRow );
+        case 1:
+          return getRowTime( aRow );
+        case 2:
+          return aData.isEvent() ? aData.getEventName() : "0x" + integerToHexString( aData.getValue(), 2 );
+        case 3:
+          return aData.isEvent() ? null : "0b" + integerToBinString( aData.getValue(), 8 );
+        case 4:
+          return aData.isEvent() ? null : Integer.valueOf( aData.getValue() );
+        case 5:
+          return aData.isEvent() ? null : toASCII( aData.getValue() );
+        default:
+          return null;
+      }
+    }
+  }
+
   // CONSTANTS
 
   private static final long serialVersionUID = 1L;
 
   private static final Logger LOG = Logger.getLogger( I2CProtocolAnalysisDialog.class.getName() );
 
+  private static final Color EVENT_COLOR = new Color( 0xe0, 0xe0, 0xe0 );
+  private static final Color ACK_COLOR = new Color( 0xc0, 0xff, 0xc0 );
+  private static final Color NACK_COLOR = new Color( 0xff, 0xc0, 0xc0 );
+  private static final Color UNKNOWN_EVENT_COLOR = new Color( 0xff, 0x80, 0x00 );
+
   // VARIABLES
 
   private JLabel lineALabel;
   private JComboBox lineA;
   private JLabel lineBLabel;
   private JComboBox lineB;
-  private JEditorPane outText;
+  private I2CDataTableModel dataModel;
+  private JLabel statistics;
   private JLabel busSetSCL;
   private JLabel busSetSDA;
   private JCheckBox detectSDA_SCL;
@@ -185,9 +269,8 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
   @Override
   public void reset()
   {
-    final String emptyHtmlPage = getEmptyHtmlPage();
-    this.outText.setText( emptyHtmlPage );
-    this.outText.setEditable( false );
+    this.dataModel.setDataSet( null );
+    this.statistics.setText( getStatistics( null ) );
 
     this.runAnalysisAction.restore();
 
@@ -254,34 +337,12 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
   @Override
   protected void onToolEnded( final I2CDataSet aAnalysisResult )
   {
-    try
-    {
-      final String htmlPage;
-      if ( aAnalysisResult != null )
-      {
-        htmlPage = toHtmlPage( null /* aFile */, aAnalysisResult );
-        this.exportAction.setEnabled( !aAnalysisResult.isEmpty() );
-      }
-      else
-      {
-        htmlPage = getEmptyHtmlPage();
-        this.exportAction.setEnabled( false );
-      }
+    this.dataModel.setDataSet( aAnalysisResult );
+    this.statistics.setText( getStatistics( aAnalysisResult ) );
 
-      this.outText.setText( htmlPage );
-      this.outText.setEditable( false );
+    this.exportAction.setEnabled( ( aAnalysisResult != null ) && !aAnalysisResult.isEmpty() );
 
-      this.runAnalysisAction.restore();
-    }
-    catch ( final IOException exception )
-    {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        // This should not happen for the no-file exports!
-        throw new RuntimeException( exception );
-      }
-    }
+    this.runAnalysisAction.restore();
   }
 
   /**
@@ -386,12 +447,12 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
    */
   private JPanel createPreviewPane()
   {
-    final JPanel output = new JPanel( new GridLayout( 1, 1, 0, 0 ) );
-
-    this.outText = new JEditorPane( "text/html", getEmptyHtmlPage() );
-    this.outText.setEditable( false );
+    this.dataModel = new I2CDataTableModel();
+    this.statistics = new JLabel( getStatistics( null ) );
 
-    output.add( new JScrollPane( this.outText ) );
+    final JPanel output = new JPanel( new BorderLayout( 0, 4 ) );
+    output.add( this.statistics, BorderLayout.NORTH );
+    output.add( ToolUtils.createDataSetTablePane( new DataSetTable( this.dataModel ) ), BorderLayout.CENTER );
 
     return output;
   }
@@ -469,34 +530,21 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
   }
 
   /**
-   * Returns an "empty" HTML page.
+   * Returns a summary of the given analysis results.
    *
-   * @return an empty HTML page string, never <code>null</code>.
+   * @param aAnalysisResult
+   *          the analysis results to summarize, can be <code>null</code>.
+   * @return a summary, never <code>null</code>.
    */
-  private String getEmptyHtmlPage()
+  private String getStatistics( final I2CDataSet aAnalysisResult )
   {
-    final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-    return exporter.toString( new MacroResolver()
+    if ( aAnalysisResult == null )
     {
-      @Override
-      public Object resolve( final String aMacro, final Element aParent )
-      {
-        if ( "date-now".equals( aMacro ) )
-        {
-          final DateFormat df = DateFormat.getDateInstance( DateFormat.LONG );
-          return df.format( new Date() );
-        }
-        else if ( "sda-bus-config".equals( aMacro ) || "scl-bus-config".equals( aMacro ) )
-        {
-          return "&lt;auto detect&gt;";
-        }
-        else if ( "decoded-bytes".equals( aMacro ) || "detected-bus-errors".equals( aMacro ) )
-        {
-          return "-";
-        }
-        return null;
-      }
-    } );
+      return "Decoded bytes: -, detected bus errors: -";
+    }
+    return String.format( "Decoded bytes: %d, detected bus errors: %d",
+        Integer.valueOf( aAnalysisResult.getDecodedByteCount() ),
+        Integer.valueOf( aAnalysisResult.getBusErrorCount() ) );
   }
 
   /**
@@ -597,13 +645,14 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
   }
 
   /**
-   * generate a HTML page
+   * Writes the given analysis results as HTML page to the given file.
    *
-   * @param aEmpty
-   *          if this is true an empty output is generated
-   * @return String with HTML data
+   * @param aFile
+   *          the file to write to, cannot be <code>null</code>;
+   * @param aAnalysisResult
+   *          the analysis results to write, cannot be <code>null</code>.
    */
-  private String toHtmlPage( final File aFile, final I2CDataSet aAnalysisResult ) throws IOException
+  private void toHtmlPage( final File aFile, final I2CDataSet aAnalysisResult ) throws IOException
   {
     final MacroResolver macroResolver = new MacroResolver()
     {
@@ -691,18 +740,8 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
       }
     };
 
-    if ( aFile == null )
-    {
-      final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-      return exporter.toString( macroResolver );
-    }
-    else
-    {
-      final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
-      exporter.write( macroResolver );
-      exporter.close();
-    }
-
-    return null;
+    final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
+    exporter.write( macroResolver );
+    exporter.close();
   }
 }
@@ -56,6 +56,7 @@ public class I2CAnalyserWorkerDataFilesTest
 
   protected int sclIdx;
   protected int sdaIdx;
+  protected long decodedSampleCount;
 
   // CONSTRUCTORS
 
@@ -137,7 +138,7 @@ public class I2CAnalyserWorkerDataFilesTest
   @Test
   public void testAnalyzeDataFile() throws Exception
   {
-    I2CDataSet result = analyseDataFile( this.resourceName );
+    I2CDataSet result = analyseDataFile( this.resourceName, Integer.MAX_VALUE );
     if ( this.autoDetectSDA )
     {
       assertEquals( "SCL not correctly detected?!", this.lineAidx, this.sclIdx );
@@ -147,17 +148,37 @@ public class I2CAnalyserWorkerDataFilesTest
     assertDataCount( result, this.expectedDatagramCount );
   }
 
+  /**
+   * Tests that decoding the data file in many small segments yields the same
+   * results as decoding it in one go.
+   */
+  @Test
+  public void testAnalyzeDataFileInSegments() throws Exception
+  {
+    I2CDataSet expected = analyseDataFile( this.resourceName, Integer.MAX_VALUE );
+    I2CDataSet result = analyseDataFile( this.resourceName, 64 );
+
+    // segments decoded again should not count towards the progress again...
+    assertEquals( result.getEndOfDecode() - result.getStartOfDecode() - 1, this.decodedSampleCount );
+
+    assertEquals( expected.getBusErrorCount(), result.getBusErrorCount() );
+    assertEquals( expected.getDecodedByteCount(), result.getDecodedByteCount() );
+    assertEquals( expected.getData(), result.getData() );
+  }
+
   /**
    * Analyses the data file identified by the given resource name.
    * 
    * @param aResourceName
    *          the name of the resource (= data file) to analyse, cannot be
-   *          <code>null</code>.
+   *          <code>null</code>;
+   * @param aMinimumSegmentSize
+   *          the minimal number of samples to decode on its own.
    * @return the analysis results, never <code>null</code>.
    * @throws Exception
    *           in case of exceptions.
    */
-  private I2CDataSet analyseDataFile( final String aResourceName ) throws Exception
+  private I2CDataSet analyseDataFile( final String aResourceName, final int aMinimumSegmentSize ) throws Exception
   {
     URL resource = ResourceUtils.getResource( getClass(), aResourceName );
     AcquisitionResult container = DataTestUtils.getCapturedData( resource );
@@ -174,6 +195,7 @@ public class I2CAnalyserWorkerDataFilesTest
     worker.setReportNACK( false );
     worker.setReportStart( false );
     worker.setReportStop( false );
+    worker.setMinimumSegmentSize( aMinimumSegmentSize );
 
     // Simulate we're running in a separate thread by directly calling the main
     // working routine...
@@ -182,6 +204,7 @@ public class I2CAnalyserWorkerDataFilesTest
 
     this.sclIdx = worker.getSclIdx();
     this.sdaIdx = worker.getSdaIdx();
+    this.decodedSampleCount = worker.getDecodedSampleCount();
 
     return result;
   }
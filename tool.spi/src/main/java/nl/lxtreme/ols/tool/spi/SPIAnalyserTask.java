@@ -21,17 +21,17 @@
 package nl.lxtreme.ols.tool.spi;
 
 
-import static nl.lxtreme.ols.util.NumberUtils.*;
-
 import java.beans.*;
 import java.util.logging.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
-import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.AnnotationBatch;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.tool.base.annotation.*;
-import nl.lxtreme.ols.util.*;
+import nl.lxtreme.ols.tool.base.decoder.*;
+import nl.lxtreme.ols.tool.spi.SPIDecoder.SPIConfiguration;
+import nl.lxtreme.ols.tool.spi.SPIDecoder.SPIDecoderCallback;
 import nl.lxtreme.ols.util.NumberUtils.BitOrder;
 import nl.lxtreme.ols.util.analysis.*;
 
@@ -52,6 +52,7 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
   private final ToolContext context;
   private final ToolProgressListener progressListener;
   private final AnnotationListener annotationListener;
+  private final AnnotationBatch annotations;
   private final PropertyChangeSupport pcs;
 
   private int csIdx;
@@ -82,6 +83,7 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
     this.context = aContext;
     this.progressListener = aProgressListener;
     this.annotationListener = aAnnotationListener;
+    this.annotations = new AnnotationBatch( aAnnotationListener );
 
     this.pcs = new PropertyChangeSupport( this );
 
@@ -328,181 +330,38 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
    */
   private void clockDataOnEdge( final SPIDataSet aDataSet, final SPIMode aMode, final int aSlaveSelectedIdx )
   {
-    final AcquisitionResult data = this.context.getData();
-
-    final int[] values = data.getValues();
-
     final int startOfDecode = Math.max( aSlaveSelectedIdx, aDataSet.getStartOfDecode() );
-    final int endOfDecode = aDataSet.getEndOfDecode();
-
-    final int mosiMask = ( 1 << this.mosiIdx ); // IO0
-    final int misoMask = ( 1 << this.misoIdx ); // IO1
-    final int io2Mask = ( 1 << this.io2Idx );
-    final int io3Mask = ( 1 << this.io3Idx );
-    final int sckMask = ( 1 << this.sckIdx );
-    final int csMask = ( 1 << this.csIdx );
-
-    // scanning for falling/rising clk edges
-    int oldSckValue = ( values[startOfDecode] & sckMask );
-    int oldCsValue = ( values[startOfDecode] & csMask );
 
-    boolean slaveSelected = true;
-    int dataStartIdx = startOfDecode;
+    final SPIConfiguration config = new SPIConfiguration( this.protocol, aMode, this.bitCount + 1, this.bitOrder,
+        this.honourCS, this.invertCS, this.sckIdx, this.csIdx, this.mosiIdx, this.misoIdx, this.io2Idx, this.io3Idx );
 
-    int bitIdx = this.bitCount;
-
-    final int clockEdgeCount = ( this.bitCount + 1 ) * 2;
-    int clockEdgeIdx = 0;
-
-    int misovalue = 0;
-    int mosivalue = 0;
-
-    for ( int idx = startOfDecode + 1; idx < endOfDecode; idx++ )
+    final SPIDecoder decoder = new SPIDecoder( config, new SPIDecoderCallback()
     {
-      final int dataSample = values[idx];
-      /* CLK edge detection */
-      final int sckValue = ( dataSample & sckMask );
-      /* CS edge detection */
-      final int csValue = ( dataSample & csMask );
-
-      final Edge slaveSelectEdge = Edge.toEdge( oldCsValue, csValue );
-      oldCsValue = csValue;
-
-      if ( slaveSelectEdge.isFalling() )
+      @Override
+      public void onCsHigh( final int aSampleIdx )
       {
-        reportCsLow( aDataSet, idx );
-
-        slaveSelected = !this.invertCS;
-      }
-      else if ( slaveSelectEdge.isRising() )
-      {
-        reportCsHigh( aDataSet, idx );
-
-        slaveSelected = this.invertCS;
-        // it could be that we're waiting until a next clock cycle comes along;
-        // however, the /CS signal might be going up before that cycle actually
-        // comes...
-        if ( bitIdx <= 0 )
-        {
-          // Full datagram decoded...
-          reportData( aDataSet, dataStartIdx, idx, mosivalue, misovalue );
-
-          bitIdx = this.bitCount;
-          misovalue = 0;
-          mosivalue = 0;
-        }
+        reportCsHigh( aDataSet, aSampleIdx );
       }
 
-      if ( this.honourCS && !slaveSelected )
+      @Override
+      public void onCsLow( final int aSampleIdx )
       {
-        // We should honour the slave-select, but the slave isn't
-        // currently selected...
-        continue;
+        reportCsLow( aDataSet, aSampleIdx );
       }
 
-      final Edge clockEdge = Edge.toEdge( oldSckValue, sckValue );
-      oldSckValue = sckValue;
-
-      final boolean sampleEdgeSeen;
-      if ( clockEdge.isRising() || clockEdge.isFalling() )
-      {
-        clockEdgeIdx = ( clockEdgeIdx + 1 ) % clockEdgeCount;
-        // When CPHA is '1', we should sample at the even numbered clock edges,
-        // when CPHA is '0' we should sample at the odd numbered clock edges...
-        sampleEdgeSeen = ( ( clockEdgeIdx + aMode.getCPHA() ) % 2 ) != 0;
-
-        // First clock edge we've seen? If so, we should keep this index as our
-        // start of data index...
-        if ( sampleEdgeSeen && ( bitIdx == this.bitCount ) )
-        {
-          dataStartIdx = idx;
-        }
-
-        LOG.log( Level.FINE, "Clock edge: {0}, idx: {1}, sample? {2}", //
-            new Object[] { clockEdge, Integer.valueOf( clockEdgeIdx ), Boolean.valueOf( sampleEdgeSeen ) } );
-      }
-      else
+      @Override
+      public void onData( final int aStartIdx, final long aStartTimestamp, final int aEndIdx,
+          final long aEndTimestamp, final int aMosiValue, final int aMisoValue )
       {
-        // Only actual clock edges should be taken into account...
-        sampleEdgeSeen = false;
+        reportData( aDataSet, aStartIdx, aStartTimestamp, aEndIdx, aEndTimestamp, aMosiValue, aMisoValue );
       }
+    } );
 
-      if ( sampleEdgeSeen )
-      {
-        if ( SPIFIMode.STANDARD.equals( this.protocol ) )
-        {
-          // sample MiSo here; always MSB first, perform conversion later on...
-          if ( ( this.misoIdx >= 0 ) && ( ( dataSample & misoMask ) != 0 ) )
-          {
-            misovalue |= ( 1 << bitIdx );
-          }
-          // sample MoSi here; always MSB first, perform conversion later on...
-          if ( ( this.mosiIdx >= 0 ) && ( ( dataSample & mosiMask ) != 0 ) )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-
-          if ( bitIdx >= 0 )
-          {
-            bitIdx--;
-          }
-        }
-        else if ( SPIFIMode.DUAL.equals( this.protocol ) )
-        {
-          // Sample both MOSI/IO0 & MISO/IO1 here; they form two bits of our
-          // symbol; we do MSB first, as the decoded symbol will be corrected
-          // later on...
-          if ( ( dataSample & misoMask ) != 0 )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-          bitIdx--;
-          if ( ( dataSample & mosiMask ) != 0 )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-          bitIdx--;
-        }
-        else if ( SPIFIMode.QUAD.equals( this.protocol ) )
-        {
-          // Sample both MOSI/IO0, MISO/IO1, IO2 & IO3 here; they form four bits
-          // of our symbol; we do MSB first, as the decoded symbol will be
-          // corrected later on...
-          if ( ( dataSample & io3Mask ) != 0 )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-          bitIdx--;
-          if ( ( dataSample & io2Mask ) != 0 )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-          bitIdx--;
-          if ( ( dataSample & misoMask ) != 0 )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-          bitIdx--;
-          if ( ( dataSample & mosiMask ) != 0 )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-          bitIdx--;
-        }
+    DecoderPipeline.replay( this.context.getData(), startOfDecode, aDataSet.getEndOfDecode(), this.progressListener,
+        decoder );
 
-        if ( bitIdx < 0 )
-        {
-          // Full datagram decoded...
-          reportData( aDataSet, dataStartIdx, idx, mosivalue, misovalue );
-
-          bitIdx = this.bitCount;
-          misovalue = 0;
-          mosivalue = 0;
-        }
-      }
-
-      this.progressListener.setProgress( getPercentage( idx, startOfDecode, endOfDecode ) );
-    }
+    // Publish all decoded annotations at once...
+    this.annotations.commit();
   }
 
   /**
@@ -526,14 +385,13 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
     final AcquisitionResult data = this.context.getData();
     final Frequency<Integer> valueStats = new Frequency<Integer>();
 
-    final int[] values = data.getValues();
     final int sckMask = 1 << this.sckIdx;
 
     // Determine the value of the clock line of each sample; the value that
     // occurs the most is probably the default polarity...
     for ( int i = aStartIndex; i < aEndIndex; i++ )
     {
-      final int newValue = ( values[i] & sckMask ) >> this.sckIdx;
+      final int newValue = ( data.getValue( i ) & sckMask ) >> this.sckIdx;
       valueStats.addValue( Integer.valueOf( newValue ) );
     }
 
@@ -639,66 +497,56 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
    * @param aEndIdx
    *          the ending sample index on which the data ended;
    * @param aMosiValue
-   *          the MOSI data value;
+   *          the MOSI data value, in the configured bit order;
    * @param aMisoValue
-   *          the MISO data value.
+   *          the MISO data value, in the configured bit order.
    */
-  private void reportData( final SPIDataSet aDecodedData, final int aStartIdx, final int aEndIdx, final int aMosiValue,
-      final int aMisoValue )
+  private void reportData( final SPIDataSet aDecodedData, final int aStartIdx, final long aStartTimestamp,
+      final int aEndIdx, final long aEndTimestamp, final int aMosiValue, final int aMisoValue )
   {
-    long[] timestamps = this.context.getData().getTimestamps();
 
     if ( SPIFIMode.STANDARD.equals( this.protocol ) )
     {
       if ( this.mosiIdx >= 0 )
       {
-        // Perform bit-order conversion on the full byte...
-        final int mosivalue = NumberUtils.convertBitOrder( aMosiValue, ( this.bitCount + 1 ), this.bitOrder );
-
         String formatSpec = "0x%1$X";
-        if ( Character.isLetterOrDigit( mosivalue ) )
+        if ( Character.isLetterOrDigit( aMosiValue ) )
         {
           formatSpec = formatSpec.concat( " (%1$c)" );
         }
 
-        this.annotationListener.onAnnotation( new SampleDataAnnotation( this.mosiIdx, timestamps[aStartIdx],
-            timestamps[aEndIdx], String.format( formatSpec, Integer.valueOf( mosivalue ) ) ) );
+        this.annotations.add( new SampleDataAnnotation( this.mosiIdx, aStartTimestamp,
+            aEndTimestamp, String.format( formatSpec, Integer.valueOf( aMosiValue ) ) ) );
 
-        aDecodedData.reportMosiData( this.mosiIdx, aStartIdx, aEndIdx, mosivalue );
+        aDecodedData.reportMosiData( this.mosiIdx, aStartIdx, aEndIdx, aMosiValue );
       }
 
       if ( this.misoIdx >= 0 )
       {
-        // Perform bit-order conversion on the full byte...
-        final int misovalue = NumberUtils.convertBitOrder( aMisoValue, ( this.bitCount + 1 ), this.bitOrder );
-
         String formatSpec = "0x%1$X";
-        if ( Character.isLetterOrDigit( misovalue ) )
+        if ( Character.isLetterOrDigit( aMisoValue ) )
         {
           formatSpec = formatSpec.concat( " (%1$c)" );
         }
 
-        this.annotationListener.onAnnotation( new SampleDataAnnotation( this.misoIdx, timestamps[aStartIdx],
-            timestamps[aEndIdx], String.format( formatSpec, Integer.valueOf( misovalue ) ) ) );
+        this.annotations.add( new SampleDataAnnotation( this.misoIdx, aStartTimestamp,
+            aEndTimestamp, String.format( formatSpec, Integer.valueOf( aMisoValue ) ) ) );
 
-        aDecodedData.reportMisoData( this.misoIdx, aStartIdx, aEndIdx, misovalue );
+        aDecodedData.reportMisoData( this.misoIdx, aStartIdx, aEndIdx, aMisoValue );
       }
     }
     else
     {
-      // Perform bit-order conversion on the full byte...
-      final int mosivalue = NumberUtils.convertBitOrder( aMosiValue, ( this.bitCount + 1 ), this.bitOrder );
-
       String formatSpec = "0x%1$X";
-      if ( Character.isLetterOrDigit( mosivalue ) )
+      if ( Character.isLetterOrDigit( aMosiValue ) )
       {
         formatSpec = formatSpec.concat( " (%1$c)" );
       }
 
-      this.annotationListener.onAnnotation( new SampleDataAnnotation( this.mosiIdx, timestamps[aStartIdx],
-          timestamps[aEndIdx], String.format( formatSpec, Integer.valueOf( mosivalue ) ) ) );
+      this.annotations.add( new SampleDataAnnotation( this.mosiIdx, aStartTimestamp,
+          aEndTimestamp, String.format( formatSpec, Integer.valueOf( aMosiValue ) ) ) );
 
-      aDecodedData.reportMosiData( this.mosiIdx, aStartIdx, aEndIdx, mosivalue );
+      aDecodedData.reportMosiData( this.mosiIdx, aStartIdx, aEndIdx, aMosiValue );
     }
   }
 
@@ -710,7 +558,6 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
   private int searchSlaveSelected( final int aStartIndex, final int aEndIndex )
   {
     final AcquisitionResult data = this.context.getData();
-    final int[] values = data.getValues();
 
     final int csMask = 1 << this.csIdx;
 
@@ -719,13 +566,13 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
      * found, the position of the trigger is used for start of analysis. If no
      * trigger and no edge is found the analysis fails.
      */
-    int oldCsValue = values[aStartIndex] & csMask;
+    int oldCsValue = data.getValue( aStartIndex ) & csMask;
     for ( int i = aStartIndex + 1; i < aEndIndex; i++ )
     {
-      final int csValue = values[i] & csMask;
-      Edge edge = Edge.toEdge( oldCsValue, csValue );
-      
-      if ( this.invertCS && edge.isRising() || !this.invertCS && edge.isFalling() )
+      final int csValue = data.getValue( i ) & csMask;
+
+      // CS is active low, unless inverted...
+      if ( ( csValue != oldCsValue ) && ( ( csValue != 0 ) == this.invertCS ) )
       {
         // found first falling edge; start decoding from here...
         if ( LOG.isLoggable( Level.FINE ) )
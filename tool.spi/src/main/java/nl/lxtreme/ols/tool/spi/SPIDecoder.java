@@ -0,0 +1,665 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.spi;
+
+
+import java.util.logging.*;
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.tool.base.decoder.*;
+import nl.lxtreme.ols.util.*;
+import nl.lxtreme.ols.util.NumberUtils.BitOrder;
+
+
+/**
+ * Provides a streaming decoder for SPI, dual SPI and quad SPI data, which
+ * decodes the datagrams on the clock edges of the samples pushed to it.
+ * <p>
+ * The decoding loop runs for every sample, and as such, it does not allocate
+ * any objects. All protocol-specific sampling is done by a
+ * {@link DatagramSampler} chosen up front.
+ * </p>
+ */
+public class SPIDecoder implements StreamingDecoder
+{
+  // INNER TYPES
+
+  /**
+   * Provides callbacks for the decoded chip-select events and datagrams.
+   */
+  public static interface SPIDecoderCallback
+  {
+    // METHODS
+
+    /**
+     * Called when the chip-select line goes high.
+     * 
+     * @param aSampleIdx
+     *          the sample index on which the chip-select line went high.
+     */
+    void onCsHigh( int aSampleIdx );
+
+    /**
+     * Called when the chip-select line goes low.
+     * 
+     * @param aSampleIdx
+     *          the sample index on which the chip-select line went low.
+     */
+    void onCsLow( int aSampleIdx );
+
+    /**
+     * Called when a datagram has been fully decoded.
+     * 
+     * @param aStartIdx
+     *          the sample index on which the datagram started;
+     * @param aStartTimestamp
+     *          the timestamp on which the datagram started;
+     * @param aEndIdx
+     *          the sample index on which the datagram ended;
+     * @param aEndTimestamp
+     *          the timestamp on which the datagram ended;
+     * @param aMosiValue
+     *          the MOSI value, or the combined IO-value for dual and quad SPI,
+     *          in the configured bit order;
+     * @param aMisoValue
+     *          the MISO value in the configured bit order, only used for
+     *          standard SPI.
+     */
+    void onData( int aStartIdx, long aStartTimestamp, int aEndIdx, long aEndTimestamp, int aMosiValue,
+        int aMisoValue );
+  }
+
+  /**
+   * Denotes the configuration used to decode the SPI data.
+   */
+  public static class SPIConfiguration
+  {
+    // VARIABLES
+
+    private final SPIFIMode protocol;
+    private final SPIMode mode;
+    private final int bitCount;
+    private final BitOrder bitOrder;
+    private final boolean honourCS;
+    private final boolean invertCS;
+    private final int sckIdx;
+    private final int csIdx;
+    private final int[] ioIdx;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link SPIConfiguration} instance.
+     * 
+     * @param aProtocol
+     *          the protocol, standard, dual or quad SPI, cannot be
+     *          <code>null</code>;
+     * @param aMode
+     *          the SPI mode, cannot be <code>null</code> or
+     *          {@link SPIMode#AUTODETECT};
+     * @param aBitCount
+     *          the number of bits in a single datagram, &gt; 0;
+     * @param aBitOrder
+     *          the order in which the bits of a datagram are transmitted,
+     *          cannot be <code>null</code>;
+     * @param aHonourCS
+     *          <code>true</code> to only decode data when the slave is
+     *          selected, <code>false</code> to decode all data;
+     * @param aInvertCS
+     *          <code>true</code> if the slave is selected by a high
+     *          chip-select line, <code>false</code> if it is selected by a
+     *          low chip-select line;
+     * @param aSckIdx
+     *          the channel index of the serial clock;
+     * @param aCsIdx
+     *          the channel index of the chip-select line;
+     * @param aIOIdx
+     *          the channel indices of MOSI/IO0, MISO/IO1, IO2 and IO3, use -1
+     *          for absent lines.
+     */
+    public SPIConfiguration( final SPIFIMode aProtocol, final SPIMode aMode, final int aBitCount,
+        final BitOrder aBitOrder, final boolean aHonourCS, final boolean aInvertCS, final int aSckIdx,
+        final int aCsIdx, final int... aIOIdx )
+    {
+      if ( ( aMode == null ) || ( aMode == SPIMode.AUTODETECT ) )
+      {
+        throw new IllegalArgumentException( "Mode cannot be null or auto-detect!" );
+      }
+      if ( aBitCount <= 0 )
+      {
+        throw new IllegalArgumentException( "Bit count must be positive!" );
+      }
+
+      this.protocol = aProtocol;
+      this.mode = aMode;
+      this.bitCount = aBitCount;
+      this.bitOrder = aBitOrder;
+      this.honourCS = aHonourCS;
+      this.invertCS = aInvertCS;
+      this.sckIdx = aSckIdx;
+      this.csIdx = aCsIdx;
+      this.ioIdx = new int[] { -1, -1, -1, -1 };
+      System.arraycopy( aIOIdx, 0, this.ioIdx, 0, Math.min( aIOIdx.length, this.ioIdx.length ) );
+    }
+
+    // METHODS
+
+    /**
+     * Returns the number of bits in a single datagram.
+     * 
+     * @return a bit count, &gt; 0.
+     */
+    public int getBitCount()
+    {
+      return this.bitCount;
+    }
+
+    /**
+     * Returns the order in which the bits of a datagram are transmitted.
+     * 
+     * @return the bit order, never <code>null</code>.
+     */
+    public BitOrder getBitOrder()
+    {
+      return this.bitOrder;
+    }
+
+    /**
+     * Returns the channel index of the chip-select line.
+     * 
+     * @return a channel index.
+     */
+    public int getCsIndex()
+    {
+      return this.csIdx;
+    }
+
+    /**
+     * Returns the channel index of the given IO-line.
+     * 
+     * @param aLine
+     *          the IO-line, 0 for MOSI/IO0, 1 for MISO/IO1, 2 for IO2 and 3 for
+     *          IO3.
+     * @return a channel index, or -1 if the line is absent.
+     */
+    public int getIOIndex( final int aLine )
+    {
+      return this.ioIdx[aLine];
+    }
+
+    /**
+     * Returns the SPI mode.
+     * 
+     * @return the mode, never <code>null</code>.
+     */
+    public SPIMode getMode()
+    {
+      return this.mode;
+    }
+
+    /**
+     * Returns the protocol.
+     * 
+     * @return the protocol, never <code>null</code>.
+     */
+    public SPIFIMode getProtocol()
+    {
+      return this.protocol;
+    }
+
+    /**
+     * Returns the channel index of the serial clock.
+     * 
+     * @return a channel index.
+     */
+    public int getSckIndex()
+    {
+      return this.sckIdx;
+    }
+
+    /**
+     * Returns whether the slave is selected by a high chip-select line.
+     * 
+     * @return <code>true</code> if chip-select is inverted, <code>false</code>
+     *         otherwise.
+     */
+    public boolean isInvertCS()
+    {
+      return this.invertCS;
+    }
+
+    /**
+     * Returns whether data is only decoded when the slave is selected.
+     * 
+     * @return <code>true</code> if chip-select is honoured, <code>false</code>
+     *         otherwise.
+     */
+    public boolean isHonourCS()
+    {
+      return this.honourCS;
+    }
+  }
+
+  /**
+   * Samples the data line(s) on a sample edge, and keeps the bits of the
+   * datagram decoded so far. Each protocol has its own sampler, which keeps
+   * the decoding loop free of protocol checks.
+   */
+  private static abstract class DatagramSampler
+  {
+    // VARIABLES
+
+    private final int lastBitIdx;
+
+    /** the bit to sample next; always MSB first, converted later on. */
+    int bitIdx;
+    int mosiValue;
+    int misoValue;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new DatagramSampler instance.
+     */
+    DatagramSampler( final int aBitCount )
+    {
+      this.lastBitIdx = aBitCount - 1;
+      reset();
+    }
+
+    // METHODS
+
+    /**
+     * Returns 1 if the given mask is set in the given sample, 0 otherwise.
+     */
+    static final int bit( final int aSample, final int aMask )
+    {
+      return ( ( aSample & aMask ) != 0 ) ? 1 : 0;
+    }
+
+    /**
+     * Returns whether no bit of the current datagram is sampled yet.
+     */
+    final boolean isFirstBit()
+    {
+      return this.bitIdx == this.lastBitIdx;
+    }
+
+    /**
+     * Starts a new datagram.
+     */
+    final void reset()
+    {
+      this.bitIdx = this.lastBitIdx;
+      this.mosiValue = 0;
+      this.misoValue = 0;
+    }
+
+    /**
+     * Samples the data line(s) in the given sample value.
+     * 
+     * @param aDataSample
+     *          the sample value to take the bit(s) from.
+     */
+    abstract void sample( int aDataSample );
+  }
+
+  /**
+   * Samples both MOSI/IO0 and MISO/IO1 as two bits of a single symbol.
+   */
+  private static final class DualSampler extends DatagramSampler
+  {
+    // VARIABLES
+
+    private final int io0Mask;
+    private final int io1Mask;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new DualSampler instance.
+     */
+    DualSampler( final int aBitCount, final int aIO0Idx, final int aIO1Idx )
+    {
+      super( aBitCount );
+      this.io0Mask = 1 << aIO0Idx;
+      this.io1Mask = 1 << aIO1Idx;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void sample( final int aDataSample )
+    {
+      final int idx = this.bitIdx;
+      this.mosiValue |= ( bit( aDataSample, this.io1Mask ) << idx ) //
+          | ( bit( aDataSample, this.io0Mask ) << ( idx - 1 ) );
+      this.bitIdx = idx - 2;
+    }
+  }
+
+  /**
+   * Samples IO3, IO2, MISO/IO1 and MOSI/IO0 as four bits of a single symbol.
+   */
+  private static final class QuadSampler extends DatagramSampler
+  {
+    // VARIABLES
+
+    private final int io0Mask;
+    private final int io1Mask;
+    private final int io2Mask;
+    private final int io3Mask;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new QuadSampler instance.
+     */
+    QuadSampler( final int aBitCount, final int aIO0Idx, final int aIO1Idx, final int aIO2Idx, final int aIO3Idx )
+    {
+      super( aBitCount );
+      this.io0Mask = 1 << aIO0Idx;
+      this.io1Mask = 1 << aIO1Idx;
+      this.io2Mask = 1 << aIO2Idx;
+      this.io3Mask = 1 << aIO3Idx;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void sample( final int aDataSample )
+    {
+      final int idx = this.bitIdx;
+      this.mosiValue |= ( bit( aDataSample, this.io3Mask ) << idx ) //
+          | ( bit( aDataSample, this.io2Mask ) << ( idx - 1 ) ) //
+          | ( bit( aDataSample, this.io1Mask ) << ( idx - 2 ) ) //
+          | ( bit( aDataSample, this.io0Mask ) << ( idx - 3 ) );
+      this.bitIdx = idx - 4;
+    }
+  }
+
+  /**
+   * Samples MOSI and MISO as two separate datagrams, each of which is optional.
+   */
+  private static final class StandardSampler extends DatagramSampler
+  {
+    // VARIABLES
+
+    /** the masks, or zero if a line is absent. */
+    private final int mosiMask;
+    private final int misoMask;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new StandardSampler instance.
+     */
+    StandardSampler( final int aBitCount, final int aMosiIdx, final int aMisoIdx )
+    {
+      super( aBitCount );
+      this.mosiMask = ( aMosiIdx >= 0 ) ? ( 1 << aMosiIdx ) : 0;
+      this.misoMask = ( aMisoIdx >= 0 ) ? ( 1 << aMisoIdx ) : 0;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void sample( final int aDataSample )
+    {
+      final int idx = this.bitIdx;
+      this.misoValue |= bit( aDataSample, this.misoMask ) << idx;
+      this.mosiValue |= bit( aDataSample, this.mosiMask ) << idx;
+      this.bitIdx = idx - 1;
+    }
+  }
+
+  // CONSTANTS
+
+  private static final Logger LOG = Logger.getLogger( SPIDecoder.class.getName() );
+
+  // VARIABLES
+
+  private final SPIDecoderCallback callback;
+  private final DatagramSampler sampler;
+  private final int bitCount;
+  private final BitOrder bitOrder;
+  private final boolean honourCS;
+  private final boolean invertCS;
+  private final int sckMask;
+  private final int csMask;
+  private final int cpha;
+  private final int clockEdgeCount;
+  private final boolean logClockEdges;
+
+  private int oldSckValue;
+  private int oldCsValue;
+  private boolean slaveSelected;
+  private int dataStartIdx;
+  private long dataStartTimestamp;
+  private int clockEdgeIdx;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link SPIDecoder} instance.
+   * 
+   * @param aConfiguration
+   *          the configuration to use, cannot be <code>null</code>;
+   * @param aCallback
+   *          the callback to report the decoded events and datagrams to,
+   *          cannot be <code>null</code>.
+   */
+  public SPIDecoder( final SPIConfiguration aConfiguration, final SPIDecoderCallback aCallback )
+  {
+    this.callback = aCallback;
+    this.sampler = createSampler( aConfiguration );
+    this.bitCount = aConfiguration.getBitCount();
+    this.bitOrder = aConfiguration.getBitOrder();
+    this.honourCS = aConfiguration.isHonourCS();
+    this.invertCS = aConfiguration.isInvertCS();
+    this.sckMask = ( 1 << aConfiguration.getSckIndex() );
+    this.csMask = ( 1 << aConfiguration.getCsIndex() );
+    this.cpha = aConfiguration.getMode().getCPHA();
+    this.clockEdgeCount = this.bitCount * 2;
+    this.logClockEdges = LOG.isLoggable( Level.FINE );
+  }
+
+  // METHODS
+
+  /**
+   * Creates the sampler for the configured protocol.
+   * 
+   * @return a new {@link DatagramSampler} instance, never <code>null</code>.
+   */
+  private static DatagramSampler createSampler( final SPIConfiguration aConfiguration )
+  {
+    final int bitCount = aConfiguration.getBitCount();
+    if ( SPIFIMode.DUAL.equals( aConfiguration.getProtocol() ) )
+    {
+      return new DualSampler( bitCount, aConfiguration.getIOIndex( 0 ), aConfiguration.getIOIndex( 1 ) );
+    }
+    else if ( SPIFIMode.QUAD.equals( aConfiguration.getProtocol() ) )
+    {
+      return new QuadSampler( bitCount, aConfiguration.getIOIndex( 0 ), aConfiguration.getIOIndex( 1 ),
+          aConfiguration.getIOIndex( 2 ), aConfiguration.getIOIndex( 3 ) );
+    }
+    return new StandardSampler( bitCount, aConfiguration.getIOIndex( 0 ), aConfiguration.getIOIndex( 1 ) );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void begin( final int aSampleIndex, final int aValue, final long aTimestamp )
+  {
+    // scanning for falling/rising clk edges
+    this.oldSckValue = ( aValue & this.sckMask );
+    this.oldCsValue = ( aValue & this.csMask );
+
+    this.slaveSelected = true;
+    this.dataStartIdx = aSampleIndex;
+    this.dataStartTimestamp = aTimestamp;
+    this.clockEdgeIdx = 0;
+    this.sampler.reset();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void decode( final SampleChunk aChunk )
+  {
+    final DatagramSampler sampler = this.sampler;
+    final boolean honourCS = this.honourCS;
+    final boolean invertCS = this.invertCS;
+
+    int oldSckValue = this.oldSckValue;
+    int oldCsValue = this.oldCsValue;
+    boolean slaveSelected = this.slaveSelected;
+    int clockEdgeIdx = this.clockEdgeIdx;
+
+    for ( int i = 0; i < aChunk.getLength(); i++ )
+    {
+      final int dataSample = aChunk.getValue( i );
+      /* CLK edge detection */
+      final int sckValue = ( dataSample & this.sckMask );
+      /* CS edge detection */
+      final int csValue = ( dataSample & this.csMask );
+
+      if ( csValue != oldCsValue )
+      {
+        oldCsValue = csValue;
+
+        final int idx = aChunk.getSampleIndex( i );
+        if ( csValue == 0 )
+        {
+          this.callback.onCsLow( idx );
+
+          slaveSelected = !invertCS;
+        }
+        else
+        {
+          this.callback.onCsHigh( idx );
+
+          slaveSelected = invertCS;
+          // it could be that we're waiting until a next clock cycle comes
+          // along; however, the /CS signal might be going up before that
+          // cycle actually comes...
+          if ( sampler.bitIdx <= 0 )
+          {
+            // Full datagram decoded...
+            reportData( idx, aChunk.getTimestamp( i ) );
+          }
+        }
+      }
+
+      if ( honourCS && !slaveSelected )
+      {
+        // We should honour the slave-select, but the slave isn't
+        // currently selected...
+        continue;
+      }
+
+      if ( sckValue != oldSckValue )
+      {
+        oldSckValue = sckValue;
+
+        if ( ++clockEdgeIdx == this.clockEdgeCount )
+        {
+          clockEdgeIdx = 0;
+        }
+        // When CPHA is '1', we should sample at the even numbered clock
+        // edges, when CPHA is '0' we should sample at the odd numbered clock
+        // edges...
+        final boolean sampleEdgeSeen = ( ( clockEdgeIdx + this.cpha ) & 1 ) != 0;
+
+        if ( this.logClockEdges )
+        {
+          LOG.log( Level.FINE, "Clock edge: {0}, idx: {1}, sample? {2}", //
+              new Object[] { ( sckValue != 0 ) ? Edge.RISING : Edge.FALLING, Integer.valueOf( clockEdgeIdx ),
+                  Boolean.valueOf( sampleEdgeSeen ) } );
+        }
+
+        if ( sampleEdgeSeen )
+        {
+          // First clock edge we've seen? If so, we should keep this index as
+          // our start of data index...
+          if ( sampler.isFirstBit() )
+          {
+            this.dataStartIdx = aChunk.getSampleIndex( i );
+            this.dataStartTimestamp = aChunk.getTimestamp( i );
+          }
+
+          sampler.sample( dataSample );
+
+          if ( sampler.bitIdx < 0 )
+          {
+            // Full datagram decoded...
+            reportData( aChunk.getSampleIndex( i ), aChunk.getTimestamp( i ) );
+          }
+        }
+      }
+    }
+
+    this.oldSckValue = oldSckValue;
+    this.oldCsValue = oldCsValue;
+    this.slaveSelected = slaveSelected;
+    this.clockEdgeIdx = clockEdgeIdx;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void end( final int aSampleIndex )
+  {
+    // An incomplete datagram at the end of the data is not reported...
+    this.sampler.reset();
+  }
+
+  /**
+   * Reports the datagram sampled so far, and starts a new one.
+   * 
+   * @param aEndIdx
+   *          the sample index on which the datagram ended;
+   * @param aEndTimestamp
+   *          the timestamp on which the datagram ended.
+   */
+  private void reportData( final int aEndIdx, final long aEndTimestamp )
+  {
+    // Perform bit-order conversion on the full datagram...
+    final int mosiValue = NumberUtils.convertBitOrder( this.sampler.mosiValue, this.bitCount, this.bitOrder );
+    final int misoValue = NumberUtils.convertBitOrder( this.sampler.misoValue, this.bitCount, this.bitOrder );
+
+    this.callback.onData( this.dataStartIdx, this.dataStartTimestamp, aEndIdx, aEndTimestamp, mosiValue, misoValue );
+
+    this.sampler.reset();
+  }
+}
@@ -66,6 +66,138 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
 {
   // INNER TYPES
 
+  /**
+   * Provides the table model for the decoded SPI data, showing the MOSI and
+   * MISO data of a datagram in a single row.
+   */
+  final class SPIDataTableModel extends DataSetTableModel<SPIData>
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    // VARIABLES
+
+    private volatile int bitCount = 8;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new SPIDataTableModel instance.
+     */
+    public SPIDataTableModel()
+    {
+      super( "Index", "Time", "MOSI Hex", "MOSI Bin", "MOSI Dec", "MOSI ASCII", "MISO Hex", "MISO Bin", "MISO Dec",
+          "MISO ASCII" );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Color getRowBackground( final int aRow )
+    {
+      final SPIData data = getRowData( aRow );
+      if ( !data.isEvent() )
+      {
+        return null;
+      }
+
+      final String event = data.getEventName();
+      if ( SPIDataSet.SPI_CS_LOW.equals( event ) )
+      {
+        return CS_LOW_COLOR;
+      }
+      else if ( SPIDataSet.SPI_CS_HIGH.equals( event ) )
+      {
+        return CS_HIGH_COLOR;
+      }
+      // unknown event
+      return UNKNOWN_EVENT_COLOR;
+    }
+
+    /**
+     * Sets the number of bits of the decoded datagrams.
+     *
+     * @param aBitCount
+     *          the number of bits, &gt; 0.
+     */
+    public void setBitCount( final int aBitCount )
+    {
+      this.bitCount = aBitCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object getValueAt( final int aRow, final SPIData aData, final int aColumn )
+    {
+      if ( aColumn == 0 )
+      {
+        return Integer.valueOf( getDataIndex( aRow ) );
+      }
+      else if ( aColumn == 1 )
+      {
+        return getRowTime( aRow );
+      }
+
+      if ( aData.isEvent() )
+      {
+        if ( ( aColumn != 2 ) && ( aColumn != 6 ) )
+        {
+          return null;
+        }
+        final String event = aData.getEventName();
+        if ( SPIDataSet.SPI_CS_LOW.equals( event ) || SPIDataSet.SPI_CS_HIGH.equals( event ) )
+        {
+          return event;
+        }
+        return "UNKNOWN";
+      }
+
+      // Columns 2..5 show the MOSI side, columns 6..9 the MISO side...
+      final int value = getDataValue( aRow, aData, aColumn < 6 );
+      final int bits = this.bitCount;
+      switch ( ( aColumn - 2 ) % 4 )
+      {
+        case 0:
+          return "0x" + integerToHexString( value, ( bits / 4 ) + ( ( ( bits % 4 ) != 0 ) ? 1 : 0 ) );
+        case 1:
+          return "0b" + integerToBinString( value, bits );
+        case 2:
+          return Integer.valueOf( value );
+        default:
+          return toASCII( value );
+      }
+    }
+
+    /**
+     * Returns the MOSI or MISO value of the datagram in the given row, which
+     * includes the decoded data following it at the same sample index (see
+     * {@link SPIProtocolAnalysisDialog#createRowIndex(List)}).
+     */
+    private int getDataValue( final int aRow, final SPIData aData, final boolean aMosi )
+    {
+      int value = ( aMosi ? aData.isMosiData() : aData.isMisoData() ) ? aData.getDataValue() : 0;
+
+      final List<SPIData> data = getDataSet().getData();
+      final int nextIdx = getDataIndex( aRow ) + 1;
+      if ( nextIdx < data.size() )
+      {
+        final SPIData next = data.get( nextIdx );
+        if ( ( next.getStartSampleIndex() == aData.getStartSampleIndex() )
+            && ( aMosi ? next.isMosiData() : next.isMisoData() ) )
+        {
+          value = next.getDataValue();
+        }
+      }
+      return value;
+    }
+  }
+
   /**
    * Provides a combobox renderer for {@link BitOrder} enums.
    */
@@ -187,6 +319,10 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
 
   private static final Logger LOG = Logger.getLogger( SPIProtocolAnalysisDialog.class.getName() );
 
+  private static final Color CS_LOW_COLOR = new Color( 0xc0, 0xff, 0xc0 );
+  private static final Color CS_HIGH_COLOR = new Color( 0xe0, 0xe0, 0xe0 );
+  private static final Color UNKNOWN_EVENT_COLOR = new Color( 0xff, 0x80, 0x00 );
+
   // VARIABLES
 
   private JLabel misoLabel;
@@ -204,7 +340,8 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
   private JComboBox bits;
   private JComboBox order;
   private JComboBox spifiMode;
-  private JEditorPane outText;
+  private SPIDataTableModel dataModel;
+  private JLabel detectedMode;
   private JCheckBox reportCS;
   private JCheckBox honourCS;
   private JCheckBox invertCS;
@@ -313,8 +450,8 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
   @Override
   public void reset()
   {
-    this.outText.setText( getEmptyHtmlPage() );
-    this.outText.setEditable( false );
+    this.dataModel.setDataSet( null );
+    this.detectedMode.setText( getDetectedModeText( null ) );
 
     this.runAnalysisAction.restore();
 
@@ -388,34 +525,22 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
   @Override
   protected void onToolEnded( final SPIDataSet aAnalysisResult )
   {
-    try
+    this.dataModel.setBitCount( Integer.parseInt( ( String )this.bits.getSelectedItem() ) );
+    if ( aAnalysisResult != null )
     {
-      final String htmlPage;
-      if ( aAnalysisResult != null )
-      {
-        htmlPage = toHtmlPage( null /* aFile */, aAnalysisResult );
-        this.exportAction.setEnabled( !aAnalysisResult.isEmpty() );
-      }
-      else
-      {
-        htmlPage = getEmptyHtmlPage();
-        this.exportAction.setEnabled( false );
-      }
-
-      this.outText.setText( htmlPage );
-      this.outText.setEditable( false );
-
-      this.runAnalysisAction.restore();
+      // Merge the MOSI and MISO data once, rather than for each shown row...
+      this.dataModel.setDataSet( aAnalysisResult, createRowIndex( aAnalysisResult.getData() ) );
+      this.detectedMode.setText( getDetectedModeText( this.detectedSPIMode ) );
     }
-    catch ( final IOException exception )
+    else
     {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        // Should not happen in this situation!
-        throw new RuntimeException( exception );
-      }
+      this.dataModel.setDataSet( null );
+      this.detectedMode.setText( getDetectedModeText( null ) );
     }
+
+    this.exportAction.setEnabled( ( aAnalysisResult != null ) && !aAnalysisResult.isEmpty() );
+
+    this.runAnalysisAction.restore();
   }
 
   /**
@@ -614,16 +739,54 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
    */
   private JPanel createPreviewPane()
   {
-    final JPanel panTable = new JPanel( new GridLayout( 1, 1, 0, 0 ) );
-
-    this.outText = new JEditorPane( "text/html", getEmptyHtmlPage() );
-    this.outText.setEditable( false );
+    this.dataModel = new SPIDataTableModel();
+    this.detectedMode = new JLabel( getDetectedModeText( null ) );
 
-    panTable.add( new JScrollPane( this.outText ) );
+    final JPanel panTable = new JPanel( new BorderLayout( 0, 4 ) );
+    panTable.add( this.detectedMode, BorderLayout.NORTH );
+    panTable.add( ToolUtils.createDataSetTablePane( new DataSetTable( this.dataModel ) ), BorderLayout.CENTER );
 
     return panTable;
   }
 
+  /**
+   * Creates the index of the rows to show for the given decoded data: all
+   * events and datagrams, in which the decoded data directly following a
+   * datagram at the same sample index is shown in the same row.
+   *
+   * @param aData
+   *          the decoded data to create the row index for, cannot be
+   *          <code>null</code>.
+   * @return the indexes of the decoded data to show as rows, never
+   *         <code>null</code>.
+   */
+  static int[] createRowIndex( final List<SPIData> aData )
+  {
+    final int size = aData.size();
+
+    final int[] rows = new int[size];
+    int count = 0;
+    for ( int i = 0; i < size; i++ )
+    {
+      final SPIData data = aData.get( i );
+      if ( data.isEvent() )
+      {
+        rows[count++] = i;
+      }
+      else if ( data.isData() )
+      {
+        rows[count++] = i;
+        // the MOSI and MISO data of a datagram are shown in a single row...
+        if ( ( ( i + 1 ) < size ) && ( aData.get( i + 1 ).getStartSampleIndex() == data.getStartSampleIndex() ) )
+        {
+          i++;
+        }
+      }
+    }
+
+    return Arrays.copyOf( rows, count );
+  }
+
   /**
    * @return
    */
@@ -732,26 +895,48 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
   }
 
   /**
-   * Generates an empty HTML page.
+   * Returns a description of the given SPI mode.
    *
-   * @return String with HTML data.
+   * @param aMode
+   *          the SPI mode to describe, can be <code>null</code>.
+   * @return a description, never <code>null</code>.
    */
-  private String getEmptyHtmlPage()
+  private static String getSPIModeText( final SPIMode aMode )
   {
-    final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-    return exporter.toString( new MacroResolver()
+    if ( aMode != null )
     {
-      @Override
-      public Object resolve( final String aMacro, final Element aParent )
+      switch ( aMode )
       {
-        if ( "date-now".equals( aMacro ) )
-        {
-          final DateFormat df = DateFormat.getDateInstance( DateFormat.LONG );
-          return df.format( new Date() );
-        }
-        return null;
+        case MODE_0:
+          return "Mode 0 (CPOL = 0, CPHA = 0)";
+        case MODE_1:
+          return "Mode 1 (CPOL = 0, CPHA = 1)";
+        case MODE_2:
+          return "Mode 2 (CPOL = 1, CPHA = 0)";
+        case MODE_3:
+          return "Mode 3 (CPOL = 1, CPHA = 1)";
+        default:
+          break;
       }
-    } );
+    }
+    return "<unknown>";
+  }
+
+  /**
+   * Returns the text of the label showing the detected SPI mode.
+   *
+   * @param aMode
+   *          the detected SPI mode, can be <code>null</code> if no analysis
+   *          was done.
+   * @return a label text, never <code>null</code>.
+   */
+  private static String getDetectedModeText( final SPIMode aMode )
+  {
+    if ( aMode == null )
+    {
+      return "SPI mode: -";
+    }
+    return "SPI mode: " + getSPIModeText( aMode );
   }
 
   /**
@@ -850,12 +1035,13 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
   /**
    * generate a HTML page
    *
+   * @param aFile
+   *          the file to write the HTML page to, cannot be <code>null</code>;
    * @param aDataSet
    *          the data set to create the HTML page for, cannot be
    *          <code>null</code>.
-   * @return String with HTML data
    */
-  private String toHtmlPage( final File aFile, final SPIDataSet aDataSet ) throws IOException
+  private void toHtmlPage( final File aFile, final SPIDataSet aDataSet ) throws IOException
   {
     final int bitCount = Integer.parseInt( ( String )this.bits.getSelectedItem() );
     final int bitAdder = ( ( bitCount % 4 ) != 0 ) ? 1 : 0;
@@ -872,25 +1058,7 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
         }
         else if ( "detected-spi-mode".equals( aMacro ) )
         {
-          String result = "<unknown>";
-          switch ( SPIProtocolAnalysisDialog.this.detectedSPIMode )
-          {
-            case MODE_0:
-              result = "Mode 0 (CPOL = 0, CPHA = 0)";
-              break;
-            case MODE_1:
-              result = "Mode 1 (CPOL = 0, CPHA = 1)";
-              break;
-            case MODE_2:
-              result = "Mode 2 (CPOL = 1, CPHA = 0)";
-              break;
-            case MODE_3:
-              result = "Mode 3 (CPOL = 1, CPHA = 1)";
-              break;
-            default:
-              break;
-          }
-          return result;
+          return getSPIModeText( SPIProtocolAnalysisDialog.this.detectedSPIMode );
         }
         else if ( "decoded-data".equals( aMacro ) )
         {
@@ -987,18 +1155,8 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
       }
     };
 
-    if ( aFile == null )
-    {
-      final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-      return exporter.toString( macroResolver );
-    }
-    else
-    {
-      final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
-      exporter.write( macroResolver );
-      exporter.close();
-    }
-
-    return null;
+    final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
+    exporter.write( macroResolver );
+    exporter.close();
   }
 }
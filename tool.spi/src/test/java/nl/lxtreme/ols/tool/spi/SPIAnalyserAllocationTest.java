@@ -0,0 +1,156 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.spi;
+
+
+import static org.junit.Assert.*;
+
+import java.lang.management.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.test.data.*;
+import nl.lxtreme.ols.util.NumberUtils.BitOrder;
+
+import org.junit.*;
+import org.mockito.*;
+
+
+/**
+ * Tests that the {@link SPIAnalyserTask} does not allocate on clock edges.
+ */
+public class SPIAnalyserAllocationTest
+{
+  // CONSTANTS
+
+  private static final int MOSI = 0;
+  private static final int MISO = 1;
+  private static final int SCK = 4;
+  private static final int CS = 5;
+
+  private static final int DATAGRAMS = 2000;
+  private static final int RUNS = 10;
+
+  // METHODS
+
+  /**
+   * Creates captured data with a single chip-select followed by the given
+   * number of datagrams, in which every sample is a clock edge.
+   */
+  private static AcquisitionResult createData( final int aDatagrams, final int aBitCount )
+  {
+    // Two clock edges per sampled bit, plus CS going low...
+    final int size = 1 + ( aDatagrams * aBitCount * 2 );
+
+    final int[] values = new int[size];
+    final long[] timestamps = new long[size];
+
+    values[0] = 1 << CS;
+    for ( int i = 1; i < size; i++ )
+    {
+      values[i] = ( i & 1 ) << SCK;
+      timestamps[i] = i;
+    }
+
+    return new CapturedData( values, timestamps, -1L, 100000000, 8, 0xFF, size );
+  }
+
+  /**
+   * Tests that doubling the number of clock edges of each datagram, while
+   * keeping the number and values of the datagrams the same, does not
+   * increase the number of bytes allocated by the decoder.
+   */
+  @Test
+  public void testNoAllocationsPerClockEdge() throws Exception
+  {
+    final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if ( !( bean instanceof com.sun.management.ThreadMXBean ) )
+    {
+      return;
+    }
+    final com.sun.management.ThreadMXBean threadBean = ( com.sun.management.ThreadMXBean )bean;
+    if ( !threadBean.isThreadAllocatedMemorySupported() )
+    {
+      return;
+    }
+    threadBean.setThreadAllocatedMemoryEnabled( true );
+
+    final AcquisitionResult shortData = createData( DATAGRAMS, 8 );
+    final AcquisitionResult longData = createData( DATAGRAMS, 16 );
+
+    final long shortBytes = measureAllocatedBytes( threadBean, shortData, 8 );
+    final long longBytes = measureAllocatedBytes( threadBean, longData, 16 );
+
+    // Any object allocated on a clock edge takes at least 16 bytes...
+    final int extraEdges = longData.getSampleCount() - shortData.getSampleCount();
+    assertTrue( "Decoder allocates per clock edge: " + shortBytes + " vs. " + longBytes + " bytes",
+        ( longBytes - shortBytes ) < extraEdges );
+  }
+
+  /**
+   * Decodes the given data several times, and returns the smallest number of
+   * bytes allocated by a single decode on the current thread.
+   */
+  private long measureAllocatedBytes( final com.sun.management.ThreadMXBean aBean, final AcquisitionResult aData,
+      final int aBitCount ) throws Exception
+  {
+    final long threadId = Thread.currentThread().getId();
+    final ToolContext context = DataTestUtils.createToolContext( aData, 0, aData.getSampleCount() - 1 );
+
+    long result = Long.MAX_VALUE;
+    for ( int i = 0; i < RUNS; i++ )
+    {
+      final SPIAnalyserTask worker = createWorker( context, aBitCount );
+
+      final long before = aBean.getThreadAllocatedBytes( threadId );
+      final SPIDataSet dataSet = worker.call();
+      final long after = aBean.getThreadAllocatedBytes( threadId );
+
+      assertTrue( dataSet.getData().size() > DATAGRAMS );
+      result = Math.min( result, after - before );
+    }
+    return result;
+  }
+
+  /**
+   * Creates a worker decoding standard SPI in mode 0.
+   */
+  private SPIAnalyserTask createWorker( final ToolContext aContext, final int aBitCount )
+  {
+    ToolProgressListener tpl = Mockito.mock( ToolProgressListener.class );
+    AnnotationListener al = Mockito.mock( AnnotationListener.class );
+
+    SPIAnalyserTask worker = new SPIAnalyserTask( aContext, tpl, al );
+    worker.setProtocol( SPIFIMode.STANDARD );
+    worker.setSPIMode( SPIMode.MODE_0 );
+    worker.setBitCount( aBitCount - 1 );
+    worker.setOrder( BitOrder.MSB_FIRST );
+    worker.setHonourCS( true );
+    worker.setReportCS( false );
+    worker.setIO0Index( MOSI );
+    worker.setIO1Index( MISO );
+    worker.setSCKIndex( SCK );
+    worker.setCSIndex( CS );
+    return worker;
+  }
+}
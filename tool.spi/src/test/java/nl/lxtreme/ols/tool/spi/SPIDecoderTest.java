@@ -0,0 +1,209 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.spi;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.tool.base.decoder.*;
+import nl.lxtreme.ols.tool.spi.SPIDecoder.SPIConfiguration;
+import nl.lxtreme.ols.tool.spi.SPIDecoder.SPIDecoderCallback;
+import nl.lxtreme.ols.util.NumberUtils.BitOrder;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link SPIDecoder}, fed with samples chunk by chunk.
+ */
+public class SPIDecoderTest
+{
+  // INNER TYPES
+
+  /**
+   * Records all decoded events and datagrams as strings.
+   */
+  static final class RecordingCallback implements SPIDecoderCallback
+  {
+    // VARIABLES
+
+    final List<String> events = new ArrayList<String>();
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onCsHigh( final int aSampleIdx )
+    {
+      this.events.add( "CS high @ " + aSampleIdx );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onCsLow( final int aSampleIdx )
+    {
+      this.events.add( "CS low @ " + aSampleIdx );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onData( final int aStartIdx, final long aStartTimestamp, final int aEndIdx,
+        final long aEndTimestamp, final int aMosiValue, final int aMisoValue )
+    {
+      this.events.add( String.format( "0x%X/0x%X @ %d..%d (%d..%d)", Integer.valueOf( aMosiValue ),
+          Integer.valueOf( aMisoValue ), Integer.valueOf( aStartIdx ), Integer.valueOf( aEndIdx ),
+          Long.valueOf( aStartTimestamp ), Long.valueOf( aEndTimestamp ) ) );
+    }
+  }
+
+  // CONSTANTS
+
+  private static final int MOSI = 0;
+  private static final int MISO = 1;
+  private static final int SCK = 2;
+  private static final int CS = 3;
+
+  private static final int[] MOSI_DATA = { 0x12, 0xA5, 0xFF, 0x00, 0x81 };
+  private static final int[] MISO_DATA = { 0xC3, 0x5A, 0x00, 0xFF, 0x7E };
+
+  // VARIABLES
+
+  private int[] values;
+  private long[] timestamps;
+
+  // METHODS
+
+  /**
+   * Creates the samples of a chip-select, followed by all datagrams, sent MSB
+   * first in SPI mode 0, and a chip-deselect.
+   */
+  @Before
+  public void setUp()
+  {
+    final List<Integer> samples = new ArrayList<Integer>();
+    samples.add( Integer.valueOf( 1 << CS ) );
+    samples.add( Integer.valueOf( 0 ) );
+    for ( int i = 0; i < MOSI_DATA.length; i++ )
+    {
+      for ( int bit = 7; bit >= 0; bit-- )
+      {
+        final int data = ( ( ( MOSI_DATA[i] >> bit ) & 1 ) << MOSI ) | ( ( ( MISO_DATA[i] >> bit ) & 1 ) << MISO );
+        // data changes while the clock is low, and is sampled on the rising
+        // edge of the clock...
+        samples.add( Integer.valueOf( data ) );
+        samples.add( Integer.valueOf( data | ( 1 << SCK ) ) );
+      }
+    }
+    samples.add( Integer.valueOf( 0 ) );
+    samples.add( Integer.valueOf( 1 << CS ) );
+
+    this.values = new int[samples.size()];
+    this.timestamps = new long[samples.size()];
+    for ( int i = 0; i < this.values.length; i++ )
+    {
+      this.values[i] = samples.get( i ).intValue();
+      this.timestamps[i] = 10L * i;
+    }
+  }
+
+  /**
+   * Tests that decoding the samples in chunks of different sizes, including
+   * chunks of a single sample, yields the same results.
+   */
+  @Test
+  public void testDecodeChunkByChunkOk()
+  {
+    final List<String> expected = decode( 1 );
+    for ( int chunkSize : new int[] { 2, 3, 7, 16, 1024 } )
+    {
+      assertEquals( "Chunk size: " + chunkSize, expected, decode( chunkSize ) );
+    }
+  }
+
+  /**
+   * Tests that all datagrams are decoded, with their sample indices and
+   * timestamps.
+   */
+  @Test
+  public void testDecodeDatagramsOk()
+  {
+    final List<String> events = decode( 5 );
+
+    assertEquals( MOSI_DATA.length + 2, events.size() );
+    assertEquals( "CS low @ 1", events.get( 0 ) );
+    for ( int i = 0; i < MOSI_DATA.length; i++ )
+    {
+      // the first and last rising clock edge of each datagram...
+      final int startIdx = 3 + ( i * 16 );
+      final int endIdx = startIdx + 14;
+      assertEquals( String.format( "0x%X/0x%X @ %d..%d (%d..%d)", Integer.valueOf( MOSI_DATA[i] ),
+          Integer.valueOf( MISO_DATA[i] ), Integer.valueOf( startIdx ), Integer.valueOf( endIdx ),
+          Long.valueOf( 10L * startIdx ), Long.valueOf( 10L * endIdx ) ), events.get( i + 1 ) );
+    }
+    assertEquals( "CS high @ " + ( this.values.length - 1 ), events.get( events.size() - 1 ) );
+  }
+
+  /**
+   * Tests that the bits are reversed for datagrams sent LSB first.
+   */
+  @Test
+  public void testDecodeLsbFirstOk()
+  {
+    final List<String> events = decode( 4, BitOrder.LSB_FIRST );
+    assertTrue( events.get( 1 ), events.get( 1 ).startsWith( "0x48/0xC3 @" ) );
+  }
+
+  /**
+   * Decodes all samples, sent MSB first, in chunks of the given size.
+   */
+  private List<String> decode( final int aChunkSize )
+  {
+    return decode( aChunkSize, BitOrder.MSB_FIRST );
+  }
+
+  /**
+   * Decodes all samples in chunks of the given size.
+   */
+  private List<String> decode( final int aChunkSize, final BitOrder aBitOrder )
+  {
+    final SPIConfiguration config = new SPIConfiguration( SPIFIMode.STANDARD, SPIMode.MODE_0, 8, aBitOrder, true,
+        false, SCK, CS, MOSI, MISO );
+    final RecordingCallback callback = new RecordingCallback();
+
+    final DecoderPipeline pipeline = new DecoderPipeline( aChunkSize, new SPIDecoder( config, callback ) );
+    pipeline.begin( 0, this.values[0], this.timestamps[0] );
+    for ( int i = 1; i < this.values.length; i++ )
+    {
+      pipeline.add( this.values[i], this.timestamps[i] );
+    }
+    pipeline.end();
+
+    return callback.events;
+  }
+}
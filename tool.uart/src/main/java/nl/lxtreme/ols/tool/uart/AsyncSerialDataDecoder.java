@@ -23,18 +23,20 @@ package nl.lxtreme.ols.tool.uart;
 
 import static nl.lxtreme.ols.util.NumberUtils.*;
 
-import java.util.*;
-
-import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
-import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.tool.base.decoder.*;
 
 
 /**
- * Provides a generic decoder for asynchronous serial data, such as used for
- * UARTs, smartcards, LIN and other protocols.
+ * Provides a generic streaming decoder for asynchronous serial data, such as
+ * used for UARTs, smartcards, LIN and other protocols.
+ * <p>
+ * As the bits of a symbol are sampled relative to the edges around them, the
+ * decoding of a symbol is suspended until all samples it depends upon are
+ * seen. Only the edges of the symbol currently being decoded are retained.
+ * </p>
  */
-public class AsyncSerialDataDecoder
+public class AsyncSerialDataDecoder implements StreamingDecoder
 {
   // INNER TYPES
 
@@ -349,123 +351,24 @@ public class AsyncSerialDataDecoder
     SPACE, MARK;
   }
 
+
   /**
-   * Helper class that can chop up a datastream into bits.
+   * Denotes the part of a symbol the decoder is waiting for.
    */
-  private class DataBitExtractor
+  private static enum DecoderState
   {
-    // VARIABLES
-
-    private double time;
-    private int mask;
-    private int channelIndex;
-    private double bitLength;
-    /** The number of samples that we've seen between two confirmed edges */
-    private double confirmedSamples;
-    /** The number of bits that we've seen between two confirmed edges */
-    private long confirmedBits;
-    /** The timestamp of the last edge we've seen */
-    private double lastEdge;
-    /** The number of bits we've processed since the last edge */
-    private int bitsSinceEdge;
-
-    // CONSTRUCTORS
-
-    public DataBitExtractor( final int aChannelIndex )
-    {
-      this.time = 0;
-      this.channelIndex = aChannelIndex;
-      this.mask = ( 1 << aChannelIndex );
-      this.bitLength = AsyncSerialDataDecoder.this.configuration.getBitLength( AsyncSerialDataDecoder.this.dataSet
-          .getSampleRate() );
-    }
-
-    // METHODS
-
-    /**
-     * The level of the current bit (always the raw level, regardless of bit
-     * encoding settings).
-     */
-    public BitLevel level()
-    {
-      final long halfTime = ( long )( this.time + ( this.bitLength / 2 ) );
-      final int level = AsyncSerialDataDecoder.this.getDataValue( halfTime, this.mask );
-      return ( level == 0 ? BitLevel.LOW : BitLevel.HIGH );
-    }
-
-    /**
-     * The value of the current bit (this is its meaning depending on the bit
-     * encoding, regardless of voltage levels).
-     */
-    public BitValue value()
-    {
-      if ( AsyncSerialDataDecoder.this.configuration.getBitEncoding() == BitEncoding.HIGH_IS_SPACE )
-      {
-        return ( level() == BitLevel.HIGH ? BitValue.SPACE : BitValue.MARK );
-      }
-      else
-      {
-        return ( level() == BitLevel.HIGH ? BitValue.MARK : BitValue.SPACE );
-      }
-    }
-
-    /**
-     * Skip over the current bit to the next one.
-     */
-    public void next()
-    {
-      this.time += this.bitLength;
-      this.bitsSinceEdge++;
-      final long start = ( long )( this.time - this.bitLength * 0.25 - 1 );
-      final long end = ( long )( this.time + this.bitLength * 0.25 + 1 );
-
-      // Find an edge in the area where we would expect one
-      final long edge = AsyncSerialDataDecoder.this.findEdge( this.channelIndex, Edge.NONE, start, end );
-      if ( edge >= 0 )
-      {
-        // Found an edge, skip to that timestamp instead.
-        this.time = edge;
-
-        // Add the bits since the last edge to the average
-        this.confirmedSamples += ( this.time - this.lastEdge );
-        this.confirmedBits += this.bitsSinceEdge;
-        // And reset the last edge
-        this.lastEdge = this.time;
-        this.bitsSinceEdge = 0;
-      }
-    }
-
-    /**
-     * Jump to the bit starting at the given time (sample number).
-     */
-    public void jumpTo( long time )
-    {
-      this.time = time;
-      /**
-       * Assume we're jumping here because our caller found an edge.
-       */
-      this.lastEdge = time;
-      this.bitsSinceEdge = 0;
-    }
-
-    /**
-     * The sample time of the start of the current bit.
-     */
-    public long time()
-    {
-      return ( long )( this.time );
-    }
-
-    /**
-     * The average bit length for sequences of bits found between two edges
-     * (e.g., the ones of which we can be fairly certain of their length, unlike
-     * for example trailing MARK bits, which blend into the stop bits and any
-     * idle time after the byte).
-     */
-    public double averageBitLength()
-    {
-      return ( this.confirmedSamples / this.confirmedBits );
-    }
+    /** Looking for the edge of the next start bit. */
+    START_EDGE,
+    /** Sampling the start bit. */
+    START_BIT,
+    /** Sampling the data bits. */
+    DATA_BITS,
+    /** Sampling the parity bit. */
+    PARITY_BIT,
+    /** Sampling the stop bit. */
+    STOP_BIT,
+    /** No more symbols can be decoded. */
+    DONE;
   }
 
   /**
@@ -510,14 +413,51 @@ public class AsyncSerialDataDecoder
   public static final int[] COMMON_BAUDRATES = { 150, 300, 600, 1200, 2400, 4800, 9600, 14400, 19200, 28800, 38400,
       57600, 76800, 115200, 230400, 460800, 921600 };
 
-  // VARIABLES
+  private static final int INITIAL_EDGE_CAPACITY = 64;
 
-  protected final SerialConfiguration configuration;
-  protected final AcquisitionResult dataSet;
-  protected final ToolContext context;
+  // VARIABLES
 
-  private SerialDecoderCallback callback;
-  private ToolProgressListener progressListener;
+  private final SerialConfiguration configuration;
+  private final SerialDecoderCallback callback;
+  private final int channelIndex;
+  private final int mask;
+  private final double bitLength;
+  private final int frameSize;
+
+  /** The timestamps of the edges that might still be needed, in time order */
+  private long[] edges;
+  private int firstEdge;
+  private int edgeCount;
+  /** The level of the line before the first edge */
+  private int firstLevel;
+  /** The level of the line at the last seen sample */
+  private int level;
+  /** The timestamp of the last seen sample */
+  private long lastTimestamp;
+  private boolean ended;
+
+  private DecoderState state;
+  /** The timestamp from which to look for the next start bit */
+  private long searchFrom;
+  private int bitIdx;
+  private int symbol;
+  private int marks;
+  private long symbolStartTime;
+  /** Whether the length of the last stop bit has still to be checked */
+  private boolean stopBitPending;
+  private long stopBitTime;
+  private long endOfStopBit;
+
+  /** The timestamp of the start of the current bit */
+  private double time;
+  /** The number of samples that we've seen between two confirmed edges */
+  private double confirmedSamples;
+  /** The number of bits that we've seen between two confirmed edges */
+  private long confirmedBits;
+  /** The timestamp of the last edge we've seen */
+  private double lastEdge;
+  /** The number of bits we've processed since the last edge */
+  private int bitsSinceEdge;
 
   // CONSTRUCTORS
 
@@ -526,273 +466,450 @@ public class AsyncSerialDataDecoder
    * 
    * @param aConfiguration
    *          the configuration to use, cannot be <code>null</code>;
-   * @param aContext
-   *          the tool context to use, cannot be <code>null</code>.
+   * @param aChannelIndex
+   *          the index of the channel to decode, &gt;= 0;
+   * @param aSampleRate
+   *          the sample rate of the data to decode, in Hertz, &gt; 0;
+   * @param aCallback
+   *          the callback to report the decoded symbols and errors to, cannot
+   *          be <code>null</code>.
    */
-  public AsyncSerialDataDecoder( final SerialConfiguration aConfiguration, final ToolContext aContext )
+  public AsyncSerialDataDecoder( final SerialConfiguration aConfiguration, final int aChannelIndex,
+      final int aSampleRate, final SerialDecoderCallback aCallback )
   {
     this.configuration = aConfiguration;
-    this.context = aContext;
-    this.dataSet = aContext.getData();
+    this.callback = aCallback;
+    this.channelIndex = aChannelIndex;
+    this.mask = 1 << aChannelIndex;
+    this.bitLength = aConfiguration.getBitLength( aSampleRate );
+    this.frameSize = aConfiguration.getFrameSize( aSampleRate );
+    this.edges = new long[INITIAL_EDGE_CAPACITY];
   }
 
   // METHODS
 
   /**
-   * Finds the sample index of the given timestamp value.
-   * <p>
-   * Note the sample index returned is <em>not per se</em> equal to
-   * <code>timestamps[result]</code>!
-   * </p>
-   * 
-   * @param aTimeValue
-   *          the time value to search the corresponding index for, >= 0.
-   * @return a sample index, >= 0.
+   * {@inheritDoc}
    */
-  protected static final int findSampleIndex( final long[] aTimestamps, final long aTimeValue )
+  @Override
+  public void begin( final int aSampleIndex, final int aValue, final long aTimestamp )
   {
-    int k = Arrays.binarySearch( aTimestamps, aTimeValue );
-    if ( k < 0 )
+    this.level = ( ( aValue & this.mask ) == 0 ) ? 0 : 1;
+    this.firstLevel = this.level;
+    this.firstEdge = 0;
+    this.edgeCount = 0;
+    this.lastTimestamp = aTimestamp;
+    this.ended = false;
+
+    this.state = DecoderState.START_EDGE;
+    this.searchFrom = aTimestamp;
+    this.stopBitPending = false;
+
+    this.time = 0;
+    this.confirmedSamples = 0;
+    this.confirmedBits = 0;
+    this.lastEdge = 0;
+    this.bitsSinceEdge = 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void decode( final SampleChunk aChunk )
+  {
+    final int length = aChunk.getLength();
+    for ( int i = 0; i < length; i++ )
     {
-      k = -( k + 1 );
+      final int level = ( ( aChunk.getValue( i ) & this.mask ) == 0 ) ? 0 : 1;
+      if ( level != this.level )
+      {
+        addEdge( aChunk.getTimestamp( i ) );
+        this.level = level;
+      }
     }
-    return k;
+    this.lastTimestamp = aChunk.getTimestamp( length - 1 );
+
+    decodeSymbols();
   }
 
   /**
-   * Decodes a serial data line.
-   * 
-   * @param aChannelIndex
-   *          the channel index to decode, >= 0;
-   * @return the bit length used in decoding, in number of samples, >= 0;
+   * {@inheritDoc}
    */
-  public double decodeDataLine( final int aChannelIndex )
+  @Override
+  public void end( final int aSampleIndex )
   {
-    final int frameSize = this.configuration.getFrameSize( this.dataSet.getSampleRate() );
-    final double bitLength = this.configuration.getBitLength( this.dataSet.getSampleRate() );
-    final int bitCount = this.configuration.getDataBits();
+    this.ended = true;
 
-    final StopBits stopBits = this.configuration.getStopBits();
-    final Parity parity = this.configuration.getParity();
+    decodeSymbols();
+  }
 
-    final long[] timestamps = this.dataSet.getTimestamps();
+  /**
+   * Returns the average bit length for sequences of bits found between two
+   * edges (e.g., the ones of which we can be fairly certain of their length,
+   * unlike for example trailing MARK bits, which blend into the stop bits and
+   * any idle time after the byte).
+   * 
+   * @return the bit length used in decoding, in number of samples, >= 0.
+   */
+  public double getAverageBitLength()
+  {
+    return ( this.confirmedSamples / this.confirmedBits );
+  }
 
-    final long startOfDecode = timestamps[this.context.getStartSampleIndex()];
-    final long endOfDecode = timestamps[this.context.getEndSampleIndex()];
-    final BitLevel idleLevel = this.configuration.getIdleLevel();
+  /**
+   * Adds an edge at the given timestamp, making room for it if necessary.
+   */
+  private void addEdge( final long aTimestamp )
+  {
+    if ( this.edgeCount == this.edges.length )
+    {
+      final long[] edges = ( this.firstEdge > 0 ) ? this.edges : new long[2 * this.edges.length];
+      System.arraycopy( this.edges, this.firstEdge, edges, 0, this.edgeCount - this.firstEdge );
+      this.edges = edges;
+      this.edgeCount -= this.firstEdge;
+      this.firstEdge = 0;
+    }
+    this.edges[this.edgeCount++] = aTimestamp;
+  }
 
-    DataBitExtractor extractor = new DataBitExtractor( aChannelIndex );
-    setProgress( 0 );
+  /**
+   * Decodes as many symbols as the seen samples allow, the decoding of a
+   * symbol is suspended until all samples it depends upon are seen.
+   */
+  private void decodeSymbols()
+  {
+    final BitLevel idleLevel = this.configuration.getIdleLevel();
+    final Parity parity = this.configuration.getParity();
 
-    long start = findStartBit( aChannelIndex, idleLevel.nextEdge(), startOfDecode, endOfDecode );
-    while ( ( start >= 0 ) && ( ( endOfDecode - start ) > frameSize ) )
+    while ( this.state != DecoderState.DONE )
     {
-      extractor.jumpTo( start );
-
-      if ( ( extractor.level() != idleLevel.invert() ) && ( this.callback != null ) )
+      if ( this.state == DecoderState.START_EDGE )
       {
-        // this is not a start bit !
-        this.callback.onError( aChannelIndex, ErrorType.START, extractor.time() );
-      }
-      extractor.next();
-
-      // Keep track of where the symbol originally started;
-      final long startTime = extractor.time();
+        // Edges before the next start bit are no longer needed...
+        dropEdgesBefore( this.searchFrom );
 
-      int symbol = 0;
-      int marks = 0;
-      for ( int bitIdx = 0; bitIdx < bitCount; bitIdx++ )
-      {
-        if ( extractor.value() == BitValue.MARK )
+        final int edge = findEdgeIndex( this.firstEdge, idleLevel.nextEdge() );
+        if ( edge < 0 )
         {
-          symbol |= ( 1 << bitIdx );
-          marks++;
+          if ( !this.ended )
+          {
+            return;
+          }
+          this.state = DecoderState.DONE;
+          continue;
         }
-        extractor.next();
-      }
-      final long endTime = extractor.time() - 1;
 
-      // If the most significant bit is first, we need to swap bit-order, as we
-      // normally represent the bits with the least significant bit first...
-      if ( this.configuration.getBitOrder() == BitOrder.MSB_FIRST )
-      {
-        symbol = reverseBits( symbol, bitCount );
-      }
+        // The start bit must be seen before the last sample...
+        final long edgeTime = this.edges[edge];
+        if ( this.lastTimestamp < ( edgeTime + 2 ) )
+        {
+          if ( !this.ended )
+          {
+            return;
+          }
+          this.state = DecoderState.DONE;
+          continue;
+        }
 
-      // fully decoded a single symbol...
-      if ( this.callback != null )
-      {
-        this.callback.onSymbol( aChannelIndex, symbol, startTime, endTime );
-      }
+        // The level at a given time is that of the last sample *before* that
+        // time, hence an edge is seen one time unit after its transition...
+        final long start = edgeTime + 1;
 
-      // Sample parity bit (if available/desired).
-      if ( parity.isOdd() || parity.isEven() )
-      {
-        if ( extractor.value() == BitValue.MARK )
+        // Check length of the previous stop bit
+        if ( this.stopBitPending && ( this.endOfStopBit > start ) )
         {
-          marks++;
+          this.callback.onError( this.channelIndex, ErrorType.FRAME, this.stopBitTime );
         }
+        this.stopBitPending = false;
 
-        // Even parity means total number of marks (including the parity
-        // bit) should be even, odd means they should be odd.
-        if ( ( parity.isOdd() && ( marks % 2 == 0 ) ) || ( parity.isEven() && ( marks % 2 == 1 ) ) )
+        // Only decode complete frames...
+        if ( ( this.lastTimestamp - start ) <= this.frameSize )
         {
-          this.callback.onError( aChannelIndex, ErrorType.PARITY, extractor.time() );
+          if ( !this.ended )
+          {
+            return;
+          }
+          this.state = DecoderState.DONE;
+          continue;
         }
 
-        extractor.next();
+        jumpTo( start );
+        this.state = DecoderState.START_BIT;
       }
-
-      // Check value of stopbit
-      if ( ( extractor.level() != idleLevel ) && ( this.callback != null ) )
+      else if ( this.state == DecoderState.STOP_BIT )
       {
-        this.callback.onError( aChannelIndex, ErrorType.FRAME, extractor.time() );
-      }
+        if ( !isSeen( getHalfTime() - 1 ) )
+        {
+          return;
+        }
 
-      // Find start bit after the stop bit
-      start = findStartBit( aChannelIndex, idleLevel.nextEdge(), ( long )( extractor.time() + ( bitLength / 2 ) ),
-          endOfDecode );
+        // Check value of stopbit
+        if ( level() != idleLevel )
+        {
+          this.callback.onError( this.channelIndex, ErrorType.FRAME, time() );
+        }
 
-      // Check length of stopbit
-      final long endOfStopbit = extractor.time() + ( long )( stopBits.getValue() * bitLength );
-      if ( start >= 0 && ( endOfStopbit > start ) && ( this.callback != null ) )
-      {
-        this.callback.onError( aChannelIndex, ErrorType.FRAME, extractor.time() );
-      }
+        // Find start bit after the stop bit, and check the length of the stop
+        // bit once it is found...
+        this.searchFrom = ( long )( time() + ( this.bitLength / 2 ) );
+        this.stopBitPending = true;
+        this.stopBitTime = time();
+        this.endOfStopBit = time() + ( long )( this.configuration.getStopBits().getValue() * this.bitLength );
 
-      if ( start >= 0 )
+        this.state = DecoderState.START_EDGE;
+      }
+      else
       {
-        setProgress( getPercentage( start, startOfDecode, endOfDecode ) );
+        // Sampling a bit needs all samples up to the end of the window in
+        // which the next edge is expected...
+        if ( !isSeen( getNextEdgeWindowEnd() - 2 ) )
+        {
+          return;
+        }
+
+        if ( this.state == DecoderState.START_BIT )
+        {
+          if ( level() != idleLevel.invert() )
+          {
+            // this is not a start bit !
+            this.callback.onError( this.channelIndex, ErrorType.START, time() );
+          }
+          next();
+
+          // Keep track of where the symbol originally started;
+          this.symbolStartTime = time();
+          this.symbol = 0;
+          this.marks = 0;
+          this.bitIdx = 0;
+
+          this.state = DecoderState.DATA_BITS;
+        }
+        else if ( this.state == DecoderState.DATA_BITS )
+        {
+          if ( value() == BitValue.MARK )
+          {
+            this.symbol |= ( 1 << this.bitIdx );
+            this.marks++;
+          }
+          next();
+
+          if ( ++this.bitIdx == this.configuration.getDataBits() )
+          {
+            symbolDecoded();
+
+            this.state = parity.isNone() ? DecoderState.STOP_BIT : DecoderState.PARITY_BIT;
+          }
+        }
+        else if ( this.state == DecoderState.PARITY_BIT )
+        {
+          if ( value() == BitValue.MARK )
+          {
+            this.marks++;
+          }
+
+          // Even parity means total number of marks (including the parity
+          // bit) should be even, odd means they should be odd.
+          if ( ( parity.isOdd() && ( this.marks % 2 == 0 ) ) || ( parity.isEven() && ( this.marks % 2 == 1 ) ) )
+          {
+            this.callback.onError( this.channelIndex, ErrorType.PARITY, time() );
+          }
+          next();
+
+          this.state = DecoderState.STOP_BIT;
+        }
       }
     }
-
-    setProgress( 100 );
-
-    return extractor.averageBitLength();
   }
 
   /**
-   * Sets the decoder callback.
-   * 
-   * @param aCallback
-   *          the callback to set, can be <code>null</code> in case no callbacks
-   *          are needed.
+   * Drops all edges before the given timestamp.
    */
-  public void setCallback( final SerialDecoderCallback aCallback )
+  private void dropEdgesBefore( final long aTimestamp )
   {
-    this.callback = aCallback;
+    final int edge = findEdgeIndex( aTimestamp );
+    // Edges alternate, so the level only changes for an odd number of edges...
+    this.firstLevel ^= ( edge - this.firstEdge ) & 1;
+    this.firstEdge = edge;
   }
 
   /**
-   * Sets the progress listener.
+   * Finds an edge on or after the given timestamp, before the given end time.
    * 
-   * @param aProgressListener
-   *          the progress listener to set, can be <code>null</code> in case no
-   *          progress reporting is wanted.
+   * @return the time one unit after the found edge, or -1 if it is not found.
    */
-  public final void setProgressListener( final ToolProgressListener aProgressListener )
+  private long findEdge( final long aStartTime, final long aEndTime )
   {
-    this.progressListener = aProgressListener;
+    final int edge = findEdgeIndex( aStartTime );
+    if ( ( edge >= this.edgeCount ) || ( this.edges[edge] >= ( aEndTime - 1 ) ) )
+    {
+      return -1L;
+    }
+    return this.edges[edge] + 1L;
   }
 
   /**
-   * Finds a certain type of edge on a channel between the two given timestamps.
+   * Returns the index of the first edge on or after the given timestamp.
    * 
-   * @param aChannelIndex
-   *          the index of the channel to find the start bit on;
-   * @param aSampleEdge
-   *          the edge to find, Edge.NONE for any edge;
-   * @param aStartOfDecode
-   *          the timestamp to start searching;
-   * @param aEndOfDecode
-   *          the timestamp to end the search;
-   * @return the time at which the start bit was found, -1 if it is not found.
+   * @return an edge index, equal to the edge count if there is no such edge.
    */
-  protected final long findEdge( final int aChannelIndex, final Edge aSampleEdge, final long aStartOfDecode,
-      final long aEndOfDecode )
+  private int findEdgeIndex( final long aTimestamp )
   {
-    final int mask = ( 1 << aChannelIndex );
-    long result = -1;
-
-    int oldBitValue = getDataValue( aStartOfDecode, mask );
-    for ( long timeCursor = aStartOfDecode + 1; ( result < 0 ) && ( timeCursor < aEndOfDecode ); timeCursor++ )
+    int low = this.firstEdge;
+    int high = this.edgeCount;
+    while ( low < high )
     {
-      final int bitValue = getDataValue( timeCursor, mask );
-
-      Edge edge = Edge.toEdge( oldBitValue, bitValue );
-      if ( aSampleEdge.isNone() && !edge.isNone() )
+      final int mid = ( low + high ) >>> 1;
+      if ( this.edges[mid] < aTimestamp )
       {
-        /* No edge given, so any edge will do */
-        result = timeCursor;
+        low = mid + 1;
       }
-      else if ( !aSampleEdge.isNone() && ( aSampleEdge == edge ) )
+      else
       {
-        result = timeCursor;
+        high = mid;
       }
+    }
+    return low;
+  }
 
-      oldBitValue = bitValue;
+  /**
+   * Returns the index of the first edge of the given type, starting at the
+   * given edge index.
+   * 
+   * @return an edge index, or -1 if there is no such edge.
+   */
+  private int findEdgeIndex( final int aEdge, final Edge aType )
+  {
+    int edge = aEdge;
+    if ( ( edge < this.edgeCount ) && ( getLevelAfter( edge ) != ( aType.isRising() ? 1 : 0 ) ) )
+    {
+      // Edges alternate, so the next one is of the requested type...
+      edge++;
     }
+    return ( edge < this.edgeCount ) ? edge : -1;
+  }
 
-    return result;
+  /**
+   * Returns the timestamp at which the current bit is sampled.
+   */
+  private long getHalfTime()
+  {
+    return ( long )( this.time + ( this.bitLength / 2 ) );
   }
 
   /**
-   * Find first edge of the given type.
-   * 
-   * @param aChannelIndex
-   *          the index of the channel to find the start bit on;
-   * @param aEdge
-   *          the type of edge to look for;
-   * @param aStartOfDecode
-   *          the timestamp to start searching;
-   * @param aEndOfDecode
-   *          the timestamp to end the search;
-   * @return the time at which the start bit was found, -1 if it is not found.
+   * Returns the level of the line after the given edge.
    */
-  protected long findStartBit( final int aChannelIndex, final Edge aEdge, final long aStartOfDecode,
-      final long aEndOfDecode )
+  private int getLevelAfter( final int aEdge )
   {
-    return findEdge( aChannelIndex, aEdge, aStartOfDecode, aEndOfDecode );
+    return this.firstLevel ^ ( ( aEdge - this.firstEdge + 1 ) & 1 );
   }
 
   /**
-   * Sets the decoder helper.
-   * 
-   * @return a decoder helper, can be <code>null</code> if no such helper is
-   *         set.
+   * Returns the end of the window in which {@link #next()} looks for an edge.
    */
-  protected final SerialDecoderCallback getCallback()
+  private long getNextEdgeWindowEnd()
   {
-    return this.callback;
+    return ( long )( this.time + this.bitLength + this.bitLength * 0.25 + 1 );
   }
 
   /**
-   * Returns the data value for the given time stamp.
-   * 
-   * @param aTimeValue
-   *          the time stamp to return the data value for.
-   * @return the data value of the sample index right before the given time
-   *         value.
+   * Returns whether all samples up to and including the given timestamp are
+   * seen, meaning that no more edges can be found before it.
    */
-  protected final int getDataValue( final long aTimeValue, final int aMask )
+  private boolean isSeen( final long aTimestamp )
   {
-    final int[] values = this.dataSet.getValues();
-    final long[] timestamps = this.dataSet.getTimestamps();
-    int k = findSampleIndex( timestamps, aTimeValue );
+    return this.ended || ( this.lastTimestamp >= aTimestamp );
+  }
 
-    int value = ( ( k == 0 ) ? values[0] : values[k - 1] );
+  /**
+   * Jump to the bit starting at the given time (sample number).
+   */
+  private void jumpTo( final long aTime )
+  {
+    this.time = aTime;
+    // Assume we're jumping here because our caller found an edge.
+    this.lastEdge = aTime;
+    this.bitsSinceEdge = 0;
+  }
 
-    return value & aMask;
+  /**
+   * The level of the current bit (always the raw level, regardless of bit
+   * encoding settings).
+   */
+  private BitLevel level()
+  {
+    final int edge = findEdgeIndex( getHalfTime() ) - 1;
+    final int level = ( edge < this.firstEdge ) ? this.firstLevel : getLevelAfter( edge );
+    return ( level == 0 ? BitLevel.LOW : BitLevel.HIGH );
   }
 
   /**
-   * @param aProgress
+   * Skip over the current bit to the next one.
    */
-  protected final void setProgress( final int aProgress )
+  private void next()
   {
-    if ( this.progressListener != null )
+    this.time += this.bitLength;
+    this.bitsSinceEdge++;
+    final long start = ( long )( this.time - this.bitLength * 0.25 - 1 );
+    final long end = ( long )( this.time + this.bitLength * 0.25 + 1 );
+
+    // Find an edge in the area where we would expect one
+    final long edge = findEdge( start, end );
+    if ( edge >= 0 )
+    {
+      // Found an edge, skip to that timestamp instead.
+      this.time = edge;
+
+      // Add the bits since the last edge to the average
+      this.confirmedSamples += ( this.time - this.lastEdge );
+      this.confirmedBits += this.bitsSinceEdge;
+      // And reset the last edge
+      this.lastEdge = this.time;
+      this.bitsSinceEdge = 0;
+    }
+  }
+
+  /**
+   * Reports the symbol made up of the sampled data bits.
+   */
+  private void symbolDecoded()
+  {
+    final long endTime = time() - 1;
+
+    // If the most significant bit is first, we need to swap bit-order, as we
+    // normally represent the bits with the least significant bit first...
+    int symbol = this.symbol;
+    if ( this.configuration.getBitOrder() == BitOrder.MSB_FIRST )
+    {
+      symbol = reverseBits( symbol, this.configuration.getDataBits() );
+    }
+
+    // fully decoded a single symbol...
+    this.callback.onSymbol( this.channelIndex, symbol, this.symbolStartTime, endTime );
+  }
+
+  /**
+   * The sample time of the start of the current bit.
+   */
+  private long time()
+  {
+    return ( long )( this.time );
+  }
+
+  /**
+   * The value of the current bit (this is its meaning depending on the bit
+   * encoding, regardless of voltage levels).
+   */
+  private BitValue value()
+  {
+    if ( this.configuration.getBitEncoding() == BitEncoding.HIGH_IS_SPACE )
+    {
+      return ( level() == BitLevel.HIGH ? BitValue.SPACE : BitValue.MARK );
+    }
+    else
     {
-      this.progressListener.setProgress( aProgress );
+      return ( level() == BitLevel.HIGH ? BitValue.MARK : BitValue.SPACE );
     }
   }
 }
@@ -21,6 +21,7 @@
 package nl.lxtreme.ols.tool.uart;
 
 
+import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.util.analysis.*;
 
 
@@ -62,34 +63,35 @@ public final class BaudRateAnalyzer
    * 
    * @param aSampleRate
    *          the sample rate at which the incoming data was sampled;
-   * @param aValues
-   *          the values to determine the baudrate for;
-   * @param aTimestamps
-   *          the timestamps to use when determining the bit lengths;
+   * @param aData
+   *          the acquisition data to determine the baudrate for;
    * @param aMask
    *          the value mask to isolate the data.
    */
-  public BaudRateAnalyzer( final int aSampleRate, final int[] aValues, final long[] aTimestamps, final int aMask )
+  public BaudRateAnalyzer( final int aSampleRate, final AcquisitionResult aData, final int aMask )
   {
     this.sampleRate = aSampleRate;
     this.statData = new Frequency<Integer>();
 
+    final int sampleCount = aData.getSampleCount();
+
     long lastTransition = 0;
-    int lastBitValue = aValues[0] & aMask;
+    int lastBitValue = aData.getValue( 0 ) & aMask;
 
-    for ( int i = 0; i < aValues.length; i++ )
+    for ( int i = 0; i < sampleCount; i++ )
     {
-      final int bitValue = aValues[i] & aMask;
+      final int bitValue = aData.getValue( i ) & aMask;
 
       if ( lastBitValue != bitValue )
       {
-        final int bitLength = ( int )( aTimestamps[i] - lastTransition );
+        final long timestamp = aData.getTimestamp( i );
+        final int bitLength = ( int )( timestamp - lastTransition );
         this.statData.addValue( Integer.valueOf( bitLength ) );
 
-        lastTransition = aTimestamps[i];
+        lastTransition = timestamp;
       }
 
-      lastBitValue = aValues[i] & aMask;
+      lastBitValue = bitValue;
     }
   }
 
@@ -23,13 +23,17 @@ package nl.lxtreme.ols.tool.uart.impl;
 
 import static nl.lxtreme.ols.util.NumberUtils.*;
 
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.logging.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.tool.base.annotation.*;
+import nl.lxtreme.ols.tool.base.decoder.*;
 import nl.lxtreme.ols.tool.uart.*;
 import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.ErrorType;
 import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.Parity;
@@ -46,6 +50,162 @@ import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.StopBits;
  */
 public class UARTAnalyserTask implements ToolTask<UARTDataSet>
 {
+  // INNER TYPES
+
+  /**
+   * Decodes a single data or control line into its own data set, such that
+   * multiple lines can be decoded concurrently.
+   */
+  final class ChannelDecoder implements Callable<UARTDataSet>
+  {
+    // VARIABLES
+
+    private final UARTDataSet dataSet;
+    private final int channelIndex;
+    private final int eventType;
+    private final String label;
+    private final List<Annotation<?>> annotations;
+    private final ToolProgressListener progress;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link ChannelDecoder} instance.
+     * 
+     * @param aDataSet
+     *          the data set to add the decoded data to;
+     * @param aChannelIndex
+     *          the channel index of the line to decode;
+     * @param aEventType
+     *          the event type to use for the decoded data, or -1 to decode a
+     *          control line;
+     * @param aLabel
+     *          the default label to use for the decoded channel;
+     * @param aProgress
+     *          the progress listener to report progress to.
+     */
+    ChannelDecoder( final UARTDataSet aDataSet, final int aChannelIndex, final int aEventType, final String aLabel,
+        final ToolProgressListener aProgress )
+    {
+      this.dataSet = aDataSet;
+      this.channelIndex = aChannelIndex;
+      this.eventType = aEventType;
+      this.label = aLabel;
+      this.progress = aProgress;
+      this.annotations = new ArrayList<Annotation<?>>();
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public UARTDataSet call() throws Exception
+    {
+      if ( this.eventType < 0 )
+      {
+        decodeControl( this.dataSet, this.channelIndex, this.label, this.progress );
+      }
+      else
+      {
+        decodeData( this.dataSet, this.channelIndex, this.eventType, this.progress, this.annotations );
+      }
+      return this.dataSet;
+    }
+
+    /**
+     * Emits the label of the decoded line, adds its decoded annotations to the
+     * given batch, and merges its decoded data into the given data set.
+     * 
+     * @param aDataSet
+     *          the data set to merge the decoded data into;
+     * @param aAnnotations
+     *          the batch to add the decoded annotations to.
+     */
+    void merge( final UARTDataSet aDataSet, final AnnotationBatch aAnnotations )
+    {
+      prepareResult( this.channelIndex, this.label );
+      aAnnotations.addAll( this.annotations );
+
+      aDataSet.merge( this.dataSet );
+    }
+  }
+
+  /**
+   * Combines the progress of the concurrently decoded lines into a single
+   * progress.
+   */
+  static final class CombinedProgress
+  {
+    // VARIABLES
+
+    private final ToolProgressListener listener;
+    private final int[] progress;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link CombinedProgress} instance.
+     */
+    CombinedProgress( final ToolProgressListener aListener, final int aLineCount )
+    {
+      this.listener = aListener;
+      this.progress = new int[aLineCount];
+    }
+
+    // METHODS
+
+    /**
+     * Returns a progress listener for the line with the given index.
+     */
+    ToolProgressListener getListener( final int aLineIdx )
+    {
+      return new ToolProgressListener()
+      {
+        @Override
+        public void setProgress( final int aPercentage )
+        {
+          update( aLineIdx, aPercentage );
+        }
+      };
+    }
+
+    /**
+     * Updates the progress of a single line and reports the average progress
+     * if it changed.
+     */
+    void update( final int aLineIdx, final int aPercentage )
+    {
+      final int average;
+      synchronized ( this.progress )
+      {
+        final int oldSum = sum();
+        this.progress[aLineIdx] = aPercentage;
+        final int newSum = sum();
+        if ( ( oldSum / this.progress.length ) == ( newSum / this.progress.length ) )
+        {
+          return;
+        }
+        average = newSum / this.progress.length;
+      }
+      this.listener.setProgress( average );
+    }
+
+    /**
+     * Returns the sum of the progress of all lines.
+     */
+    private int sum()
+    {
+      int result = 0;
+      for ( int value : this.progress )
+      {
+        result += value;
+      }
+      return result;
+    }
+  }
+
   // CONSTANTS
 
   private static final Logger LOG = Logger.getLogger( UARTAnalyserTask.class.getName() );
@@ -77,6 +237,7 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
   private Parity parity;
   private int bitCount;
   private int baudRate;
+  private int maximumThreadCount;
 
   // CONSTRUCTORS
 
@@ -100,6 +261,7 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
     this.dsrIndex = -1;
     this.dtrIndex = -1;
     this.baudRate = -1;
+    this.maximumThreadCount = Runtime.getRuntime().availableProcessors();
   }
 
   // METHODS
@@ -114,24 +276,22 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
 
     /*
      * Start decode from trigger or if no trigger is available from the first
-     * falling edge. The decoder works with two independant decoder runs. First
-     * for RxD and then for TxD, after this CTS, RTS, etc. is detected if
-     * enabled. After decoding all the decoded data are unsortet before the data
-     * is displayed it must be sortet by time.
+     * falling edge. RxD, TxD, CTS, RTS, etc. are decoded by independant
+     * decoder runs, concurrently if possible, each into its own data set.
+     * After decoding, these data sets are merged, but as the decoded data is
+     * unsorted it must be sorted by time before it is displayed.
      */
 
-    final int[] values = data.getValues();
-
     int startOfDecode = this.context.getStartSampleIndex();
     final int endOfDecode = this.context.getEndSampleIndex();
 
     // find first state change on the selected lines
     final int mask = getBitMask();
 
-    final int value = values[startOfDecode] & mask;
+    final int value = data.getValue( startOfDecode ) & mask;
     for ( int i = startOfDecode + 1; i < endOfDecode; i++ )
     {
-      if ( value != ( values[i] & mask ) )
+      if ( value != ( data.getValue( i ) & mask ) )
       {
         startOfDecode = i;
         break;
@@ -149,41 +309,44 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
 
     final UARTDataSet decodedData = new UARTDataSet( startOfDecode, endOfDecode, data );
 
-    // decode RxD/TxD data lines...
-    if ( this.rxdIndex >= 0 )
-    {
-      prepareAndDecodeData( decodedData, this.rxdIndex, UARTData.UART_TYPE_RXDATA, UARTDataSet.UART_RXD );
-    }
-    if ( this.txdIndex >= 0 )
-    {
-      prepareAndDecodeData( decodedData, this.txdIndex, UARTData.UART_TYPE_TXDATA, UARTDataSet.UART_TXD );
-    }
+    final int[] indices = { this.rxdIndex, this.txdIndex, this.ctsIndex, this.rtsIndex, this.dcdIndex, this.riIndex,
+        this.dsrIndex, this.dtrIndex };
+    final int[] eventTypes = { UARTData.UART_TYPE_RXDATA, UARTData.UART_TYPE_TXDATA, -1, -1, -1, -1, -1, -1 };
+    final String[] labels = { UARTDataSet.UART_RXD, UARTDataSet.UART_TXD, UARTDataSet.UART_CTS,
+        UARTDataSet.UART_RTS, UARTDataSet.UART_DCD, UARTDataSet.UART_RI, UARTDataSet.UART_DSR, UARTDataSet.UART_DTR };
 
-    // decode control lines...
-    if ( this.ctsIndex >= 0 )
-    {
-      prepareAndDecodeControl( decodedData, this.ctsIndex, UARTDataSet.UART_CTS );
-    }
-    if ( this.rtsIndex >= 0 )
+    int lineCount = 0;
+    for ( int index : indices )
     {
-      prepareAndDecodeControl( decodedData, this.rtsIndex, UARTDataSet.UART_RTS );
-    }
-    if ( this.dcdIndex >= 0 )
-    {
-      prepareAndDecodeControl( decodedData, this.dcdIndex, UARTDataSet.UART_DCD );
-    }
-    if ( this.riIndex >= 0 )
-    {
-      prepareAndDecodeControl( decodedData, this.riIndex, UARTDataSet.UART_RI );
+      if ( index >= 0 )
+      {
+        lineCount++;
+      }
     }
-    if ( this.dsrIndex >= 0 )
+
+    // decode RxD/TxD data lines and control lines, each in their own data
+    // set...
+    final CombinedProgress progress = new CombinedProgress( this.progressListener, Math.max( 1, lineCount ) );
+    final List<ChannelDecoder> decoders = new ArrayList<ChannelDecoder>();
+    for ( int i = 0; i < indices.length; i++ )
     {
-      prepareAndDecodeControl( decodedData, this.dsrIndex, UARTDataSet.UART_DSR );
+      if ( indices[i] >= 0 )
+      {
+        decoders.add( new ChannelDecoder( new UARTDataSet( startOfDecode, endOfDecode, data ), indices[i],
+            eventTypes[i], labels[i], progress.getListener( decoders.size() ) ) );
+      }
     }
-    if ( this.dtrIndex >= 0 )
+
+    ConcurrentDecoding.invokeAll( decoders, this.maximumThreadCount );
+
+    // merge the results in the order the lines used to be decoded, and publish
+    // all annotations at once...
+    final AnnotationBatch annotations = new AnnotationBatch( this.annotationListener );
+    for ( ChannelDecoder decoder : decoders )
     {
-      prepareAndDecodeControl( decodedData, this.dtrIndex, UARTDataSet.UART_DTR );
+      decoder.merge( decodedData, annotations );
     }
+    annotations.commit();
 
     // sort the results by time
     decodedData.sort();
@@ -270,6 +433,18 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
     this.idleLevel = aIdleLevel;
   }
 
+  /**
+   * Sets the maximum number of threads used to decode the lines concurrently.
+   * 
+   * @param aMaximumThreadCount
+   *          the maximum number of threads, use 1 to decode all lines
+   *          sequentially on the calling thread.
+   */
+  public void setMaximumThreadCount( final int aMaximumThreadCount )
+  {
+    this.maximumThreadCount = aMaximumThreadCount;
+  }
+
   /**
    * @param aParity
    */
@@ -327,6 +502,8 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
    * 
    * @param aChannelIndex
    *          the channel index on which the symbol was found;
+   * @param aAnnotations
+   *          the annotations to add the symbol annotation to;
    * @param aSymbol
    *          the symbol itself;
    * @param aStartSampleIdx
@@ -334,10 +511,10 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
    * @param aEndSampleIdx
    *          the end sample index of the symbol.
    */
-  private void addSymbolAnnotation( final int aChannelIndex, final int aSymbol, final long aStartTimestamp,
-      final long aEndTimestamp )
+  private void addSymbolAnnotation( final List<Annotation<?>> aAnnotations, final int aChannelIndex,
+      final int aSymbol, final long aStartTimestamp, final long aEndTimestamp )
   {
-    this.annotationListener.onAnnotation( new SampleDataAnnotation( aChannelIndex, aStartTimestamp, aEndTimestamp,
+    aAnnotations.add( new SampleDataAnnotation( aChannelIndex, aStartTimestamp, aEndTimestamp,
         String.format( "0x%1$X (%1$c)", Integer.valueOf( aSymbol ) ) ) );
   }
 
@@ -349,9 +526,12 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
    * @param aChannelIndex
    *          the channel index of the control-line to decode;
    * @param aName
-   *          the name of the control line to decode.
+   *          the name of the control line to decode;
+   * @param aProgressListener
+   *          the progress listener to report progress to.
    */
-  private void decodeControl( final UARTDataSet aDataSet, final int aChannelIndex, final String aName )
+  private void decodeControl( final UARTDataSet aDataSet, final int aChannelIndex, final String aName,
+      final ToolProgressListener aProgressListener )
   {
     final AcquisitionResult data = this.context.getData();
 
@@ -365,13 +545,12 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
     final int startSampleIdx = aDataSet.getStartOfDecode();
     final int endSampleIdx = aDataSet.getEndOfDecode();
 
-    final int[] values = data.getValues();
-    this.progressListener.setProgress( 0 );
+    aProgressListener.setProgress( 0 );
 
-    int oldValue = values[startSampleIdx] & mask;
+    int oldValue = data.getValue( startSampleIdx ) & mask;
     for ( int i = startSampleIdx + 1; i < endSampleIdx; i++ )
     {
-      final int value = values[i] & mask;
+      final int value = data.getValue( i ) & mask;
 
       final Edge edge = Edge.toEdge( oldValue, value );
       if ( edge.isRising() )
@@ -385,7 +564,7 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
       oldValue = value;
 
       // update progress
-      this.progressListener.setProgress( getPercentage( i, startSampleIdx, endSampleIdx ) );
+      aProgressListener.setProgress( getPercentage( i, startSampleIdx, endSampleIdx ) );
     }
   }
 
@@ -395,9 +574,14 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
    * @param aChannelIndex
    *          the channel index to decode;
    * @param aType
-   *          type of the data (rx or tx)
+   *          type of the data (rx or tx);
+   * @param aProgressListener
+   *          the progress listener to report progress to;
+   * @param aAnnotations
+   *          the list to add the annotations of the decoded symbols to.
    */
-  private void decodeData( final UARTDataSet aDataSet, final int aChannelIndex, final int aEventType )
+  private void decodeData( final UARTDataSet aDataSet, final int aChannelIndex, final int aEventType,
+      final ToolProgressListener aProgressListener, final List<Annotation<?>> aAnnotations )
   {
     final AcquisitionResult data = this.context.getData();
 
@@ -407,7 +591,7 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
     {
       // Auto detect the baud rate...
       final int mask = ( 1 << aChannelIndex );
-      final BaudRateAnalyzer baudRateAnalyzer = new BaudRateAnalyzer( data.getSampleRate(), data.getValues(), data.getTimestamps(), mask );
+      final BaudRateAnalyzer baudRateAnalyzer = new BaudRateAnalyzer( data.getSampleRate(), data, mask );
       baudRate = baudRateAnalyzer.getBaudRateExact();
       // Set nominal (normalized) baud rate
       aDataSet.setBaudRate( baudRateAnalyzer.getBaudRate() );
@@ -430,9 +614,7 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
       SerialConfiguration config = new SerialConfiguration( baudRate, this.bitCount,
           this.stopBits, this.parity, this.bitEncoding, this.bitOrder, this.idleLevel );
 
-      AsyncSerialDataDecoder decoder = new AsyncSerialDataDecoder( config, this.context );
-      decoder.setProgressListener( this.progressListener );
-      decoder.setCallback( new SerialDecoderCallback()
+      final SerialDecoderCallback callback = new SerialDecoderCallback()
       {
         @Override
         public void onError( final int aChannelIdx, final ErrorType aType, final long aTime )
@@ -454,15 +636,24 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
         public void onSymbol( final int aChannelIdx, final int aSymbol, final long aStartTime, final long aEndTime )
         {
           final int startSampleIdx = Math.max( data.getSampleIndex( aStartTime ), 0 );
-          final int endSampleIdx = Math.min( data.getSampleIndex( aEndTime ), data.getTimestamps().length - 1 );
+          final int endSampleIdx = Math.min( data.getSampleIndex( aEndTime ), data.getSampleCount() - 1 );
 
           aDataSet.reportData( aChannelIndex, startSampleIdx, endSampleIdx, aSymbol, aEventType );
 
-          addSymbolAnnotation( aChannelIndex, aSymbol, aStartTime, aEndTime );
+          addSymbolAnnotation( aAnnotations, aChannelIndex, aSymbol, aStartTime, aEndTime );
         }
-      } );
+      };
+
+      final AsyncSerialDataDecoder decoder = new AsyncSerialDataDecoder( config, aChannelIndex,
+          data.getSampleRate(), callback );
+
+      // The sample before the decoded range provides the initial level, such
+      // that a start bit on the first sample of the range is seen...
+      final int startSampleIdx = Math.max( 0, this.context.getStartSampleIndex() - 1 );
+      DecoderPipeline.replay( data, startSampleIdx, this.context.getEndSampleIndex() + 1, aProgressListener,
+          decoder );
 
-      final double sampledBitLength = decoder.decodeDataLine( aChannelIndex );
+      final double sampledBitLength = decoder.getAverageBitLength();
       // Set the actual bit length used, so UARTDataSet can calculate
       // the actual baud rate used.
       aDataSet.setSampledBitLength( sampledBitLength );
@@ -529,41 +720,6 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
     return result;
   }
 
-  /**
-   * Prepares and decoded the control line indicated by the given channel index.
-   * 
-   * @param aDataSet
-   *          the dataset to add the decoding results to;
-   * @param aChannelIndex
-   *          the channel index of the channel to decode;
-   * @param aDefaultLabel
-   *          the default label to use for the decoded channel.
-   */
-  private void prepareAndDecodeControl( final UARTDataSet aDataSet, final int aChannelIndex, final String aDefaultLabel )
-  {
-    prepareResult( aChannelIndex, aDefaultLabel );
-    decodeControl( aDataSet, aChannelIndex, aDefaultLabel );
-  }
-
-  /**
-   * Prepares and decoded the data line indicated by the given channel index.
-   * 
-   * @param aDataSet
-   *          the dataset to add the decoding results to;
-   * @param aChannelIndex
-   *          the channel index of the channel to decode;
-   * @param aEventType
-   *          the event type to use for the decoded data;
-   * @param aDefaultLabel
-   *          the default label to use for the decoded channel.
-   */
-  private void prepareAndDecodeData( final UARTDataSet aDataSet, final int aChannelIndex, final int aEventType,
-      final String aDefaultLabel )
-  {
-    prepareResult( aChannelIndex, aDefaultLabel );
-    decodeData( aDataSet, aChannelIndex, aEventType );
-  }
-
   /**
    * Determines the resulting channel label and clears any existing annotations.
    * 
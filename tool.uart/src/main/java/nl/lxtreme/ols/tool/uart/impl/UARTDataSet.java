@@ -132,6 +132,33 @@ public final class UARTDataSet extends BaseDataSet<UARTData>
     return getBitLength() > 15;
   }
 
+  /**
+   * Merges the given data set, holding the decoded data of a single channel,
+   * into this data set, as if its data was reported to this data set directly.
+   * 
+   * @param aDataSet
+   *          the data set to merge, cannot be <code>null</code>.
+   */
+  public void merge( final UARTDataSet aDataSet )
+  {
+    for ( UARTData data : aDataSet.getData() )
+    {
+      addData( new UARTData( size(), data ) );
+    }
+
+    this.decodedSymbols += aDataSet.decodedSymbols;
+    this.detectedErrors += aDataSet.detectedErrors;
+
+    if ( aDataSet.baudRate != 0 )
+    {
+      this.baudRate = aDataSet.baudRate;
+    }
+    if ( aDataSet.bitLength != -1 )
+    {
+      setSampledBitLength( aDataSet.bitLength );
+    }
+  }
+
   /**
    * @param aTime
    * @param aName
@@ -69,6 +69,122 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
 {
   // INNER TYPES
 
+  /**
+   * Provides the table model for the decoded UART data.
+   */
+  final class UARTDataTableModel extends DataSetTableModel<UARTData>
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    // VARIABLES
+
+    private volatile int bitCount = 8;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new UARTDataTableModel instance.
+     */
+    public UARTDataTableModel()
+    {
+      super( "Index", "Time", "RxD Hex", "RxD Bin", "RxD Dec", "RxD ASCII", "TxD Hex", "TxD Bin", "TxD Dec",
+          "TxD ASCII" );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Color getRowBackground( final int aRow )
+    {
+      final UARTData data = getRowData( aRow );
+      if ( !data.isEvent() )
+      {
+        return null;
+      }
+
+      if ( data.getEventName().endsWith( "_ERR" ) )
+      {
+        return ERROR_EVENT_COLOR;
+      }
+
+      final int type = data.getType();
+      if ( UARTData.UART_TYPE_EVENT == type )
+      {
+        return EVENT_COLOR;
+      }
+      else if ( ( UARTData.UART_TYPE_RXEVENT == type ) || ( UARTData.UART_TYPE_TXEVENT == type ) )
+      {
+        return RXTX_EVENT_COLOR;
+      }
+      // unknown event
+      return ERROR_EVENT_COLOR;
+    }
+
+    /**
+     * Sets the number of data bits of the decoded symbols.
+     *
+     * @param aBitCount
+     *          the number of data bits, &gt; 0.
+     */
+    public void setBitCount( final int aBitCount )
+    {
+      this.bitCount = aBitCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object getValueAt( final int aRow, final UARTData aData, final int aColumn )
+    {
+      if ( aColumn == 0 )
+      {
+        return Integer.valueOf( aRow );
+      }
+      else if ( aColumn == 1 )
+      {
+        return getRowTime( aRow );
+      }
+
+      final int type = aData.getType();
+      // Columns 2..5 show the RxD side, columns 6..9 the TxD side...
+      final boolean rxColumn = ( aColumn < 6 );
+      if ( aData.isEvent() )
+      {
+        if ( ( UARTData.UART_TYPE_EVENT == type ) || ( rxColumn && ( UARTData.UART_TYPE_RXEVENT == type ) )
+            || ( !rxColumn && ( UARTData.UART_TYPE_TXEVENT == type ) ) )
+        {
+          return ( ( aColumn == 2 ) || ( aColumn == 6 ) ) ? aData.getEventName() : null;
+        }
+        return null;
+      }
+
+      if ( rxColumn != ( UARTData.UART_TYPE_RXDATA == type ) )
+      {
+        return null;
+      }
+
+      final int value = aData.getData();
+      final int bits = this.bitCount;
+      switch ( ( aColumn - 2 ) % 4 )
+      {
+        case 0:
+          return "0x" + integerToHexString( value, ( bits / 4 ) + ( ( ( bits % 4 ) != 0 ) ? 1 : 0 ) );
+        case 1:
+          return "0b" + integerToBinString( value, bits );
+        case 2:
+          return Integer.valueOf( value );
+        default:
+          return toASCII( value );
+      }
+    }
+  }
+
   /**
    * Provides a combobox renderer for {@link UARTParity} values.
    */
@@ -233,6 +349,10 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
 
   private static final Logger LOG = Logger.getLogger( UARTProtocolAnalysisDialog.class.getName() );
 
+  private static final Color EVENT_COLOR = new Color( 0xe0, 0xe0, 0xe0 );
+  private static final Color RXTX_EVENT_COLOR = new Color( 0xc0, 0xff, 0xc0 );
+  private static final Color ERROR_EVENT_COLOR = new Color( 0xff, 0x80, 0x00 );
+
   // VARIABLES
 
   private JComboBox rxd;
@@ -251,7 +371,8 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
   private JComboBox idleLevel;
   private JCheckBox autoDetectBaudRate;
   private JComboBox baudrate;
-  private JEditorPane outText;
+  private UARTDataTableModel dataModel;
+  private JLabel statistics;
 
   private RestorableAction runAnalysisAction;
   private Action closeAction;
@@ -332,8 +453,8 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
   @Override
   public void reset()
   {
-    this.outText.setText( getEmptyHtmlPage() );
-    this.outText.setEditable( false );
+    this.dataModel.setDataSet( null );
+    this.statistics.setText( getStatistics( null ) );
 
     this.runAnalysisAction.restore();
 
@@ -372,32 +493,11 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
   @Override
   protected void onToolEnded( final UARTDataSet aAnalysisResult )
   {
-    try
-    {
-      final String htmlPage;
-      if ( aAnalysisResult != null )
-      {
-        htmlPage = toHtmlPage( null /* aFile */, aAnalysisResult );
-      }
-      else
-      {
-        htmlPage = getEmptyHtmlPage();
-      }
+    this.dataModel.setBitCount( Integer.parseInt( ( String )this.bits.getSelectedItem() ) );
+    this.dataModel.setDataSet( aAnalysisResult );
+    this.statistics.setText( getStatistics( aAnalysisResult ) );
 
-      this.outText.setText( htmlPage );
-      this.outText.setEditable( false );
-
-      this.runAnalysisAction.restore();
-    }
-    catch ( final IOException exception )
-    {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        // Should not happen in this situation!
-        throw new RuntimeException( exception );
-      }
-    }
+    this.runAnalysisAction.restore();
   }
 
   /**
@@ -552,12 +652,12 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
    */
   private JPanel createPreviewPane()
   {
-    final JPanel panTable = new JPanel( new GridLayout( 1, 1, 0, 0 ) );
-
-    this.outText = new JEditorPane( "text/html", getEmptyHtmlPage() );
-    this.outText.setEditable( false );
+    this.dataModel = new UARTDataTableModel();
+    this.statistics = new JLabel( getStatistics( null ) );
 
-    panTable.add( new JScrollPane( this.outText ) );
+    final JPanel panTable = new JPanel( new BorderLayout( 0, 4 ) );
+    panTable.add( this.statistics, BorderLayout.NORTH );
+    panTable.add( ToolUtils.createDataSetTablePane( new DataSetTable( this.dataModel ) ), BorderLayout.CENTER );
 
     return panTable;
   }
@@ -679,37 +779,31 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
   }
 
   /**
-   * generate a HTML page
+   * Returns a summary of the given analysis results.
    *
-   * @param empty
-   *          if this is true an empty output is generated
-   * @return String with HTML data
+   * @param aDataSet
+   *          the analysis results to summarize, can be <code>null</code>.
+   * @return a summary, never <code>null</code>.
    */
-  private String getEmptyHtmlPage()
+  private String getStatistics( final UARTDataSet aDataSet )
   {
-    final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-    return exporter.toString( new MacroResolver()
+    if ( aDataSet == null )
     {
-      @Override
-      public Object resolve( final String aMacro, final Element aParent )
-      {
-        if ( "date-now".equals( aMacro ) )
-        {
-          final DateFormat df = DateFormat.getDateInstance( DateFormat.LONG );
-          return df.format( new Date() );
-        }
-        else if ( "decoded-bytes".equals( aMacro ) || "detected-bus-errors".equals( aMacro )
-            || "baudrate".equals( aMacro ) )
-        {
-          return "-";
-        }
-        else if ( "decoded-data".equals( aMacro ) )
-        {
-          return null;
-        }
-        return null;
-      }
-    } );
+      return "Decoded bytes: -, detected bus errors: -, baudrate: -";
+    }
+
+    final String baudrate;
+    if ( aDataSet.getBaudRate() <= 0 )
+    {
+      baudrate = "calculation failed!";
+    }
+    else
+    {
+      baudrate = String.format( "%d (exact: %d)%s", Integer.valueOf( aDataSet.getBaudRate() ),
+          Integer.valueOf( aDataSet.getBaudRateExact() ), aDataSet.isBitLengthUsable() ? "" : ", may be wrong!" );
+    }
+    return String.format( "Decoded bytes: %d, detected bus errors: %d, baudrate: %s",
+        Integer.valueOf( aDataSet.getDecodedSymbols() ), Integer.valueOf( aDataSet.getDetectedErrors() ), baudrate );
   }
 
   /**
@@ -837,13 +931,14 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
   }
 
   /**
-   * generate a HTML page
+   * Writes the given analysis results as HTML page to the given file.
    *
-   * @param empty
-   *          if this is true an empty output is generated
-   * @return String with HTML data
+   * @param aFile
+   *          the file to write to, cannot be <code>null</code>;
+   * @param aDataSet
+   *          the analysis results to write, cannot be <code>null</code>.
    */
-  private String toHtmlPage( final File aFile, final UARTDataSet aDataSet ) throws IOException
+  private void toHtmlPage( final File aFile, final UARTDataSet aDataSet ) throws IOException
   {
     final int bitCount = Integer.parseInt( ( String )this.bits.getSelectedItem() );
     final int bitAdder = ( ( bitCount % 4 ) != 0 ) ? 1 : 0;
@@ -983,18 +1078,8 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
       }
     };
 
-    if ( aFile == null )
-    {
-      final HtmlExporter exporter = createHtmlTemplate( ExportUtils.createHtmlExporter() );
-      return exporter.toString( macroResolver );
-    }
-    else
-    {
-      final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
-      exporter.write( macroResolver );
-      exporter.close();
-    }
-
-    return null;
+    final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
+    exporter.write( macroResolver );
+    exporter.close();
   }
 }
@@ -0,0 +1,292 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.uart;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.tool.base.decoder.*;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitEncoding;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitLevel;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitOrder;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.ErrorType;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.Parity;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.SerialConfiguration;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.SerialDecoderCallback;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.StopBits;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link AsyncSerialDataDecoder}, fed with samples chunk by
+ * chunk.
+ */
+public class AsyncSerialDataDecoderTest
+{
+  // INNER TYPES
+
+  /**
+   * Records all decoded symbols and errors as strings.
+   */
+  static final class RecordingCallback implements SerialDecoderCallback
+  {
+    // VARIABLES
+
+    final List<String> events = new ArrayList<String>();
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onError( final int aChannelIdx, final ErrorType aType, final long aTime )
+    {
+      this.events.add( aType + " @ " + aTime );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onEvent( final int aChannelIdx, final String aEvent, final long aStartTime, final long aEndTime )
+    {
+      this.events.add( aEvent + " @ " + aStartTime + ".." + aEndTime );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onSymbol( final int aChannelIdx, final int aSymbol, final long aStartTime, final long aEndTime )
+    {
+      this.events.add( String.format( "0x%X @ %d..%d", Integer.valueOf( aSymbol ), Long.valueOf( aStartTime ),
+          Long.valueOf( aEndTime ) ) );
+    }
+  }
+
+  // CONSTANTS
+
+  private static final int RXD = 0;
+
+  /** 100000 baud at 1MHz, hence 10 samples per bit. */
+  private static final int SAMPLE_RATE = 1000000;
+  private static final int BAUD_RATE = 100000;
+  private static final int BIT_LENGTH = 10;
+
+  /** The time between the start bits of two symbols. */
+  private static final int SYMBOL_TIME = 15 * BIT_LENGTH;
+  /** A transmitter 20% slower than the decoder expects. */
+  private static final int SLOW_BIT_LENGTH = 12;
+  private static final int FIRST_SYMBOL = 20;
+
+  private static final int[] SYMBOLS = { 0x55, 0x00, 0xFF, 0x41, 0x8E };
+
+  // VARIABLES
+
+  private List<Integer> values;
+  private List<Long> timestamps;
+
+  // METHODS
+
+  /**
+   * Creates an idle RxD line.
+   */
+  @Before
+  public void setUp()
+  {
+    this.values = new ArrayList<Integer>();
+    this.timestamps = new ArrayList<Long>();
+
+    addSample( 0L, 1 );
+  }
+
+  /**
+   * Tests that decoding the samples in chunks of different sizes, including
+   * chunks of a single sample, yields the same results.
+   */
+  @Test
+  public void testDecodeChunkByChunkOk()
+  {
+    addSymbols( SYMBOLS );
+
+    assertDecodedChunkByChunk();
+  }
+
+  /**
+   * Tests that decoding the samples of a slow transmitter in chunks of
+   * different sizes yields the same results, as the bits are sampled relative
+   * to their edges, and hence after the end of the frame the decoder expects.
+   */
+  @Test
+  public void testDecodeSlowTransmitterChunkByChunkOk()
+  {
+    for ( int i = 0; i < SYMBOLS.length; i++ )
+    {
+      addSymbol( FIRST_SYMBOL + ( i * SYMBOL_TIME ), SYMBOLS[i], 1, SLOW_BIT_LENGTH );
+    }
+    addEnd( FIRST_SYMBOL + ( SYMBOLS.length * SYMBOL_TIME ) );
+
+    // as all bits of 0x55 have an edge, the decoder follows the transmitter...
+    final List<String> events = assertDecodedChunkByChunk();
+    assertEquals( "0x55 @ " + ( FIRST_SYMBOL + SLOW_BIT_LENGTH + 1 ) + ".." + ( FIRST_SYMBOL + 9 * SLOW_BIT_LENGTH ),
+        events.get( 0 ) );
+  }
+
+  /**
+   * Tests that a stop bit with the wrong level is reported as frame error,
+   * after which decoding continues with the next symbol.
+   */
+  @Test
+  public void testDecodeFrameErrorOk()
+  {
+    addSymbol( FIRST_SYMBOL, 0x00, 0, BIT_LENGTH );
+    addSymbol( FIRST_SYMBOL + SYMBOL_TIME, 0x41, 1, BIT_LENGTH );
+    addEnd( FIRST_SYMBOL + ( 2 * SYMBOL_TIME ) );
+
+    final List<String> events = decode( 3 );
+
+    assertEquals( Arrays.asList( getExpectedSymbol( 0, 0x00 ), "FRAME @ " + ( FIRST_SYMBOL + 91 ),
+        getExpectedSymbol( 1, 0x41 ) ), events );
+  }
+
+  /**
+   * Tests that all symbols are decoded, with their timestamps.
+   */
+  @Test
+  public void testDecodeSymbolsOk()
+  {
+    addSymbols( SYMBOLS );
+
+    final List<String> events = decode( 5 );
+
+    assertEquals( SYMBOLS.length, events.size() );
+    for ( int i = 0; i < SYMBOLS.length; i++ )
+    {
+      assertEquals( getExpectedSymbol( i, SYMBOLS[i] ), events.get( i ) );
+    }
+  }
+
+  /**
+   * Asserts that decoding the samples in chunks of different sizes, including
+   * chunks of a single sample, yields the same results.
+   * 
+   * @return the decoded events.
+   */
+  private List<String> assertDecodedChunkByChunk()
+  {
+    final List<String> expected = decode( 1024 );
+    for ( int chunkSize : new int[] { 1, 2, 3, 7, 16 } )
+    {
+      assertEquals( "Chunk size: " + chunkSize, expected, decode( chunkSize ) );
+    }
+    return expected;
+  }
+
+  /**
+   * Returns the expected string of the symbol with the given index: the first
+   * data bit is seen one time unit after its transition, the last data bit
+   * ends directly before the stop bit is seen.
+   */
+  private static String getExpectedSymbol( final int aIndex, final int aSymbol )
+  {
+    final long startBit = FIRST_SYMBOL + ( aIndex * SYMBOL_TIME );
+    return String.format( "0x%X @ %d..%d", Integer.valueOf( aSymbol ), Long.valueOf( startBit + BIT_LENGTH + 1 ),
+        Long.valueOf( startBit + 9 * BIT_LENGTH ) );
+  }
+
+  /**
+   * Adds the last sample, denoting the end of the idle time after the last
+   * symbol.
+   */
+  private void addEnd( final long aTimestamp )
+  {
+    this.values.add( Integer.valueOf( 1 << RXD ) );
+    this.timestamps.add( Long.valueOf( aTimestamp ) );
+  }
+
+  /**
+   * Adds a sample to the RxD line, if it changes its level.
+   */
+  private void addSample( final long aTimestamp, final int aLevel )
+  {
+    final int value = aLevel << RXD;
+    if ( this.values.isEmpty() || ( this.values.get( this.values.size() - 1 ).intValue() != value ) )
+    {
+      this.values.add( Integer.valueOf( value ) );
+      this.timestamps.add( Long.valueOf( aTimestamp ) );
+    }
+  }
+
+  /**
+   * Adds a single 8-bit symbol, sent LSB first, with the given stop bit level
+   * and bit length, after which the RxD line returns to idle.
+   */
+  private void addSymbol( final long aTimestamp, final int aSymbol, final int aStopLevel, final int aBitLength )
+  {
+    long time = aTimestamp;
+    addSample( time, 0 );
+    for ( int bit = 0; bit < 8; bit++ )
+    {
+      time += aBitLength;
+      addSample( time, ( aSymbol >> bit ) & 1 );
+    }
+    time += aBitLength;
+    addSample( time, aStopLevel );
+    time += aBitLength;
+    addSample( time, 1 );
+  }
+
+  /**
+   * Adds all given symbols, followed by an idle RxD line.
+   */
+  private void addSymbols( final int... aSymbols )
+  {
+    for ( int i = 0; i < aSymbols.length; i++ )
+    {
+      addSymbol( FIRST_SYMBOL + ( i * SYMBOL_TIME ), aSymbols[i], 1, BIT_LENGTH );
+    }
+    addEnd( FIRST_SYMBOL + ( aSymbols.length * SYMBOL_TIME ) );
+  }
+
+  /**
+   * Decodes all samples as 8N1 in chunks of the given size.
+   */
+  private List<String> decode( final int aChunkSize )
+  {
+    final SerialConfiguration config = new SerialConfiguration( BAUD_RATE, 8, StopBits.ONE, Parity.NONE,
+        BitEncoding.HIGH_IS_MARK, BitOrder.LSB_FIRST, BitLevel.HIGH );
+    final RecordingCallback callback = new RecordingCallback();
+
+    final DecoderPipeline pipeline = new DecoderPipeline( aChunkSize, new AsyncSerialDataDecoder( config, RXD,
+        SAMPLE_RATE, callback ) );
+    pipeline.begin( 0, this.values.get( 0 ).intValue(), this.timestamps.get( 0 ).longValue() );
+    for ( int i = 1; i < this.values.size(); i++ )
+    {
+      pipeline.add( this.values.get( i ).intValue(), this.timestamps.get( i ).longValue() );
+    }
+    pipeline.end();
+
+    return callback.events;
+  }
+}
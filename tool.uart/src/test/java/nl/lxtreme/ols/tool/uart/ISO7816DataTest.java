@@ -32,7 +32,6 @@ import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.test.*;
 import nl.lxtreme.ols.test.data.*;
 import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.Parity;
-import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.SerialDecoderCallback;
 import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.StopBits;
 import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitOrder;
 import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitEncoding;
@@ -102,9 +101,7 @@ public class ISO7816DataTest
   }
 
   /**
-   * Test method for
-   * {@link nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder#decodeDataLine(AcquisitionResult, int, SerialDecoderCallback)}
-   * .
+   * Test method for {@link AsyncSerialDataDecoder}.
    */
   @Test
   public void testDirectConventionOk() throws Exception
@@ -119,9 +116,7 @@ public class ISO7816DataTest
   }
 
   /**
-   * Test method for
-   * {@link nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder#decodeDataLine(AcquisitionResult, int, SerialDecoderCallback)}
-   * .
+   * Test method for {@link AsyncSerialDataDecoder}.
    */
   @Test
   public void testInverseConventionOk() throws Exception
@@ -105,23 +105,46 @@ public class UARTAnalyserWorkerDataFilesTest
   @Test
   public void testUartAnalysisOk() throws Exception
   {
-    UARTDataSet result = analyseDataFile( this.resourceName );
+    UARTDataSet result = analyseDataFile( this.resourceName, -1, Integer.MAX_VALUE );
     assertEquals( this.expectedErrorCount, result.getDetectedErrors() );
     assertEquals( this.expectedSymbolCount, result.getDecodedSymbols() );
     assertEquals( this.expectedBaudrate, result.getBaudRate() );
   }
 
+  /**
+   * Tests that decoding the data and control lines concurrently yields the
+   * same results, in the same order, as decoding them one after another.
+   */
+  @Test
+  public void testUartConcurrentAnalysisOk() throws Exception
+  {
+    // decode the RxD line a second time as control line, to have at least two
+    // lines, with coinciding events, to decode...
+    UARTDataSet expected = analyseDataFile( this.resourceName, this.channels[0], 1 );
+    UARTDataSet result = analyseDataFile( this.resourceName, this.channels[0], 4 );
+
+    assertEquals( expected.getDetectedErrors(), result.getDetectedErrors() );
+    assertEquals( expected.getDecodedSymbols(), result.getDecodedSymbols() );
+    assertEquals( expected.getBaudRate(), result.getBaudRate() );
+    assertEquals( expected.getData(), result.getData() );
+  }
+
   /**
    * Analyses the data file identified by the given resource name.
    * 
    * @param aResourceName
    *          the name of the resource (= data file) to analyse, cannot be
-   *          <code>null</code>.
+   *          <code>null</code>;
+   * @param aCtsIndex
+   *          the channel index of the CTS-line, or -1 to not decode it;
+   * @param aMaximumThreadCount
+   *          the maximum number of threads to decode the lines with.
    * @return the analysis results, never <code>null</code>.
    * @throws Exception
    *           in case of exceptions.
    */
-  private UARTDataSet analyseDataFile( final String aResourceName ) throws Exception
+  private UARTDataSet analyseDataFile( final String aResourceName, final int aCtsIndex,
+      final int aMaximumThreadCount ) throws Exception
   {
     URL resource = ResourceUtils.getResource( getClass(), aResourceName );
     AcquisitionResult container = DataTestUtils.getCapturedData( resource );
@@ -137,6 +160,8 @@ public class UARTAnalyserWorkerDataFilesTest
     worker.setBaudRate( this.baudrate );
     worker.setRxdIndex( this.channels[0] );
     worker.setTxdIndex( this.channels[1] );
+    worker.setCtsIndex( aCtsIndex );
+    worker.setMaximumThreadCount( aMaximumThreadCount );
     worker.setBitOrder( BitOrder.LSB_FIRST );
     worker.setBitEncoding( BitEncoding.HIGH_IS_MARK );
     worker.setIdleLevel( BitLevel.HIGH );
@@ -211,6 +211,24 @@ public final class ExportUtils
        *         <code>null</code>.
        */
       String toString( final MacroResolver aResolver );
+
+      /**
+       * Writes this HTML-element directly to the given writer.
+       * <p>
+       * Unlike {@link #toString(MacroResolver)}, the children a macro resolver
+       * adds to its parent are written as soon as the next one is added,
+       * instead of being kept in memory. They are written in place of the
+       * macro, after which the children are discarded.
+       * </p>
+       * 
+       * @param aWriter
+       *          the writer to write to, cannot be <code>null</code>;
+       * @param aResolver
+       *          the macro resolver to use for any found macros.
+       * @throws IOException
+       *           in case of I/O problems.
+       */
+      void write( final Writer aWriter, final MacroResolver aResolver ) throws IOException;
     }
 
     /**
@@ -296,6 +314,20 @@ public final class ExportUtils
      * @return the string representation of the HTML structure.
      */
     String toString( final MacroResolver aResolver );
+
+    /**
+     * Writes the HTML-structure directly to the given writer, with all macro's
+     * resolved.
+     * 
+     * @param aWriter
+     *          the writer to write to, cannot be <code>null</code>;
+     * @param aResolver
+     *          the macro resolver to use, cannot be <code>null</code>.
+     * @throws IOException
+     *           in case of I/O problems.
+     * @see Element#write(Writer, MacroResolver)
+     */
+    void write( final Writer aWriter, final MacroResolver aResolver ) throws IOException;
   }
 
   /**
@@ -308,6 +340,10 @@ public final class ExportUtils
     /**
      * Writes the HTML export to file using the given macro resolver to resolve
      * any macros.
+     * <p>
+     * The rows a macro resolver adds are streamed to the file while they are
+     * added, so the memory used does not depend on the number of rows.
+     * </p>
      * 
      * @param aResolver
      *          the macro resolver to use, cannot be <code>null</code>.
@@ -355,6 +391,23 @@ public final class ExportUtils
     return new CsvExporterImpl( aFile );
   }
 
+  /**
+   * Creates a CSV exporter for the given writer.
+   * 
+   * @param aWriter
+   *          the writer to export to, cannot be <code>null</code>. Closing the
+   *          exporter closes this writer as well.
+   * @return a CSV exporter, never <code>null</code>.
+   */
+  public static CsvExporter createCsvExporter( final Writer aWriter )
+  {
+    if ( aWriter == null )
+    {
+      throw new IllegalArgumentException( "Writer cannot be null!" );
+    }
+    return new CsvExporterImpl( aWriter, ',' );
+  }
+
   /**
    * Creates a HTML exporter.
    * 
@@ -382,4 +435,21 @@ public final class ExportUtils
     }
     return new HtmlFileExporterImpl( aFile );
   }
+
+  /**
+   * Creates a HTML exporter for the given writer.
+   * 
+   * @param aWriter
+   *          the writer to export to, cannot be <code>null</code>. Closing the
+   *          exporter closes this writer as well.
+   * @return a HTML exporter, never <code>null</code>.
+   */
+  public static HtmlFileExporter createHtmlExporter( final Writer aWriter )
+  {
+    if ( aWriter == null )
+    {
+      throw new IllegalArgumentException( "Writer cannot be null!" );
+    }
+    return new HtmlFileExporterImpl( aWriter );
+  }
 }
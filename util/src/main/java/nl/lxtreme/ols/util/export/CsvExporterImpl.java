@@ -36,11 +36,16 @@ public class CsvExporterImpl implements CsvExporter
 
   private static final Logger LOG = Logger.getAnonymousLogger();
 
+  private static final String LINE_SEPARATOR = System.getProperty( "line.separator" );
+
+  /** The size of the write buffer, in characters. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
   // VARIABLES
 
   private final char delimiter;
 
-  private BufferedWriter writer;
+  private Writer writer;
   private int headerCount = -1;
 
   // CONSTRUCTORS
@@ -70,7 +75,21 @@ public class CsvExporterImpl implements CsvExporter
    */
   public CsvExporterImpl( final File aFile, final char aDelimiter ) throws IOException
   {
-    this.writer = new BufferedWriter( new FileWriter( aFile ) );
+    this( new BufferedWriter( new FileWriter( aFile ), BUFFER_SIZE ), aDelimiter );
+  }
+
+  /**
+   * Creates a new {@link CsvExporterImpl} instance.
+   * 
+   * @param aWriter
+   *          the writer to export to, cannot be <code>null</code>. Wrap it in a
+   *          {@link BufferedWriter} when writing many rows;
+   * @param aDelimiter
+   *          the CSV delimiter to use.
+   */
+  public CsvExporterImpl( final Writer aWriter, final char aDelimiter )
+  {
+    this.writer = aWriter;
     this.delimiter = aDelimiter;
   }
 
@@ -95,14 +114,14 @@ public class CsvExporterImpl implements CsvExporter
     {
       final Object value = i < aValues.length ? aValues[i] : null;
 
-      this.writer.append( quote( value ) );
+      writeQuoted( value );
 
       if ( i < length - 1 )
       {
-        this.writer.append( this.delimiter );
+        this.writer.write( this.delimiter );
       }
     }
-    this.writer.newLine();
+    this.writer.write( LINE_SEPARATOR );
   }
 
   /**
@@ -131,44 +150,38 @@ public class CsvExporterImpl implements CsvExporter
     this.headerCount = aHeaders.length;
     for ( int i = 0; i < aHeaders.length; i++ )
     {
-      this.writer.append( quote( aHeaders[i] ) );
+      writeQuoted( aHeaders[i] );
       if ( i < aHeaders.length - 1 )
       {
-        this.writer.append( this.delimiter );
+        this.writer.write( this.delimiter );
       }
     }
-    this.writer.newLine();
+    this.writer.write( LINE_SEPARATOR );
   }
 
   /**
+   * Writes the given value as quoted cell.
+   * 
    * @param aValue
-   * @return
+   *          the value to write, can be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
    */
-  private String quote( final Object aValue )
+  private void writeQuoted( final Object aValue ) throws IOException
   {
-    final String value;
-    if ( aValue == null )
-    {
-      value = "";
-    }
-    else
+    this.writer.write( '"' );
+    if ( aValue instanceof Character )
     {
-      if ( aValue instanceof Character )
+      final char ch = ( ( Character )aValue ).charValue();
+      if ( Character.isLetterOrDigit( ch ) )
       {
-        if ( Character.isLetterOrDigit( ( ( Character )aValue ).charValue() ) )
-        {
-          value = String.valueOf( aValue );
-        }
-        else
-        {
-          value = "";
-        }
-      }
-      else
-      {
-        value = String.valueOf( aValue );
+        this.writer.write( ch );
       }
     }
-    return "\"" + value + "\"";
+    else if ( aValue != null )
+    {
+      this.writer.write( String.valueOf( aValue ) );
+    }
+    this.writer.write( '"' );
   }
 }
@@ -21,6 +21,7 @@
 package nl.lxtreme.ols.util.export;
 
 
+import java.io.*;
 import java.util.logging.*;
 
 import nl.lxtreme.ols.util.ExportUtils.HtmlExporter;
@@ -35,6 +36,9 @@ public class HtmlExporterImpl implements HtmlExporter
 
   private static final Logger LOG = Logger.getAnonymousLogger();
 
+  private static final String DTD = "<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\" "
+      + "\"http://www.w3.org/TR/html4/strict.dtd\">";
+
   // VARIABLES
 
   private final Element root;
@@ -133,8 +137,7 @@ public class HtmlExporterImpl implements HtmlExporter
     final StringBuilder sb = new StringBuilder();
     if ( this.includeDTD )
     {
-      sb.append( "<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\" \"http://www.w3.org/TR/html4/strict.dtd\">" )
-          .append( '\n' );
+      sb.append( DTD ).append( '\n' );
     }
     sb.append( this.root.toString( aResolver ) );
 
@@ -145,4 +148,18 @@ public class HtmlExporterImpl implements HtmlExporter
 
     return sb.toString();
   }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write( final Writer aWriter, final MacroResolver aResolver ) throws IOException
+  {
+    if ( this.includeDTD )
+    {
+      aWriter.write( DTD );
+      aWriter.write( '\n' );
+    }
+    this.root.write( aWriter, aResolver );
+  }
 }
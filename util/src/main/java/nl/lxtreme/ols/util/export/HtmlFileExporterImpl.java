@@ -32,6 +32,11 @@ import nl.lxtreme.ols.util.ExportUtils.HtmlFileExporter;
  */
 public class HtmlFileExporterImpl extends HtmlExporterImpl implements HtmlFileExporter
 {
+  // CONSTANTS
+
+  /** The size of the write buffer, in characters. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
   // VARIABLES
 
   public final Writer writer;
@@ -49,7 +54,7 @@ public class HtmlFileExporterImpl extends HtmlExporterImpl implements HtmlFileEx
    */
   public HtmlFileExporterImpl( final File aFile ) throws IOException
   {
-    this( new OutputStreamWriter( new FileOutputStream( aFile ), "UTF8" ) );
+    this( new BufferedWriter( new OutputStreamWriter( new FileOutputStream( aFile ), "UTF8" ), BUFFER_SIZE ) );
   }
 
   /**
@@ -59,7 +64,7 @@ public class HtmlFileExporterImpl extends HtmlExporterImpl implements HtmlFileEx
    * @param aWriter
    *          the writer to write to, cannot be <code>null</code>;
    */
-  protected HtmlFileExporterImpl( final Writer aWriter )
+  public HtmlFileExporterImpl( final Writer aWriter )
   {
     super( true /* aIncludeDTD */);
     // Ensure for HTML files the content type is set...
@@ -93,6 +98,6 @@ public class HtmlFileExporterImpl extends HtmlExporterImpl implements HtmlFileEx
   @Override
   public void write( final MacroResolver aResolver ) throws IOException
   {
-    this.writer.write( toString( aResolver ) );
+    write( this.writer, aResolver );
   }
 }
@@ -0,0 +1,252 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.util.export;
+
+
+import java.io.*;
+import java.util.*;
+
+import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.Attribute;
+import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.Element;
+import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.MacroResolver;
+
+
+/**
+ * Provides the parent element handed to a macro resolver while writing, which
+ * writes each added child as soon as the next child is added.
+ * <p>
+ * As such, only the child that is being filled is kept in memory, regardless
+ * of the number of children (rows) a macro resolver adds.
+ * </p>
+ */
+final class StreamingElement implements Element
+{
+  // INNER TYPES
+
+  /**
+   * Signals an I/O problem while writing a child, which the methods of
+   * {@link Element} cannot throw directly.
+   */
+  static final class WriteFailedException extends RuntimeException
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link WriteFailedException} instance.
+     */
+    WriteFailedException( final IOException aCause )
+    {
+      super( aCause );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized IOException getCause()
+    {
+      return ( IOException )super.getCause();
+    }
+  }
+
+  // VARIABLES
+
+  private final Element parent;
+  private final Writer writer;
+  private final MacroResolver resolver;
+
+  private Element pending;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link StreamingElement} instance.
+   * 
+   * @param aParent
+   *          the element containing the macro, can be <code>null</code>;
+   * @param aWriter
+   *          the writer to write the children to, cannot be <code>null</code>;
+   * @param aResolver
+   *          the macro resolver to use for the children, cannot be
+   *          <code>null</code>.
+   */
+  StreamingElement( final Element aParent, final Writer aWriter, final MacroResolver aResolver )
+  {
+    this.parent = aParent;
+    this.writer = aWriter;
+    this.resolver = aResolver;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Element addAttribute( final String aName, final String aValue )
+  {
+    throw new IllegalStateException( "Cannot add attributes while writing!" );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Element addChild( final Element aChild )
+  {
+    flushQuietly();
+    this.pending = aChild.clone();
+    return this.pending;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Element addChild( final String aName )
+  {
+    flushQuietly();
+    this.pending = new TagElement( aName );
+    return this.pending;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Element addContent( final String... aValues )
+  {
+    flushQuietly();
+    for ( String value : aValues )
+    {
+      final TextElement element = new TextElement( value );
+      element.setParent( this );
+      this.pending = element;
+      flushQuietly();
+    }
+    return this;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Element clone()
+  {
+    throw new UnsupportedOperationException( "Cannot clone while writing!" );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Collection<Attribute> getAttributes()
+  {
+    if ( this.parent == null )
+    {
+      return Collections.emptyList();
+    }
+    return this.parent.getAttributes();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Element getChildByName( final String aName )
+  {
+    return null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Collection<Element> getChildren()
+  {
+    return Collections.emptyList();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getName()
+  {
+    return ( this.parent == null ) ? null : this.parent.getName();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString( final MacroResolver aResolver )
+  {
+    return "";
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write( final Writer aWriter, final MacroResolver aResolver ) throws IOException
+  {
+    // NO-op; all children are written while being added...
+  }
+
+  /**
+   * Writes the child that is being filled, if any.
+   * 
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  void flush() throws IOException
+  {
+    if ( this.pending != null )
+    {
+      final Element element = this.pending;
+      this.pending = null;
+      element.write( this.writer, this.resolver );
+    }
+  }
+
+  /**
+   * Writes the child that is being filled, if any, from within the methods of
+   * {@link Element}, which cannot throw I/O exceptions.
+   */
+  private void flushQuietly()
+  {
+    try
+    {
+      flush();
+    }
+    catch ( IOException exception )
+    {
+      throw new WriteFailedException( exception );
+    }
+  }
+}
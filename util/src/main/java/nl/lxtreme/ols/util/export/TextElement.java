@@ -21,6 +21,7 @@
 package nl.lxtreme.ols.util.export;
 
 
+import java.io.*;
 import java.util.*;
 import java.util.regex.*;
 
@@ -172,8 +173,8 @@ public final class TextElement implements Element
   @Override
   public String toString( final MacroResolver aResolver )
   {
-    final Matcher matcher = MACRO_PATTERN.matcher( this.value );
-    if ( matcher.matches() )
+    final Matcher matcher = getMacroMatcher();
+    if ( matcher != null )
     {
       Object result = aResolver.resolve( matcher.group( 1 ), this.parent );
       if ( result != null )
@@ -187,4 +188,53 @@ public final class TextElement implements Element
     }
     return this.value;
   }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write( final Writer aWriter, final MacroResolver aResolver ) throws IOException
+  {
+    final Matcher matcher = getMacroMatcher();
+    if ( matcher == null )
+    {
+      aWriter.write( this.value );
+      return;
+    }
+
+    final StreamingElement parent = new StreamingElement( this.parent, aWriter, aResolver );
+    final Object result;
+    try
+    {
+      result = aResolver.resolve( matcher.group( 1 ), parent );
+    }
+    catch ( StreamingElement.WriteFailedException exception )
+    {
+      throw exception.getCause();
+    }
+    parent.flush();
+
+    if ( result != null )
+    {
+      aWriter.write( String.valueOf( result ) );
+    }
+  }
+
+  /**
+   * Returns a matcher for the macro in this text element.
+   * 
+   * @return a matcher whose first group is the macro name, or
+   *         <code>null</code> if this text element does not contain a macro.
+   */
+  private Matcher getMacroMatcher()
+  {
+    // Most text elements have no macro, which is far cheaper to check than to
+    // match the pattern...
+    if ( this.value.indexOf( '{' ) < 0 )
+    {
+      return null;
+    }
+    final Matcher matcher = MACRO_PATTERN.matcher( this.value );
+    return matcher.matches() ? matcher : null;
+  }
 }
@@ -22,6 +22,9 @@ package nl.lxtreme.ols.util;
 
 
 import static org.junit.Assert.*;
+
+import java.io.*;
+
 import nl.lxtreme.ols.util.ExportUtils.*;
 import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.*;
 import nl.lxtreme.ols.util.export.*;
@@ -81,6 +84,24 @@ public class ExportUtilsTest
         this.exporter.toString() );
   }
 
+  /**
+   * Tests that a CSV exporter quotes all cells and writes them to the given
+   * writer.
+   */
+  @Test
+  public void testCsvExporterWritesToWriter() throws IOException
+  {
+    final StringWriter writer = new StringWriter();
+    final CsvExporter csvExporter = ExportUtils.createCsvExporter( writer );
+    csvExporter.setHeaders( "index", "data" );
+    csvExporter.addRow( Integer.valueOf( 1 ), Character.valueOf( 'a' ) );
+    csvExporter.addRow( Integer.valueOf( 2 ), null );
+    csvExporter.close();
+
+    final String nl = System.getProperty( "line.separator" );
+    assertEquals( "\"index\",\"data\"" + nl + "\"1\",\"a\"" + nl + "\"2\",\"\"" + nl, writer.toString() );
+  }
+
   /**
    * 
    */
@@ -214,4 +235,40 @@ public class ExportUtilsTest
 
     assertEquals( "<html><head><title></title></head><body><h1>test</h1></body></html>", this.exporter.toString() );
   }
+
+  /**
+   * Tests that the rows added by a macro are written while they are being
+   * added.
+   */
+  @Test
+  public void testWriteStreamsMacroRows() throws IOException
+  {
+    final Element tbody = this.exporter.getBody().addChild( HtmlExporter.TABLE ).addChild( HtmlExporter.TBODY );
+    tbody.addContent( "{rows}" );
+
+    final StringWriter writer = new StringWriter();
+    final MacroResolver resolver = new MacroResolver()
+    {
+      @Override
+      public Object resolve( final String aMacro, final Element aParent )
+      {
+        for ( int i = 0; i < 3; i++ )
+        {
+          aParent.addChild( HtmlExporter.TR ).addChild( HtmlExporter.TD ).addContent( String.valueOf( i ) );
+          if ( i > 0 )
+          {
+            // Adding a row should write the previous row...
+            assertTrue( writer.toString().endsWith( "<td>" + ( i - 1 ) + "</td></tr>" ) );
+          }
+        }
+        return null;
+      }
+    };
+
+    final String expected = "<html><head><title></title></head><body><table><tbody>"
+        + "<tr><td>0</td></tr><tr><td>1</td></tr><tr><td>2</td></tr></tbody></table></body></html>";
+
+    this.exporter.write( writer, resolver );
+    assertEquals( expected, writer.toString() );
+  }
 }